@@ -110,6 +110,29 @@ public final class ParsableByteArray {
     position = 0;
   }
 
+  /**
+   * Updates the instance to parse the {@link ByteBuffer#remaining() remaining} bytes of {@code
+   * buffer}. The position and limit of {@code buffer} are not modified.
+   *
+   * <p>If {@code buffer} is backed by an accessible array, the array is wrapped without copying
+   * and the position and limit are set to the indices of the remaining bytes in the array, which
+   * may be non-zero. Otherwise, the remaining bytes are copied to the start of the {@link
+   * #getData() underlying array}, which might be replaced or wiped as for {@link #reset(int)}, and
+   * the position is set to zero.
+   *
+   * @param buffer The buffer to parse.
+   */
+  public void reset(ByteBuffer buffer) {
+    if (buffer.hasArray()) {
+      reset(buffer.array(), /* limit= */ buffer.arrayOffset() + buffer.limit());
+      position = buffer.arrayOffset() + buffer.position();
+    } else {
+      int length = buffer.remaining();
+      reset(length);
+      buffer.duplicate().get(data, /* offset= */ 0, length);
+    }
+  }
+
   /**
    * Ensures the backing array is at least {@code requiredCapacity} long.
    *
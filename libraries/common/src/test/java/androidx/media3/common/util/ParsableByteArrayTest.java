@@ -71,6 +71,52 @@ public final class ParsableByteArrayTest {
     assertThat(array.limit()).isEqualTo(4);
   }
 
+  @Test
+  public void resetWithByteBuffer_heapBufferSlice_wrapsArrayWithoutCopying() {
+    byte[] data = Bytes.concat(new byte[] {0x01, 0x02}, TEST_DATA);
+    ByteBuffer buffer = ByteBuffer.wrap(data);
+    buffer.position(1);
+    ByteBuffer slice = buffer.slice();
+    slice.position(1);
+    slice.limit(1 + 4);
+    ParsableByteArray array = new ParsableByteArray();
+
+    array.reset(slice);
+
+    assertThat(array.getData()).isSameInstanceAs(data);
+    assertThat(array.getPosition()).isEqualTo(2);
+    assertThat(array.bytesLeft()).isEqualTo(4);
+    assertThat(array.readUnsignedInt()).isEqualTo(0x0FFF420FL);
+    assertThat(slice.position()).isEqualTo(1);
+    assertThat(slice.limit()).isEqualTo(5);
+  }
+
+  @Test
+  public void resetWithByteBuffer_directBuffer_copiesRemainingBytes() {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(TEST_DATA.length + 1);
+    buffer.put((byte) 0x01).put(TEST_DATA).flip();
+    buffer.position(1);
+    ParsableByteArray array = new ParsableByteArray();
+
+    array.reset(buffer);
+
+    assertThat(array.getPosition()).isEqualTo(0);
+    assertThat(array.limit()).isEqualTo(TEST_DATA.length);
+    assertThat(array.readUnsignedInt()).isEqualTo(0x0FFF420FL);
+    assertThat(buffer.position()).isEqualTo(1);
+  }
+
+  @Test
+  public void resetWithByteBuffer_readOnlyBuffer_copiesRemainingBytes() {
+    byte[] data = TEST_DATA.clone();
+    ParsableByteArray array = new ParsableByteArray();
+
+    array.reset(ByteBuffer.wrap(data).asReadOnlyBuffer());
+
+    assertThat(array.getData()).isNotSameInstanceAs(data);
+    assertThat(array.readUnsignedInt()).isEqualTo(0x0FFF420FL);
+  }
+
   @Test
   public void readShort() {
     testReadShort((short) -1);
@@ -777,18 +777,24 @@ public final class NalUnitUtil {
 
     int limit = endOffset - 1;
     // We're looking for the NAL unit start code prefix 0x000001. The value of i tracks the index of
-    // the third byte.
-    for (int i = startOffset + 2; i < limit; i += 3) {
-      if ((data[i] & 0xFE) != 0) {
-        // There isn't a NAL prefix here, or at the next two positions. Do nothing and let the
-        // loop advance the index by three.
-      } else if (data[i - 2] == 0 && data[i - 1] == 0 && data[i] == 1) {
+    // the third byte. A prefix ending at i + 1 or i + 2 requires data[i] == 0, and a prefix ending
+    // at i + 1 also requires data[i - 1] == 0, which determines how far the index can advance.
+    int i = startOffset + 2;
+    while (i < limit) {
+      int value = data[i];
+      if ((value & 0xFE) != 0) {
+        // There isn't a NAL prefix here, or at the next two positions.
+        i += 3;
+      } else if (value == 0) {
+        // There isn't a NAL prefix here, but there might be at the next position if the previous
+        // byte is also 0, or at the position after that otherwise.
+        i += data[i - 1] == 0 ? 1 : 2;
+      } else if (data[i - 1] == 0 && data[i - 2] == 0) {
         clearPrefixFlags(prefixFlags);
         return i - 2;
       } else {
-        // There isn't a NAL prefix here, but there might be at the next position. We should
-        // only skip forward by one. The loop will skip forward by three, so subtract two here.
-        i -= 2;
+        // data[i] == 1, so there isn't a NAL prefix here, or at the next two positions.
+        i += 3;
       }
     }
 
@@ -58,6 +58,16 @@ public final class NalUnitUtilTest {
     assertThat(result).isEqualTo(data.length);
   }
 
+  @Test
+  public void findNalUnit_withZerosAndOnesBeforeNalUnit_findsFirstNalUnit() {
+    assertThat(findNalUnit(0x00, 0x00, 0x00, 0x00, 0x01, 0x05, 0xFF, 0xFF)).isEqualTo(2);
+    assertThat(findNalUnit(0xFF, 0x00, 0xFF, 0x00, 0x00, 0x01, 0x05, 0xFF)).isEqualTo(3);
+    assertThat(findNalUnit(0x00, 0x01, 0x00, 0x01, 0x00, 0x00, 0x01, 0x05)).isEqualTo(4);
+    assertThat(findNalUnit(0x01, 0x00, 0x00, 0x01, 0x00, 0x00, 0x01, 0x05)).isEqualTo(1);
+    assertThat(findNalUnit(0x00, 0xFF, 0x00, 0x00, 0xFF, 0x00, 0x00, 0x01, 0x05)).isEqualTo(5);
+    assertThat(findNalUnit(0x00, 0x00, 0x02, 0x00, 0x00, 0x00, 0x00, 0x00, 0xFF)).isEqualTo(9);
+  }
+
   @Test
   public void findNalUnitWithPrefix() {
     byte[] data = buildTestData();
@@ -233,6 +243,11 @@ public final class NalUnitUtilTest {
     assertThat(spsData.colorTransfer).isEqualTo(6);
   }
 
+  private static int findNalUnit(int... bytes) {
+    byte[] data = createByteArray(bytes);
+    return NalUnitUtil.findNalUnit(data, 0, data.length, new boolean[3]);
+  }
+
   private static byte[] buildTestData() {
     byte[] data = new byte[20];
     Arrays.fill(data, (byte) 0xFF);
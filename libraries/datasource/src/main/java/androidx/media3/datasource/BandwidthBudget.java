@@ -0,0 +1,199 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.datasource;
+
+import static androidx.media3.common.util.Assertions.checkArgument;
+import static java.lang.Math.ceil;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import androidx.annotation.Nullable;
+import androidx.media3.common.util.Clock;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.common.util.Util;
+import java.util.Collections;
+import java.util.PriorityQueue;
+
+/**
+ * A bandwidth budget that's shared between tasks transferring data, such as the downloads of a
+ * {@code DownloadManager} and playback loading data from the network.
+ *
+ * <p>The budget is a token bucket that's refilled at a configurable rate, up to a maximum burst
+ * size. A task should call {@link #proceed(int)} before each transfer, and {@link
+ * #onBytesTransferred(long)} after it. A task may only proceed if the budget isn't exhausted, and
+ * if no task of higher priority is waiting to proceed. Transfers may overdraw the budget, in which
+ * case subsequent transfers are delayed until it's been repaid, so that the average transfer rate
+ * doesn't exceed the configured rate.
+ *
+ * <p>Because waiting tasks are allowed to proceed in order of priority, a task with a high priority
+ * takes as much of the budget as it needs, and tasks with lower priorities share what's left. For
+ * example if the player's upstream data sources share the budget with {@link
+ * androidx.media3.common.C#PRIORITY_PLAYBACK}, downloads with {@link
+ * androidx.media3.common.C#PRIORITY_DOWNLOAD} are throttled automatically whilst the player is
+ * buffering, and use the whole budget otherwise. Unlike {@link
+ * androidx.media3.common.PriorityTaskManager}, lower priority tasks aren't stopped altogether.
+ *
+ * <p>{@link BandwidthLimitedDataSource} can be used to apply a budget to {@link DataSource}
+ * instances.
+ *
+ * <p>This class is thread-safe.
+ */
+@UnstableApi
+public final class BandwidthBudget {
+
+  /** The default maximum burst duration, in milliseconds. */
+  public static final long DEFAULT_MAX_BURST_DURATION_MS = 100;
+
+  private final Object lock;
+  private final Clock clock;
+
+  // Guarded by lock.
+  private final PriorityQueue<Integer> waitingPriorities;
+  private long bytesPerSecond;
+  private long maxBurstBytes;
+  private double availableBytes;
+  private long lastUpdateTimeMs;
+
+  /**
+   * Creates an instance with a maximum burst size that corresponds to {@link
+   * #DEFAULT_MAX_BURST_DURATION_MS} at the given rate.
+   *
+   * @param bytesPerSecond The rate at which the budget is refilled, in bytes per second.
+   */
+  public BandwidthBudget(long bytesPerSecond) {
+    this(
+        bytesPerSecond,
+        /* maxBurstBytes= */ max(1, bytesPerSecond * DEFAULT_MAX_BURST_DURATION_MS / 1000),
+        Clock.DEFAULT);
+  }
+
+  /**
+   * Creates an instance.
+   *
+   * @param bytesPerSecond The rate at which the budget is refilled, in bytes per second.
+   * @param maxBurstBytes The maximum number of bytes that can be accumulated in the budget whilst
+   *     it's not used.
+   * @param clock The {@link Clock} used to refill the budget.
+   */
+  public BandwidthBudget(long bytesPerSecond, long maxBurstBytes, Clock clock) {
+    checkArgument(bytesPerSecond > 0);
+    checkArgument(maxBurstBytes > 0);
+    this.bytesPerSecond = bytesPerSecond;
+    this.maxBurstBytes = maxBurstBytes;
+    this.clock = clock;
+    lock = new Object();
+    waitingPriorities = new PriorityQueue<>(10, Collections.reverseOrder());
+    availableBytes = maxBurstBytes;
+    lastUpdateTimeMs = clock.elapsedRealtime();
+  }
+
+  /**
+   * Sets the rate at which the budget is refilled. The rate can be changed at any time, for example
+   * to reserve more bandwidth for playback.
+   *
+   * @param bytesPerSecond The rate at which the budget is refilled, in bytes per second.
+   * @param maxBurstBytes The maximum number of bytes that can be accumulated in the budget whilst
+   *     it's not used.
+   */
+  public void setRate(long bytesPerSecond, long maxBurstBytes) {
+    checkArgument(bytesPerSecond > 0);
+    checkArgument(maxBurstBytes > 0);
+    synchronized (lock) {
+      refill();
+      this.bytesPerSecond = bytesPerSecond;
+      this.maxBurstBytes = maxBurstBytes;
+      availableBytes = min(availableBytes, maxBurstBytes);
+      lock.notifyAll();
+    }
+  }
+
+  /** Returns the rate at which the budget is refilled, in bytes per second. */
+  public long getBytesPerSecond() {
+    synchronized (lock) {
+      return bytesPerSecond;
+    }
+  }
+
+  /**
+   * Blocks until a task is allowed to proceed with a transfer.
+   *
+   * @param priority The priority of the task. Larger values indicate higher priorities.
+   * @throws InterruptedException If the thread is interrupted.
+   */
+  public void proceed(int priority) throws InterruptedException {
+    synchronized (lock) {
+      waitingPriorities.add(priority);
+      try {
+        while (true) {
+          refill();
+          boolean isHighestPriority = Util.castNonNull(waitingPriorities.peek()) == priority;
+          if (isHighestPriority && availableBytes > 0) {
+            return;
+          }
+          // Tasks of lower priority are notified when a task of higher priority proceeds.
+          lock.wait(isHighestPriority ? getMsUntilAvailable() : 0);
+        }
+      } finally {
+        waitingPriorities.remove(priority);
+        lock.notifyAll();
+      }
+    }
+  }
+
+  /**
+   * A non-blocking variant of {@link #proceed(int)}.
+   *
+   * @param priority The priority of the task. Larger values indicate higher priorities.
+   * @return Whether the task is allowed to proceed.
+   */
+  public boolean proceedNonBlocking(int priority) {
+    synchronized (lock) {
+      refill();
+      @Nullable Integer highestWaitingPriority = waitingPriorities.peek();
+      return availableBytes > 0
+          && (highestWaitingPriority == null || highestWaitingPriority <= priority);
+    }
+  }
+
+  /**
+   * Charges transferred bytes to the budget.
+   *
+   * @param bytes The number of bytes transferred.
+   */
+  public void onBytesTransferred(long bytes) {
+    synchronized (lock) {
+      refill();
+      availableBytes -= bytes;
+    }
+  }
+
+  // Guarded by lock.
+  private void refill() {
+    long nowMs = clock.elapsedRealtime();
+    long elapsedMs = nowMs - lastUpdateTimeMs;
+    if (elapsedMs > 0) {
+      availableBytes =
+          min(maxBurstBytes, availableBytes + (double) elapsedMs * bytesPerSecond / 1000);
+      lastUpdateTimeMs = nowMs;
+    }
+  }
+
+  // Guarded by lock.
+  private long getMsUntilAvailable() {
+    // Always wait at least 1ms, since waiting for 0ms waits until notified.
+    return max(1, (long) ceil(-availableBytes * 1000 / bytesPerSecond));
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.datasource;
+
+import android.net.Uri;
+import androidx.annotation.Nullable;
+import androidx.media3.common.util.Assertions;
+import androidx.media3.common.util.UnstableApi;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link DataSource} that limits the rate at which data is read from upstream to a {@link
+ * BandwidthBudget}.
+ *
+ * <p>Calls to {@link #open(DataSpec)} and {@link #read(byte[], int, int)} block until the budget
+ * allows a task with the data source's priority to proceed. Bytes read from upstream are charged to
+ * the budget.
+ *
+ * <p>To throttle the downloads of a {@code DownloadManager}, wrap the upstream {@link
+ * DataSource.Factory} of the {@code CacheDataSource.Factory} used for downloading, using {@code
+ * C.PRIORITY_DOWNLOAD} as the priority. To give playback precedence over downloads, wrap the
+ * upstream {@link DataSource.Factory} used for playback with the same budget and {@code
+ * C.PRIORITY_PLAYBACK}.
+ */
+@UnstableApi
+public final class BandwidthLimitedDataSource implements DataSource {
+
+  /** {@link DataSource.Factory} for {@link BandwidthLimitedDataSource} instances. */
+  public static final class Factory implements DataSource.Factory {
+
+    private final DataSource.Factory upstreamFactory;
+    private final BandwidthBudget bandwidthBudget;
+    private final int priority;
+
+    /**
+     * Creates an instance.
+     *
+     * @param upstreamFactory A {@link DataSource.Factory} that provides upstream {@link DataSource
+     *     DataSources} for {@link BandwidthLimitedDataSource} instances created by the factory.
+     * @param bandwidthBudget The {@link BandwidthBudget} shared by {@link
+     *     BandwidthLimitedDataSource} instances created by the factory.
+     * @param priority The priority with which {@link BandwidthLimitedDataSource} instances created
+     *     by the factory use the budget.
+     */
+    public Factory(
+        DataSource.Factory upstreamFactory, BandwidthBudget bandwidthBudget, int priority) {
+      this.upstreamFactory = upstreamFactory;
+      this.bandwidthBudget = bandwidthBudget;
+      this.priority = priority;
+    }
+
+    @Override
+    public BandwidthLimitedDataSource createDataSource() {
+      return new BandwidthLimitedDataSource(
+          upstreamFactory.createDataSource(), bandwidthBudget, priority);
+    }
+  }
+
+  private final DataSource upstream;
+  private final BandwidthBudget bandwidthBudget;
+  private final int priority;
+
+  /**
+   * @param upstream The upstream {@link DataSource}.
+   * @param bandwidthBudget The {@link BandwidthBudget} to which reads are charged.
+   * @param priority The priority with which the budget is used.
+   */
+  public BandwidthLimitedDataSource(
+      DataSource upstream, BandwidthBudget bandwidthBudget, int priority) {
+    this.upstream = Assertions.checkNotNull(upstream);
+    this.bandwidthBudget = Assertions.checkNotNull(bandwidthBudget);
+    this.priority = priority;
+  }
+
+  @Override
+  public void addTransferListener(TransferListener transferListener) {
+    Assertions.checkNotNull(transferListener);
+    upstream.addTransferListener(transferListener);
+  }
+
+  @Override
+  public long open(DataSpec dataSpec) throws IOException {
+    proceed();
+    return upstream.open(dataSpec);
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int length) throws IOException {
+    if (length == 0) {
+      return 0;
+    }
+    proceed();
+    int bytesRead = upstream.read(buffer, offset, length);
+    if (bytesRead > 0) {
+      bandwidthBudget.onBytesTransferred(bytesRead);
+    }
+    return bytesRead;
+  }
+
+  @Override
+  @Nullable
+  public Uri getUri() {
+    return upstream.getUri();
+  }
+
+  @Override
+  public Map<String, List<String>> getResponseHeaders() {
+    return upstream.getResponseHeaders();
+  }
+
+  @Override
+  public void close() throws IOException {
+    upstream.close();
+  }
+
+  private void proceed() throws InterruptedIOException {
+    try {
+      bandwidthBudget.proceed(priority);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    }
+  }
+}
@@ -181,7 +181,14 @@ public final class FileDataSource extends BaseDataSource {
     }
   }
 
-  private static RandomAccessFile openLocalFile(Uri uri) throws FileDataSourceException {
+  /**
+   * Opens a local file for reading.
+   *
+   * @param uri The {@link Uri} of the file.
+   * @return The opened file.
+   * @throws FileDataSourceException If the file could not be opened.
+   */
+  /* package */ static RandomAccessFile openLocalFile(Uri uri) throws FileDataSourceException {
     try {
       return new RandomAccessFile(Assertions.checkNotNull(uri.getPath()), "r");
     } catch (FileNotFoundException e) {
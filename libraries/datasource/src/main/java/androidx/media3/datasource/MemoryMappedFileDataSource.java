@@ -0,0 +1,302 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.datasource;
+
+import static androidx.media3.common.util.Assertions.checkArgument;
+import static androidx.media3.common.util.Assertions.checkNotNull;
+import static androidx.media3.common.util.Util.castNonNull;
+import static java.lang.Math.min;
+
+import android.net.Uri;
+import androidx.annotation.Nullable;
+import androidx.media3.common.C;
+import androidx.media3.common.PlaybackException;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.datasource.FileDataSource.FileDataSourceException;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A {@link DataSource} for reading local files through memory mappings.
+ *
+ * <p>Reads are served directly from a {@link MappedByteBuffer}, rather than through a system call
+ * and an intermediate copy per read as in {@link FileDataSource}. Mappings of the most recently
+ * opened files are shared between all instances created by the same {@link Factory}, so that
+ * reopening a file (for example when a {@link androidx.media3.datasource.cache.CacheDataSource}
+ * switches between the span files of a fully cached resource) doesn't require it to be mapped
+ * again.
+ *
+ * <p>Files must not be truncated or modified whilst they're mapped. Cache span files satisfy this
+ * requirement, since they're never modified once committed to the cache.
+ */
+@UnstableApi
+public final class MemoryMappedFileDataSource extends BaseDataSource {
+
+  /** {@link DataSource.Factory} for {@link MemoryMappedFileDataSource} instances. */
+  public static final class Factory implements DataSource.Factory {
+
+    @Nullable private TransferListener listener;
+    private MappingPool mappingPool;
+
+    /** Creates an instance. */
+    public Factory() {
+      mappingPool = new MappingPool(DEFAULT_MAX_POOLED_MAPPINGS);
+    }
+
+    /**
+     * Sets a {@link TransferListener} for {@link MemoryMappedFileDataSource} instances created by
+     * this factory.
+     *
+     * @param listener The {@link TransferListener}.
+     * @return This factory.
+     */
+    @CanIgnoreReturnValue
+    public Factory setListener(@Nullable TransferListener listener) {
+      this.listener = listener;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of file mappings that are kept open for reuse by the instances
+     * created by this factory. Must be called before the factory is used.
+     *
+     * <p>The default is {@link #DEFAULT_MAX_POOLED_MAPPINGS}.
+     *
+     * @param maxPooledMappings The maximum number of pooled mappings, or 0 to disable pooling.
+     * @return This factory.
+     */
+    @CanIgnoreReturnValue
+    public Factory setMaxPooledMappings(int maxPooledMappings) {
+      checkArgument(maxPooledMappings >= 0);
+      mappingPool = new MappingPool(maxPooledMappings);
+      return this;
+    }
+
+    @Override
+    public MemoryMappedFileDataSource createDataSource() {
+      MemoryMappedFileDataSource dataSource = new MemoryMappedFileDataSource(mappingPool);
+      if (listener != null) {
+        dataSource.addTransferListener(listener);
+      }
+      return dataSource;
+    }
+  }
+
+  /** The default maximum number of file mappings kept open for reuse. */
+  public static final int DEFAULT_MAX_POOLED_MAPPINGS = 16;
+
+  /**
+   * The maximum size of a single mapping. Files that are larger are mapped in windows of this size,
+   * which are not pooled.
+   */
+  private static final long MAX_MAPPING_SIZE = Integer.MAX_VALUE;
+
+  private final MappingPool mappingPool;
+
+  @Nullable private Uri uri;
+  @Nullable private ByteBuffer mapping;
+  private long mappingPosition;
+  private long fileLength;
+  private long bytesRemaining;
+  private boolean opened;
+
+  /** Creates an instance that doesn't share its mappings with any other instance. */
+  public MemoryMappedFileDataSource() {
+    this(new MappingPool(DEFAULT_MAX_POOLED_MAPPINGS));
+  }
+
+  private MemoryMappedFileDataSource(MappingPool mappingPool) {
+    super(/* isNetwork= */ false);
+    this.mappingPool = mappingPool;
+  }
+
+  @Override
+  public long open(DataSpec dataSpec) throws FileDataSourceException {
+    Uri uri = dataSpec.uri;
+    this.uri = uri;
+    transferInitializing(dataSpec);
+    File file = new File(checkNotNull(uri.getPath()));
+    @Nullable MappedByteBuffer pooledMapping = mappingPool.get(file);
+    if (pooledMapping != null) {
+      fileLength = pooledMapping.capacity();
+      mappingPosition = 0;
+      mapping = pooledMapping.duplicate();
+    } else {
+      mapFile(file, uri, dataSpec.position);
+    }
+    if (dataSpec.position > fileLength) {
+      throw new FileDataSourceException(
+          /* message= */ null,
+          /* cause= */ null,
+          PlaybackException.ERROR_CODE_IO_READ_POSITION_OUT_OF_RANGE);
+    }
+    castNonNull(mapping).position((int) (dataSpec.position - mappingPosition));
+    bytesRemaining =
+        dataSpec.length == C.LENGTH_UNSET ? fileLength - dataSpec.position : dataSpec.length;
+
+    opened = true;
+    transferStarted(dataSpec);
+
+    return bytesRemaining;
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int length) throws FileDataSourceException {
+    if (length == 0) {
+      return 0;
+    } else if (bytesRemaining == 0) {
+      return C.RESULT_END_OF_INPUT;
+    }
+    ByteBuffer mapping = castNonNull(this.mapping);
+    if (!mapping.hasRemaining()) {
+      long nextMappingPosition = mappingPosition + mapping.limit();
+      if (nextMappingPosition >= fileLength) {
+        return C.RESULT_END_OF_INPUT;
+      }
+      // Only files larger than MAX_MAPPING_SIZE are mapped in windows.
+      mapWindow(castNonNull(uri), nextMappingPosition);
+      mapping = castNonNull(this.mapping);
+    }
+    int bytesRead = (int) min(min(bytesRemaining, length), mapping.remaining());
+    mapping.get(buffer, offset, bytesRead);
+    bytesRemaining -= bytesRead;
+    bytesTransferred(bytesRead);
+    return bytesRead;
+  }
+
+  @Override
+  @Nullable
+  public Uri getUri() {
+    return uri;
+  }
+
+  @Override
+  public void close() {
+    uri = null;
+    // Unpooled mappings are released when they're garbage collected.
+    mapping = null;
+    if (opened) {
+      opened = false;
+      transferEnded();
+    }
+  }
+
+  private void mapFile(File file, Uri uri, long position) throws FileDataSourceException {
+    RandomAccessFile randomAccessFile = FileDataSource.openLocalFile(uri);
+    try {
+      fileLength = randomAccessFile.length();
+      if (fileLength <= MAX_MAPPING_SIZE) {
+        MappedByteBuffer fileMapping =
+            randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, fileLength);
+        mappingPool.put(file, fileMapping);
+        mappingPosition = 0;
+        mapping = fileMapping.duplicate();
+      } else {
+        mapWindow(randomAccessFile.getChannel(), min(position, fileLength));
+      }
+    } catch (IOException e) {
+      throw new FileDataSourceException(e, PlaybackException.ERROR_CODE_IO_UNSPECIFIED);
+    } finally {
+      // The mapping remains valid after the file is closed.
+      closeQuietly(randomAccessFile);
+    }
+  }
+
+  private void mapWindow(Uri uri, long position) throws FileDataSourceException {
+    RandomAccessFile randomAccessFile = FileDataSource.openLocalFile(uri);
+    try {
+      mapWindow(randomAccessFile.getChannel(), position);
+    } catch (IOException e) {
+      throw new FileDataSourceException(e, PlaybackException.ERROR_CODE_IO_UNSPECIFIED);
+    } finally {
+      closeQuietly(randomAccessFile);
+    }
+  }
+
+  private void mapWindow(FileChannel channel, long position) throws IOException {
+    long size = min(fileLength - position, MAX_MAPPING_SIZE);
+    mappingPosition = position;
+    mapping = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+  }
+
+  private static void closeQuietly(RandomAccessFile randomAccessFile) {
+    try {
+      randomAccessFile.close();
+    } catch (IOException e) {
+      // Ignore.
+    }
+  }
+
+  /**
+   * A bounded, least recently used pool of whole file mappings, keyed by file. Mappings are
+   * discarded if the length or modification time of the file has changed since it was mapped.
+   */
+  private static final class MappingPool {
+
+    private final int maxSize;
+    private final LinkedHashMap<String, PooledMapping> mappings;
+
+    public MappingPool(int maxSize) {
+      this.maxSize = maxSize;
+      mappings =
+          new LinkedHashMap<String, PooledMapping>(
+              /* initialCapacity= */ 16, /* loadFactor= */ 0.75f, /* accessOrder= */ true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PooledMapping> eldest) {
+              return size() > MappingPool.this.maxSize;
+            }
+          };
+    }
+
+    @Nullable
+    public synchronized MappedByteBuffer get(File file) {
+      @Nullable PooledMapping pooledMapping = mappings.get(file.getPath());
+      if (pooledMapping == null) {
+        return null;
+      }
+      if (pooledMapping.mapping.capacity() != file.length()
+          || pooledMapping.lastModified != file.lastModified()) {
+        mappings.remove(file.getPath());
+        return null;
+      }
+      return pooledMapping.mapping;
+    }
+
+    public synchronized void put(File file, MappedByteBuffer mapping) {
+      if (maxSize > 0) {
+        mappings.put(file.getPath(), new PooledMapping(mapping, file.lastModified()));
+      }
+    }
+  }
+
+  private static final class PooledMapping {
+
+    public final MappedByteBuffer mapping;
+    public final long lastModified;
+
+    public PooledMapping(MappedByteBuffer mapping, long lastModified) {
+      this.mapping = mapping;
+      this.lastModified = lastModified;
+    }
+  }
+}
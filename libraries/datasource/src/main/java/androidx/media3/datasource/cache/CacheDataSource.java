@@ -37,6 +37,7 @@ import androidx.media3.datasource.DataSource;
 import androidx.media3.datasource.DataSourceException;
 import androidx.media3.datasource.DataSpec;
 import androidx.media3.datasource.FileDataSource;
+import androidx.media3.datasource.MemoryMappedFileDataSource;
 import androidx.media3.datasource.PlaceholderDataSource;
 import androidx.media3.datasource.PriorityDataSource;
 import androidx.media3.datasource.TeeDataSource;
@@ -108,7 +109,9 @@ public final class CacheDataSource implements DataSource {
      * Sets the {@link DataSource.Factory} for {@link DataSource DataSources} for reading from the
      * cache.
      *
-     * <p>The default is a {@link FileDataSource.Factory} in its default configuration.
+     * <p>The default is a {@link FileDataSource.Factory} in its default configuration. A {@link
+     * MemoryMappedFileDataSource.Factory} can be set instead to read cached data through memory
+     * mappings, which is more efficient when reading large amounts of fully cached content.
      *
      * @param cacheReadDataSourceFactory The {@link DataSource.Factory} for reading from the cache.
      * @return This factory.
@@ -28,7 +28,13 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.TreeSet;
 
-/** Defines the cached content for a single resource. */
+/**
+ * Defines the cached content for a single resource.
+ *
+ * <p>Span and metadata accessors are synchronized on the instance, so that they can be queried
+ * without holding the lock of the owning {@link SimpleCache}. Mutations are additionally expected
+ * to be made whilst holding the lock of the owning cache.
+ */
 /* package */ final class CachedContent {
 
   private static final String TAG = "CachedContent";
@@ -67,7 +73,7 @@ import java.util.TreeSet;
   }
 
   /** Returns the metadata. */
-  public DefaultContentMetadata getMetadata() {
+  public synchronized DefaultContentMetadata getMetadata() {
     return metadata;
   }
 
@@ -76,7 +82,7 @@ import java.util.TreeSet;
    *
    * @return Whether {@code mutations} changed any metadata.
    */
-  public boolean applyMetadataMutations(ContentMetadataMutations mutations) {
+  public synchronized boolean applyMetadataMutations(ContentMetadataMutations mutations) {
     DefaultContentMetadata oldMetadata = metadata;
     metadata = metadata.copyWithMutationsApplied(mutations);
     return !metadata.equals(oldMetadata);
@@ -137,15 +143,23 @@ import java.util.TreeSet;
   }
 
   /** Adds the given {@link SimpleCacheSpan} which contains a part of the content. */
-  public void addSpan(SimpleCacheSpan span) {
+  public synchronized void addSpan(SimpleCacheSpan span) {
     cachedSpans.add(span);
   }
 
-  /** Returns a set of all {@link SimpleCacheSpan}s. */
+  /**
+   * Returns a set of all {@link SimpleCacheSpan}s. The returned set is backed by this instance, and
+   * so must only be accessed whilst holding the lock of the owning cache.
+   */
   public TreeSet<SimpleCacheSpan> getSpans() {
     return cachedSpans;
   }
 
+  /** Returns a copy of the set of all {@link SimpleCacheSpan}s. */
+  public synchronized TreeSet<CacheSpan> copySpans() {
+    return new TreeSet<CacheSpan>(cachedSpans);
+  }
+
   /**
    * Returns the cache span corresponding to the provided range. See {@link
    * Cache#startReadWrite(String, long, long)} for detailed descriptions of the returned spans.
@@ -154,7 +168,7 @@ import java.util.TreeSet;
    * @param length The length of the span, or {@link C#LENGTH_UNSET} if unbounded.
    * @return The corresponding cache {@link SimpleCacheSpan}.
    */
-  public SimpleCacheSpan getSpan(long position, long length) {
+  public synchronized SimpleCacheSpan getSpan(long position, long length) {
     SimpleCacheSpan lookupSpan = SimpleCacheSpan.createLookup(key, position);
     SimpleCacheSpan floorSpan = cachedSpans.floor(lookupSpan);
     if (floorSpan != null && floorSpan.position + floorSpan.length > position) {
@@ -179,7 +193,7 @@ import java.util.TreeSet;
    * @return The length of continuously cached data, or {@code -holeLength} if {@code position}
    *     isn't cached.
    */
-  public long getCachedBytesLength(long position, long length) {
+  public synchronized long getCachedBytesLength(long position, long length) {
     checkArgument(position >= 0);
     checkArgument(length >= 0);
     SimpleCacheSpan span = getSpan(position, length);
@@ -220,7 +234,7 @@ import java.util.TreeSet;
    *     last touch time.
    * @return A span with the updated last touch timestamp.
    */
-  public SimpleCacheSpan setLastTouchTimestamp(
+  public synchronized SimpleCacheSpan setLastTouchTimestamp(
       SimpleCacheSpan cacheSpan, long lastTouchTimestamp, boolean updateFile) {
     checkState(cachedSpans.remove(cacheSpan));
     File file = checkNotNull(cacheSpan.file);
@@ -241,12 +255,12 @@ import java.util.TreeSet;
   }
 
   /** Returns whether there are any spans cached. */
-  public boolean isEmpty() {
+  public synchronized boolean isEmpty() {
     return cachedSpans.isEmpty();
   }
 
   /** Removes the given span from cache. */
-  public boolean removeSpan(CacheSpan span) {
+  public synchronized boolean removeSpan(CacheSpan span) {
     if (cachedSpans.remove(span)) {
       if (span.file != null) {
         span.file.delete();
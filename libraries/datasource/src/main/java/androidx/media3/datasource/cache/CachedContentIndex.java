@@ -18,6 +18,7 @@ package androidx.media3.datasource.cache;
 import static androidx.media3.common.util.Assertions.checkNotNull;
 import static androidx.media3.common.util.Assertions.checkState;
 import static androidx.media3.common.util.Util.castNonNull;
+import static java.lang.Math.max;
 import static java.lang.Math.min;
 
 import android.annotation.SuppressLint;
@@ -45,6 +46,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -58,6 +60,8 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
 import javax.crypto.Cipher;
 import javax.crypto.CipherInputStream;
 import javax.crypto.CipherOutputStream;
@@ -70,10 +74,11 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
 /* package */ class CachedContentIndex {
 
   /* package */ static final String FILE_NAME_ATOMIC = "cached_content_index.exi";
+  /* package */ static final String FILE_NAME_JOURNAL = FILE_NAME_ATOMIC + ".journal";
 
   private static final int INCREMENTAL_METADATA_READ_LENGTH = 10 * 1024 * 1024;
 
-  private final HashMap<String, CachedContent> keyToContent;
+  private final ConcurrentHashMap<String, CachedContent> keyToContent;
 
   /**
    * Maps assigned ids to their corresponding keys. Also contains (id -> null) entries for ids that
@@ -108,7 +113,8 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
 
   /** Returns whether the file is an index file. */
   public static boolean isIndexFile(String fileName) {
-    // Atomic file backups add additional suffixes to the file name.
+    // Atomic file backups add additional suffixes to the file name. The journal file name also
+    // starts with FILE_NAME_ATOMIC.
     return fileName.startsWith(FILE_NAME_ATOMIC);
   }
 
@@ -163,7 +169,7 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
       boolean legacyStorageEncrypt,
       boolean preferLegacyStorage) {
     checkState(databaseProvider != null || legacyStorageDir != null);
-    keyToContent = new HashMap<>();
+    keyToContent = new ConcurrentHashMap<>();
     idToKey = new SparseArray<>();
     removedIds = new SparseBooleanArray();
     newIds = new SparseBooleanArray();
@@ -187,6 +193,27 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
     }
   }
 
+  /**
+   * Creates an instance supporting journal storage only. Any existing legacy storage in {@code
+   * storageDir} is migrated to journal storage when the instance is initialized.
+   *
+   * @param storageDir The directory in which the journal is stored.
+   * @param legacyStorageSecretKey A 16 byte AES key for reading existing legacy storage, or {@code
+   *     null}.
+   */
+  public CachedContentIndex(File storageDir, @Nullable byte[] legacyStorageSecretKey) {
+    keyToContent = new ConcurrentHashMap<>();
+    idToKey = new SparseArray<>();
+    removedIds = new SparseBooleanArray();
+    newIds = new SparseBooleanArray();
+    storage = new JournalStorage(new File(storageDir, FILE_NAME_JOURNAL));
+    previousStorage =
+        new LegacyStorage(
+            new File(storageDir, FILE_NAME_ATOMIC),
+            legacyStorageSecretKey,
+            /* encrypt= */ false);
+  }
+
   /**
    * Loads the index data for the given cache UID.
    *
@@ -464,7 +491,7 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
      * @param idToKey The id to key map to populate with persisted data.
      * @throws IOException If an error occurs loading the index.
      */
-    void load(HashMap<String, CachedContent> content, SparseArray<@NullableType String> idToKey)
+    void load(Map<String, CachedContent> content, SparseArray<@NullableType String> idToKey)
         throws IOException;
 
     /**
@@ -474,17 +501,17 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
      * @param content The key to content map to persist.
      * @throws IOException If an error occurs persisting the index.
      */
-    void storeFully(HashMap<String, CachedContent> content) throws IOException;
+    void storeFully(Map<String, CachedContent> content) throws IOException;
 
     /**
      * Ensures incremental changes to the index since the initial {@link #initialize(long)} or last
-     * {@link #storeFully(HashMap)} are persisted. The storage will have been notified of all such
+     * {@link #storeFully(Map)} are persisted. The storage will have been notified of all such
      * changes via {@link #onUpdate(CachedContent)} and {@link #onRemove(CachedContent, boolean)}.
      *
      * @param content The key to content map to persist.
      * @throws IOException If an error occurs persisting the index.
      */
-    void storeIncremental(HashMap<String, CachedContent> content) throws IOException;
+    void storeIncremental(Map<String, CachedContent> content) throws IOException;
 
     /**
      * Called when a {@link CachedContent} is added or updated.
@@ -558,7 +585,7 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
 
     @Override
     public void load(
-        HashMap<String, CachedContent> content, SparseArray<@NullableType String> idToKey) {
+        Map<String, CachedContent> content, SparseArray<@NullableType String> idToKey) {
       checkState(!changed);
       if (!readFile(content, idToKey)) {
         content.clear();
@@ -568,13 +595,13 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
     }
 
     @Override
-    public void storeFully(HashMap<String, CachedContent> content) throws IOException {
+    public void storeFully(Map<String, CachedContent> content) throws IOException {
       writeFile(content);
       changed = false;
     }
 
     @Override
-    public void storeIncremental(HashMap<String, CachedContent> content) throws IOException {
+    public void storeIncremental(Map<String, CachedContent> content) throws IOException {
       if (!changed) {
         return;
       }
@@ -592,7 +619,7 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
     }
 
     private boolean readFile(
-        HashMap<String, CachedContent> content, SparseArray<@NullableType String> idToKey) {
+        Map<String, CachedContent> content, SparseArray<@NullableType String> idToKey) {
       if (!atomicFile.exists()) {
         return true;
       }
@@ -647,7 +674,7 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
       return true;
     }
 
-    private void writeFile(HashMap<String, CachedContent> content) throws IOException {
+    private void writeFile(Map<String, CachedContent> content) throws IOException {
       @Nullable DataOutputStream output = null;
       try {
         OutputStream outputStream = atomicFile.startWrite();
@@ -746,6 +773,261 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
     }
   }
 
+  /**
+   * {@link Storage} implementation that uses an append-only journal.
+   *
+   * <p>The journal starts with a full snapshot of the index, written as an update record for each
+   * {@link CachedContent}. Each incremental store appends a record for each {@link CachedContent}
+   * that's been updated or removed since the previous store, so that its cost is proportional to
+   * the number of changes rather than to the size of the index. Once the appended records outgrow
+   * the snapshot, the journal is compacted by rewriting it as a new snapshot. This bounds the
+   * journal to roughly twice the size of a full index file, and hence bounds the cost of replaying
+   * it on load.
+   *
+   * <p>Each record is followed by a checksum. If the process is killed whilst a record is being
+   * appended then the incomplete record is discarded on load, and the journal is compacted on the
+   * next store. The journal is not encrypted.
+   */
+  private static final class JournalStorage implements Storage {
+
+    private static final int VERSION = 1;
+
+    private static final int RECORD_TYPE_UPDATE = 0;
+    private static final int RECORD_TYPE_REMOVE = 1;
+
+    /** The size of a record excluding its payload, which consists of a length and a checksum. */
+    private static final int RECORD_OVERHEAD = 8;
+
+    /** The minimum number of appended bytes before the journal is compacted. */
+    private static final long MIN_COMPACTION_THRESHOLD_BYTES = 256 * 1024;
+
+    private final File file;
+    private final AtomicFile atomicFile;
+    private final SparseArray<@NullableType CachedContent> pendingUpdates;
+    private final ByteArrayOutputStream recordBuffer;
+    private final DataOutputStream recordOutput;
+    private final CRC32 crc32;
+
+    private long snapshotLength;
+    private long journalLength;
+    private boolean compactionRequired;
+    @Nullable private ReusableBufferedOutputStream bufferedOutputStream;
+
+    public JournalStorage(File file) {
+      this.file = file;
+      atomicFile = new AtomicFile(file);
+      pendingUpdates = new SparseArray<>();
+      recordBuffer = new ByteArrayOutputStream();
+      recordOutput = new DataOutputStream(recordBuffer);
+      crc32 = new CRC32();
+    }
+
+    @Override
+    public void initialize(long uid) {
+      // Do nothing. Journal storage uses a separate file for each cache.
+    }
+
+    @Override
+    public boolean exists() {
+      return atomicFile.exists();
+    }
+
+    @Override
+    public void delete() {
+      atomicFile.delete();
+    }
+
+    @Override
+    public void load(
+        Map<String, CachedContent> content, SparseArray<@NullableType String> idToKey) {
+      checkState(pendingUpdates.size() == 0);
+      snapshotLength = 0;
+      journalLength = 0;
+      compactionRequired = false;
+      if (!atomicFile.exists()) {
+        return;
+      }
+      @Nullable DataInputStream input = null;
+      try {
+        input = new DataInputStream(new BufferedInputStream(atomicFile.openRead()));
+        // The file length must be read after openRead, which restores any backup.
+        long fileLength = file.length();
+        if (fileLength < 4 || input.readInt() != VERSION) {
+          content.clear();
+          idToKey.clear();
+          atomicFile.delete();
+          return;
+        }
+        long position = 4;
+        byte[] payload = Util.EMPTY_BYTE_ARRAY;
+        while (position < fileLength) {
+          long bytesLeft = fileLength - position;
+          if (bytesLeft < RECORD_OVERHEAD) {
+            break;
+          }
+          int payloadLength = input.readInt();
+          if (payloadLength <= 0 || payloadLength > bytesLeft - RECORD_OVERHEAD) {
+            break;
+          }
+          if (payload.length < payloadLength) {
+            payload = new byte[payloadLength];
+          }
+          input.readFully(payload, 0, payloadLength);
+          int checksum = input.readInt();
+          crc32.reset();
+          crc32.update(payload, 0, payloadLength);
+          if ((int) crc32.getValue() != checksum) {
+            break;
+          }
+          applyRecord(
+              new DataInputStream(new ByteArrayInputStream(payload, 0, payloadLength)),
+              content,
+              idToKey);
+          position += payloadLength + RECORD_OVERHEAD;
+        }
+        journalLength = position;
+        // The journal is compacted on the next store if any records were discarded.
+        compactionRequired = position != fileLength;
+      } catch (IOException e) {
+        // Keep the records that were read successfully, and discard the rest.
+        compactionRequired = true;
+      } finally {
+        if (input != null) {
+          Util.closeQuietly(input);
+        }
+      }
+    }
+
+    @Override
+    public void storeFully(Map<String, CachedContent> content) throws IOException {
+      @Nullable DataOutputStream output = null;
+      try {
+        OutputStream outputStream = atomicFile.startWrite();
+        if (bufferedOutputStream == null) {
+          bufferedOutputStream = new ReusableBufferedOutputStream(outputStream);
+        } else {
+          bufferedOutputStream.reset(outputStream);
+        }
+        output = new DataOutputStream(bufferedOutputStream);
+        output.writeInt(VERSION);
+        long length = 4;
+        for (CachedContent cachedContent : content.values()) {
+          length += writeRecord(output, cachedContent.id, cachedContent);
+        }
+        atomicFile.endWrite(output);
+        output = null;
+        snapshotLength = length;
+        journalLength = length;
+        compactionRequired = false;
+        pendingUpdates.clear();
+      } finally {
+        Util.closeQuietly(output);
+      }
+    }
+
+    @Override
+    public void storeIncremental(Map<String, CachedContent> content) throws IOException {
+      if (pendingUpdates.size() == 0 && !compactionRequired) {
+        return;
+      }
+      if (compactionRequired
+          || journalLength == 0
+          || journalLength - snapshotLength > max(MIN_COMPACTION_THRESHOLD_BYTES, snapshotLength)) {
+        storeFully(content);
+        return;
+      }
+      ByteArrayOutputStream records = new ByteArrayOutputStream();
+      DataOutputStream recordsOutput = new DataOutputStream(records);
+      for (int i = 0; i < pendingUpdates.size(); i++) {
+        writeRecord(recordsOutput, pendingUpdates.keyAt(i), pendingUpdates.valueAt(i));
+      }
+      try (FileOutputStream outputStream = new FileOutputStream(file, /* append= */ true)) {
+        records.writeTo(outputStream);
+        outputStream.getFD().sync();
+      } catch (IOException e) {
+        // A partially appended record would hide any records appended after it.
+        compactionRequired = true;
+        throw e;
+      }
+      journalLength += records.size();
+      pendingUpdates.clear();
+    }
+
+    @Override
+    public void onUpdate(CachedContent cachedContent) {
+      pendingUpdates.put(cachedContent.id, cachedContent);
+    }
+
+    @Override
+    public void onRemove(CachedContent cachedContent, boolean neverStored) {
+      if (neverStored) {
+        pendingUpdates.delete(cachedContent.id);
+      } else {
+        pendingUpdates.put(cachedContent.id, null);
+      }
+    }
+
+    /**
+     * Writes an update record for {@code cachedContent}, or a remove record if it's {@code null}.
+     *
+     * @return The number of bytes written.
+     */
+    private int writeRecord(DataOutputStream output, int id, @Nullable CachedContent cachedContent)
+        throws IOException {
+      recordBuffer.reset();
+      if (cachedContent == null) {
+        recordOutput.writeByte(RECORD_TYPE_REMOVE);
+        recordOutput.writeInt(id);
+      } else {
+        recordOutput.writeByte(RECORD_TYPE_UPDATE);
+        recordOutput.writeInt(id);
+        recordOutput.writeUTF(cachedContent.key);
+        writeContentMetadata(cachedContent.getMetadata(), recordOutput);
+      }
+      recordOutput.flush();
+      byte[] payload = recordBuffer.toByteArray();
+      crc32.reset();
+      crc32.update(payload);
+      output.writeInt(payload.length);
+      output.write(payload);
+      output.writeInt((int) crc32.getValue());
+      return payload.length + RECORD_OVERHEAD;
+    }
+
+    private static void applyRecord(
+        DataInputStream input,
+        Map<String, CachedContent> content,
+        SparseArray<@NullableType String> idToKey)
+        throws IOException {
+      int type = input.readByte();
+      int id = input.readInt();
+      @Nullable String previousKey = idToKey.get(id);
+      if (type == RECORD_TYPE_REMOVE) {
+        if (previousKey != null) {
+          // The key may have been re-added with a different id in the same batch of records.
+          @Nullable CachedContent cachedContent = content.get(previousKey);
+          if (cachedContent != null && cachedContent.id == id) {
+            content.remove(previousKey);
+          }
+          idToKey.remove(id);
+        }
+      } else if (type == RECORD_TYPE_UPDATE) {
+        String key = input.readUTF();
+        DefaultContentMetadata metadata = readContentMetadata(input);
+        if (previousKey != null && !previousKey.equals(key)) {
+          @Nullable CachedContent previousContent = content.get(previousKey);
+          if (previousContent != null && previousContent.id == id) {
+            content.remove(previousKey);
+          }
+        }
+        content.put(key, new CachedContent(id, key, metadata));
+        idToKey.put(id, key);
+      } else {
+        throw new IOException("Unexpected record type: " + type);
+      }
+    }
+  }
+
   /** {@link Storage} implementation that uses an SQL database. */
   private static final class DatabaseStorage implements Storage {
 
@@ -815,7 +1097,7 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
 
     @Override
     public void load(
-        HashMap<String, CachedContent> content, SparseArray<@NullableType String> idToKey)
+        Map<String, CachedContent> content, SparseArray<@NullableType String> idToKey)
         throws IOException {
       checkState(pendingUpdates.size() == 0);
       try {
@@ -858,7 +1140,7 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
     }
 
     @Override
-    public void storeFully(HashMap<String, CachedContent> content) throws IOException {
+    public void storeFully(Map<String, CachedContent> content) throws IOException {
       try {
         SQLiteDatabase writableDatabase = databaseProvider.getWritableDatabase();
         writableDatabase.beginTransactionNonExclusive();
@@ -878,7 +1160,7 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
     }
 
     @Override
-    public void storeIncremental(HashMap<String, CachedContent> content) throws IOException {
+    public void storeIncremental(Map<String, CachedContent> content) throws IOException {
       if (pendingUpdates.size() == 0) {
         return;
       }
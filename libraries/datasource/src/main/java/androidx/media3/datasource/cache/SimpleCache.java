@@ -15,6 +15,8 @@
  */
 package androidx.media3.datasource.cache;
 
+import static java.lang.Math.min;
+
 import android.os.ConditionVariable;
 import androidx.annotation.Nullable;
 import androidx.annotation.WorkerThread;
@@ -25,17 +27,24 @@ import androidx.media3.common.util.UnstableApi;
 import androidx.media3.common.util.Util;
 import androidx.media3.database.DatabaseIOException;
 import androidx.media3.database.DatabaseProvider;
+import com.google.common.util.concurrent.Uninterruptibles;
 import java.io.File;
 import java.io.IOException;
 import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableSet;
 import java.util.Random;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
 
 /**
@@ -46,6 +55,11 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
  * <p>To delete a SimpleCache, use {@link #delete(File, DatabaseProvider)} rather than deleting the
  * directory and its contents directly. This is necessary to ensure that associated index data is
  * also removed.
+ *
+ * <p>Methods that only query the cache ({@link #getCachedSpans}, {@link #getCachedLength}, {@link
+ * #isCached}, {@link #getContentMetadata} etc.) do not acquire the lock held by methods that modify
+ * it. Instead they synchronize on the state of the individual resource being queried, so that
+ * queries for one resource are never blocked by reads, writes or evictions of unrelated resources.
  */
 @UnstableApi
 public final class SimpleCache implements Cache {
@@ -62,6 +76,13 @@ public final class SimpleCache implements Cache {
 
   private static final String UID_FILE_SUFFIX = ".uid";
 
+  /**
+   * The maximum number of threads used to list the subdirectories of the cache directory during
+   * initialization. Listing the files of each subdirectory and querying their lengths is dominated
+   * by file system latency, so subdirectories are listed in parallel.
+   */
+  private static final int MAX_DIRECTORY_LISTING_THREADS = 4;
+
   private static final HashSet<File> lockedCacheDirs = new HashSet<>();
 
   private final File cacheDir;
@@ -72,10 +93,12 @@ public final class SimpleCache implements Cache {
   private final Random random;
   private final boolean touchCacheSpans;
 
-  private long uid;
-  private long totalSpace;
-  private boolean released;
-  private @MonotonicNonNull CacheException initializationException;
+  private final CountDownLatch initializationLatch;
+
+  private volatile long uid;
+  private volatile long totalSpace;
+  private volatile boolean released;
+  private volatile @MonotonicNonNull CacheException initializationException;
 
   /**
    * Returns whether {@code cacheFolder} is locked by a {@link SimpleCache} instance. To unlock the
@@ -207,6 +230,37 @@ public final class SimpleCache implements Cache {
             : null);
   }
 
+  /**
+   * Constructs the cache. The cache will delete any unrecognized files from the cache directory.
+   * Hence the directory cannot be used to store other files.
+   *
+   * <p>If {@code useJournalIndex} is {@code true}, the cache index is stored in an append-only
+   * journal in the cache directory. Storing the journal index only writes the entries that changed
+   * since it was last stored, rather than rewriting the whole index as for the legacy index. An
+   * existing unencrypted legacy index is migrated to the journal index. The journal index is not
+   * encrypted.
+   *
+   * @param cacheDir A dedicated cache directory.
+   * @param evictor The evictor to be used. For download use cases where cache eviction should not
+   *     occur, use {@link NoOpCacheEvictor}.
+   * @param useJournalIndex Whether to store the cache index in an append-only journal, rather than
+   *     in a legacy index.
+   */
+  public SimpleCache(File cacheDir, CacheEvictor evictor, boolean useJournalIndex) {
+    this(
+        cacheDir,
+        evictor,
+        useJournalIndex
+            ? new CachedContentIndex(cacheDir, /* legacyStorageSecretKey= */ null)
+            : new CachedContentIndex(
+                /* databaseProvider= */ null,
+                cacheDir,
+                /* legacyStorageSecretKey= */ null,
+                /* legacyStorageEncrypt= */ false,
+                /* preferLegacyStorage= */ true),
+        /* fileIndex= */ null);
+  }
+
   /* package */ SimpleCache(
       File cacheDir,
       CacheEvictor evictor,
@@ -224,6 +278,7 @@ public final class SimpleCache implements Cache {
     random = new Random();
     touchCacheSpans = evictor.requiresCacheSpanTouches();
     uid = UID_UNSET;
+    initializationLatch = new CountDownLatch(1);
 
     // Start cache initialization.
     final ConditionVariable conditionVariable = new ConditionVariable();
@@ -232,8 +287,12 @@ public final class SimpleCache implements Cache {
       public void run() {
         synchronized (SimpleCache.this) {
           conditionVariable.open();
-          initialize();
-          SimpleCache.this.evictor.onCacheInitialized();
+          try {
+            initialize();
+            SimpleCache.this.evictor.onCacheInitialized();
+          } finally {
+            initializationLatch.countDown();
+          }
         }
       }
     }.start();
@@ -245,14 +304,17 @@ public final class SimpleCache implements Cache {
    *
    * @throws CacheException If an error occurred during initialization.
    */
-  public synchronized void checkInitialization() throws CacheException {
+  public void checkInitialization() throws CacheException {
+    awaitInitialization();
+    @Nullable CacheException initializationException = this.initializationException;
     if (initializationException != null) {
       throw initializationException;
     }
   }
 
   @Override
-  public synchronized long getUid() {
+  public long getUid() {
+    awaitInitialization();
     return uid;
   }
 
@@ -302,23 +364,24 @@ public final class SimpleCache implements Cache {
   }
 
   @Override
-  public synchronized NavigableSet<CacheSpan> getCachedSpans(String key) {
+  public NavigableSet<CacheSpan> getCachedSpans(String key) {
     Assertions.checkState(!released);
-    CachedContent cachedContent = contentIndex.get(key);
-    return cachedContent == null || cachedContent.isEmpty()
-        ? new TreeSet<>()
-        : new TreeSet<CacheSpan>(cachedContent.getSpans());
+    awaitInitialization();
+    @Nullable CachedContent cachedContent = contentIndex.get(key);
+    return cachedContent == null ? new TreeSet<>() : cachedContent.copySpans();
   }
 
   @Override
-  public synchronized Set<String> getKeys() {
+  public Set<String> getKeys() {
     Assertions.checkState(!released);
+    awaitInitialization();
     return new HashSet<>(contentIndex.getKeys());
   }
 
   @Override
-  public synchronized long getCacheSpace() {
+  public long getCacheSpace() {
     Assertions.checkState(!released);
+    awaitInitialization();
     return totalSpace;
   }
 
@@ -455,15 +518,17 @@ public final class SimpleCache implements Cache {
   }
 
   @Override
-  public synchronized boolean isCached(String key, long position, long length) {
+  public boolean isCached(String key, long position, long length) {
     Assertions.checkState(!released);
+    awaitInitialization();
     @Nullable CachedContent cachedContent = contentIndex.get(key);
     return cachedContent != null && cachedContent.getCachedBytesLength(position, length) >= length;
   }
 
   @Override
-  public synchronized long getCachedLength(String key, long position, long length) {
+  public long getCachedLength(String key, long position, long length) {
     Assertions.checkState(!released);
+    awaitInitialization();
     if (length == C.LENGTH_UNSET) {
       length = Long.MAX_VALUE;
     }
@@ -472,7 +537,7 @@ public final class SimpleCache implements Cache {
   }
 
   @Override
-  public synchronized long getCachedBytes(String key, long position, long length) {
+  public long getCachedBytes(String key, long position, long length) {
     long endPosition = length == C.LENGTH_UNSET ? Long.MAX_VALUE : position + length;
     if (endPosition < 0) {
       // The calculation rolled over (length is probably Long.MAX_VALUE).
@@ -509,11 +574,24 @@ public final class SimpleCache implements Cache {
   }
 
   @Override
-  public synchronized ContentMetadata getContentMetadata(String key) {
+  public ContentMetadata getContentMetadata(String key) {
     Assertions.checkState(!released);
+    awaitInitialization();
     return contentIndex.getContentMetadata(key);
   }
 
+  /**
+   * Blocks until the cache's in-memory representation has been initialized. Returns immediately
+   * once initialization has completed, without acquiring any locks.
+   */
+  private void awaitInitialization() {
+    // The initialization thread holds the lock until initialization has completed, and may call
+    // back into the cache through the evictor. It must not wait for itself.
+    if (initializationLatch.getCount() != 0 && !Thread.holdsLock(this)) {
+      Uninterruptibles.awaitUninterruptibly(initializationLatch);
+    }
+  }
+
   /** Ensures that the cache's in-memory representation has been initialized. */
   private void initialize() {
     if (!cacheDir.exists()) {
@@ -550,10 +628,10 @@ public final class SimpleCache implements Cache {
       if (fileIndex != null) {
         fileIndex.initialize(uid);
         Map<String, CacheFileMetadata> fileMetadata = fileIndex.getAll();
-        loadDirectory(cacheDir, /* isRoot= */ true, files, fileMetadata);
+        loadRootDirectory(files, fileMetadata);
         fileIndex.removeAll(fileMetadata.keySet());
       } else {
-        loadDirectory(cacheDir, /* isRoot= */ true, files, /* fileMetadata= */ null);
+        loadRootDirectory(files, /* fileMetadata= */ null);
       }
     } catch (IOException e) {
       String message = "Failed to initialize cache indices: " + cacheDir;
@@ -571,20 +649,57 @@ public final class SimpleCache implements Cache {
   }
 
   /**
-   * Loads a cache directory. If the root directory is passed, also loads any subdirectories.
+   * Loads the root cache directory and its subdirectories. The subdirectories are listed in
+   * parallel, after which their files are loaded on the calling thread.
+   *
+   * @param files The files belonging to the root directory.
+   * @param fileMetadata A mutable map containing cache file metadata, keyed by file name. The map
+   *     is modified by removing entries for all loaded files. When the method call returns, the map
+   *     will contain only metadata that was unused. May be null if no file metadata is available.
+   * @throws IOException If listing a subdirectory failed unexpectedly.
+   */
+  private void loadRootDirectory(
+      File[] files, @Nullable Map<String, CacheFileMetadata> fileMetadata) throws IOException {
+    List<File> subdirectories = new ArrayList<>();
+    loadDirectory(
+        cacheDir,
+        /* isRoot= */ true,
+        files,
+        /* fileLengths= */ null,
+        fileMetadata,
+        subdirectories);
+    for (DirectoryListing listing : listDirectories(subdirectories, fileMetadata)) {
+      loadDirectory(
+          listing.directory,
+          /* isRoot= */ false,
+          listing.files,
+          listing.fileLengths,
+          fileMetadata,
+          /* subdirectories= */ null);
+    }
+  }
+
+  /**
+   * Loads a cache directory.
    *
    * @param directory The directory.
    * @param isRoot Whether the directory is the root directory.
    * @param files The files belonging to the directory.
+   * @param fileLengths The lengths of {@code files}, with {@link C#LENGTH_UNSET} for files whose
+   *     length is unknown, or null if no lengths are known.
    * @param fileMetadata A mutable map containing cache file metadata, keyed by file name. The map
    *     is modified by removing entries for all loaded files. When the method call returns, the map
    *     will contain only metadata that was unused. May be null if no file metadata is available.
+   * @param subdirectories A list to which the subdirectories of the root directory are added, or
+   *     null if {@code directory} isn't the root directory.
    */
   private void loadDirectory(
       File directory,
       boolean isRoot,
       @Nullable File[] files,
-      @Nullable Map<String, CacheFileMetadata> fileMetadata) {
+      @Nullable long[] fileLengths,
+      @Nullable Map<String, CacheFileMetadata> fileMetadata,
+      @Nullable List<File> subdirectories) {
     if (files == null || files.length == 0) {
       // Either (a) directory isn't really a directory (b) it's empty, or (c) listing files failed.
       if (!isRoot) {
@@ -594,17 +709,18 @@ public final class SimpleCache implements Cache {
       }
       return;
     }
-    for (File file : files) {
+    for (int i = 0; i < files.length; i++) {
+      File file = files[i];
       String fileName = file.getName();
       if (isRoot && fileName.indexOf('.') == -1) {
-        loadDirectory(file, /* isRoot= */ false, file.listFiles(), fileMetadata);
+        Assertions.checkNotNull(subdirectories).add(file);
       } else {
         if (isRoot
             && (CachedContentIndex.isIndexFile(fileName) || fileName.endsWith(UID_FILE_SUFFIX))) {
           // Skip expected UID and index files in the root directory.
           continue;
         }
-        long length = C.LENGTH_UNSET;
+        long length = fileLengths != null ? fileLengths[i] : C.LENGTH_UNSET;
         long lastTouchTimestamp = C.TIME_UNSET;
         @Nullable
         CacheFileMetadata metadata = fileMetadata != null ? fileMetadata.remove(fileName) : null;
@@ -624,6 +740,50 @@ public final class SimpleCache implements Cache {
     }
   }
 
+  /**
+   * Lists the files in each of the given directories, along with the lengths of files for which
+   * {@code fileMetadata} doesn't contain an entry. Uses up to {@link
+   * #MAX_DIRECTORY_LISTING_THREADS} threads.
+   *
+   * @param directories The directories to list.
+   * @param fileMetadata A map containing cache file metadata, keyed by file name. Not modified. May
+   *     be null if no file metadata is available.
+   * @return The listings, in the same order as {@code directories}.
+   * @throws IOException If listing a directory failed unexpectedly.
+   */
+  private static List<DirectoryListing> listDirectories(
+      List<File> directories, @Nullable Map<String, CacheFileMetadata> fileMetadata)
+      throws IOException {
+    List<DirectoryListing> listings = new ArrayList<>(directories.size());
+    int threadCount = min(directories.size(), MAX_DIRECTORY_LISTING_THREADS);
+    if (threadCount <= 1) {
+      for (File directory : directories) {
+        listings.add(DirectoryListing.list(directory, fileMetadata));
+      }
+      return listings;
+    }
+    ExecutorService executorService =
+        Executors.newFixedThreadPool(
+            threadCount, runnable -> new Thread(runnable, "ExoPlayer:SimpleCacheListing"));
+    try {
+      List<Future<DirectoryListing>> futures = new ArrayList<>(directories.size());
+      for (File directory : directories) {
+        futures.add(executorService.submit(() -> DirectoryListing.list(directory, fileMetadata)));
+      }
+      for (Future<DirectoryListing> future : futures) {
+        try {
+          listings.add(Uninterruptibles.getUninterruptibly(future));
+        } catch (ExecutionException e) {
+          @Nullable Throwable cause = e.getCause();
+          throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        }
+      }
+    } finally {
+      executorService.shutdown();
+    }
+    return listings;
+  }
+
   /**
    * Touches a cache span, returning the updated result. If the evictor does not require cache spans
    * to be touched, then this method does nothing and the span is returned without modification.
@@ -687,6 +847,8 @@ public final class SimpleCache implements Cache {
   /**
    * Adds a cached span to the in-memory representation.
    *
+   * <p>Must be called whilst holding the lock of the cache.
+   *
    * @param span The span to be added.
    */
   private void addSpan(SimpleCacheSpan span) {
@@ -820,4 +982,43 @@ public final class SimpleCache implements Cache {
   private static synchronized void unlockFolder(File cacheDir) {
     lockedCacheDirs.remove(cacheDir.getAbsoluteFile());
   }
+
+  /** The files of a cache subdirectory, listed off the initialization thread. */
+  private static final class DirectoryListing {
+
+    public final File directory;
+    @Nullable public final File[] files;
+    @Nullable public final long[] fileLengths;
+
+    /**
+     * Lists {@code directory}.
+     *
+     * @param directory The directory to list.
+     * @param fileMetadata A map containing cache file metadata, keyed by file name. The lengths of
+     *     files with metadata aren't queried. May be null if no file metadata is available.
+     */
+    public static DirectoryListing list(
+        File directory, @Nullable Map<String, CacheFileMetadata> fileMetadata) {
+      @Nullable File[] files = directory.listFiles();
+      @Nullable long[] fileLengths = null;
+      if (files != null) {
+        fileLengths = new long[files.length];
+        for (int i = 0; i < files.length; i++) {
+          File file = files[i];
+          fileLengths[i] =
+              fileMetadata != null && fileMetadata.containsKey(file.getName())
+                  ? C.LENGTH_UNSET
+                  : file.length();
+        }
+      }
+      return new DirectoryListing(directory, files, fileLengths);
+    }
+
+    private DirectoryListing(
+        File directory, @Nullable File[] files, @Nullable long[] fileLengths) {
+      this.directory = directory;
+      this.files = files;
+      this.fileLengths = fileLengths;
+    }
+  }
 }
@@ -0,0 +1,337 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.datasource.cache;
+
+import static androidx.media3.common.util.Assertions.checkArgument;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import androidx.annotation.Nullable;
+import androidx.media3.common.C;
+import androidx.media3.common.util.UnstableApi;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Evicts cache files using the W-TinyLFU policy, which favors frequently used cache files over
+ * recently used ones, whilst still retaining recently added files for long enough to establish how
+ * often they're used.
+ *
+ * <p>Newly added cache files enter a small admission window, which is ordered by recency. Files
+ * that leave the window only stay in the cache if they've been used more often than the file that
+ * would otherwise be evicted from the main part of the cache. Access frequencies are estimated by a
+ * compact frequency sketch that's periodically aged, so that frequencies reflect recent usage.
+ *
+ * <p>The main part of the cache is a segmented LRU. Files that are used again whilst in the
+ * probationary segment are promoted to the protected segment, from which files are demoted back to
+ * the probationary segment in least recently used order.
+ *
+ * <p>Unlike {@link LeastRecentlyUsedCacheEvictor}, this policy is resistant to scans. For example
+ * playing a long piece of content once won't evict small but frequently used files, such as
+ * initialization segments. All operations take constant amortized time.
+ */
+@UnstableApi
+public final class WindowTinyLfuCacheEvictor implements CacheEvictor {
+
+  /** The default percentage of the cache size used by the admission window. */
+  public static final int DEFAULT_WINDOW_PERCENTAGE = 1;
+
+  /** The percentage of the main part of the cache used by the protected segment. */
+  private static final int PROTECTED_PERCENTAGE = 80;
+
+  private final long maxBytes;
+  private final long maxWindowBytes;
+  private final long maxProtectedBytes;
+  private final FrequencySketch frequencySketch;
+
+  /** Cache spans in the admission window, in least recently used order. */
+  private final LinkedHashMap<SpanId, CacheSpan> window;
+  /** Cache spans in the probationary segment, in least recently used order. */
+  private final LinkedHashMap<SpanId, CacheSpan> probation;
+  /** Cache spans in the protected segment, in least recently used order. */
+  private final LinkedHashMap<SpanId, CacheSpan> protectedSegment;
+
+  private long windowBytes;
+  private long probationBytes;
+  private long protectedBytes;
+
+  /**
+   * Creates an instance with an admission window of {@link #DEFAULT_WINDOW_PERCENTAGE} of the cache
+   * size.
+   *
+   * @param maxBytes The maximum size of the cache in bytes.
+   */
+  public WindowTinyLfuCacheEvictor(long maxBytes) {
+    this(maxBytes, DEFAULT_WINDOW_PERCENTAGE);
+  }
+
+  /**
+   * Creates an instance.
+   *
+   * @param maxBytes The maximum size of the cache in bytes.
+   * @param windowPercentage The percentage of the cache size used by the admission window. Larger
+   *     windows favor recently added files, at the expense of frequently used ones.
+   */
+  public WindowTinyLfuCacheEvictor(long maxBytes, int windowPercentage) {
+    checkArgument(windowPercentage >= 0 && windowPercentage <= 100);
+    this.maxBytes = maxBytes;
+    maxWindowBytes = maxBytes / 100 * windowPercentage;
+    maxProtectedBytes = (maxBytes - maxWindowBytes) / 100 * PROTECTED_PERCENTAGE;
+    frequencySketch = new FrequencySketch();
+    window = new LinkedHashMap<>();
+    probation = new LinkedHashMap<>();
+    protectedSegment = new LinkedHashMap<>();
+  }
+
+  @Override
+  public boolean requiresCacheSpanTouches() {
+    return true;
+  }
+
+  @Override
+  public void onCacheInitialized() {
+    // Do nothing.
+  }
+
+  @Override
+  public void onStartFile(Cache cache, String key, long position, long length) {
+    if (length != C.LENGTH_UNSET) {
+      evictCache(cache, length);
+    }
+  }
+
+  @Override
+  public void onSpanAdded(Cache cache, CacheSpan span) {
+    SpanId spanId = new SpanId(span);
+    frequencySketch.increment(spanId);
+    window.put(spanId, span);
+    windowBytes += span.length;
+    frequencySketch.ensureCapacity(getSpanCount());
+    evictCache(cache, 0);
+  }
+
+  @Override
+  public void onSpanRemoved(Cache cache, CacheSpan span) {
+    SpanId spanId = new SpanId(span);
+    if (window.remove(spanId) != null) {
+      windowBytes -= span.length;
+    } else if (probation.remove(spanId) != null) {
+      probationBytes -= span.length;
+    } else if (protectedSegment.remove(spanId) != null) {
+      protectedBytes -= span.length;
+    }
+  }
+
+  @Override
+  public void onSpanTouched(Cache cache, CacheSpan oldSpan, CacheSpan newSpan) {
+    SpanId spanId = new SpanId(newSpan);
+    frequencySketch.increment(spanId);
+    if (window.remove(spanId) != null) {
+      window.put(spanId, newSpan);
+    } else if (probation.remove(spanId) != null) {
+      probationBytes -= newSpan.length;
+      protectedSegment.put(spanId, newSpan);
+      protectedBytes += newSpan.length;
+      demoteProtected();
+    } else if (protectedSegment.remove(spanId) != null) {
+      protectedSegment.put(spanId, newSpan);
+    }
+  }
+
+  private void evictCache(Cache cache, long requiredSpace) {
+    while (windowBytes + probationBytes + protectedBytes + requiredSpace > maxBytes) {
+      @Nullable CacheSpan candidate = windowBytes > maxWindowBytes ? first(window) : null;
+      @Nullable CacheSpan victim = first(probation);
+      if (victim == null) {
+        victim = first(protectedSegment);
+      }
+      if (candidate != null && victim != null) {
+        // Only admit the candidate to the main part of the cache if it's used more often.
+        if (frequencySketch.frequency(new SpanId(candidate))
+            > frequencySketch.frequency(new SpanId(victim))) {
+          removeSpan(cache, victim);
+          moveToProbation(candidate);
+        } else {
+          removeSpan(cache, candidate);
+        }
+      } else if (victim != null) {
+        removeSpan(cache, victim);
+      } else {
+        @Nullable CacheSpan span = first(window);
+        if (span == null) {
+          return;
+        }
+        removeSpan(cache, span);
+      }
+    }
+    // Move files that no longer fit into the window to the probationary segment.
+    while (windowBytes > maxWindowBytes) {
+      @Nullable CacheSpan span = first(window);
+      if (span == null) {
+        break;
+      }
+      moveToProbation(span);
+    }
+  }
+
+  private void removeSpan(Cache cache, CacheSpan span) {
+    cache.removeSpan(span);
+    // Ensure that eviction makes progress even if the cache didn't report the span's removal.
+    onSpanRemoved(cache, span);
+  }
+
+  private void moveToProbation(CacheSpan span) {
+    SpanId spanId = new SpanId(span);
+    window.remove(spanId);
+    windowBytes -= span.length;
+    probation.put(spanId, span);
+    probationBytes += span.length;
+  }
+
+  private void demoteProtected() {
+    while (protectedBytes > maxProtectedBytes) {
+      @Nullable CacheSpan span = first(protectedSegment);
+      if (span == null) {
+        return;
+      }
+      SpanId spanId = new SpanId(span);
+      protectedSegment.remove(spanId);
+      protectedBytes -= span.length;
+      probation.put(spanId, span);
+      probationBytes += span.length;
+    }
+  }
+
+  private int getSpanCount() {
+    return window.size() + probation.size() + protectedSegment.size();
+  }
+
+  @Nullable
+  private static CacheSpan first(LinkedHashMap<SpanId, CacheSpan> segment) {
+    Iterator<CacheSpan> iterator = segment.values().iterator();
+    return iterator.hasNext() ? iterator.next() : null;
+  }
+
+  /** Identifies a cache span independently of its file and last touch timestamp. */
+  private static final class SpanId {
+
+    private final String key;
+    private final long position;
+
+    public SpanId(CacheSpan span) {
+      key = span.key;
+      position = span.position;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (obj == null || getClass() != obj.getClass()) {
+        return false;
+      }
+      SpanId other = (SpanId) obj;
+      return position == other.position && key.equals(other.key);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * key.hashCode() + (int) (position ^ (position >>> 32));
+    }
+  }
+
+  /**
+   * A count-min sketch of counters saturating at 15, which estimates how often each cache span has
+   * been used. Once the number of recorded uses reaches ten times the number of counters per row,
+   * all counters are halved so that the sketch reflects recent usage.
+   */
+  private static final class FrequencySketch {
+
+    private static final int DEPTH = 4;
+    private static final int MAX_FREQUENCY = 15;
+    private static final int MIN_WIDTH = 256;
+    private static final int[] SEEDS = {0x97CB3127, 0xB4B82E1D, 0x3C6EF372, 0xA54FF53A};
+
+    private byte[] counters;
+    private int widthMask;
+    private int sampleSize;
+    private int samples;
+
+    @SuppressWarnings("nullness:initialization.fields.uninitialized")
+    public FrequencySketch() {
+      setWidth(MIN_WIDTH);
+    }
+
+    /** Grows the sketch so that it has at least two counters per row for each cache span. */
+    public void ensureCapacity(int spanCount) {
+      int width = widthMask + 1;
+      if (spanCount * 2 > width) {
+        // Resetting the counters loses the recorded frequencies, but only happens O(log n) times.
+        setWidth(Integer.highestOneBit(max(spanCount * 2, MIN_WIDTH) - 1) << 1);
+      }
+    }
+
+    public void increment(SpanId spanId) {
+      int hash = spread(spanId.hashCode());
+      boolean incremented = false;
+      for (int i = 0; i < DEPTH; i++) {
+        int index = indexOf(hash, i);
+        if (counters[index] < MAX_FREQUENCY) {
+          counters[index]++;
+          incremented = true;
+        }
+      }
+      if (incremented && ++samples >= sampleSize) {
+        age();
+      }
+    }
+
+    public int frequency(SpanId spanId) {
+      int hash = spread(spanId.hashCode());
+      int frequency = MAX_FREQUENCY;
+      for (int i = 0; i < DEPTH; i++) {
+        frequency = min(frequency, counters[indexOf(hash, i)]);
+      }
+      return frequency;
+    }
+
+    private void setWidth(int width) {
+      counters = new byte[DEPTH * width];
+      widthMask = width - 1;
+      sampleSize = 10 * width;
+      samples = 0;
+    }
+
+    private void age() {
+      for (int i = 0; i < counters.length; i++) {
+        counters[i] = (byte) (counters[i] >> 1);
+      }
+      samples /= 2;
+    }
+
+    private int indexOf(int hash, int row) {
+      int rowHash = spread(hash * SEEDS[row]);
+      return row * (widthMask + 1) + (rowHash & widthMask);
+    }
+
+    private static int spread(int hash) {
+      hash ^= hash >>> 16;
+      hash *= 0x45D9F3B;
+      return hash ^ (hash >>> 16);
+    }
+  }
+}
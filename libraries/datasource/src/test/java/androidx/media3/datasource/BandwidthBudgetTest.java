@@ -0,0 +1,142 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.datasource;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.media3.common.C;
+import androidx.media3.test.utils.FakeClock;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit tests for {@link BandwidthBudget}. */
+@RunWith(AndroidJUnit4.class)
+public class BandwidthBudgetTest {
+
+  @Test
+  public void proceedNonBlocking_withBudgetAvailable_returnsTrue() {
+    BandwidthBudget bandwidthBudget =
+        new BandwidthBudget(
+            /* bytesPerSecond= */ 1000,
+            /* maxBurstBytes= */ 100,
+            new FakeClock(/* initialTimeMs= */ 0));
+
+    assertThat(bandwidthBudget.proceedNonBlocking(C.PRIORITY_DOWNLOAD)).isTrue();
+  }
+
+  @Test
+  public void proceedNonBlocking_afterBudgetExhausted_returnsFalseUntilRefilled() {
+    FakeClock clock = new FakeClock(/* initialTimeMs= */ 0);
+    BandwidthBudget bandwidthBudget =
+        new BandwidthBudget(/* bytesPerSecond= */ 1000, /* maxBurstBytes= */ 100, clock);
+
+    bandwidthBudget.onBytesTransferred(300);
+    boolean proceedAfterTransfer = bandwidthBudget.proceedNonBlocking(C.PRIORITY_DOWNLOAD);
+    clock.advanceTime(200);
+    boolean proceedAfterPartialRefill = bandwidthBudget.proceedNonBlocking(C.PRIORITY_DOWNLOAD);
+    clock.advanceTime(1);
+    boolean proceedAfterRefill = bandwidthBudget.proceedNonBlocking(C.PRIORITY_DOWNLOAD);
+
+    assertThat(proceedAfterTransfer).isFalse();
+    assertThat(proceedAfterPartialRefill).isFalse();
+    assertThat(proceedAfterRefill).isTrue();
+  }
+
+  @Test
+  public void proceedNonBlocking_afterLongIdlePeriod_onlyAccumulatesMaxBurstBytes() {
+    FakeClock clock = new FakeClock(/* initialTimeMs= */ 0);
+    BandwidthBudget bandwidthBudget =
+        new BandwidthBudget(/* bytesPerSecond= */ 1000, /* maxBurstBytes= */ 100, clock);
+
+    clock.advanceTime(10_000);
+    bandwidthBudget.onBytesTransferred(101);
+
+    assertThat(bandwidthBudget.proceedNonBlocking(C.PRIORITY_DOWNLOAD)).isFalse();
+  }
+
+  @Test
+  public void setRate_changesRefillRate() {
+    FakeClock clock = new FakeClock(/* initialTimeMs= */ 0);
+    BandwidthBudget bandwidthBudget =
+        new BandwidthBudget(/* bytesPerSecond= */ 1000, /* maxBurstBytes= */ 100, clock);
+    bandwidthBudget.onBytesTransferred(1100);
+
+    bandwidthBudget.setRate(/* bytesPerSecond= */ 10_000, /* maxBurstBytes= */ 100);
+    clock.advanceTime(101);
+
+    assertThat(bandwidthBudget.getBytesPerSecond()).isEqualTo(10_000);
+    assertThat(bandwidthBudget.proceedNonBlocking(C.PRIORITY_DOWNLOAD)).isTrue();
+  }
+
+  @Test
+  public void proceed_whileBudgetExhausted_blocksUntilRefilled() throws Exception {
+    FakeClock clock = new FakeClock(/* initialTimeMs= */ 0);
+    BandwidthBudget bandwidthBudget =
+        new BandwidthBudget(/* bytesPerSecond= */ 1000, /* maxBurstBytes= */ 100, clock);
+    bandwidthBudget.onBytesTransferred(200);
+    Thread downloadTask = startProceedThread(bandwidthBudget, C.PRIORITY_DOWNLOAD);
+
+    awaitWaiting(downloadTask);
+    boolean proceededBeforeRefill = !downloadTask.isAlive();
+    clock.advanceTime(101);
+    downloadTask.join();
+
+    assertThat(proceededBeforeRefill).isFalse();
+  }
+
+  @Test
+  public void proceedNonBlocking_whileHigherPriorityTaskWaiting_returnsFalse() throws Exception {
+    FakeClock clock = new FakeClock(/* initialTimeMs= */ 0);
+    BandwidthBudget bandwidthBudget =
+        new BandwidthBudget(/* bytesPerSecond= */ 1000, /* maxBurstBytes= */ 100, clock);
+    // Exhaust the budget for long enough that the waiting task doesn't notice the refill below.
+    bandwidthBudget.onBytesTransferred(100_100);
+    Thread playbackTask = startProceedThread(bandwidthBudget, C.PRIORITY_PLAYBACK);
+    awaitWaiting(playbackTask);
+
+    clock.advanceTime(100_001);
+    boolean downloadTaskCanProceed = bandwidthBudget.proceedNonBlocking(C.PRIORITY_DOWNLOAD);
+    boolean playbackTaskCanProceed = bandwidthBudget.proceedNonBlocking(C.PRIORITY_PLAYBACK);
+    // Wakes up the waiting task.
+    bandwidthBudget.setRate(/* bytesPerSecond= */ 1000, /* maxBurstBytes= */ 100);
+    playbackTask.join();
+
+    assertThat(downloadTaskCanProceed).isFalse();
+    assertThat(playbackTaskCanProceed).isTrue();
+    assertThat(bandwidthBudget.proceedNonBlocking(C.PRIORITY_DOWNLOAD)).isTrue();
+  }
+
+  private static Thread startProceedThread(BandwidthBudget bandwidthBudget, int priority) {
+    Thread thread =
+        new Thread(
+            () -> {
+              try {
+                bandwidthBudget.proceed(priority);
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            });
+    thread.start();
+    return thread;
+  }
+
+  private static void awaitWaiting(Thread thread) throws InterruptedException {
+    while (thread.isAlive() && thread.getState() != Thread.State.TIMED_WAITING) {
+      Thread.sleep(1);
+    }
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.datasource;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.net.Uri;
+import androidx.media3.test.utils.TestUtil;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+/** Unit tests for {@link MemoryMappedFileDataSource}. */
+@RunWith(AndroidJUnit4.class)
+public class MemoryMappedFileDataSourceTest {
+
+  @Rule public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Test
+  public void read_fromInstancesSharingFactory_readsData() throws Exception {
+    byte[] data = TestUtil.buildTestData(/* length= */ 100);
+    File file = tempFolder.newFile();
+    Files.write(file.toPath(), data);
+    MemoryMappedFileDataSource.Factory factory = new MemoryMappedFileDataSource.Factory();
+    DataSpec dataSpec =
+        new DataSpec.Builder().setUri(Uri.fromFile(file)).setPosition(10).setLength(50).build();
+
+    byte[] firstResult = readWithNewDataSource(factory, dataSpec);
+    byte[] secondResult = readWithNewDataSource(factory, dataSpec);
+
+    assertThat(firstResult).isEqualTo(Arrays.copyOfRange(data, 10, 60));
+    assertThat(secondResult).isEqualTo(Arrays.copyOfRange(data, 10, 60));
+  }
+
+  @Test
+  public void read_afterFileReplaced_readsNewData() throws Exception {
+    File file = tempFolder.newFile();
+    Files.write(file.toPath(), TestUtil.buildTestData(/* length= */ 100, /* seed= */ 1));
+    MemoryMappedFileDataSource.Factory factory = new MemoryMappedFileDataSource.Factory();
+    DataSpec dataSpec = new DataSpec(Uri.fromFile(file));
+    readWithNewDataSource(factory, dataSpec);
+
+    byte[] newData = TestUtil.buildTestData(/* length= */ 50, /* seed= */ 2);
+    Files.write(file.toPath(), newData);
+
+    assertThat(readWithNewDataSource(factory, dataSpec)).isEqualTo(newData);
+  }
+
+  @Test
+  public void read_withPoolingDisabled_readsData() throws Exception {
+    byte[] data = TestUtil.buildTestData(/* length= */ 100);
+    File file = tempFolder.newFile();
+    Files.write(file.toPath(), data);
+    MemoryMappedFileDataSource.Factory factory =
+        new MemoryMappedFileDataSource.Factory().setMaxPooledMappings(0);
+
+    assertThat(readWithNewDataSource(factory, new DataSpec(Uri.fromFile(file)))).isEqualTo(data);
+  }
+
+  private static byte[] readWithNewDataSource(
+      MemoryMappedFileDataSource.Factory factory, DataSpec dataSpec) throws Exception {
+    DataSource dataSource = factory.createDataSource();
+    try {
+      dataSource.open(dataSpec);
+      return DataSourceUtil.readToEnd(dataSource);
+    } finally {
+      dataSource.close();
+    }
+  }
+}
@@ -324,6 +324,83 @@ public class CachedContentIndexTest {
     assertThat(ContentMetadata.getContentLength(metadata2)).isEqualTo(2560);
   }
 
+  @Test
+  public void journalStoreAndLoad() throws Exception {
+    assertStoredAndLoadedEqual(newJournalInstance(), newJournalInstance());
+  }
+
+  @Test
+  public void journalStoreIncrementalAndLoad_appendsChanges() throws Exception {
+    CachedContentIndex index = newJournalInstance();
+    index.initialize(/* uid= */ 0);
+    index.getOrAdd("key1");
+    index.getOrAdd("key2");
+    index.store();
+    File journalFile = new File(cacheDir, CachedContentIndex.FILE_NAME_JOURNAL);
+    long snapshotLength = journalFile.length();
+
+    ContentMetadataMutations mutations = new ContentMetadataMutations();
+    ContentMetadataMutations.setContentLength(mutations, 100);
+    index.applyContentMetadataMutations("key1", mutations);
+    index.maybeRemove("key2");
+    index.getOrAdd("key3");
+    index.store();
+
+    assertThat(journalFile.length()).isGreaterThan(snapshotLength);
+    CachedContentIndex index2 = newJournalInstance();
+    index2.initialize(/* uid= */ 0);
+    assertThat(index2.getKeys()).containsExactly("key1", "key3");
+    assertThat(index2.get("key1")).isEqualTo(index.get("key1"));
+    assertThat(index2.get("key3")).isEqualTo(index.get("key3"));
+  }
+
+  @Test
+  public void journalLoad_withTruncatedRecord_discardsRecord() throws Exception {
+    CachedContentIndex index = newJournalInstance();
+    index.initialize(/* uid= */ 0);
+    index.getOrAdd("key1");
+    index.store();
+    index.getOrAdd("key2");
+    index.store();
+    File journalFile = new File(cacheDir, CachedContentIndex.FILE_NAME_JOURNAL);
+    byte[] journal;
+    try (FileInputStream inputStream = new FileInputStream(journalFile)) {
+      journal = Util.toByteArray(inputStream);
+    }
+    try (FileOutputStream outputStream = new FileOutputStream(journalFile)) {
+      outputStream.write(journal, /* off= */ 0, journal.length - 1);
+    }
+
+    CachedContentIndex index2 = newJournalInstance();
+    index2.initialize(/* uid= */ 0);
+    index2.getOrAdd("key3");
+    index2.store();
+    CachedContentIndex index3 = newJournalInstance();
+    index3.initialize(/* uid= */ 0);
+
+    assertThat(index2.getKeys()).containsExactly("key1", "key3");
+    assertThat(index3.getKeys()).containsExactly("key1", "key3");
+  }
+
+  @Test
+  public void journalInitialize_withLegacyIndex_migratesLegacyIndex() throws Exception {
+    File legacyFile = new File(cacheDir, CachedContentIndex.FILE_NAME_ATOMIC);
+    FileOutputStream fos = new FileOutputStream(legacyFile);
+    fos.write(testIndexV2File);
+    fos.close();
+
+    CachedContentIndex index = newJournalInstance();
+    index.initialize(/* uid= */ 0);
+    CachedContentIndex index2 = newJournalInstance();
+    index2.initialize(/* uid= */ 0);
+
+    assertThat(legacyFile.exists()).isFalse();
+    assertThat(index2.getKeys()).containsExactly("ABCDE", "KLMNO");
+    assertThat(index2.assignIdForKey("ABCDE")).isEqualTo(5);
+    assertThat(ContentMetadata.getRedirectedUri(index2.get("ABCDE").getMetadata()))
+        .isEqualTo(Uri.parse("abcde"));
+  }
+
   @Test
   public void assignIdForKeyAndGetKeyForId() {
     CachedContentIndex index = newInstance();
@@ -465,6 +542,10 @@ public class CachedContentIndexTest {
     return new CachedContentIndex(TestUtil.getInMemoryDatabaseProvider());
   }
 
+  private CachedContentIndex newJournalInstance() {
+    return new CachedContentIndex(cacheDir, /* legacyStorageSecretKey= */ null);
+  }
+
   private CachedContentIndex newLegacyInstance() {
     return newLegacyInstance(null);
   }
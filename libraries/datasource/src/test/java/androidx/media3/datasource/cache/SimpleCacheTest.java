@@ -32,8 +32,15 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.NavigableSet;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -148,6 +155,55 @@ public class SimpleCacheTest {
         .isEqualTo(Uri.parse("https://redirect.google.com"));
   }
 
+  @Test
+  public void newInstance_withExistingCacheDirectory_withJournalIndex_loadsCachedData()
+      throws Exception {
+    SimpleCache simpleCache =
+        new SimpleCache(cacheDir, new NoOpCacheEvictor(), /* useJournalIndex= */ true);
+
+    // Write some data and metadata to the cache.
+    CacheSpan holeSpan = simpleCache.startReadWrite(KEY_1, 0, LENGTH_UNSET);
+    addCache(simpleCache, KEY_1, 0, 15);
+    simpleCache.releaseHoleSpan(holeSpan);
+    ContentMetadataMutations mutations = new ContentMetadataMutations();
+    ContentMetadataMutations.setRedirectedUri(mutations, Uri.parse("https://redirect.google.com"));
+    simpleCache.applyContentMetadataMutations(KEY_1, mutations);
+    simpleCache.release();
+
+    // Create a new instance pointing to the same directory.
+    simpleCache = new SimpleCache(cacheDir, new NoOpCacheEvictor(), /* useJournalIndex= */ true);
+
+    // Read the cached data and metadata back.
+    CacheSpan fileSpan = simpleCache.startReadWrite(KEY_1, 0, LENGTH_UNSET);
+    assertCachedDataReadCorrect(fileSpan);
+    assertThat(ContentMetadata.getRedirectedUri(simpleCache.getContentMetadata(KEY_1)))
+        .isEqualTo(Uri.parse("https://redirect.google.com"));
+  }
+
+  @Test
+  public void newInstance_withSpansInManySubdirectories_loadsAllSpans() throws Exception {
+    SimpleCache simpleCache = getSimpleCache();
+    for (int i = 0; i < 50; i++) {
+      String key = "key" + i;
+      CacheSpan holeSpan = simpleCache.startReadWrite(key, 0, LENGTH_UNSET);
+      addCache(simpleCache, key, 0, 15);
+      addCache(simpleCache, key, 15, 10);
+      simpleCache.releaseHoleSpan(holeSpan);
+    }
+    simpleCache.release();
+
+    // Create a new instance pointing to the same directory.
+    simpleCache = getSimpleCache();
+
+    assertThat(simpleCache.getKeys()).hasSize(50);
+    assertThat(simpleCache.getCacheSpace()).isEqualTo(50 * 25);
+    for (int i = 0; i < 50; i++) {
+      String key = "key" + i;
+      assertThat(simpleCache.getCachedBytes(key, 0, LENGTH_UNSET)).isEqualTo(25);
+      assertCachedDataReadCorrect(simpleCache.startReadWrite(key, 15, LENGTH_UNSET));
+    }
+  }
+
   @Test
   public void newInstance_withExistingCacheInstance_fails() {
     getSimpleCache();
@@ -620,6 +676,66 @@ public class SimpleCacheTest {
     assertThat(fileSpan.length).isEqualTo(15);
   }
 
+  @Test
+  public void queries_whileCacheIsLocked_doNotBlock() throws Exception {
+    SimpleCache simpleCache = getSimpleCache();
+    CacheSpan holeSpan = simpleCache.startReadWrite(KEY_1, 0, LENGTH_UNSET);
+    addCache(simpleCache, KEY_1, 0, 15);
+    simpleCache.releaseHoleSpan(holeSpan);
+    AtomicReference<NavigableSet<CacheSpan>> cachedSpans = new AtomicReference<>();
+    AtomicLong cachedLength = new AtomicLong();
+    Thread queryThread =
+        new Thread(
+            () -> {
+              cachedSpans.set(simpleCache.getCachedSpans(KEY_1));
+              cachedLength.set(simpleCache.getCachedLength(KEY_1, 0, LENGTH_UNSET));
+            });
+
+    // Hold the lock used by methods that modify the cache, as a concurrent writer would.
+    synchronized (simpleCache) {
+      queryThread.start();
+      queryThread.join(/* millis= */ 10_000);
+      assertThat(queryThread.isAlive()).isFalse();
+    }
+
+    assertThat(cachedSpans.get()).hasSize(1);
+    assertThat(cachedLength.get()).isEqualTo(15);
+  }
+
+  @Test
+  public void concurrentWritesAndQueries_forDifferentKeys() throws Exception {
+    SimpleCache simpleCache = getSimpleCache();
+    int threadCount = 4;
+    int spansPerThread = 20;
+    ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < threadCount; i++) {
+      String key = "key" + i;
+      futures.add(
+          executorService.submit(
+              () -> {
+                for (int j = 0; j < spansPerThread; j++) {
+                  CacheSpan holeSpan = simpleCache.startReadWrite(key, j * 10, 10);
+                  addCache(simpleCache, key, j * 10, 10);
+                  simpleCache.releaseHoleSpan(holeSpan);
+                  assertThat(simpleCache.getCachedLength(key, 0, LENGTH_UNSET))
+                      .isEqualTo((j + 1) * 10);
+                }
+                return null;
+              }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executorService.shutdown();
+
+    assertThat(simpleCache.getKeys()).hasSize(threadCount);
+    assertThat(simpleCache.getCacheSpace()).isEqualTo(threadCount * spansPerThread * 10);
+    for (int i = 0; i < threadCount; i++) {
+      assertThat(simpleCache.getCachedSpans("key" + i)).hasSize(spansPerThread);
+    }
+  }
+
   @Test
   public void usingReleasedCache_throwsException() {
     SimpleCache simpleCache = getSimpleCache();
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.datasource.cache;
+
+import static androidx.media3.common.C.LENGTH_UNSET;
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.media3.common.util.Util;
+import androidx.media3.database.DatabaseProvider;
+import androidx.media3.test.utils.TestUtil;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+
+/** Unit tests for {@link WindowTinyLfuCacheEvictor}. */
+@RunWith(AndroidJUnit4.class)
+public class WindowTinyLfuCacheEvictorTest {
+
+  private File cacheDir;
+  private DatabaseProvider databaseProvider;
+
+  @Before
+  public void setUp() throws Exception {
+    cacheDir =
+        Util.createTempDirectory(
+            ApplicationProvider.getApplicationContext(), "WindowTinyLfuCacheEvictorTest");
+    databaseProvider = TestUtil.getInMemoryDatabaseProvider();
+  }
+
+  @After
+  public void tearDown() {
+    Util.recursiveDelete(cacheDir);
+  }
+
+  @Test
+  public void contentBiggerThanMaxSizeDoesNotThrowException() throws Exception {
+    int maxBytes = 100;
+    WindowTinyLfuCacheEvictor evictor = new WindowTinyLfuCacheEvictor(maxBytes);
+    evictor.onCacheInitialized();
+    evictor.onStartFile(Mockito.mock(Cache.class), "key", 0, maxBytes + 1);
+  }
+
+  @Test
+  public void addSpans_exceedingMaxBytes_evictsToMaxBytes() throws Exception {
+    SimpleCache cache =
+        new SimpleCache(
+            cacheDir, new WindowTinyLfuCacheEvictor(/* maxBytes= */ 1000), databaseProvider);
+
+    for (int i = 0; i < 50; i++) {
+      TraceReplayer.access(cache, "key" + i, /* length= */ 100);
+    }
+
+    assertThat(cache.getCacheSpace()).isAtMost(1000);
+    assertThat(cache.getKeys()).isNotEmpty();
+    cache.release();
+  }
+
+  @Test
+  public void scan_doesNotEvictFrequentlyUsedSpans() throws Exception {
+    SimpleCache cache =
+        new SimpleCache(
+            cacheDir, new WindowTinyLfuCacheEvictor(/* maxBytes= */ 1000), databaseProvider);
+    for (int i = 0; i < 5; i++) {
+      for (int j = 0; j < 4; j++) {
+        TraceReplayer.access(cache, "hot" + j, /* length= */ 100);
+      }
+    }
+
+    for (int i = 0; i < 100; i++) {
+      TraceReplayer.access(cache, "scan" + i, /* length= */ 100);
+    }
+
+    for (int j = 0; j < 4; j++) {
+      assertThat(cache.isCached("hot" + j, /* position= */ 0, /* length= */ 100)).isTrue();
+    }
+    assertThat(cache.getCacheSpace()).isAtMost(1000);
+    cache.release();
+  }
+
+  @Test
+  public void traceReplay_hotSetWithScan_hasHigherHitRatiosThanLeastRecentlyUsed()
+      throws Exception {
+    List<TraceReplayer.Access> trace = createHotSetWithScanTrace();
+    long maxBytes = 2000;
+
+    TraceReplayer.Result leastRecentlyUsedResult =
+        TraceReplayer.replay(
+            new File(cacheDir, "lru"),
+            new LeastRecentlyUsedCacheEvictor(maxBytes),
+            TestUtil.getInMemoryDatabaseProvider(),
+            trace);
+    TraceReplayer.Result windowTinyLfuResult =
+        TraceReplayer.replay(
+            new File(cacheDir, "wtinylfu"),
+            new WindowTinyLfuCacheEvictor(maxBytes),
+            TestUtil.getInMemoryDatabaseProvider(),
+            trace);
+
+    assertThat(windowTinyLfuResult.getHitRatio())
+        .isGreaterThan(leastRecentlyUsedResult.getHitRatio());
+    assertThat(windowTinyLfuResult.getByteHitRatio())
+        .isGreaterThan(leastRecentlyUsedResult.getByteHitRatio());
+  }
+
+  /**
+   * Returns a trace in which a small set of hot resources is interleaved with a scan through a
+   * much larger number of resources that are each accessed once.
+   */
+  private static List<TraceReplayer.Access> createHotSetWithScanTrace() {
+    Random random = new Random(/* seed= */ 0);
+    List<TraceReplayer.Access> trace = new ArrayList<>();
+    int scanIndex = 0;
+    for (int i = 0; i < 300; i++) {
+      trace.add(new TraceReplayer.Access("hot" + random.nextInt(10), /* length= */ 100));
+      for (int j = 0; j < 3; j++) {
+        trace.add(new TraceReplayer.Access("scan" + scanIndex++, /* length= */ 50));
+      }
+    }
+    return trace;
+  }
+
+  /** Replays traces of resource accesses against a {@link SimpleCache}. */
+  private static final class TraceReplayer {
+
+    /** An access to the whole of a resource. */
+    public static final class Access {
+
+      public final String key;
+      public final int length;
+
+      public Access(String key, int length) {
+        this.key = key;
+        this.length = length;
+      }
+    }
+
+    /** The result of replaying a trace. */
+    public static final class Result {
+
+      public final int accessCount;
+      public final int hitCount;
+      public final long accessedBytes;
+      public final long hitBytes;
+
+      public Result(int accessCount, int hitCount, long accessedBytes, long hitBytes) {
+        this.accessCount = accessCount;
+        this.hitCount = hitCount;
+        this.accessedBytes = accessedBytes;
+        this.hitBytes = hitBytes;
+      }
+
+      public double getHitRatio() {
+        return (double) hitCount / accessCount;
+      }
+
+      public double getByteHitRatio() {
+        return (double) hitBytes / accessedBytes;
+      }
+    }
+
+    /** Replays {@code trace} against a new {@link SimpleCache} in {@code cacheDir}. */
+    public static Result replay(
+        File cacheDir, CacheEvictor evictor, DatabaseProvider databaseProvider, List<Access> trace)
+        throws Exception {
+      SimpleCache cache = new SimpleCache(cacheDir, evictor, databaseProvider);
+      int hitCount = 0;
+      long accessedBytes = 0;
+      long hitBytes = 0;
+      for (Access access : trace) {
+        accessedBytes += access.length;
+        if (access(cache, access.key, access.length)) {
+          hitCount++;
+          hitBytes += access.length;
+        }
+      }
+      cache.release();
+      return new Result(trace.size(), hitCount, accessedBytes, hitBytes);
+    }
+
+    /**
+     * Reads the whole of a resource through the cache, writing it to the cache if it's not fully
+     * cached.
+     *
+     * @return Whether the resource was fully cached.
+     */
+    public static boolean access(SimpleCache cache, String key, int length) throws Exception {
+      if (cache.isCached(key, /* position= */ 0, length)) {
+        // Touches the cached span.
+        cache.startReadWrite(key, /* position= */ 0, length);
+        return true;
+      }
+      CacheSpan holeSpan = cache.startReadWrite(key, /* position= */ 0, LENGTH_UNSET);
+      File file = cache.startFile(key, /* position= */ 0, length);
+      try (FileOutputStream outputStream = new FileOutputStream(file)) {
+        outputStream.write(TestUtil.buildTestData(length));
+      }
+      cache.commitFile(file, length);
+      cache.releaseHoleSpan(holeSpan);
+      return false;
+    }
+  }
+}
@@ -39,6 +39,7 @@ public class DefaultDownloaderFactory implements DownloaderFactory {
 
   private final CacheDataSource.Factory cacheDataSourceFactory;
   private final Executor executor;
+  private final boolean adaptParallelismToThroughput;
 
   /**
    * Creates an instance.
@@ -64,8 +65,30 @@ public class DefaultDownloaderFactory implements DownloaderFactory {
    */
   public DefaultDownloaderFactory(
       CacheDataSource.Factory cacheDataSourceFactory, Executor executor) {
+    this(cacheDataSourceFactory, executor, /* adaptParallelismToThroughput= */ false);
+  }
+
+  /**
+   * Creates an instance.
+   *
+   * @param cacheDataSourceFactory A {@link CacheDataSource.Factory} for the cache into which
+   *     downloads will be written.
+   * @param executor An {@link Executor} used to download data. Passing {@code Runnable::run} will
+   *     cause each download task to download data on its own thread. Passing an {@link Executor}
+   *     that uses multiple threads will speed up download tasks that can be split into smaller
+   *     parts for parallel execution.
+   * @param adaptParallelismToThroughput Whether DASH, HLS and SmoothStreaming downloaders adapt
+   *     the number of segments downloaded in parallel to the measured throughput, rather than
+   *     downloading as many segments in parallel as the {@code executor} allows. Progressive
+   *     downloads aren't affected.
+   */
+  public DefaultDownloaderFactory(
+      CacheDataSource.Factory cacheDataSourceFactory,
+      Executor executor,
+      boolean adaptParallelismToThroughput) {
     this.cacheDataSourceFactory = Assertions.checkNotNull(cacheDataSourceFactory);
     this.executor = Assertions.checkNotNull(executor);
+    this.adaptParallelismToThroughput = adaptParallelismToThroughput;
   }
 
   @Override
@@ -102,7 +125,8 @@ public class DefaultDownloaderFactory implements DownloaderFactory {
             .setCustomCacheKey(request.customCacheKey)
             .build();
     try {
-      return constructor.newInstance(mediaItem, cacheDataSourceFactory, executor);
+      return constructor.newInstance(
+          mediaItem, cacheDataSourceFactory, executor, adaptParallelismToThroughput);
     } catch (Exception e) {
       throw new IllegalStateException(
           "Failed to instantiate downloader for content type " + contentType, e);
@@ -143,7 +167,8 @@ public class DefaultDownloaderFactory implements DownloaderFactory {
     try {
       return clazz
           .asSubclass(Downloader.class)
-          .getConstructor(MediaItem.class, CacheDataSource.Factory.class, Executor.class);
+          .getConstructor(
+              MediaItem.class, CacheDataSource.Factory.class, Executor.class, boolean.class);
     } catch (NoSuchMethodException e) {
       // The downloader is present, but the expected constructor is missing.
       throw new IllegalStateException("Downloader constructor missing", e);
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.exoplayer.offline;
+
+import static java.lang.Math.max;
+
+import androidx.media3.common.C;
+import androidx.media3.common.util.Clock;
+
+/**
+ * Adapts the number of segments that a {@link SegmentDownloader} downloads in parallel to the
+ * measured download throughput.
+ *
+ * <p>Downloads start with a single segment at a time. The limit is raised by one for as long as
+ * doing so increases the throughput measured over the following segments by at least {@link
+ * #MIN_THROUGHPUT_INCREASE_FACTOR}. Once it doesn't, the available bandwidth is considered to be
+ * saturated and the limit is restored to its previous value, so that no more connections are used
+ * than are needed to saturate it.
+ *
+ * <p>Since the available bandwidth may change during a download, throughput continues to be
+ * measured whilst saturated. After {@link #SATURATED_MEASUREMENTS_BEFORE_PROBE} measurements, a
+ * higher limit is probed again in the same way.
+ *
+ * <p>This class is not thread-safe. It must only be used from the download thread.
+ */
+/* package */ final class SegmentDownloadConcurrencyController {
+
+  /** The minimum factor by which throughput must increase for the limit to be raised further. */
+  /* package */ static final double MIN_THROUGHPUT_INCREASE_FACTOR = 1.1;
+
+  /** The minimum number of segments over which the throughput for each limit is measured. */
+  /* package */ static final int MIN_SEGMENTS_PER_MEASUREMENT = 4;
+
+  /**
+   * The number of measurements made whilst saturated, after which a higher limit is probed again.
+   */
+  /* package */ static final int SATURATED_MEASUREMENTS_BEFORE_PROBE = 4;
+
+  private final Clock clock;
+
+  private int parallelSegmentLimit;
+  private boolean saturated;
+  private int saturatedMeasurementCount;
+  private double previousThroughput;
+  private long measurementStartTimeMs;
+  private long measurementBytes;
+  private int measurementSegments;
+
+  /**
+   * Creates an instance.
+   *
+   * @param clock The {@link Clock} used to measure throughput.
+   */
+  public SegmentDownloadConcurrencyController(Clock clock) {
+    this.clock = clock;
+    parallelSegmentLimit = 1;
+    measurementStartTimeMs = C.TIME_UNSET;
+  }
+
+  /** Returns the maximum number of segments that should currently be downloaded in parallel. */
+  public int getParallelSegmentLimit() {
+    return parallelSegmentLimit;
+  }
+
+  /** Returns whether the available bandwidth has been found to be saturated. */
+  public boolean isSaturated() {
+    return saturated;
+  }
+
+  /** Called when a segment download is started. */
+  public void onSegmentStarted() {
+    if (measurementStartTimeMs == C.TIME_UNSET) {
+      measurementStartTimeMs = clock.elapsedRealtime();
+    }
+  }
+
+  /**
+   * Called when a segment has been downloaded.
+   *
+   * @param bytesDownloaded The number of bytes downloaded for the segment.
+   */
+  public void onSegmentDownloaded(long bytesDownloaded) {
+    if (measurementStartTimeMs == C.TIME_UNSET) {
+      return;
+    }
+    measurementBytes += bytesDownloaded;
+    measurementSegments++;
+    long elapsedTimeMs = clock.elapsedRealtime() - measurementStartTimeMs;
+    if (measurementSegments < max(MIN_SEGMENTS_PER_MEASUREMENT, 2 * parallelSegmentLimit)
+        || elapsedTimeMs <= 0) {
+      return;
+    }
+    double throughput = (double) measurementBytes / elapsedTimeMs;
+    if (saturated) {
+      saturatedMeasurementCount++;
+      if (saturatedMeasurementCount >= SATURATED_MEASUREMENTS_BEFORE_PROBE) {
+        // The available bandwidth may have changed, so check whether a higher limit now increases
+        // throughput.
+        saturated = false;
+        saturatedMeasurementCount = 0;
+        previousThroughput = throughput;
+        parallelSegmentLimit++;
+      }
+    } else if (parallelSegmentLimit == 1
+        || throughput >= previousThroughput * MIN_THROUGHPUT_INCREASE_FACTOR) {
+      previousThroughput = throughput;
+      parallelSegmentLimit++;
+    } else {
+      saturated = true;
+      parallelSegmentLimit--;
+    }
+    measurementStartTimeMs = C.TIME_UNSET;
+    measurementBytes = 0;
+    measurementSegments = 0;
+  }
+}
@@ -25,6 +25,7 @@ import androidx.media3.common.PriorityTaskManager;
 import androidx.media3.common.PriorityTaskManager.PriorityTooLowException;
 import androidx.media3.common.StreamKey;
 import androidx.media3.common.util.Assertions;
+import androidx.media3.common.util.Clock;
 import androidx.media3.common.util.RunnableFutureTask;
 import androidx.media3.common.util.UnstableApi;
 import androidx.media3.common.util.Util;
@@ -88,6 +89,7 @@ public abstract class SegmentDownloader<M extends FilterableManifest<M>> impleme
   @Nullable private final PriorityTaskManager priorityTaskManager;
   private final Executor executor;
   private final long maxMergedSegmentStartTimeDiffUs;
+  private final boolean adaptParallelismToThroughput;
 
   /**
    * The currently active runnables.
@@ -137,6 +139,39 @@ public abstract class SegmentDownloader<M extends FilterableManifest<M>> impleme
       CacheDataSource.Factory cacheDataSourceFactory,
       Executor executor,
       long maxMergedSegmentStartTimeDiffMs) {
+    this(
+        mediaItem,
+        manifestParser,
+        cacheDataSourceFactory,
+        executor,
+        maxMergedSegmentStartTimeDiffMs,
+        /* adaptParallelismToThroughput= */ false);
+  }
+
+  /**
+   * @param mediaItem The {@link MediaItem} to be downloaded.
+   * @param manifestParser A parser for manifests belonging to the media to be downloaded.
+   * @param cacheDataSourceFactory A {@link CacheDataSource.Factory} for the cache into which the
+   *     download will be written.
+   * @param executor An {@link Executor} used to make requests for the media being downloaded.
+   *     Providing an {@link Executor} that uses multiple threads will speed up the download by
+   *     allowing parts of it to be executed in parallel.
+   * @param maxMergedSegmentStartTimeDiffMs The maximum difference of the start time of two
+   *     segments, up to which the segments (of the same URI) should be merged into a single
+   *     download segment, in milliseconds.
+   * @param adaptParallelismToThroughput Whether to adapt the number of segments downloaded in
+   *     parallel to the measured throughput. If true, segments are initially downloaded one at a
+   *     time, and the number is raised for as long as doing so increases throughput, up to the
+   *     parallelism of the {@code executor}. If false, as many segments are downloaded in parallel
+   *     as the {@code executor} allows.
+   */
+  public SegmentDownloader(
+      MediaItem mediaItem,
+      Parser<M> manifestParser,
+      CacheDataSource.Factory cacheDataSourceFactory,
+      Executor executor,
+      long maxMergedSegmentStartTimeDiffMs,
+      boolean adaptParallelismToThroughput) {
     checkNotNull(mediaItem.localConfiguration);
     this.manifestDataSpec = getCompressibleDataSpec(mediaItem.localConfiguration.uri);
     this.manifestParser = manifestParser;
@@ -148,6 +183,7 @@ public abstract class SegmentDownloader<M extends FilterableManifest<M>> impleme
     priorityTaskManager = cacheDataSourceFactory.getUpstreamPriorityTaskManager();
     activeRunnables = new ArrayList<>();
     maxMergedSegmentStartTimeDiffUs = Util.msToUs(maxMergedSegmentStartTimeDiffMs);
+    this.adaptParallelismToThroughput = adaptParallelismToThroughput;
   }
 
   @Override
@@ -155,6 +191,11 @@ public abstract class SegmentDownloader<M extends FilterableManifest<M>> impleme
       throws IOException, InterruptedException {
     ArrayDeque<Segment> pendingSegments = new ArrayDeque<>();
     ArrayDeque<SegmentDownloadRunnable> recycledRunnables = new ArrayDeque<>();
+    @Nullable
+    SegmentDownloadConcurrencyController concurrencyController =
+        adaptParallelismToThroughput
+            ? new SegmentDownloadConcurrencyController(Clock.DEFAULT)
+            : null;
     if (priorityTaskManager != null) {
       priorityTaskManager.add(C.PRIORITY_DOWNLOAD);
     }
@@ -223,6 +264,14 @@ public abstract class SegmentDownloader<M extends FilterableManifest<M>> impleme
           priorityTaskManager.proceed(C.PRIORITY_DOWNLOAD);
         }
 
+        // If the maximum number of segments are already being downloaded in parallel, wait for the
+        // oldest to finish before starting the next. It's cleaned up below.
+        if (concurrencyController != null
+            && !activeRunnables.isEmpty()
+            && activeRunnables.size() >= concurrencyController.getParallelSegmentLimit()) {
+          activeRunnables.get(0).blockUntilFinished();
+        }
+
         // Create and execute a runnable to download the next segment.
         CacheDataSource segmentDataSource;
         byte[] temporaryBuffer;
@@ -239,6 +288,9 @@ public abstract class SegmentDownloader<M extends FilterableManifest<M>> impleme
             new SegmentDownloadRunnable(
                 segment, segmentDataSource, progressNotifier, temporaryBuffer);
         addActiveRunnable(downloadRunnable);
+        if (concurrencyController != null) {
+          concurrencyController.onSegmentStarted();
+        }
         executor.execute(downloadRunnable);
 
         // Clean up runnables that have finished.
@@ -252,6 +304,9 @@ public abstract class SegmentDownloader<M extends FilterableManifest<M>> impleme
               activeRunnable.get();
               removeActiveRunnable(j);
               recycledRunnables.addLast(activeRunnable);
+              if (concurrencyController != null) {
+                concurrencyController.onSegmentDownloaded(activeRunnable.getBytesDownloaded());
+              }
             } catch (ExecutionException e) {
               Throwable cause = Assertions.checkNotNull(e.getCause());
               if (cause instanceof PriorityTooLowException) {
@@ -487,6 +542,7 @@ public abstract class SegmentDownloader<M extends FilterableManifest<M>> impleme
     public final CacheDataSource dataSource;
     @Nullable private final ProgressNotifier progressNotifier;
     public final byte[] temporaryBuffer;
+    private final ByteCounter byteCounter;
     private final CacheWriter cacheWriter;
 
     public SegmentDownloadRunnable(
@@ -498,8 +554,14 @@ public abstract class SegmentDownloader<M extends FilterableManifest<M>> impleme
       this.dataSource = dataSource;
       this.progressNotifier = progressNotifier;
       this.temporaryBuffer = temporaryBuffer;
+      byteCounter = new ByteCounter(progressNotifier);
       this.cacheWriter =
-          new CacheWriter(dataSource, segment.dataSpec, temporaryBuffer, progressNotifier);
+          new CacheWriter(dataSource, segment.dataSpec, temporaryBuffer, byteCounter);
+    }
+
+    /** Returns the number of bytes downloaded and written to the cache by the runnable. */
+    public long getBytesDownloaded() {
+      return byteCounter.bytesDownloaded;
     }
 
     @Override
@@ -517,6 +579,27 @@ public abstract class SegmentDownloader<M extends FilterableManifest<M>> impleme
     }
   }
 
+  /** Counts the bytes written by a {@link CacheWriter}, forwarding progress to a delegate. */
+  private static final class ByteCounter implements CacheWriter.ProgressListener {
+
+    @Nullable private final CacheWriter.ProgressListener delegate;
+
+    // Only written by the thread executing the runnable, and only read once it has finished.
+    public long bytesDownloaded;
+
+    public ByteCounter(@Nullable CacheWriter.ProgressListener delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void onProgress(long requestLength, long bytesCached, long newBytesCached) {
+      bytesDownloaded += newBytesCached;
+      if (delegate != null) {
+        delegate.onProgress(requestLength, bytesCached, newBytesCached);
+      }
+    }
+  }
+
   private static final class ProgressNotifier implements CacheWriter.ProgressListener {
 
     private final ProgressListener progressListener;
@@ -26,9 +26,19 @@ import androidx.media3.extractor.DefaultExtractorInput;
 import androidx.media3.extractor.Extractor;
 import androidx.media3.extractor.ExtractorInput;
 import androidx.media3.extractor.ExtractorOutput;
+import androidx.media3.extractor.ExtractorUtil;
 import androidx.media3.extractor.ExtractorsFactory;
 import androidx.media3.extractor.PositionHolder;
+import androidx.media3.extractor.amr.AmrExtractor;
+import androidx.media3.extractor.avi.AviExtractor;
+import androidx.media3.extractor.bmp.BmpExtractor;
+import androidx.media3.extractor.flv.FlvExtractor;
+import androidx.media3.extractor.heif.HeifExtractor;
+import androidx.media3.extractor.jpeg.JpegExtractor;
 import androidx.media3.extractor.mp3.Mp3Extractor;
+import androidx.media3.extractor.png.PngExtractor;
+import androidx.media3.extractor.wav.WavExtractor;
+import androidx.media3.extractor.webp.WebpExtractor;
 import java.io.EOFException;
 import java.io.IOException;
 import java.util.List;
@@ -41,7 +51,25 @@ import java.util.Map;
 @UnstableApi
 public final class BundledExtractorsAdapter implements ProgressiveMediaExtractor {
 
+  /** The number of bytes at the start of the stream that are used to skip unsuitable extractors. */
+  private static final int SNIFF_HEAD_LENGTH = 12;
+
+  private static final byte[] RIFF_FOURCC = Util.getUtf8Bytes("RIFF");
+  private static final byte[] RF64_FOURCC = Util.getUtf8Bytes("RF64");
+  private static final byte[] WAVE_FOURCC = Util.getUtf8Bytes("WAVE");
+  private static final byte[] AVI_FOURCC = Util.getUtf8Bytes("AVI ");
+  private static final byte[] WEBP_FOURCC = Util.getUtf8Bytes("WEBP");
+  private static final byte[] FTYP_FOURCC = Util.getUtf8Bytes("ftyp");
+  private static final byte[] HEIC_FOURCC = Util.getUtf8Bytes("heic");
+  private static final byte[] FLV_SIGNATURE = Util.getUtf8Bytes("FLV");
+  private static final byte[] AMR_NB_SIGNATURE = Util.getUtf8Bytes("#!AMR\n");
+  private static final byte[] AMR_WB_SIGNATURE = Util.getUtf8Bytes("#!AMR-WB\n");
+  private static final byte[] JPEG_SIGNATURE = {(byte) 0xFF, (byte) 0xD8};
+  private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P'};
+  private static final byte[] BMP_SIGNATURE = {'B', 'M'};
+
   private final ExtractorsFactory extractorsFactory;
+  private final byte[] sniffHead;
 
   @Nullable private Extractor extractor;
   @Nullable private ExtractorInput extractorInput;
@@ -53,6 +81,7 @@ public final class BundledExtractorsAdapter implements ProgressiveMediaExtractor
    */
   public BundledExtractorsAdapter(ExtractorsFactory extractorsFactory) {
     this.extractorsFactory = extractorsFactory;
+    sniffHead = new byte[SNIFF_HEAD_LENGTH];
   }
 
   @Override
@@ -73,7 +102,16 @@ public final class BundledExtractorsAdapter implements ProgressiveMediaExtractor
     if (extractors.length == 1) {
       this.extractor = extractors[0];
     } else {
+      // Peek the start of the stream once, so that extractors that are known to require a file
+      // signature that isn't present can be skipped without sniffing. The peeked data is retained
+      // by the input, so the extractors that are sniffed don't need to read it from upstream again.
+      int sniffHeadLength =
+          ExtractorUtil.peekToLength(extractorInput, sniffHead, /* offset= */ 0, SNIFF_HEAD_LENGTH);
+      extractorInput.resetPeekPosition();
       for (Extractor extractor : extractors) {
+        if (!mayMatchSniffHead(extractor.getUnderlyingImplementation(), sniffHeadLength)) {
+          continue;
+        }
         try {
           if (extractor.sniff(extractorInput)) {
             this.extractor = extractor;
@@ -132,4 +170,52 @@ public final class BundledExtractorsAdapter implements ProgressiveMediaExtractor
     return Assertions.checkNotNull(extractor)
         .read(Assertions.checkNotNull(extractorInput), positionHolder);
   }
+
+  // Internal methods.
+
+  /**
+   * Returns whether the given extractor may be able to read a stream starting with the peeked
+   * {@link #sniffHead}. Returns {@code false} only if {@link Extractor#sniff} is known to return
+   * {@code false}, or to throw an {@link EOFException}, for such a stream.
+   */
+  private boolean mayMatchSniffHead(Extractor extractor, int sniffHeadLength) {
+    if (extractor instanceof FlvExtractor) {
+      return headStartsWith(FLV_SIGNATURE, /* offset= */ 0, sniffHeadLength);
+    } else if (extractor instanceof WavExtractor) {
+      return (headStartsWith(RIFF_FOURCC, /* offset= */ 0, sniffHeadLength)
+              || headStartsWith(RF64_FOURCC, /* offset= */ 0, sniffHeadLength))
+          && headStartsWith(WAVE_FOURCC, /* offset= */ 8, sniffHeadLength);
+    } else if (extractor instanceof AviExtractor) {
+      return headStartsWith(RIFF_FOURCC, /* offset= */ 0, sniffHeadLength)
+          && headStartsWith(AVI_FOURCC, /* offset= */ 8, sniffHeadLength);
+    } else if (extractor instanceof WebpExtractor) {
+      return headStartsWith(RIFF_FOURCC, /* offset= */ 0, sniffHeadLength)
+          && headStartsWith(WEBP_FOURCC, /* offset= */ 8, sniffHeadLength);
+    } else if (extractor instanceof HeifExtractor) {
+      return headStartsWith(FTYP_FOURCC, /* offset= */ 4, sniffHeadLength)
+          && headStartsWith(HEIC_FOURCC, /* offset= */ 8, sniffHeadLength);
+    } else if (extractor instanceof AmrExtractor) {
+      return headStartsWith(AMR_NB_SIGNATURE, /* offset= */ 0, sniffHeadLength)
+          || headStartsWith(AMR_WB_SIGNATURE, /* offset= */ 0, sniffHeadLength);
+    } else if (extractor instanceof JpegExtractor) {
+      return headStartsWith(JPEG_SIGNATURE, /* offset= */ 0, sniffHeadLength);
+    } else if (extractor instanceof PngExtractor) {
+      return headStartsWith(PNG_SIGNATURE, /* offset= */ 0, sniffHeadLength);
+    } else if (extractor instanceof BmpExtractor) {
+      return headStartsWith(BMP_SIGNATURE, /* offset= */ 0, sniffHeadLength);
+    }
+    return true;
+  }
+
+  private boolean headStartsWith(byte[] signature, int offset, int sniffHeadLength) {
+    if (offset + signature.length > sniffHeadLength) {
+      return false;
+    }
+    for (int i = 0; i < signature.length; i++) {
+      if (sniffHead[offset + i] != signature[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
 }
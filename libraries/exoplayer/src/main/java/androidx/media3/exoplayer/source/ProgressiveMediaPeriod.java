@@ -114,6 +114,7 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
   private final Allocator allocator;
   @Nullable private final String customCacheKey;
   private final long continueLoadingCheckIntervalBytes;
+  @Nullable private final SeekIndexCache seekIndexCache;
   private final Loader loader;
   private final ProgressiveMediaExtractor progressiveMediaExtractor;
   private final ConditionVariable loadCondition;
@@ -166,6 +167,8 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
    * @param continueLoadingCheckIntervalBytes The number of bytes that should be loaded between each
    *     invocation of {@link Callback#onContinueLoadingRequested(SequenceableLoader)}.
    * @param singleSampleDurationUs The duration of media with a single sample in microseconds.
+   * @param seekIndexCache The {@link SeekIndexCache} in which to look up and record resolved seek
+   *     positions, or null if seek positions should not be cached.
    */
   // maybeFinishPrepare is not posted to the handler until initialization completes.
   @SuppressWarnings({"nullness:argument", "nullness:methodref.receiver.bound"})
@@ -181,7 +184,8 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
       Allocator allocator,
       @Nullable String customCacheKey,
       int continueLoadingCheckIntervalBytes,
-      long singleSampleDurationUs) {
+      long singleSampleDurationUs,
+      @Nullable SeekIndexCache seekIndexCache) {
     this.uri = uri;
     this.dataSource = dataSource;
     this.drmSessionManager = drmSessionManager;
@@ -192,6 +196,7 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
     this.allocator = allocator;
     this.customCacheKey = customCacheKey;
     this.continueLoadingCheckIntervalBytes = continueLoadingCheckIntervalBytes;
+    this.seekIndexCache = seekIndexCache;
     loader = new Loader("ProgressiveMediaPeriod");
     this.progressiveMediaExtractor = progressiveMediaExtractor;
     this.durationUs = singleSampleDurationUs;
@@ -231,6 +236,9 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
       sampleQueue.release();
     }
     progressiveMediaExtractor.release();
+    if (seekIndexCache != null) {
+      seekIndexCache.persist();
+    }
   }
 
   @Override
@@ -701,7 +709,9 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
 
   @Override
   public void seekMap(SeekMap seekMap) {
-    handler.post(() -> setSeekMap(seekMap));
+    SeekMap outputSeekMap =
+        seekIndexCache != null ? seekIndexCache.wrapSeekMap(seekMap) : seekMap;
+    handler.post(() -> setSeekMap(outputSeekMap));
   }
 
   // Icy metadata. Called by the loading thread.
@@ -823,8 +833,7 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
         return;
       }
       loadable.setLoadPosition(
-          checkNotNull(seekMap).getSeekPoints(pendingResetPositionUs).first.position,
-          pendingResetPositionUs);
+          checkNotNull(seekMap).getSeekPoints(pendingResetPositionUs), pendingResetPositionUs);
       for (SampleQueue sampleQueue : sampleQueues) {
         sampleQueue.setStartTimeUs(pendingResetPositionUs);
       }
@@ -990,6 +999,9 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
 
     private boolean pendingExtractorSeek;
     private long seekTimeUs;
+    private boolean isResolvingSeek;
+    private long resolvedSeekPosition;
+    @Nullable private SeekPoints seekPoints;
     private DataSpec dataSpec;
     @Nullable private TrackOutput icyTrackOutput;
     private boolean seenIcyMetadata;
@@ -1053,6 +1065,12 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
           if (pendingExtractorSeek) {
             progressiveMediaExtractor.seek(position, seekTimeUs);
             pendingExtractorSeek = false;
+            // The time of the samples output after the seek is only known if the sample queues
+            // have been reset, which is always the case when seeking to a position that's not
+            // buffered.
+            isResolvingSeek =
+                seekIndexCache != null && seekTimeUs != 0 && getExtractedSamplesCount() == 0;
+            resolvedSeekPosition = C.INDEX_UNSET;
           }
           while (result == Extractor.RESULT_CONTINUE && !loadCanceled) {
             try {
@@ -1061,6 +1079,9 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
               throw new InterruptedIOException();
             }
             result = progressiveMediaExtractor.read(positionHolder);
+            if (isResolvingSeek && getExtractedSamplesCount() > 0) {
+              onSeekResolved();
+            }
             long currentInputPosition = progressiveMediaExtractor.getCurrentInputPosition();
             if (currentInputPosition > position + continueLoadingCheckIntervalBytes) {
               position = currentInputPosition;
@@ -1071,6 +1092,9 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
         } finally {
           if (result == Extractor.RESULT_SEEK) {
             result = Extractor.RESULT_CONTINUE;
+            if (isResolvingSeek) {
+              resolvedSeekPosition = positionHolder.position;
+            }
           } else if (progressiveMediaExtractor.getCurrentInputPosition() != C.INDEX_UNSET) {
             positionHolder.position = progressiveMediaExtractor.getCurrentInputPosition();
           }
@@ -1099,6 +1123,17 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
 
     // Internal methods.
 
+    private void onSeekResolved() {
+      isResolvingSeek = false;
+      if (resolvedSeekPosition != C.INDEX_UNSET && !isSeekPointPosition(resolvedSeekPosition)) {
+        // The extractor had to search the input to resolve the seek. Record where it resumed
+        // reading samples and the time of the first samples it output, so that later seeks to
+        // this time or later can start there.
+        long resolvedTimeUs = getLargestQueuedTimestampUs(/* includeDisabledTracks= */ true);
+        checkNotNull(seekIndexCache).addSeekPoint(resolvedTimeUs, resolvedSeekPosition);
+      }
+    }
+
     private DataSpec buildDataSpec(long position) {
       // Disable caching if the content length cannot be resolved, since this is indicative of a
       // progressive live stream.
@@ -1112,11 +1147,23 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
           .build();
     }
 
+    /** Returns whether {@code position} is one of the positions given by the seek's seek points. */
+    private boolean isSeekPointPosition(long position) {
+      return seekPoints != null
+          && (position == seekPoints.first.position || position == seekPoints.second.position);
+    }
+
+    private void setLoadPosition(SeekPoints seekPoints, long timeUs) {
+      setLoadPosition(seekPoints.first.position, timeUs);
+      this.seekPoints = seekPoints;
+    }
+
     private void setLoadPosition(long position, long timeUs) {
       positionHolder.position = position;
       seekTimeUs = timeUs;
       pendingExtractorSeek = true;
       seenIcyMetadata = false;
+      seekPoints = null;
     }
   }
 
@@ -27,7 +27,11 @@ import androidx.media3.common.Timeline;
 import androidx.media3.common.util.UnstableApi;
 import androidx.media3.common.util.Util;
 import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.DataSpec;
 import androidx.media3.datasource.TransferListener;
+import androidx.media3.datasource.cache.Cache;
+import androidx.media3.datasource.cache.CacheKeyFactory;
+import androidx.media3.datasource.cache.ContentMetadata;
 import androidx.media3.exoplayer.drm.DefaultDrmSessionManagerProvider;
 import androidx.media3.exoplayer.drm.DrmSessionManager;
 import androidx.media3.exoplayer.drm.DrmSessionManagerProvider;
@@ -64,6 +68,7 @@ public final class ProgressiveMediaSource extends BaseMediaSource
     private DrmSessionManagerProvider drmSessionManagerProvider;
     private LoadErrorHandlingPolicy loadErrorHandlingPolicy;
     private int continueLoadingCheckIntervalBytes;
+    @Nullable private Cache seekIndexCache;
 
     /**
      * Creates a new factory for {@link ProgressiveMediaSource}s.
@@ -184,6 +189,26 @@ public final class ProgressiveMediaSource extends BaseMediaSource
       return this;
     }
 
+    /**
+     * Sets a {@link Cache} in whose {@link ContentMetadata} the seek positions resolved by
+     * extractors are stored. The default value is {@code null}, meaning that seek positions are not
+     * stored.
+     *
+     * <p>When set, seeks that require the extractor to search the input (for example, binary search
+     * seeks in MPEG-TS, MPEG-PS and FLAC streams without a seek table) are recorded, and used as
+     * seek positions in later playbacks of the same content. The content is identified by the same
+     * key as used by {@link CacheKeyFactory#DEFAULT}. The cache will typically be the one that the
+     * content itself is cached in, so that the seek positions are evicted along with the content.
+     *
+     * @param seekIndexCache The {@link Cache} in which to store seek positions, or {@code null}.
+     * @return This factory, for convenience.
+     */
+    @CanIgnoreReturnValue
+    public Factory setSeekIndexCache(@Nullable Cache seekIndexCache) {
+      this.seekIndexCache = seekIndexCache;
+      return this;
+    }
+
     @CanIgnoreReturnValue
     @Override
     public Factory setDrmSessionManagerProvider(
@@ -213,7 +238,8 @@ public final class ProgressiveMediaSource extends BaseMediaSource
           progressiveMediaExtractorFactory,
           drmSessionManagerProvider.get(mediaItem),
           loadErrorHandlingPolicy,
-          continueLoadingCheckIntervalBytes);
+          continueLoadingCheckIntervalBytes,
+          seekIndexCache);
     }
 
     @Override
@@ -233,6 +259,7 @@ public final class ProgressiveMediaSource extends BaseMediaSource
   private final DrmSessionManager drmSessionManager;
   private final LoadErrorHandlingPolicy loadableLoadErrorHandlingPolicy;
   private final int continueLoadingCheckIntervalBytes;
+  @Nullable private final Cache seekIndexCache;
   private boolean timelineIsPlaceholder;
   private long timelineDurationUs;
   private boolean timelineIsSeekable;
@@ -248,13 +275,15 @@ public final class ProgressiveMediaSource extends BaseMediaSource
       ProgressiveMediaExtractor.Factory progressiveMediaExtractorFactory,
       DrmSessionManager drmSessionManager,
       LoadErrorHandlingPolicy loadableLoadErrorHandlingPolicy,
-      int continueLoadingCheckIntervalBytes) {
+      int continueLoadingCheckIntervalBytes,
+      @Nullable Cache seekIndexCache) {
     this.mediaItem = mediaItem;
     this.dataSourceFactory = dataSourceFactory;
     this.progressiveMediaExtractorFactory = progressiveMediaExtractorFactory;
     this.drmSessionManager = drmSessionManager;
     this.loadableLoadErrorHandlingPolicy = loadableLoadErrorHandlingPolicy;
     this.continueLoadingCheckIntervalBytes = continueLoadingCheckIntervalBytes;
+    this.seekIndexCache = seekIndexCache;
     this.timelineIsPlaceholder = true;
     this.timelineDurationUs = C.TIME_UNSET;
   }
@@ -312,7 +341,8 @@ public final class ProgressiveMediaSource extends BaseMediaSource
         allocator,
         localConfiguration.customCacheKey,
         continueLoadingCheckIntervalBytes,
-        Util.msToUs(localConfiguration.imageDurationMs));
+        Util.msToUs(localConfiguration.imageDurationMs),
+        seekIndexCache == null ? null : createSeekIndexCache(seekIndexCache, localConfiguration));
   }
 
   @Override
@@ -351,6 +381,16 @@ public final class ProgressiveMediaSource extends BaseMediaSource
     return checkNotNull(getMediaItem().localConfiguration);
   }
 
+  private static SeekIndexCache createSeekIndexCache(
+      Cache cache, MediaItem.LocalConfiguration localConfiguration) {
+    DataSpec dataSpec =
+        new DataSpec.Builder()
+            .setUri(localConfiguration.uri)
+            .setKey(localConfiguration.customCacheKey)
+            .build();
+    return new SeekIndexCache(cache, CacheKeyFactory.DEFAULT.buildCacheKey(dataSpec));
+  }
+
   private void notifySourceInfoRefreshed() {
     // TODO: Split up isDynamic into multiple fields to indicate which values may change. Then
     // indicate that the duration may change until it's known. See [internal: b/69703223].
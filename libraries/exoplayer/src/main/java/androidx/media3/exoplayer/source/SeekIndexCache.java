@@ -0,0 +1,210 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.exoplayer.source;
+
+import androidx.annotation.Nullable;
+import androidx.media3.common.C;
+import androidx.media3.common.util.Log;
+import androidx.media3.common.util.ParsableByteArray;
+import androidx.media3.datasource.cache.Cache;
+import androidx.media3.datasource.cache.ContentMetadata;
+import androidx.media3.datasource.cache.ContentMetadataMutations;
+import androidx.media3.extractor.ForwardingSeekMap;
+import androidx.media3.extractor.IndexSeekMap;
+import androidx.media3.extractor.SeekMap;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Stores the seek positions resolved while extracting a progressive stream in the {@link
+ * ContentMetadata} of a {@link Cache}, so that seeks in later playbacks of the same content can
+ * start from these positions.
+ *
+ * <p>A seek is only recorded if the extractor resumed reading samples at a position other than
+ * those of the seek points that the {@link SeekMap} returned for the seek. This is the case for
+ * seeks that required the extractor to search the input, such as binary search seeks in MPEG-TS,
+ * MPEG-PS, Matroska and FLAC streams, and bisection seeks in Ogg streams. Seeks resolved directly
+ * from the {@link SeekMap}, such as in MP4 streams, and seeks resolved from the stored seek index
+ * aren't recorded, since they already need a single request.
+ *
+ * <p>Must only be accessed on the loading thread.
+ */
+/* package */ final class SeekIndexCache {
+
+  /** Content metadata key for the seek index (type: byte[]). */
+  /* package */ static final String METADATA_KEY_SEEK_INDEX = "exo_seek_idx";
+
+  private static final String TAG = "SeekIndexCache";
+
+  private static final int VERSION = 1;
+
+  /** The maximum number of seek points that are stored for each piece of content. */
+  private static final int MAX_SEEK_POINT_COUNT = 1024;
+
+  private final Cache cache;
+  private final String key;
+  private final TreeMap<Long, Long> newPositionsByTimeUs;
+
+  private long durationUs;
+
+  /**
+   * Creates an instance.
+   *
+   * @param cache The {@link Cache} in which the seek index is stored.
+   * @param key The cache key of the content.
+   */
+  public SeekIndexCache(Cache cache, String key) {
+    this.cache = cache;
+    this.key = key;
+    newPositionsByTimeUs = new TreeMap<>();
+    durationUs = C.TIME_UNSET;
+  }
+
+  /**
+   * Returns a {@link SeekMap} that resolves seeks using the stored seek index where possible, and
+   * delegates to {@code seekMap} otherwise.
+   *
+   * <p>The stored seek index is only used if it was recorded for content with the same duration.
+   *
+   * @param seekMap The {@link SeekMap} output by the extractor.
+   * @return The {@link SeekMap} to use.
+   */
+  public SeekMap wrapSeekMap(SeekMap seekMap) {
+    durationUs = seekMap.getDurationUs();
+    if (!seekMap.isSeekable() || durationUs == C.TIME_UNSET) {
+      return seekMap;
+    }
+    TreeMap<Long, Long> positionsByTimeUs = readSeekIndex();
+    if (positionsByTimeUs.isEmpty()) {
+      return seekMap;
+    }
+    long firstTimeUs = positionsByTimeUs.firstKey();
+    long lastTimeUs = positionsByTimeUs.lastKey();
+    IndexSeekMap indexSeekMap = toIndexSeekMap(positionsByTimeUs, durationUs);
+    return new ForwardingSeekMap(seekMap) {
+      @Override
+      public SeekPoints getSeekPoints(long timeUs) {
+        return timeUs >= firstTimeUs && timeUs <= lastTimeUs
+            ? indexSeekMap.getSeekPoints(timeUs)
+            : super.getSeekPoints(timeUs);
+      }
+    };
+  }
+
+  /**
+   * Records that the extractor resolved a seek by resuming reading at {@code position}, from where
+   * it output samples with timestamps up to {@code timeUs}.
+   *
+   * @param timeUs The timestamp of the first samples output after the seek, in microseconds. This
+   *     is the resolved time of the seek, which may differ from the requested time.
+   * @param position The position at which the extractor resumed reading samples, in bytes.
+   */
+  public void addSeekPoint(long timeUs, long position) {
+    newPositionsByTimeUs.put(timeUs, position);
+  }
+
+  /**
+   * Merges the recorded seek points into the stored seek index.
+   *
+   * <p>The stored seek index is read, merged and written whilst holding the lock of the {@link
+   * Cache}, so that concurrent calls for the same content, such as from different players, don't
+   * lose each other's seek points.
+   */
+  public void persist() {
+    if (newPositionsByTimeUs.isEmpty() || durationUs == C.TIME_UNSET) {
+      return;
+    }
+    synchronized (cache) {
+      mergeAndStoreSeekIndex();
+    }
+  }
+
+  // Internal methods.
+
+  private void mergeAndStoreSeekIndex() {
+    TreeMap<Long, Long> positionsByTimeUs = readSeekIndex();
+    positionsByTimeUs.putAll(newPositionsByTimeUs);
+    newPositionsByTimeUs.clear();
+    while (positionsByTimeUs.size() > MAX_SEEK_POINT_COUNT) {
+      // Thin out the index, keeping seek points spread over the whole content.
+      Iterator<Long> iterator = positionsByTimeUs.keySet().iterator();
+      while (iterator.hasNext()) {
+        iterator.next();
+        if (iterator.hasNext()) {
+          iterator.next();
+          iterator.remove();
+        }
+      }
+    }
+    ByteBuffer seekIndex = ByteBuffer.allocate(16 + 16 * positionsByTimeUs.size());
+    seekIndex.putInt(VERSION);
+    seekIndex.putLong(durationUs);
+    seekIndex.putInt(positionsByTimeUs.size());
+    for (Map.Entry<Long, Long> entry : positionsByTimeUs.entrySet()) {
+      seekIndex.putLong(entry.getKey());
+      seekIndex.putLong(entry.getValue());
+    }
+    try {
+      cache.applyContentMetadataMutations(
+          key, new ContentMetadataMutations().set(METADATA_KEY_SEEK_INDEX, seekIndex.array()));
+    } catch (Cache.CacheException e) {
+      Log.w(TAG, "Failed to store seek index", e);
+    }
+  }
+
+  /**
+   * Returns the stored seek index, or an empty map if there is none or if it was recorded for
+   * content with a different duration.
+   */
+  private TreeMap<Long, Long> readSeekIndex() {
+    TreeMap<Long, Long> positionsByTimeUs = new TreeMap<>();
+    ContentMetadata contentMetadata = cache.getContentMetadata(key);
+    @Nullable
+    byte[] seekIndex =
+        contentMetadata.get(METADATA_KEY_SEEK_INDEX, /* defaultValue= */ (byte[]) null);
+    if (seekIndex == null || seekIndex.length < 16) {
+      return positionsByTimeUs;
+    }
+    ParsableByteArray data = new ParsableByteArray(seekIndex);
+    if (data.readInt() != VERSION || data.readLong() != durationUs) {
+      return positionsByTimeUs;
+    }
+    int seekPointCount = data.readInt();
+    if (data.bytesLeft() != 16 * seekPointCount) {
+      return positionsByTimeUs;
+    }
+    for (int i = 0; i < seekPointCount; i++) {
+      long timeUs = data.readLong();
+      positionsByTimeUs.put(timeUs, data.readLong());
+    }
+    return positionsByTimeUs;
+  }
+
+  private static IndexSeekMap toIndexSeekMap(
+      TreeMap<Long, Long> positionsByTimeUs, long durationUs) {
+    long[] timesUs = new long[positionsByTimeUs.size()];
+    long[] positions = new long[positionsByTimeUs.size()];
+    int i = 0;
+    for (Map.Entry<Long, Long> entry : positionsByTimeUs.entrySet()) {
+      timesUs[i] = entry.getKey();
+      positions[i] = entry.getValue();
+      i++;
+    }
+    return new IndexSeekMap(positions, timesUs, durationUs);
+  }
+}
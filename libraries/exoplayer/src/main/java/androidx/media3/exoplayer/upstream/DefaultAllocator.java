@@ -24,7 +24,22 @@ import androidx.media3.common.util.UnstableApi;
 import androidx.media3.common.util.Util;
 import java.util.Arrays;
 
-/** Default implementation of {@link Allocator}. */
+/**
+ * Default implementation of {@link Allocator}.
+ *
+ * <p>This class is thread-safe. Critical sections are kept short so that loaders writing to
+ * different sample queues contend as little as possible, and {@link #getTotalBytesAllocated()} can
+ * be called without acquiring the allocator's lock.
+ *
+ * <p>Allocations are backed by heap arrays, into which loaded data is read directly. Sample data is
+ * then copied from these arrays into decoder input buffers, which may be direct, without any
+ * intermediate copies. When buffering large amounts of high bitrate media, {@link
+ * #DefaultAllocator(boolean, int, int)} can be used to create allocations up front in a single
+ * block. The block is retained for the lifetime of the allocator rather than being repeatedly
+ * allocated and garbage collected, since {@link #trim()} never discards allocations backed by it.
+ * Other allocations are discarded by {@link #trim()} when they exceed the target buffer size, and
+ * {@link #reset()} reduces the target buffer size to zero if {@code trimOnReset} is {@code true}.
+ */
 @UnstableApi
 public final class DefaultAllocator implements Allocator {
 
@@ -35,7 +50,8 @@ public final class DefaultAllocator implements Allocator {
   @Nullable private final byte[] initialAllocationBlock;
 
   private int targetBufferSize;
-  private int allocatedCount;
+  // Only modified whilst holding the lock, but read without it by getTotalBytesAllocated.
+  private volatile int allocatedCount;
   private int availableCount;
   private @NullableType Allocation[] availableAllocations;
 
@@ -94,14 +110,14 @@ public final class DefaultAllocator implements Allocator {
   }
 
   @Override
-  public synchronized Allocation allocate() {
-    allocatedCount++;
-    Allocation allocation;
-    if (availableCount > 0) {
-      allocation = Assertions.checkNotNull(availableAllocations[--availableCount]);
-      availableAllocations[availableCount] = null;
-    } else {
-      allocation = new Allocation(new byte[individualAllocationSize], 0);
+  public Allocation allocate() {
+    synchronized (this) {
+      allocatedCount++;
+      if (availableCount > 0) {
+        Allocation allocation = Assertions.checkNotNull(availableAllocations[--availableCount]);
+        availableAllocations[availableCount] = null;
+        return allocation;
+      }
       if (allocatedCount > availableAllocations.length) {
         // Make availableAllocations be large enough to contain all allocations made by this
         // allocator so that release() does not need to grow the availableAllocations array. See
@@ -109,7 +125,9 @@ public final class DefaultAllocator implements Allocator {
         availableAllocations = Arrays.copyOf(availableAllocations, availableAllocations.length * 2);
       }
     }
-    return allocation;
+    // Create new allocations without holding the lock, since zeroing a large array is slow compared
+    // to taking an allocation from availableAllocations.
+    return new Allocation(new byte[individualAllocationSize], 0);
   }
 
   @Override
@@ -122,11 +140,13 @@ public final class DefaultAllocator implements Allocator {
 
   @Override
   public synchronized void release(@Nullable AllocationNode allocationNode) {
+    int releasedCount = 0;
     while (allocationNode != null) {
       availableAllocations[availableCount++] = allocationNode.getAllocation();
-      allocatedCount--;
+      releasedCount++;
       allocationNode = allocationNode.next();
     }
+    allocatedCount -= releasedCount;
     // Wake up threads waiting for the allocated size to drop.
     notifyAll();
   }
@@ -174,7 +194,7 @@ public final class DefaultAllocator implements Allocator {
   }
 
   @Override
-  public synchronized int getTotalBytesAllocated() {
+  public int getTotalBytesAllocated() {
     return allocatedCount * individualAllocationSize;
   }
 
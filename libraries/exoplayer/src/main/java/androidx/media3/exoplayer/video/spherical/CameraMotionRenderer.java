@@ -136,8 +136,8 @@ public final class CameraMotionRenderer extends BaseRenderer {
     if (data.remaining() != 16) {
       return null;
     }
-    scratch.reset(data.array(), data.limit());
-    scratch.setPosition(data.arrayOffset() + 4); // skip reserved bytes too.
+    scratch.reset(data);
+    scratch.skipBytes(4); // skip reserved bytes too.
     float[] result = new float[3];
     for (int i = 0; i < 3; i++) {
       result[i] = Float.intBitsToFloat(scratch.readLittleEndianInt());
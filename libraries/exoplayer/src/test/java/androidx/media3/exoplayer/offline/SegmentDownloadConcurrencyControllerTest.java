@@ -0,0 +1,115 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.exoplayer.offline;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.media3.test.utils.FakeClock;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit tests for {@link SegmentDownloadConcurrencyController}. */
+@RunWith(AndroidJUnit4.class)
+public class SegmentDownloadConcurrencyControllerTest {
+
+  private static final long SEGMENT_BYTES = 1000;
+
+  @Test
+  public void initialState_limitsToSingleSegment() {
+    SegmentDownloadConcurrencyController controller =
+        new SegmentDownloadConcurrencyController(new FakeClock(/* initialTimeMs= */ 0));
+
+    assertThat(controller.getParallelSegmentLimit()).isEqualTo(1);
+    assertThat(controller.isSaturated()).isFalse();
+  }
+
+  @Test
+  public void throughputIncreasingWithLimit_raisesLimit() {
+    FakeClock clock = new FakeClock(/* initialTimeMs= */ 0);
+    SegmentDownloadConcurrencyController controller =
+        new SegmentDownloadConcurrencyController(clock);
+
+    // Each segment takes 100ms, regardless of how many are downloaded in parallel.
+    downloadSegments(controller, clock, /* segmentDurationMs= */ 100);
+    downloadSegments(controller, clock, /* segmentDurationMs= */ 100);
+    downloadSegments(controller, clock, /* segmentDurationMs= */ 100);
+
+    assertThat(controller.getParallelSegmentLimit()).isEqualTo(4);
+    assertThat(controller.isSaturated()).isFalse();
+  }
+
+  @Test
+  public void throughputNotIncreasingWithLimit_restoresPreviousLimit() {
+    FakeClock clock = new FakeClock(/* initialTimeMs= */ 0);
+    SegmentDownloadConcurrencyController controller =
+        new SegmentDownloadConcurrencyController(clock);
+    downloadSegments(controller, clock, /* segmentDurationMs= */ 100);
+    downloadSegments(controller, clock, /* segmentDurationMs= */ 100);
+
+    // Bandwidth is saturated with two segments in parallel, so each segment takes longer.
+    downloadSegments(controller, clock, /* segmentDurationMs= */ 150);
+
+    assertThat(controller.getParallelSegmentLimit()).isEqualTo(2);
+    assertThat(controller.isSaturated()).isTrue();
+  }
+
+  @Test
+  public void saturated_afterFurtherMeasurements_probesHigherLimitAgain() {
+    FakeClock clock = new FakeClock(/* initialTimeMs= */ 0);
+    SegmentDownloadConcurrencyController controller =
+        new SegmentDownloadConcurrencyController(clock);
+    downloadSegments(controller, clock, /* segmentDurationMs= */ 100);
+    downloadSegments(controller, clock, /* segmentDurationMs= */ 100);
+    downloadSegments(controller, clock, /* segmentDurationMs= */ 150);
+
+    for (int i = 0;
+        i < SegmentDownloadConcurrencyController.SATURATED_MEASUREMENTS_BEFORE_PROBE - 1;
+        i++) {
+      downloadSegments(controller, clock, /* segmentDurationMs= */ 100);
+    }
+    assertThat(controller.getParallelSegmentLimit()).isEqualTo(2);
+    assertThat(controller.isSaturated()).isTrue();
+    // More bandwidth has become available, so that three segments no longer saturate it.
+    downloadSegments(controller, clock, /* segmentDurationMs= */ 100);
+    downloadSegments(controller, clock, /* segmentDurationMs= */ 100);
+
+    assertThat(controller.getParallelSegmentLimit()).isEqualTo(4);
+    assertThat(controller.isSaturated()).isFalse();
+  }
+
+  /**
+   * Downloads enough segments for a measurement with the controller's current limit, with all
+   * segments that are downloaded in parallel taking {@code segmentDurationMs}.
+   */
+  private static void downloadSegments(
+      SegmentDownloadConcurrencyController controller, FakeClock clock, long segmentDurationMs) {
+    int parallelSegmentLimit = controller.getParallelSegmentLimit();
+    int segmentCount =
+        Math.max(
+            SegmentDownloadConcurrencyController.MIN_SEGMENTS_PER_MEASUREMENT,
+            2 * parallelSegmentLimit);
+    for (int i = 0; i < segmentCount; i += parallelSegmentLimit) {
+      for (int j = 0; j < parallelSegmentLimit; j++) {
+        controller.onSegmentStarted();
+      }
+      clock.advanceTime(segmentDurationMs);
+      for (int j = 0; j < parallelSegmentLimit; j++) {
+        controller.onSegmentDownloaded(SEGMENT_BYTES);
+      }
+    }
+  }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.exoplayer.offline;
+
+import static androidx.media3.test.utils.CacheAsserts.assertCachedData;
+import static com.google.common.truth.Truth.assertThat;
+
+import android.net.Uri;
+import androidx.annotation.Nullable;
+import androidx.media3.common.MediaItem;
+import androidx.media3.common.StreamKey;
+import androidx.media3.common.util.Util;
+import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.DataSpec;
+import androidx.media3.datasource.TransferListener;
+import androidx.media3.datasource.cache.CacheDataSource;
+import androidx.media3.datasource.cache.NoOpCacheEvictor;
+import androidx.media3.datasource.cache.SimpleCache;
+import androidx.media3.test.utils.CacheAsserts.RequestSet;
+import androidx.media3.test.utils.FakeDataSet;
+import androidx.media3.test.utils.FakeDataSource;
+import androidx.media3.test.utils.TestUtil;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit tests for {@link SegmentDownloader}. */
+@RunWith(AndroidJUnit4.class)
+public class SegmentDownloaderTest {
+
+  private static final String MANIFEST_URI = "https://test.com/manifest";
+  private static final int SEGMENT_COUNT = 3;
+
+  private File tempFolder;
+  private SimpleCache cache;
+  private ExecutorService executorService;
+  private FakeDataSet fakeDataSet;
+
+  @Before
+  public void setUp() throws Exception {
+    tempFolder =
+        Util.createTempDirectory(ApplicationProvider.getApplicationContext(), "ExoPlayerTest");
+    cache =
+        new SimpleCache(tempFolder, new NoOpCacheEvictor(), TestUtil.getInMemoryDatabaseProvider());
+    executorService = Executors.newFixedThreadPool(SEGMENT_COUNT);
+    fakeDataSet = new FakeDataSet().setRandomData(MANIFEST_URI, 10);
+    for (int i = 0; i < SEGMENT_COUNT; i++) {
+      fakeDataSet.setRandomData(getSegmentUri(i), 100);
+    }
+  }
+
+  @After
+  public void tearDown() {
+    executorService.shutdownNow();
+    cache.release();
+    Util.recursiveDelete(tempFolder);
+  }
+
+  @Test
+  public void download_byDefault_downloadsSegmentsInParallel() throws Exception {
+    // Each segment only completes opening once all segments are being downloaded.
+    CountDownLatch allSegmentsOpenedLatch = new CountDownLatch(SEGMENT_COUNT);
+    ConcurrencyTrackingDataSource.Factory dataSourceFactory =
+        new ConcurrencyTrackingDataSource.Factory(fakeDataSet, allSegmentsOpenedLatch);
+    TestSegmentDownloader downloader =
+        new TestSegmentDownloader(
+            createCacheDataSourceFactory(dataSourceFactory),
+            executorService,
+            /* adaptParallelismToThroughput= */ false);
+
+    downloader.download(/* progressListener= */ null);
+
+    assertThat(allSegmentsOpenedLatch.getCount()).isEqualTo(0);
+    assertThat(dataSourceFactory.maxOpenSegmentCount.get()).isEqualTo(SEGMENT_COUNT);
+    assertCachedData(cache, new RequestSet(fakeDataSet).subset(getSegmentUris()));
+  }
+
+  @Test
+  public void download_withAdaptParallelismToThroughput_startsWithOneSegmentAtATime()
+      throws Exception {
+    ConcurrencyTrackingDataSource.Factory dataSourceFactory =
+        new ConcurrencyTrackingDataSource.Factory(fakeDataSet, /* openLatch= */ null);
+    TestSegmentDownloader downloader =
+        new TestSegmentDownloader(
+            createCacheDataSourceFactory(dataSourceFactory),
+            executorService,
+            /* adaptParallelismToThroughput= */ true);
+
+    downloader.download(/* progressListener= */ null);
+
+    // Fewer segments than are needed to measure throughput are downloaded, so the limit of a
+    // single segment at a time is never raised.
+    assertThat(dataSourceFactory.maxOpenSegmentCount.get()).isEqualTo(1);
+    assertCachedData(cache, new RequestSet(fakeDataSet).subset(getSegmentUris()));
+  }
+
+  private CacheDataSource.Factory createCacheDataSourceFactory(
+      DataSource.Factory upstreamDataSourceFactory) {
+    return new CacheDataSource.Factory()
+        .setCache(cache)
+        .setUpstreamDataSourceFactory(upstreamDataSourceFactory);
+  }
+
+  private static String getSegmentUri(int index) {
+    return "https://test.com/segment" + index;
+  }
+
+  private static String[] getSegmentUris() {
+    String[] segmentUris = new String[SEGMENT_COUNT];
+    for (int i = 0; i < SEGMENT_COUNT; i++) {
+      segmentUris[i] = getSegmentUri(i);
+    }
+    return segmentUris;
+  }
+
+  private static final class TestManifest implements FilterableManifest<TestManifest> {
+
+    @Override
+    public TestManifest copy(List<StreamKey> streamKeys) {
+      return this;
+    }
+  }
+
+  private static final class TestSegmentDownloader extends SegmentDownloader<TestManifest> {
+
+    public TestSegmentDownloader(
+        CacheDataSource.Factory cacheDataSourceFactory,
+        ExecutorService executorService,
+        boolean adaptParallelismToThroughput) {
+      super(
+          MediaItem.fromUri(MANIFEST_URI),
+          (uri, inputStream) -> new TestManifest(),
+          cacheDataSourceFactory,
+          executorService,
+          DEFAULT_MAX_MERGED_SEGMENT_START_TIME_DIFF_MS,
+          adaptParallelismToThroughput);
+    }
+
+    @Override
+    protected List<Segment> getSegments(
+        DataSource dataSource, TestManifest manifest, boolean removing) {
+      List<Segment> segments = new ArrayList<>();
+      for (int i = 0; i < SEGMENT_COUNT; i++) {
+        DataSpec dataSpec = new DataSpec(Uri.parse(getSegmentUri(i)));
+        segments.add(new Segment(/* startTimeUs= */ i * 1_000_000L, dataSpec));
+      }
+      return segments;
+    }
+  }
+
+  /**
+   * A {@link DataSource} that tracks how many segments are opened concurrently, and optionally
+   * waits for a latch when opening a segment.
+   */
+  private static final class ConcurrencyTrackingDataSource implements DataSource {
+
+    public static final class Factory implements DataSource.Factory {
+
+      private final FakeDataSet fakeDataSet;
+      @Nullable private final CountDownLatch openLatch;
+      private final AtomicInteger openSegmentCount;
+      public final AtomicInteger maxOpenSegmentCount;
+
+      public Factory(FakeDataSet fakeDataSet, @Nullable CountDownLatch openLatch) {
+        this.fakeDataSet = fakeDataSet;
+        this.openLatch = openLatch;
+        openSegmentCount = new AtomicInteger();
+        maxOpenSegmentCount = new AtomicInteger();
+      }
+
+      @Override
+      public DataSource createDataSource() {
+        return new ConcurrencyTrackingDataSource(this, new FakeDataSource(fakeDataSet));
+      }
+    }
+
+    private final Factory factory;
+    private final FakeDataSource fakeDataSource;
+    private boolean isSegmentOpen;
+
+    private ConcurrencyTrackingDataSource(Factory factory, FakeDataSource fakeDataSource) {
+      this.factory = factory;
+      this.fakeDataSource = fakeDataSource;
+    }
+
+    @Override
+    public void addTransferListener(TransferListener transferListener) {
+      fakeDataSource.addTransferListener(transferListener);
+    }
+
+    @Override
+    public long open(DataSpec dataSpec) throws IOException {
+      if (!dataSpec.uri.toString().equals(MANIFEST_URI)) {
+        isSegmentOpen = true;
+        int openSegmentCount = factory.openSegmentCount.incrementAndGet();
+        factory.maxOpenSegmentCount.accumulateAndGet(openSegmentCount, Math::max);
+        if (factory.openLatch != null) {
+          factory.openLatch.countDown();
+          try {
+            factory.openLatch.await(/* timeout= */ 10, TimeUnit.SECONDS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+          }
+        }
+      }
+      return fakeDataSource.open(dataSpec);
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      return fakeDataSource.read(buffer, offset, length);
+    }
+
+    @Nullable
+    @Override
+    public Uri getUri() {
+      return fakeDataSource.getUri();
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (isSegmentOpen) {
+        isSegmentOpen = false;
+        factory.openSegmentCount.decrementAndGet();
+      }
+      fakeDataSource.close();
+    }
+  }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.exoplayer.source;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+import static org.junit.Assert.assertThrows;
+
+import android.net.Uri;
+import androidx.media3.datasource.ByteArrayDataSource;
+import androidx.media3.datasource.DataSpec;
+import androidx.media3.extractor.DefaultExtractorsFactory;
+import androidx.media3.extractor.Extractor;
+import androidx.media3.extractor.ExtractorInput;
+import androidx.media3.extractor.ExtractorOutput;
+import androidx.media3.extractor.ExtractorsFactory;
+import androidx.media3.extractor.PositionHolder;
+import androidx.media3.extractor.flv.FlvExtractor;
+import androidx.media3.extractor.mp4.Mp4Extractor;
+import androidx.media3.extractor.png.PngExtractor;
+import androidx.media3.extractor.wav.WavExtractor;
+import androidx.media3.test.utils.Dumper;
+import androidx.media3.test.utils.FakeExtractorInput;
+import androidx.media3.test.utils.FakeExtractorOutput;
+import androidx.media3.test.utils.TestUtil;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.common.collect.ImmutableList;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Collections;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit tests for {@link BundledExtractorsAdapter}. */
+@RunWith(AndroidJUnit4.class)
+public final class BundledExtractorsAdapterTest {
+
+  private static final ImmutableList<String> TEST_FILES =
+      ImmutableList.of(
+          "media/amr/sample_nb.amr",
+          "media/amr/sample_wb.amr",
+          "media/avi/sample.avi",
+          "media/bmp/non-motion-photo-shortened-cropped.bmp",
+          "media/flac/bear.flac",
+          "media/flv/sample.flv",
+          "media/heif/sample_MP.heic",
+          "media/jpeg/non-motion-photo-shortened.jpg",
+          "media/mkv/sample.mkv",
+          "media/mp3/bear-vbr-xing-header.mp3",
+          "media/mp4/sample.mp4",
+          "media/ogg/bear_vorbis.ogg",
+          "media/png/non-motion-photo-shortened.png",
+          "media/ts/sample.ac3",
+          "media/ts/sample.adts",
+          "media/ts/sample_h262_mpeg_audio.ps",
+          "media/ts/sample_h264_mpeg_audio.ts",
+          "media/wav/sample.wav",
+          "media/wav/sample_rf64.wav",
+          "media/webp/ic_launcher_round.webp");
+
+  @Test
+  public void init_selectsFirstExtractorWhoseSniffSucceeds() throws Exception {
+    for (String file : TEST_FILES) {
+      byte[] data = TestUtil.getByteArray(ApplicationProvider.getApplicationContext(), file);
+      int expectedExtractorIndex = getIndexOfFirstSniffingExtractor(data);
+      FakeExtractorOutput expectedOutput =
+          TestUtil.extractAllSamplesFromFile(
+              new DefaultExtractorsFactory().createExtractors()[expectedExtractorIndex],
+              ApplicationProvider.getApplicationContext(),
+              file);
+
+      FakeExtractorOutput output = extractAllSamples(data);
+
+      assertWithMessage(file).that(dump(output)).isEqualTo(dump(expectedOutput));
+    }
+  }
+
+  @Test
+  public void init_withUnrecognizedData_throwsUnrecognizedInputFormatException() {
+    byte[] data = TestUtil.buildTestData(/* length= */ 10);
+
+    assertThrows(UnrecognizedInputFormatException.class, () -> extractAllSamples(data));
+  }
+
+  @Test
+  public void init_withoutFileSignature_skipsExtractorsRequiringSignature() throws Exception {
+    byte[] data =
+        TestUtil.getByteArray(ApplicationProvider.getApplicationContext(), "media/mp4/sample.mp4");
+    SniffCountingExtractor flvExtractor = new SniffCountingExtractor(new FlvExtractor());
+    SniffCountingExtractor wavExtractor = new SniffCountingExtractor(new WavExtractor());
+    SniffCountingExtractor pngExtractor = new SniffCountingExtractor(new PngExtractor());
+    SniffCountingExtractor mp4Extractor = new SniffCountingExtractor(new Mp4Extractor());
+
+    initBundledExtractorsAdapter(
+        data, () -> new Extractor[] {flvExtractor, wavExtractor, pngExtractor, mp4Extractor});
+
+    assertThat(flvExtractor.sniffCount).isEqualTo(0);
+    assertThat(wavExtractor.sniffCount).isEqualTo(0);
+    assertThat(pngExtractor.sniffCount).isEqualTo(0);
+    assertThat(mp4Extractor.sniffCount).isEqualTo(1);
+  }
+
+  @Test
+  public void init_withFileSignature_sniffsExtractorRequiringSignature() throws Exception {
+    byte[] data =
+        TestUtil.getByteArray(
+            ApplicationProvider.getApplicationContext(),
+            "media/png/non-motion-photo-shortened.png");
+    SniffCountingExtractor flvExtractor = new SniffCountingExtractor(new FlvExtractor());
+    SniffCountingExtractor pngExtractor = new SniffCountingExtractor(new PngExtractor());
+
+    initBundledExtractorsAdapter(data, () -> new Extractor[] {flvExtractor, pngExtractor});
+
+    assertThat(flvExtractor.sniffCount).isEqualTo(0);
+    assertThat(pngExtractor.sniffCount).isEqualTo(1);
+  }
+
+  private static void initBundledExtractorsAdapter(byte[] data, ExtractorsFactory extractorsFactory)
+      throws IOException {
+    ByteArrayDataSource dataSource = new ByteArrayDataSource(data);
+    dataSource.open(new DataSpec.Builder().setUri(Uri.EMPTY).build());
+    new BundledExtractorsAdapter(extractorsFactory)
+        .init(
+            dataSource,
+            Uri.EMPTY,
+            /* responseHeaders= */ Collections.emptyMap(),
+            /* position= */ 0,
+            /* length= */ data.length,
+            new FakeExtractorOutput());
+  }
+
+  private static int getIndexOfFirstSniffingExtractor(byte[] data) throws IOException {
+    Extractor[] extractors = new DefaultExtractorsFactory().createExtractors();
+    for (int i = 0; i < extractors.length; i++) {
+      try {
+        if (extractors[i].sniff(new FakeExtractorInput.Builder().setData(data).build())) {
+          return i;
+        }
+      } catch (EOFException e) {
+        // Do nothing.
+      }
+    }
+    throw new IllegalStateException();
+  }
+
+  private static FakeExtractorOutput extractAllSamples(byte[] data) throws IOException {
+    BundledExtractorsAdapter bundledExtractorsAdapter =
+        new BundledExtractorsAdapter(new DefaultExtractorsFactory());
+    FakeExtractorOutput output = new FakeExtractorOutput();
+    PositionHolder positionHolder = new PositionHolder();
+    long position = 0;
+    int readResult = Extractor.RESULT_SEEK;
+    while (readResult == Extractor.RESULT_SEEK) {
+      ByteArrayDataSource dataSource = new ByteArrayDataSource(data);
+      dataSource.open(new DataSpec.Builder().setUri(Uri.EMPTY).setPosition(position).build());
+      bundledExtractorsAdapter.init(
+          dataSource,
+          Uri.EMPTY,
+          /* responseHeaders= */ Collections.emptyMap(),
+          position,
+          /* length= */ data.length,
+          output);
+      do {
+        readResult = bundledExtractorsAdapter.read(positionHolder);
+      } while (readResult == Extractor.RESULT_CONTINUE);
+      position = positionHolder.position;
+    }
+    assertThat(readResult).isEqualTo(Extractor.RESULT_END_OF_INPUT);
+    return output;
+  }
+
+  private static String dump(FakeExtractorOutput output) {
+    Dumper dumper = new Dumper();
+    output.dump(dumper);
+    return dumper.toString();
+  }
+
+  /** An {@link Extractor} that counts how often it's sniffed, and delegates to another one. */
+  private static final class SniffCountingExtractor implements Extractor {
+
+    private final Extractor extractor;
+
+    public int sniffCount;
+
+    public SniffCountingExtractor(Extractor extractor) {
+      this.extractor = extractor;
+    }
+
+    @Override
+    public boolean sniff(ExtractorInput input) throws IOException {
+      sniffCount++;
+      return extractor.sniff(input);
+    }
+
+    @Override
+    public void init(ExtractorOutput output) {
+      extractor.init(output);
+    }
+
+    @Override
+    public @ReadResult int read(ExtractorInput input, PositionHolder seekPosition)
+        throws IOException {
+      return extractor.read(input, seekPosition);
+    }
+
+    @Override
+    public void seek(long position, long timeUs) {
+      extractor.seek(position, timeUs);
+    }
+
+    @Override
+    public void release() {
+      extractor.release();
+    }
+
+    @Override
+    public Extractor getUnderlyingImplementation() {
+      return extractor;
+    }
+  }
+}
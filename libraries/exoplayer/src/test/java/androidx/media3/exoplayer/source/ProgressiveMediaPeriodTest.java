@@ -19,21 +19,30 @@ import static androidx.media3.test.utils.robolectric.RobolectricUtil.runMainLoop
 import static com.google.common.truth.Truth.assertThat;
 
 import android.net.Uri;
+import androidx.annotation.Nullable;
 import androidx.media3.common.C;
+import androidx.media3.common.util.Util;
 import androidx.media3.datasource.AssetDataSource;
+import androidx.media3.datasource.cache.NoOpCacheEvictor;
+import androidx.media3.datasource.cache.SimpleCache;
 import androidx.media3.exoplayer.LoadingInfo;
 import androidx.media3.exoplayer.analytics.PlayerId;
 import androidx.media3.exoplayer.drm.DrmSessionEventListener;
 import androidx.media3.exoplayer.drm.DrmSessionManager;
 import androidx.media3.exoplayer.source.MediaSource.MediaPeriodId;
+import androidx.media3.exoplayer.trackselection.ExoTrackSelection;
+import androidx.media3.exoplayer.trackselection.FixedTrackSelection;
 import androidx.media3.exoplayer.upstream.DefaultAllocator;
 import androidx.media3.exoplayer.upstream.DefaultLoadErrorHandlingPolicy;
+import androidx.media3.extractor.DefaultExtractorsFactory;
 import androidx.media3.extractor.Extractor;
 import androidx.media3.extractor.ExtractorsFactory;
 import androidx.media3.extractor.mp4.Mp4Extractor;
 import androidx.media3.extractor.png.PngExtractor;
+import androidx.media3.test.utils.TestUtil;
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.io.File;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.junit.Test;
@@ -67,6 +76,27 @@ public final class ProgressiveMediaPeriodTest {
     testExtractorsUpdatesSourceInfoBeforeOnPreparedCallback(extractor, C.TIME_UNSET);
   }
 
+  @Test
+  public void seekToUs_withSeekIndexCacheAndSearchingExtractor_storesSeekIndex() throws Exception {
+    @Nullable
+    byte[] seekIndex =
+        seekAndGetStoredSeekIndex(
+            "asset://android_asset/media/ts/bbb_2500ms.ts", /* seekTimeUs= */ 1_500_000);
+
+    assertThat(seekIndex).isNotNull();
+  }
+
+  @Test
+  public void seekToUs_withSeekIndexCacheAndSeekMapResolvedSeek_doesNotStoreSeekIndex()
+      throws Exception {
+    @Nullable
+    byte[] seekIndex =
+        seekAndGetStoredSeekIndex(
+            "asset://android_asset/media/mp4/sample.mp4", /* seekTimeUs= */ 500_000);
+
+    assertThat(seekIndex).isNull();
+  }
+
   private static void testExtractorsUpdatesSourceInfoBeforeOnPreparedCallback(
       ProgressiveMediaExtractor extractor, long imageDurationUs) throws TimeoutException {
     AtomicBoolean sourceInfoRefreshCalled = new AtomicBoolean(false);
@@ -88,7 +118,8 @@ public final class ProgressiveMediaPeriodTest {
             new DefaultAllocator(/* trimOnReset= */ true, C.DEFAULT_BUFFER_SEGMENT_SIZE),
             /* customCacheKey= */ null,
             ProgressiveMediaSource.DEFAULT_LOADING_CHECK_INTERVAL_BYTES,
-            imageDurationUs);
+            imageDurationUs,
+            /* seekIndexCache= */ null);
 
     AtomicBoolean prepareCallbackCalled = new AtomicBoolean(false);
     AtomicBoolean sourceInfoRefreshCalledBeforeOnPrepared = new AtomicBoolean(false);
@@ -111,4 +142,85 @@ public final class ProgressiveMediaPeriodTest {
 
     assertThat(sourceInfoRefreshCalledBeforeOnPrepared.get()).isTrue();
   }
+
+  /**
+   * Prepares a period for {@code uri} with a {@link SeekIndexCache}, seeks to {@code seekTimeUs}
+   * and loads until the seek is resolved, and returns the seek index stored when the period is
+   * released, or null if none is stored.
+   */
+  @Nullable
+  private static byte[] seekAndGetStoredSeekIndex(String uri, long seekTimeUs) throws Exception {
+    File cacheFolder =
+        Util.createTempDirectory(ApplicationProvider.getApplicationContext(), "ExoPlayerTest");
+    SimpleCache cache =
+        new SimpleCache(
+            cacheFolder, new NoOpCacheEvictor(), TestUtil.getInMemoryDatabaseProvider());
+    try {
+      MediaPeriodId mediaPeriodId = new MediaPeriodId(/* periodUid= */ new Object());
+      ProgressiveMediaPeriod mediaPeriod =
+          new ProgressiveMediaPeriod(
+              Uri.parse(uri),
+              new AssetDataSource(ApplicationProvider.getApplicationContext()),
+              new BundledExtractorsAdapter(new DefaultExtractorsFactory()),
+              DrmSessionManager.DRM_UNSUPPORTED,
+              new DrmSessionEventListener.EventDispatcher()
+                  .withParameters(/* windowIndex= */ 0, mediaPeriodId),
+              new DefaultLoadErrorHandlingPolicy(),
+              new MediaSourceEventListener.EventDispatcher()
+                  .withParameters(/* windowIndex= */ 0, mediaPeriodId),
+              (durationUs, isSeekable, isLive) -> {},
+              new DefaultAllocator(/* trimOnReset= */ true, C.DEFAULT_BUFFER_SEGMENT_SIZE),
+              /* customCacheKey= */ null,
+              /* continueLoadingCheckIntervalBytes= */ 1024,
+              /* singleSampleDurationUs= */ C.TIME_UNSET,
+              new SeekIndexCache(cache, uri));
+      AtomicBoolean prepared = new AtomicBoolean();
+      mediaPeriod.prepare(
+          new MediaPeriod.Callback() {
+            @Override
+            public void onPrepared(MediaPeriod mediaPeriod) {
+              prepared.set(true);
+            }
+
+            @Override
+            public void onContinueLoadingRequested(MediaPeriod source) {
+              // Only load what's needed for preparation, so that the seek isn't resolved from
+              // buffered samples.
+              if (!prepared.get()) {
+                source.continueLoading(
+                    new LoadingInfo.Builder().setPlaybackPositionUs(0).build());
+              }
+            }
+          },
+          /* positionUs= */ 0);
+      runMainLooperUntil(prepared::get);
+      TrackGroupArray trackGroups = mediaPeriod.getTrackGroups();
+      ExoTrackSelection[] selections = new ExoTrackSelection[trackGroups.length];
+      for (int i = 0; i < trackGroups.length; i++) {
+        selections[i] = new FixedTrackSelection(trackGroups.get(i), /* track= */ 0);
+      }
+      mediaPeriod.selectTracks(
+          selections,
+          /* mayRetainStreamFlags= */ new boolean[trackGroups.length],
+          /* streams= */ new SampleStream[trackGroups.length],
+          /* streamResetFlags= */ new boolean[trackGroups.length],
+          /* positionUs= */ 0);
+
+      mediaPeriod.seekToUs(seekTimeUs);
+      runMainLooperUntil(
+          () -> {
+            mediaPeriod.continueLoading(
+                new LoadingInfo.Builder().setPlaybackPositionUs(seekTimeUs).build());
+            return mediaPeriod.getBufferedPositionUs() > seekTimeUs;
+          });
+      mediaPeriod.release();
+
+      return cache
+          .getContentMetadata(uri)
+          .get(SeekIndexCache.METADATA_KEY_SEEK_INDEX, /* defaultValue= */ (byte[]) null);
+    } finally {
+      cache.release();
+      Util.recursiveDelete(cacheFolder);
+    }
+  }
 }
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.exoplayer.source;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.media3.common.util.Util;
+import androidx.media3.datasource.cache.NoOpCacheEvictor;
+import androidx.media3.datasource.cache.SimpleCache;
+import androidx.media3.extractor.ConstantBitrateSeekMap;
+import androidx.media3.extractor.SeekMap;
+import androidx.media3.extractor.SeekPoint;
+import androidx.media3.test.utils.TestUtil;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit tests for {@link SeekIndexCache}. */
+@RunWith(AndroidJUnit4.class)
+public final class SeekIndexCacheTest {
+
+  private static final String KEY = "key";
+
+  private File tempFolder;
+  private SimpleCache cache;
+
+  @Before
+  public void setUp() throws Exception {
+    tempFolder =
+        Util.createTempDirectory(ApplicationProvider.getApplicationContext(), "ExoPlayerTest");
+    cache =
+        new SimpleCache(tempFolder, new NoOpCacheEvictor(), TestUtil.getInMemoryDatabaseProvider());
+  }
+
+  @After
+  public void tearDown() {
+    cache.release();
+    Util.recursiveDelete(tempFolder);
+  }
+
+  @Test
+  public void wrapSeekMap_withoutStoredSeekIndex_returnsSeekMap() {
+    SeekMap seekMap = createSeekMap(/* durationUs= */ 10_000_000);
+
+    assertThat(new SeekIndexCache(cache, KEY).wrapSeekMap(seekMap)).isSameInstanceAs(seekMap);
+  }
+
+  @Test
+  public void wrapSeekMap_withPersistedSeekPoints_usesSeekPointsWithinIndexedRange() {
+    SeekIndexCache seekIndexCache = new SeekIndexCache(cache, KEY);
+    seekIndexCache.wrapSeekMap(createSeekMap(/* durationUs= */ 10_000_000));
+    seekIndexCache.addSeekPoint(/* timeUs= */ 2_000_000, /* position= */ 1234);
+    seekIndexCache.addSeekPoint(/* timeUs= */ 6_000_000, /* position= */ 5678);
+    seekIndexCache.persist();
+
+    SeekMap extractorSeekMap = createSeekMap(/* durationUs= */ 10_000_000);
+    SeekMap seekMap = new SeekIndexCache(cache, KEY).wrapSeekMap(extractorSeekMap);
+
+    assertThat(seekMap.getDurationUs()).isEqualTo(10_000_000);
+    assertThat(seekMap.getSeekPoints(/* timeUs= */ 2_000_000).first)
+        .isEqualTo(new SeekPoint(/* timeUs= */ 2_000_000, /* position= */ 1234));
+    SeekMap.SeekPoints seekPoints = seekMap.getSeekPoints(/* timeUs= */ 4_000_000);
+    assertThat(seekPoints.first)
+        .isEqualTo(new SeekPoint(/* timeUs= */ 2_000_000, /* position= */ 1234));
+    assertThat(seekPoints.second)
+        .isEqualTo(new SeekPoint(/* timeUs= */ 6_000_000, /* position= */ 5678));
+    assertThat(seekMap.getSeekPoints(/* timeUs= */ 8_000_000))
+        .isEqualTo(extractorSeekMap.getSeekPoints(/* timeUs= */ 8_000_000));
+    assertThat(seekMap.getSeekPoints(/* timeUs= */ 1_000_000))
+        .isEqualTo(extractorSeekMap.getSeekPoints(/* timeUs= */ 1_000_000));
+  }
+
+  @Test
+  public void persist_mergesWithStoredSeekIndex() {
+    SeekIndexCache seekIndexCache = new SeekIndexCache(cache, KEY);
+    seekIndexCache.wrapSeekMap(createSeekMap(/* durationUs= */ 10_000_000));
+    seekIndexCache.addSeekPoint(/* timeUs= */ 2_000_000, /* position= */ 1234);
+    seekIndexCache.persist();
+    seekIndexCache = new SeekIndexCache(cache, KEY);
+    seekIndexCache.wrapSeekMap(createSeekMap(/* durationUs= */ 10_000_000));
+    seekIndexCache.addSeekPoint(/* timeUs= */ 6_000_000, /* position= */ 5678);
+    seekIndexCache.persist();
+
+    SeekMap seekMap =
+        new SeekIndexCache(cache, KEY).wrapSeekMap(createSeekMap(/* durationUs= */ 10_000_000));
+
+    assertThat(seekMap.getSeekPoints(/* timeUs= */ 2_000_000).first)
+        .isEqualTo(new SeekPoint(/* timeUs= */ 2_000_000, /* position= */ 1234));
+    assertThat(seekMap.getSeekPoints(/* timeUs= */ 6_000_000).first)
+        .isEqualTo(new SeekPoint(/* timeUs= */ 6_000_000, /* position= */ 5678));
+  }
+
+  @Test
+  public void persist_concurrentlyForSameContent_keepsAllSeekPoints() throws Exception {
+    int threadCount = 8;
+    ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+    CountDownLatch persistLatch = new CountDownLatch(1);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 1; i <= threadCount; i++) {
+      long timeUs = i * 1_000_000L;
+      futures.add(
+          executorService.submit(
+              () -> {
+                SeekIndexCache seekIndexCache = new SeekIndexCache(cache, KEY);
+                seekIndexCache.wrapSeekMap(createSeekMap(/* durationUs= */ 10_000_000));
+                seekIndexCache.addSeekPoint(timeUs, /* position= */ timeUs / 1000);
+                persistLatch.await();
+                seekIndexCache.persist();
+                return null;
+              }));
+    }
+    persistLatch.countDown();
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executorService.shutdown();
+
+    SeekMap seekMap =
+        new SeekIndexCache(cache, KEY).wrapSeekMap(createSeekMap(/* durationUs= */ 10_000_000));
+
+    for (int i = 1; i <= threadCount; i++) {
+      long timeUs = i * 1_000_000L;
+      assertThat(seekMap.getSeekPoints(timeUs).first)
+          .isEqualTo(new SeekPoint(timeUs, /* position= */ timeUs / 1000));
+    }
+  }
+
+  @Test
+  public void wrapSeekMap_withSeekIndexForDifferentDuration_returnsSeekMap() {
+    SeekIndexCache seekIndexCache = new SeekIndexCache(cache, KEY);
+    seekIndexCache.wrapSeekMap(createSeekMap(/* durationUs= */ 10_000_000));
+    seekIndexCache.addSeekPoint(/* timeUs= */ 2_000_000, /* position= */ 1234);
+    seekIndexCache.persist();
+
+    SeekMap seekMap = createSeekMap(/* durationUs= */ 20_000_000);
+
+    assertThat(new SeekIndexCache(cache, KEY).wrapSeekMap(seekMap)).isSameInstanceAs(seekMap);
+  }
+
+  private static SeekMap createSeekMap(long durationUs) {
+    // 1000 bytes per second.
+    return new ConstantBitrateSeekMap(
+        /* inputLength= */ durationUs / 1000,
+        /* firstFrameBytePosition= */ 0,
+        /* bitrate= */ 8000,
+        /* frameSize= */ 100);
+  }
+}
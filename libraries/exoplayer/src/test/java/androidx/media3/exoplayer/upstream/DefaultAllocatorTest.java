@@ -0,0 +1,142 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.exoplayer.upstream;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.annotation.Nullable;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit tests for {@link DefaultAllocator}. */
+@RunWith(AndroidJUnit4.class)
+public class DefaultAllocatorTest {
+
+  private static final int ALLOCATION_SIZE = 16;
+
+  @Test
+  public void allocateAndRelease_updatesTotalBytesAllocated() {
+    DefaultAllocator allocator =
+        new DefaultAllocator(
+            /* trimOnReset= */ true, /* individualAllocationSize= */ ALLOCATION_SIZE);
+
+    Allocation allocation1 = allocator.allocate();
+    Allocation allocation2 = allocator.allocate();
+    int totalBytesAllocatedAfterAllocate = allocator.getTotalBytesAllocated();
+    allocator.release(allocation1);
+
+    assertThat(totalBytesAllocatedAfterAllocate).isEqualTo(2 * ALLOCATION_SIZE);
+    assertThat(allocator.getTotalBytesAllocated()).isEqualTo(ALLOCATION_SIZE);
+    assertThat(allocation2.data).hasLength(ALLOCATION_SIZE);
+  }
+
+  @Test
+  public void allocate_afterRelease_reusesReleasedAllocation() {
+    DefaultAllocator allocator =
+        new DefaultAllocator(
+            /* trimOnReset= */ true, /* individualAllocationSize= */ ALLOCATION_SIZE);
+    allocator.setTargetBufferSize(4 * ALLOCATION_SIZE);
+    Allocation allocation = allocator.allocate();
+    allocator.release(allocation);
+
+    assertThat(allocator.allocate()).isSameInstanceAs(allocation);
+  }
+
+  @Test
+  public void releaseNodes_releasesAllAllocationsInChain() {
+    DefaultAllocator allocator =
+        new DefaultAllocator(
+            /* trimOnReset= */ true, /* individualAllocationSize= */ ALLOCATION_SIZE);
+    TestAllocationNode node3 = new TestAllocationNode(allocator.allocate(), /* next= */ null);
+    TestAllocationNode node2 = new TestAllocationNode(allocator.allocate(), node3);
+    TestAllocationNode node1 = new TestAllocationNode(allocator.allocate(), node2);
+
+    allocator.release(node1);
+
+    assertThat(allocator.getTotalBytesAllocated()).isEqualTo(0);
+  }
+
+  @Test
+  public void concurrentAllocateAndRelease_neverHandsOutAllocationTwice() throws Exception {
+    DefaultAllocator allocator =
+        new DefaultAllocator(
+            /* trimOnReset= */ true, /* individualAllocationSize= */ ALLOCATION_SIZE);
+    allocator.setTargetBufferSize(64 * ALLOCATION_SIZE);
+    ExecutorService executorService = Executors.newFixedThreadPool(4);
+    List<Future<?>> futures = new ArrayList<>();
+    Set<Allocation> heldAllocations = new HashSet<>();
+    boolean[] handedOutTwice = new boolean[1];
+
+    for (int i = 0; i < 4; i++) {
+      futures.add(
+          executorService.submit(
+              () -> {
+                Allocation[] allocations = new Allocation[8];
+                for (int j = 0; j < 1000; j++) {
+                  for (int k = 0; k < allocations.length; k++) {
+                    allocations[k] = allocator.allocate();
+                    synchronized (heldAllocations) {
+                      handedOutTwice[0] |= !heldAllocations.add(allocations[k]);
+                    }
+                  }
+                  for (Allocation allocation : allocations) {
+                    synchronized (heldAllocations) {
+                      heldAllocations.remove(allocation);
+                    }
+                    allocator.release(allocation);
+                  }
+                }
+              }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executorService.shutdown();
+
+    assertThat(handedOutTwice[0]).isFalse();
+    assertThat(allocator.getTotalBytesAllocated()).isEqualTo(0);
+  }
+
+  private static final class TestAllocationNode implements Allocator.AllocationNode {
+
+    private final Allocation allocation;
+    @Nullable private final TestAllocationNode next;
+
+    public TestAllocationNode(Allocation allocation, @Nullable TestAllocationNode next) {
+      this.allocation = allocation;
+      this.next = next;
+    }
+
+    @Override
+    public Allocation getAllocation() {
+      return allocation;
+    }
+
+    @Override
+    @Nullable
+    public TestAllocationNode next() {
+      return next;
+    }
+  }
+}
@@ -48,22 +48,36 @@ import androidx.media3.extractor.mp4.PsshAtomUtil;
 import com.google.common.base.Ascii;
 import com.google.common.base.Charsets;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.google.common.collect.Lists;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import org.checkerframework.checker.nullness.qual.PolyNull;
 import org.xml.sax.helpers.DefaultHandler;
 import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 import org.xmlpull.v1.XmlPullParserFactory;
 import org.xmlpull.v1.XmlSerializer;
 
-/** A parser of media presentation description files. */
+/**
+ * A parser of media presentation description files.
+ *
+ * <p>Instances are stateful: they keep the periods with an id of the last manifest they parsed, so
+ * that unchanged periods don't need to be parsed again when a refreshed manifest is parsed. See
+ * {@link #parse(Uri, InputStream)}. The kept periods are replaced when the next manifest is
+ * parsed successfully, so an instance holds on to the periods of at most one previous manifest.
+ */
 @UnstableApi
 public class DashManifestParser extends DefaultHandler
     implements ParsingLoadable.Parser<DashManifest> {
@@ -86,7 +100,21 @@ public class DashManifestParser extends DefaultHandler
         Format.NO_VALUE, 1, 2, 3, 4, 5, 6, 8, 2, 3, 4, 7, 8, 24, 8, 12, 10, 12, 14, 12, 14
       };
 
+  private static final int[] EMPTY_PERIOD_RANGES = new int[0];
+
   private final XmlPullParserFactory xmlParserFactory;
+  private final Interner<String> stringInterner;
+  private final boolean overridesBuildSegmentTimelineElement;
+
+  /** The periods with an id of the last successfully parsed manifest, keyed by id. */
+  private Map<String, ParsedPeriod> previousParsedPeriods;
+
+  // State of the manifest being parsed by parse(Uri, InputStream).
+  @Nullable private XmlPullParser currentXpp;
+  @Nullable private byte[] currentData;
+  private int[] currentPeriodRanges;
+  private int currentPeriodIndex;
+  @Nullable private Map<String, ParsedPeriod> currentParsedPeriods;
 
   public DashManifestParser() {
     try {
@@ -94,24 +122,51 @@ public class DashManifestParser extends DefaultHandler
     } catch (XmlPullParserException e) {
       throw new RuntimeException("Couldn't create XmlPullParserFactory instance", e);
     }
+    stringInterner = Interners.newWeakInterner();
+    overridesBuildSegmentTimelineElement = overridesBuildSegmentTimelineElement(getClass());
+    previousParsedPeriods = new HashMap<>();
+    currentPeriodRanges = EMPTY_PERIOD_RANGES;
   }
 
   // MPD parsing.
 
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Periods with an id whose elements are byte for byte identical to those in the previous
+   * manifest parsed by this instance, with the same inherited values, aren't parsed again. The
+   * {@link Period} instances of the previous manifest are returned for them instead. This avoids
+   * parsing all periods of a multi-period live manifest on every refresh.
+   */
   @Override
   public DashManifest parse(Uri uri, InputStream inputStream) throws IOException {
-    try {
-      XmlPullParser xpp = xmlParserFactory.newPullParser();
-      xpp.setInput(inputStream, null);
-      int eventType = xpp.next();
-      if (eventType != XmlPullParser.START_TAG || !"MPD".equals(xpp.getName())) {
-        throw ParserException.createForMalformedManifest(
-            "inputStream does not contain a valid media presentation description",
-            /* cause= */ null);
+    byte[] data = Util.toByteArray(inputStream);
+    synchronized (this) {
+      try {
+        XmlPullParser xpp = xmlParserFactory.newPullParser();
+        xpp.setInput(new ByteArrayInputStream(data), null);
+        int eventType = xpp.next();
+        if (eventType != XmlPullParser.START_TAG || !"MPD".equals(xpp.getName())) {
+          throw ParserException.createForMalformedManifest(
+              "inputStream does not contain a valid media presentation description",
+              /* cause= */ null);
+        }
+        currentXpp = xpp;
+        currentData = data;
+        currentPeriodRanges = findPeriodRanges(data);
+        currentPeriodIndex = 0;
+        currentParsedPeriods = new HashMap<>();
+        DashManifest manifest = parseMediaPresentationDescription(xpp, uri);
+        previousParsedPeriods = currentParsedPeriods;
+        return manifest;
+      } catch (XmlPullParserException e) {
+        throw ParserException.createForMalformedManifest(/* message= */ null, /* cause= */ e);
+      } finally {
+        currentXpp = null;
+        currentData = null;
+        currentPeriodRanges = EMPTY_PERIOD_RANGES;
+        currentParsedPeriods = null;
       }
-      return parseMediaPresentationDescription(xpp, uri);
-    } catch (XmlPullParserException e) {
-      throw ParserException.createForMalformedManifest(/* message= */ null, /* cause= */ e);
     }
   }
 
@@ -168,7 +223,7 @@ public class DashManifestParser extends DefaultHandler
         serviceDescription = parseServiceDescription(xpp);
       } else if (XmlPullParserUtil.isStartTag(xpp, "Period") && !seenEarlyAccessPeriod) {
         Pair<Period, Long> periodWithDurationMs =
-            parsePeriod(
+            parseOrReusePeriod(
                 xpp,
                 !baseUrls.isEmpty() ? baseUrls : parentBaseUrls,
                 nextPeriodStartMs,
@@ -380,6 +435,75 @@ public class DashManifestParser extends DefaultHandler
     return new Period(id, startMs, adaptationSets, eventStreams, assetIdentifier);
   }
 
+  private Pair<Period, Long> parseOrReusePeriod(
+      XmlPullParser xpp,
+      List<BaseUrl> parentBaseUrls,
+      long defaultStartMs,
+      long baseUrlAvailabilityTimeOffsetUs,
+      long availabilityStartTimeMs,
+      long timeShiftBufferDepthMs,
+      boolean dvbProfileDeclared)
+      throws XmlPullParserException, IOException {
+    @Nullable String id = xpp.getAttributeValue(null, "id");
+    int periodIndex = currentPeriodIndex++;
+    if (xpp != currentXpp || id == null || 2 * periodIndex >= currentPeriodRanges.length) {
+      // The period can't be matched with a period of the previous manifest.
+      return parsePeriod(
+          xpp,
+          parentBaseUrls,
+          defaultStartMs,
+          baseUrlAvailabilityTimeOffsetUs,
+          availabilityStartTimeMs,
+          timeShiftBufferDepthMs,
+          dvbProfileDeclared);
+    }
+    byte[] data = Assertions.checkNotNull(currentData);
+    int start = currentPeriodRanges[2 * periodIndex];
+    int end = currentPeriodRanges[2 * periodIndex + 1];
+    // The default start time is irrelevant to periods with a start attribute. Ignoring it allows
+    // reusing a period that follows a removed period.
+    long effectiveDefaultStartMs =
+        xpp.getAttributeValue(null, "start") != null ? C.TIME_UNSET : defaultStartMs;
+    @Nullable ParsedPeriod parsedPeriod = previousParsedPeriods.get(id);
+    if (parsedPeriod != null
+        && parsedPeriod.matches(
+            data,
+            start,
+            end,
+            parentBaseUrls,
+            effectiveDefaultStartMs,
+            baseUrlAvailabilityTimeOffsetUs,
+            availabilityStartTimeMs,
+            timeShiftBufferDepthMs,
+            dvbProfileDeclared)) {
+      maybeSkipTag(xpp);
+    } else {
+      Pair<Period, Long> periodWithDurationMs =
+          parsePeriod(
+              xpp,
+              parentBaseUrls,
+              defaultStartMs,
+              baseUrlAvailabilityTimeOffsetUs,
+              availabilityStartTimeMs,
+              timeShiftBufferDepthMs,
+              dvbProfileDeclared);
+      parsedPeriod =
+          new ParsedPeriod(
+              data,
+              start,
+              end,
+              parentBaseUrls,
+              effectiveDefaultStartMs,
+              baseUrlAvailabilityTimeOffsetUs,
+              availabilityStartTimeMs,
+              timeShiftBufferDepthMs,
+              dvbProfileDeclared,
+              periodWithDurationMs);
+    }
+    Assertions.checkNotNull(currentParsedPeriods).put(id, parsedPeriod);
+    return parsedPeriod.periodWithDurationMs;
+  }
+
   // AdaptationSet parsing.
 
   protected AdaptationSet parseAdaptationSet(
@@ -396,15 +520,15 @@ public class DashManifestParser extends DefaultHandler
     long id = parseLong(xpp, "id", AdaptationSet.ID_UNSET);
     @C.TrackType int contentType = parseContentType(xpp);
 
-    String mimeType = xpp.getAttributeValue(null, "mimeType");
-    String codecs = xpp.getAttributeValue(null, "codecs");
+    String mimeType = intern(xpp.getAttributeValue(null, "mimeType"));
+    String codecs = intern(xpp.getAttributeValue(null, "codecs"));
     int width = parseInt(xpp, "width", Format.NO_VALUE);
     int height = parseInt(xpp, "height", Format.NO_VALUE);
     float frameRate = parseFrameRate(xpp, Format.NO_VALUE);
     int audioChannels = Format.NO_VALUE;
     int audioSamplingRate = parseInt(xpp, "audioSamplingRate", Format.NO_VALUE);
-    String language = xpp.getAttributeValue(null, "lang");
-    String label = xpp.getAttributeValue(null, "label");
+    String language = intern(xpp.getAttributeValue(null, "lang"));
+    String label = intern(xpp.getAttributeValue(null, "label"));
     String drmSchemeType = null;
     ArrayList<SchemeData> drmSchemeDatas = new ArrayList<>();
     ArrayList<Descriptor> inbandEventStreams = new ArrayList<>();
@@ -679,11 +803,11 @@ public class DashManifestParser extends DefaultHandler
       long timeShiftBufferDepthMs,
       boolean dvbProfileDeclared)
       throws XmlPullParserException, IOException {
-    String id = xpp.getAttributeValue(null, "id");
+    String id = intern(xpp.getAttributeValue(null, "id"));
     int bandwidth = parseInt(xpp, "bandwidth", Format.NO_VALUE);
 
-    String mimeType = parseString(xpp, "mimeType", adaptationSetMimeType);
-    String codecs = parseString(xpp, "codecs", adaptationSetCodecs);
+    String mimeType = intern(parseString(xpp, "mimeType", adaptationSetMimeType));
+    String codecs = intern(parseString(xpp, "codecs", adaptationSetCodecs));
     int width = parseInt(xpp, "width", adaptationSetWidth);
     int height = parseInt(xpp, "height", adaptationSetHeight);
     float frameRate = parseFrameRate(xpp, adaptationSetFrameRate);
@@ -1258,7 +1382,7 @@ public class DashManifestParser extends DefaultHandler
   protected List<SegmentTimelineElement> parseSegmentTimeline(
       XmlPullParser xpp, long timescale, long periodDurationMs)
       throws XmlPullParserException, IOException {
-    List<SegmentTimelineElement> segmentTimeline = new ArrayList<>();
+    SegmentTimeline.Builder segmentTimeline = new SegmentTimeline.Builder();
     long startTime = 0;
     long elementDuration = C.TIME_UNSET;
     int elementRepeatCount = 0;
@@ -1269,7 +1393,7 @@ public class DashManifestParser extends DefaultHandler
         long newStartTime = parseLong(xpp, "t", C.TIME_UNSET);
         if (havePreviousTimelineElement) {
           startTime =
-              addSegmentTimelineElementsToList(
+              addSegmentTimelineElements(
                   segmentTimeline,
                   startTime,
                   elementDuration,
@@ -1288,14 +1412,14 @@ public class DashManifestParser extends DefaultHandler
     } while (!XmlPullParserUtil.isEndTag(xpp, "SegmentTimeline"));
     if (havePreviousTimelineElement) {
       long periodDuration = Util.scaleLargeTimestamp(periodDurationMs, timescale, 1000);
-      addSegmentTimelineElementsToList(
+      addSegmentTimelineElements(
           segmentTimeline,
           startTime,
           elementDuration,
           elementRepeatCount,
           /* endTime= */ periodDuration);
     }
-    return segmentTimeline;
+    return segmentTimeline.build();
   }
 
   /**
@@ -1309,8 +1433,9 @@ public class DashManifestParser extends DefaultHandler
    *     unknown. Only needed if {@code repeatCount} is negative.
    * @return Calculated next start time.
    */
-  private long addSegmentTimelineElementsToList(
-      List<SegmentTimelineElement> segmentTimeline,
+  @SuppressWarnings("deprecation") // Calling buildSegmentTimelineElement if it's overridden.
+  private long addSegmentTimelineElements(
+      SegmentTimeline.Builder segmentTimeline,
       long startTime,
       long elementDuration,
       int elementRepeatCount,
@@ -1319,13 +1444,36 @@ public class DashManifestParser extends DefaultHandler
         elementRepeatCount >= 0
             ? 1 + elementRepeatCount
             : (int) Util.ceilDivide(endTime - startTime, elementDuration);
-    for (int i = 0; i < count; i++) {
-      segmentTimeline.add(buildSegmentTimelineElement(startTime, elementDuration));
-      startTime += elementDuration;
+    if (count <= 0) {
+      return startTime;
     }
-    return startTime;
+    if (overridesBuildSegmentTimelineElement) {
+      // Keep calling the deprecated hook for each segment, so that subclasses that override it
+      // still take effect. The segments are still stored as runs.
+      for (int i = 0; i < count; i++) {
+        SegmentTimelineElement element = buildSegmentTimelineElement(startTime, elementDuration);
+        segmentTimeline.add(element.startTime, element.duration, /* count= */ 1);
+        startTime += elementDuration;
+      }
+      return startTime;
+    }
+    segmentTimeline.add(startTime, elementDuration, count);
+    return startTime + count * elementDuration;
   }
 
+  /**
+   * Builds the {@link SegmentTimelineElement} for one segment of a segment timeline.
+   *
+   * <p>This method is only called if a subclass overrides it, in which case it's called once for
+   * each segment, and the start time and duration of the returned element are added to the {@link
+   * SegmentTimeline}. Otherwise, each S element is added to the {@link SegmentTimeline} as a single
+   * run of segments, without creating an element per segment.
+   *
+   * @deprecated Override {@link #parseSegmentTimeline(XmlPullParser, long, long)} instead, and
+   *     build the timeline with {@link SegmentTimeline.Builder}. Overriding this method makes the
+   *     parser create an element for each segment.
+   */
+  @Deprecated
   protected SegmentTimelineElement buildSegmentTimelineElement(long startTime, long duration) {
     return new SegmentTimelineElement(startTime, duration);
   }
@@ -1422,8 +1570,8 @@ public class DashManifestParser extends DefaultHandler
             : (dvbProfileDeclared ? DEFAULT_DVB_PRIORITY : PRIORITY_UNSET);
     @Nullable String weightValue = xpp.getAttributeValue(null, "dvb:weight");
     int weight = weightValue != null ? Integer.parseInt(weightValue) : DEFAULT_WEIGHT;
-    @Nullable String serviceLocation = xpp.getAttributeValue(null, "serviceLocation");
-    String baseUrl = parseText(xpp, "BaseURL");
+    @Nullable String serviceLocation = intern(xpp.getAttributeValue(null, "serviceLocation"));
+    String baseUrl = intern(parseText(xpp, "BaseURL"));
     if (UriUtil.isAbsolute(baseUrl)) {
       if (serviceLocation == null) {
         serviceLocation = baseUrl;
@@ -1434,7 +1582,7 @@ public class DashManifestParser extends DefaultHandler
     List<BaseUrl> baseUrls = new ArrayList<>();
     for (int i = 0; i < parentBaseUrls.size(); i++) {
       BaseUrl parentBaseUrl = parentBaseUrls.get(i);
-      String resolvedBaseUri = UriUtil.resolve(parentBaseUrl.url, baseUrl);
+      String resolvedBaseUri = intern(UriUtil.resolve(parentBaseUrl.url, baseUrl));
       String resolvedServiceLocation = serviceLocation == null ? resolvedBaseUri : serviceLocation;
       if (dvbProfileDeclared) {
         // Inherit parent properties only if dvb profile is declared.
@@ -2059,6 +2207,141 @@ public class DashManifestParser extends DefaultHandler
     return false;
   }
 
+  private @PolyNull String intern(@PolyNull String value) {
+    return value == null ? null : stringInterner.intern(value);
+  }
+
+  /**
+   * Returns whether {@code parserClass} overrides the deprecated {@link
+   * #buildSegmentTimelineElement(long, long)}.
+   */
+  private static boolean overridesBuildSegmentTimelineElement(Class<?> parserClass) {
+    for (Class<?> clazz = parserClass;
+        clazz != DashManifestParser.class && clazz != null;
+        clazz = clazz.getSuperclass()) {
+      try {
+        clazz.getDeclaredMethod("buildSegmentTimelineElement", long.class, long.class);
+        return true;
+      } catch (NoSuchMethodException e) {
+        // Check the superclass.
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the byte ranges of the Period elements that are children of the root element of a
+   * manifest, as consecutive pairs of start (inclusive) and end (exclusive) offsets.
+   *
+   * <p>An empty array is returned if the ranges can't be determined reliably, for example because
+   * the manifest declares a document type, which may define entities.
+   */
+  private static int[] findPeriodRanges(byte[] data) {
+    int[] periodRanges = new int[16];
+    int periodRangesLength = 0;
+    int depth = 0;
+    int periodStart = C.INDEX_UNSET;
+    int position = indexOf(data, /* fromIndex= */ 0, "<");
+    while (position != C.INDEX_UNSET) {
+      int tagEnd;
+      if (startsWith(data, position, "<!--")) {
+        tagEnd = indexOf(data, position, "-->");
+      } else if (startsWith(data, position, "<![CDATA[")) {
+        tagEnd = indexOf(data, position, "]]>");
+      } else if (startsWith(data, position, "<?")) {
+        tagEnd = indexOf(data, position, "?>");
+      } else if (startsWith(data, position, "<!")) {
+        return EMPTY_PERIOD_RANGES;
+      } else {
+        tagEnd = indexOfTagEnd(data, position);
+        if (tagEnd == C.INDEX_UNSET) {
+          return EMPTY_PERIOD_RANGES;
+        }
+        int rangeStart = C.INDEX_UNSET;
+        if (data[position + 1] == '/') {
+          depth--;
+          if (depth == 1 && periodStart != C.INDEX_UNSET) {
+            rangeStart = periodStart;
+            periodStart = C.INDEX_UNSET;
+          }
+        } else {
+          boolean isPeriod = depth == 1 && isTagName(data, position + 1, "Period");
+          if (data[tagEnd - 1] == '/') {
+            rangeStart = isPeriod ? position : C.INDEX_UNSET;
+          } else {
+            periodStart = isPeriod ? position : periodStart;
+            depth++;
+          }
+        }
+        if (rangeStart != C.INDEX_UNSET) {
+          if (periodRangesLength == periodRanges.length) {
+            periodRanges = Arrays.copyOf(periodRanges, periodRangesLength * 2);
+          }
+          periodRanges[periodRangesLength++] = rangeStart;
+          periodRanges[periodRangesLength++] = tagEnd + 1;
+        }
+      }
+      if (tagEnd == C.INDEX_UNSET) {
+        return EMPTY_PERIOD_RANGES;
+      }
+      position = indexOf(data, tagEnd + 1, "<");
+    }
+    return Arrays.copyOf(periodRanges, periodRangesLength);
+  }
+
+  /**
+   * Returns the index of the last byte of the first occurrence of {@code target} in {@code data}
+   * at or after {@code fromIndex}, or {@link C#INDEX_UNSET} if there's no occurrence.
+   */
+  private static int indexOf(byte[] data, int fromIndex, String target) {
+    for (int i = fromIndex; i <= data.length - target.length(); i++) {
+      if (startsWith(data, i, target)) {
+        return i + target.length() - 1;
+      }
+    }
+    return C.INDEX_UNSET;
+  }
+
+  /**
+   * Returns the index of the {@code >} that ends the tag starting at {@code position}, ignoring
+   * those in attribute values, or {@link C#INDEX_UNSET} if the tag isn't terminated.
+   */
+  private static int indexOfTagEnd(byte[] data, int position) {
+    byte quote = 0;
+    for (int i = position + 1; i < data.length; i++) {
+      byte value = data[i];
+      if (quote != 0) {
+        quote = value == quote ? 0 : quote;
+      } else if (value == '"' || value == '\'') {
+        quote = value;
+      } else if (value == '>') {
+        return i;
+      }
+    }
+    return C.INDEX_UNSET;
+  }
+
+  private static boolean startsWith(byte[] data, int position, String prefix) {
+    if (position + prefix.length() > data.length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length(); i++) {
+      if (data[position + i] != prefix.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isTagName(byte[] data, int position, String name) {
+    if (!startsWith(data, position, name) || position + name.length() >= data.length) {
+      return false;
+    }
+    byte next = data[position + name.length()];
+    return next == '>' || next == '/' || next == ' ' || next == '\t' || next == '\n'
+        || next == '\r';
+  }
+
   /** A parsed Representation element. */
   protected static final class RepresentationInfo {
 
@@ -2093,4 +2376,71 @@ public class DashManifestParser extends DefaultHandler
       this.revisionId = revisionId;
     }
   }
+
+  /** A parsed Period element, and the data and inherited values it was parsed from. */
+  private static final class ParsedPeriod {
+
+    /** A copy of the Period element, so that the rest of the manifest isn't retained. */
+    private final byte[] data;
+
+    private final ImmutableList<BaseUrl> parentBaseUrls;
+    private final long defaultStartMs;
+    private final long baseUrlAvailabilityTimeOffsetUs;
+    private final long availabilityStartTimeMs;
+    private final long timeShiftBufferDepthMs;
+    private final boolean dvbProfileDeclared;
+    private final Pair<Period, Long> periodWithDurationMs;
+
+    public ParsedPeriod(
+        byte[] data,
+        int start,
+        int end,
+        List<BaseUrl> parentBaseUrls,
+        long defaultStartMs,
+        long baseUrlAvailabilityTimeOffsetUs,
+        long availabilityStartTimeMs,
+        long timeShiftBufferDepthMs,
+        boolean dvbProfileDeclared,
+        Pair<Period, Long> periodWithDurationMs) {
+      this.data = Arrays.copyOfRange(data, start, end);
+      this.parentBaseUrls = ImmutableList.copyOf(parentBaseUrls);
+      this.defaultStartMs = defaultStartMs;
+      this.baseUrlAvailabilityTimeOffsetUs = baseUrlAvailabilityTimeOffsetUs;
+      this.availabilityStartTimeMs = availabilityStartTimeMs;
+      this.timeShiftBufferDepthMs = timeShiftBufferDepthMs;
+      this.dvbProfileDeclared = dvbProfileDeclared;
+      this.periodWithDurationMs = periodWithDurationMs;
+    }
+
+    /**
+     * Returns whether parsing the Period element in {@code data[start..end)} with the given
+     * inherited values yields the same result as this period.
+     */
+    public boolean matches(
+        byte[] data,
+        int start,
+        int end,
+        List<BaseUrl> parentBaseUrls,
+        long defaultStartMs,
+        long baseUrlAvailabilityTimeOffsetUs,
+        long availabilityStartTimeMs,
+        long timeShiftBufferDepthMs,
+        boolean dvbProfileDeclared) {
+      if (end - start != this.data.length
+          || defaultStartMs != this.defaultStartMs
+          || baseUrlAvailabilityTimeOffsetUs != this.baseUrlAvailabilityTimeOffsetUs
+          || availabilityStartTimeMs != this.availabilityStartTimeMs
+          || timeShiftBufferDepthMs != this.timeShiftBufferDepthMs
+          || dvbProfileDeclared != this.dvbProfileDeclared
+          || !parentBaseUrls.equals(this.parentBaseUrls)) {
+        return false;
+      }
+      for (int i = 0; i < end - start; i++) {
+        if (data[start + i] != this.data[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
 }
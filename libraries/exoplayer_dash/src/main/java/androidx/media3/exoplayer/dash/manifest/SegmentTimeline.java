@@ -0,0 +1,192 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.exoplayer.dash.manifest;
+
+import static androidx.media3.common.util.Assertions.checkArgument;
+
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.common.util.Util;
+import androidx.media3.exoplayer.dash.manifest.SegmentBase.SegmentTimelineElement;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * An immutable segment timeline, which stores consecutive segments of equal duration as a single
+ * run.
+ *
+ * <p>A SegmentTimeline element usually describes thousands of segments with a handful of S
+ * elements, each with a repeat count. Storing the runs instead of one {@link
+ * SegmentTimelineElement} per segment keeps the memory used by long live timelines small. Looking
+ * up the start time or duration of a segment takes a binary search over the runs.
+ *
+ * <p>The timeline is a {@link List} of {@link SegmentTimelineElement}, whose elements are created
+ * on demand. {@link #getStartTime(int)} and {@link #getDuration(int)} avoid creating them.
+ */
+@UnstableApi
+public final class SegmentTimeline extends AbstractList<SegmentTimelineElement>
+    implements RandomAccess {
+
+  /** Builds {@link SegmentTimeline} instances. */
+  public static final class Builder {
+
+    private long[] runStartTimes;
+    private long[] runDurations;
+    private int[] runFirstIndices;
+    private int runCount;
+    private int segmentCount;
+
+    /** Creates an instance. */
+    public Builder() {
+      runStartTimes = new long[4];
+      runDurations = new long[4];
+      runFirstIndices = new int[4];
+    }
+
+    /**
+     * Adds consecutive segments of equal duration to the end of the timeline.
+     *
+     * @param startTime The start time of the first segment. The value in seconds is the division of
+     *     this value and the {@code timescale} of the enclosing element.
+     * @param duration The duration of each segment, in the same units as {@code startTime}.
+     * @param count The number of segments to add. If zero, nothing is added.
+     * @return This builder.
+     */
+    public Builder add(long startTime, long duration, int count) {
+      checkArgument(count >= 0);
+      if (count == 0) {
+        return this;
+      }
+      if (runCount > 0) {
+        int lastRun = runCount - 1;
+        int lastRunSegmentCount = segmentCount - runFirstIndices[lastRun];
+        if (runDurations[lastRun] == duration
+            && runStartTimes[lastRun] + lastRunSegmentCount * duration == startTime) {
+          // The segments continue the last run.
+          segmentCount += count;
+          return this;
+        }
+      }
+      if (runCount == runStartTimes.length) {
+        int newLength = runCount * 2;
+        runStartTimes = Arrays.copyOf(runStartTimes, newLength);
+        runDurations = Arrays.copyOf(runDurations, newLength);
+        runFirstIndices = Arrays.copyOf(runFirstIndices, newLength);
+      }
+      runStartTimes[runCount] = startTime;
+      runDurations[runCount] = duration;
+      runFirstIndices[runCount] = segmentCount;
+      runCount++;
+      segmentCount += count;
+      return this;
+    }
+
+    /** Builds the {@link SegmentTimeline}. */
+    public SegmentTimeline build() {
+      return new SegmentTimeline(
+          Arrays.copyOf(runStartTimes, runCount),
+          Arrays.copyOf(runDurations, runCount),
+          Arrays.copyOf(runFirstIndices, runCount),
+          segmentCount);
+    }
+  }
+
+  /** The start time of the first segment of each run. */
+  private final long[] runStartTimes;
+
+  /** The duration of the segments of each run. */
+  private final long[] runDurations;
+
+  /** The index of the first segment of each run, in ascending order. */
+  private final int[] runFirstIndices;
+
+  private final int segmentCount;
+
+  private SegmentTimeline(
+      long[] runStartTimes, long[] runDurations, int[] runFirstIndices, int segmentCount) {
+    this.runStartTimes = runStartTimes;
+    this.runDurations = runDurations;
+    this.runFirstIndices = runFirstIndices;
+    this.segmentCount = segmentCount;
+  }
+
+  /**
+   * Returns a {@link SegmentTimeline} with the same elements as {@code elements}, or {@code
+   * elements} itself if it's already a {@link SegmentTimeline}.
+   */
+  public static SegmentTimeline copyOf(List<SegmentTimelineElement> elements) {
+    if (elements instanceof SegmentTimeline) {
+      return (SegmentTimeline) elements;
+    }
+    Builder builder = new Builder();
+    for (int i = 0; i < elements.size(); i++) {
+      SegmentTimelineElement element = elements.get(i);
+      builder.add(element.startTime, element.duration, /* count= */ 1);
+    }
+    return builder.build();
+  }
+
+  /** Returns the number of runs of consecutive segments of equal duration. */
+  public int getRunCount() {
+    return runFirstIndices.length;
+  }
+
+  /**
+   * Returns the start time of a segment. The value in seconds is the division of this value and
+   * the {@code timescale} of the enclosing element.
+   *
+   * @param index The index of the segment.
+   * @throws IndexOutOfBoundsException If {@code index} is out of range.
+   */
+  public long getStartTime(int index) {
+    int run = getRunIndex(index);
+    return runStartTimes[run] + (index - runFirstIndices[run]) * runDurations[run];
+  }
+
+  /**
+   * Returns the duration of a segment, in the same units as {@link #getStartTime(int)}.
+   *
+   * @param index The index of the segment.
+   * @throws IndexOutOfBoundsException If {@code index} is out of range.
+   */
+  public long getDuration(int index) {
+    return runDurations[getRunIndex(index)];
+  }
+
+  @Override
+  public SegmentTimelineElement get(int index) {
+    int run = getRunIndex(index);
+    return new SegmentTimelineElement(
+        runStartTimes[run] + (index - runFirstIndices[run]) * runDurations[run],
+        runDurations[run]);
+  }
+
+  @Override
+  public int size() {
+    return segmentCount;
+  }
+
+  // Internal methods.
+
+  private int getRunIndex(int index) {
+    if (index < 0 || index >= segmentCount) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + segmentCount);
+    }
+    return Util.binarySearchFloor(
+        runFirstIndices, index, /* inclusive= */ true, /* stayInBounds= */ true);
+  }
+}
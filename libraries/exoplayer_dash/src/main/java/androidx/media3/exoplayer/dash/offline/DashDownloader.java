@@ -101,12 +101,35 @@ public final class DashDownloader extends SegmentDownloader<DashManifest> {
    */
   public DashDownloader(
       MediaItem mediaItem, CacheDataSource.Factory cacheDataSourceFactory, Executor executor) {
+    this(
+        mediaItem, cacheDataSourceFactory, executor, /* adaptParallelismToThroughput= */ false);
+  }
+
+  /**
+   * Creates a new instance.
+   *
+   * @param mediaItem The {@link MediaItem} to be downloaded.
+   * @param cacheDataSourceFactory A {@link CacheDataSource.Factory} for the cache into which the
+   *     download will be written.
+   * @param executor An {@link Executor} used to make requests for the media being downloaded.
+   *     Providing an {@link Executor} that uses multiple threads will speed up the download by
+   *     allowing parts of it to be executed in parallel.
+   * @param adaptParallelismToThroughput Whether to adapt the number of segments downloaded in
+   *     parallel to the measured throughput, rather than downloading as many segments in parallel
+   *     as the {@code executor} allows.
+   */
+  public DashDownloader(
+      MediaItem mediaItem,
+      CacheDataSource.Factory cacheDataSourceFactory,
+      Executor executor,
+      boolean adaptParallelismToThroughput) {
     this(
         mediaItem,
         new DashManifestParser(),
         cacheDataSourceFactory,
         executor,
-        DEFAULT_MAX_MERGED_SEGMENT_START_TIME_DIFF_MS);
+        DEFAULT_MAX_MERGED_SEGMENT_START_TIME_DIFF_MS,
+        adaptParallelismToThroughput);
   }
 
   /**
@@ -147,12 +170,46 @@ public final class DashDownloader extends SegmentDownloader<DashManifest> {
       CacheDataSource.Factory cacheDataSourceFactory,
       Executor executor,
       long maxMergedSegmentStartTimeDiffMs) {
+    this(
+        mediaItem,
+        manifestParser,
+        cacheDataSourceFactory,
+        executor,
+        maxMergedSegmentStartTimeDiffMs,
+        /* adaptParallelismToThroughput= */ false);
+  }
+
+  /**
+   * Creates a new instance.
+   *
+   * @param mediaItem The {@link MediaItem} to be downloaded.
+   * @param manifestParser A parser for DASH manifests.
+   * @param cacheDataSourceFactory A {@link CacheDataSource.Factory} for the cache into which the
+   *     download will be written.
+   * @param executor An {@link Executor} used to make requests for the media being downloaded.
+   *     Providing an {@link Executor} that uses multiple threads will speed up the download by
+   *     allowing parts of it to be executed in parallel.
+   * @param maxMergedSegmentStartTimeDiffMs The maximum difference of the start time of two
+   *     segments, up to which the segments (of the same URI) should be merged into a single
+   *     download segment, in milliseconds.
+   * @param adaptParallelismToThroughput Whether to adapt the number of segments downloaded in
+   *     parallel to the measured throughput, rather than downloading as many segments in parallel
+   *     as the {@code executor} allows.
+   */
+  public DashDownloader(
+      MediaItem mediaItem,
+      Parser<DashManifest> manifestParser,
+      CacheDataSource.Factory cacheDataSourceFactory,
+      Executor executor,
+      long maxMergedSegmentStartTimeDiffMs,
+      boolean adaptParallelismToThroughput) {
     super(
         mediaItem,
         manifestParser,
         cacheDataSourceFactory,
         executor,
-        maxMergedSegmentStartTimeDiffMs);
+        maxMergedSegmentStartTimeDiffMs,
+        adaptParallelismToThroughput);
     baseUrlExclusionList = new BaseUrlExclusionList();
   }
 
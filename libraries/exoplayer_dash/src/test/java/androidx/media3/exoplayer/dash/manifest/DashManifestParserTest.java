@@ -33,9 +33,12 @@ import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import com.google.common.base.Charsets;
 import com.google.common.collect.ImmutableList;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringReader;
 import java.util.Collections;
+import java.util.ArrayList;
 import java.util.List;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -429,6 +432,129 @@ public class DashManifestParserTest {
     assertNextTag(xpp);
   }
 
+  @Test
+  public void parseSegmentTimeline_largeRepeatCount_storesRuns() throws Exception {
+    DashManifestParser parser = new DashManifestParser();
+    XmlPullParser xpp = XmlPullParserFactory.newInstance().newPullParser();
+    xpp.setInput(
+        new StringReader(
+            "<SegmentTimeline><S t=\"0\" d=\"96000\" r=\"99999\"/><S d=\"96000\" r=\"9\"/>"
+                + "<S d=\"48000\"/></SegmentTimeline>"
+                + NEXT_TAG));
+    xpp.next();
+
+    List<SegmentTimelineElement> elements =
+        parser.parseSegmentTimeline(xpp, /* timescale= */ 48000, /* periodDurationMs= */ 10000);
+
+    assertThat(elements).hasSize(100_011);
+    assertThat(elements).isInstanceOf(SegmentTimeline.class);
+    assertThat(((SegmentTimeline) elements).getRunCount()).isEqualTo(2);
+    assertThat(elements.get(100_009))
+        .isEqualTo(
+            new SegmentTimelineElement(/* startTime= */ 9_600_864_000L, /* duration= */ 96000));
+    assertThat(elements.get(100_010))
+        .isEqualTo(
+            new SegmentTimelineElement(/* startTime= */ 9_600_960_000L, /* duration= */ 48000));
+    assertNextTag(xpp);
+  }
+
+  @Test
+  public void parse_refreshedMultiPeriodManifest_reusesUnchangedPeriods() throws Exception {
+    DashManifestParser parser = new DashManifestParser();
+    Uri uri = Uri.parse("https://example.com/test.mpd");
+    String period1 = createPeriod("p1", /* startS= */ 0, "v1");
+    String period2 = createPeriod("p2", /* startS= */ 10, "v1");
+    String period3 = createPeriod("p3", /* startS= */ 20, "v1");
+
+    DashManifest manifest1 = parser.parse(uri, createDynamicMpd(period1, period2));
+    DashManifest manifest2 =
+        parser.parse(uri, createDynamicMpd("<!-- <Period id=\"p2\"/> -->", period2, period3));
+    DashManifest manifest3 =
+        parser.parse(
+            uri, createDynamicMpd(period2.replace("v1", "v2"), period3.replace("v1", "v2")));
+
+    assertThat(manifest2.getPeriodCount()).isEqualTo(2);
+    assertThat(manifest2.getPeriod(0)).isSameInstanceAs(manifest1.getPeriod(1));
+    assertThat(manifest2.getPeriod(1).id).isEqualTo("p3");
+    assertThat(manifest2.getPeriod(1).startMs).isEqualTo(20_000);
+    assertThat(manifest2.getPeriodDurationMs(0)).isEqualTo(10_000);
+    assertThat(manifest3.getPeriod(0)).isNotSameInstanceAs(manifest2.getPeriod(0));
+    assertThat(manifest3.getPeriod(1)).isNotSameInstanceAs(manifest2.getPeriod(1));
+    assertThat(
+            manifest3.getPeriod(0).adaptationSets.get(0).representations.get(0).baseUrls.get(0).url)
+        .isEqualTo("https://example.com/v2/");
+  }
+
+  @Test
+  public void parse_refreshedManifestWithChangedBaseUrl_parsesPeriodsAgain() throws Exception {
+    DashManifestParser parser = new DashManifestParser();
+    Uri uri = Uri.parse("https://example.com/test.mpd");
+    String period = createPeriod("p1", /* startS= */ 0, "v1");
+
+    DashManifest manifest1 = parser.parse(uri, createDynamicMpd(period));
+    DashManifest manifest2 =
+        parser.parse(uri, createDynamicMpd("<BaseURL>https://cdn.example.com/</BaseURL>", period));
+
+    assertThat(manifest2.getPeriod(0)).isNotSameInstanceAs(manifest1.getPeriod(0));
+    assertThat(
+            manifest2.getPeriod(0).adaptationSets.get(0).representations.get(0).baseUrls.get(0).url)
+        .isEqualTo("https://cdn.example.com/v1/");
+  }
+
+  @Test
+  public void parse_repeatedAttributeValues_sharesStrings() throws Exception {
+    DashManifestParser parser = new DashManifestParser();
+    Uri uri = Uri.parse("https://example.com/test.mpd");
+
+    DashManifest manifest =
+        parser.parse(
+            uri,
+            createDynamicMpd(
+                createPeriod("p1", /* startS= */ 0, "v1"),
+                createPeriod("p2", /* startS= */ 10, "v1")));
+
+    Format format1 = manifest.getPeriod(0).adaptationSets.get(0).representations.get(0).format;
+    Format format2 = manifest.getPeriod(1).adaptationSets.get(0).representations.get(1).format;
+    assertThat(format1.codecs).isEqualTo("avc1.4d401f");
+    assertThat(format2.codecs).isSameInstanceAs(format1.codecs);
+    assertThat(format2.containerMimeType).isSameInstanceAs(format1.containerMimeType);
+  }
+
+  @Test
+  public void parseSegmentTimeline_withOverriddenBuildSegmentTimelineElement_callsOverride()
+      throws Exception {
+    List<Long> startTimes = new ArrayList<>();
+    DashManifestParser parser =
+        new DashManifestParser() {
+          @Override
+          @SuppressWarnings("deprecation") // Testing the deprecated hook.
+          protected SegmentTimelineElement buildSegmentTimelineElement(
+              long startTime, long duration) {
+            startTimes.add(startTime);
+            // Shift all segments by the same offset.
+            return new SegmentTimelineElement(startTime + 1000, duration);
+          }
+        };
+    XmlPullParser xpp = XmlPullParserFactory.newInstance().newPullParser();
+    xpp.setInput(
+        new StringReader(
+            "<SegmentTimeline><S t=\"0\" d=\"96000\" r=\"2\"/></SegmentTimeline>" + NEXT_TAG));
+    xpp.next();
+
+    List<SegmentTimelineElement> elements =
+        parser.parseSegmentTimeline(xpp, /* timescale= */ 48000, /* periodDurationMs= */ 10000);
+
+    assertThat(startTimes).containsExactly(0L, 96000L, 192000L).inOrder();
+    assertThat(elements)
+        .containsExactly(
+            new SegmentTimelineElement(/* startTime= */ 1000, /* duration= */ 96000),
+            new SegmentTimelineElement(/* startTime= */ 97000, /* duration= */ 96000),
+            new SegmentTimelineElement(/* startTime= */ 193000, /* duration= */ 96000))
+        .inOrder();
+    assertThat(((SegmentTimeline) elements).getRunCount()).isEqualTo(1);
+    assertNextTag(xpp);
+  }
+
   @Test
   public void parseLabel() throws Exception {
     DashManifestParser parser = new DashManifestParser();
@@ -938,6 +1064,37 @@ public class DashManifestParserTest {
     return Collections.singletonList(new Descriptor("urn:scte:dash:cc:cea-708:2015", value, null));
   }
 
+  private static InputStream createDynamicMpd(String... children) {
+    StringBuilder mpd =
+        new StringBuilder(
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<MPD type=\"dynamic\" availabilityStartTime=\"2023-01-01T00:00:00Z\">\n");
+    for (String child : children) {
+      mpd.append(child).append('\n');
+    }
+    mpd.append("</MPD>\n");
+    return new ByteArrayInputStream(Util.getUtf8Bytes(mpd.toString()));
+  }
+
+  private static String createPeriod(String id, int startS, String path) {
+    return "<Period id=\""
+        + id
+        + "\" start=\"PT"
+        + startS
+        + "S\" duration=\"PT10S\">\n"
+        + "  <BaseURL>"
+        + path
+        + "/</BaseURL>\n"
+        + "  <AdaptationSet mimeType=\"video/mp4\">\n"
+        + "    <SegmentTemplate timescale=\"1000\" media=\"$Time$.m4s\">\n"
+        + "      <SegmentTimeline><S t=\"0\" d=\"2000\" r=\"4\"/></SegmentTimeline>\n"
+        + "    </SegmentTemplate>\n"
+        + "    <Representation id=\"1\" bandwidth=\"1000000\" codecs=\"avc1.4d401f\"/>\n"
+        + "    <Representation id=\"2\" bandwidth=\"2000000\" codecs=\"avc1.4d401f\"/>\n"
+        + "  </AdaptationSet>\n"
+        + "</Period>";
+  }
+
   private static void assertNextTag(XmlPullParser xpp) throws Exception {
     xpp.next();
     assertThat(xpp.getEventType()).isEqualTo(XmlPullParser.START_TAG);
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.exoplayer.dash.manifest;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import androidx.media3.exoplayer.dash.manifest.SegmentBase.SegmentTimelineElement;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit test for {@link SegmentTimeline}. */
+@RunWith(AndroidJUnit4.class)
+public final class SegmentTimelineTest {
+
+  @Test
+  public void build_withConsecutiveEqualDurations_mergesRuns() {
+    SegmentTimeline timeline =
+        new SegmentTimeline.Builder()
+            .add(/* startTime= */ 0, /* duration= */ 100, /* count= */ 3)
+            .add(/* startTime= */ 300, /* duration= */ 100, /* count= */ 2)
+            .add(/* startTime= */ 500, /* duration= */ 50, /* count= */ 1)
+            .build();
+
+    assertThat(timeline.size()).isEqualTo(6);
+    assertThat(timeline.getRunCount()).isEqualTo(2);
+    assertThat(timeline)
+        .containsExactly(
+            new SegmentTimelineElement(/* startTime= */ 0, /* duration= */ 100),
+            new SegmentTimelineElement(/* startTime= */ 100, /* duration= */ 100),
+            new SegmentTimelineElement(/* startTime= */ 200, /* duration= */ 100),
+            new SegmentTimelineElement(/* startTime= */ 300, /* duration= */ 100),
+            new SegmentTimelineElement(/* startTime= */ 400, /* duration= */ 100),
+            new SegmentTimelineElement(/* startTime= */ 500, /* duration= */ 50))
+        .inOrder();
+  }
+
+  @Test
+  public void build_withGapBetweenEqualDurations_keepsSeparateRuns() {
+    SegmentTimeline timeline =
+        new SegmentTimeline.Builder()
+            .add(/* startTime= */ 0, /* duration= */ 100, /* count= */ 2)
+            .add(/* startTime= */ 1000, /* duration= */ 100, /* count= */ 2)
+            .build();
+
+    assertThat(timeline.getRunCount()).isEqualTo(2);
+    assertThat(timeline.getStartTime(1)).isEqualTo(100);
+    assertThat(timeline.getStartTime(2)).isEqualTo(1000);
+    assertThat(timeline.getStartTime(3)).isEqualTo(1100);
+  }
+
+  @Test
+  public void build_withZeroCount_addsNothing() {
+    SegmentTimeline timeline =
+        new SegmentTimeline.Builder()
+            .add(/* startTime= */ 0, /* duration= */ 100, /* count= */ 0)
+            .build();
+
+    assertThat(timeline).isEmpty();
+    assertThat(timeline.getRunCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void getStartTimeAndDuration_withLongRun_usesRunLengthEncoding() {
+    SegmentTimeline timeline =
+        new SegmentTimeline.Builder()
+            .add(/* startTime= */ 1000, /* duration= */ 96000, /* count= */ 1_000_000)
+            .add(/* startTime= */ 96_000_001_000L, /* duration= */ 48000, /* count= */ 1)
+            .build();
+
+    assertThat(timeline.size()).isEqualTo(1_000_001);
+    assertThat(timeline.getRunCount()).isEqualTo(2);
+    assertThat(timeline.getStartTime(999_999)).isEqualTo(95_999_905_000L);
+    assertThat(timeline.getDuration(999_999)).isEqualTo(96000);
+    assertThat(timeline.getStartTime(1_000_000)).isEqualTo(96_000_001_000L);
+    assertThat(timeline.getDuration(1_000_000)).isEqualTo(48000);
+  }
+
+  @Test
+  public void get_withIndexOutOfRange_throws() {
+    SegmentTimeline timeline =
+        new SegmentTimeline.Builder()
+            .add(/* startTime= */ 0, /* duration= */ 100, /* count= */ 2)
+            .build();
+
+    assertThrows(IndexOutOfBoundsException.class, () -> timeline.get(-1));
+    assertThrows(IndexOutOfBoundsException.class, () -> timeline.getStartTime(2));
+  }
+
+  @Test
+  public void copyOf_list_equalsList() {
+    ImmutableList<SegmentTimelineElement> elements =
+        ImmutableList.of(
+            new SegmentTimelineElement(/* startTime= */ 0, /* duration= */ 100),
+            new SegmentTimelineElement(/* startTime= */ 100, /* duration= */ 100),
+            new SegmentTimelineElement(/* startTime= */ 250, /* duration= */ 100));
+
+    SegmentTimeline timeline = SegmentTimeline.copyOf(elements);
+
+    assertThat(timeline).isEqualTo(elements);
+    assertThat(timeline.getRunCount()).isEqualTo(2);
+    assertThat(SegmentTimeline.copyOf(timeline)).isSameInstanceAs(timeline);
+  }
+}
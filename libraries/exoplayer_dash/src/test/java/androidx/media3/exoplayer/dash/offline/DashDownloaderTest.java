@@ -51,6 +51,11 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -101,6 +106,34 @@ public class DashDownloaderTest {
     assertThat(downloader).isInstanceOf(DashDownloader.class);
   }
 
+  @Test
+  public void downloadWithDefaultDownloaderFactory_byDefault_downloadsSegmentsInParallel()
+      throws Exception {
+    AtomicInteger maxDownloadingSegmentCount = new AtomicInteger();
+    FakeDataSet fakeDataSet = createConcurrencyTrackingFakeDataSet(maxDownloadingSegmentCount);
+
+    downloadWithDefaultDownloaderFactory(
+        fakeDataSet, /* adaptParallelismToThroughput= */ false, new StreamKey(0, 0, 0));
+
+    assertThat(maxDownloadingSegmentCount.get()).isGreaterThan(1);
+    assertCachedData(cache, new RequestSet(fakeDataSet).useBoundedDataSpecFor("audio_init_data"));
+  }
+
+  @Test
+  public void downloadWithDefaultDownloaderFactory_adaptingParallelism_downloadsOneSegmentAtATime()
+      throws Exception {
+    AtomicInteger maxDownloadingSegmentCount = new AtomicInteger();
+    FakeDataSet fakeDataSet = createConcurrencyTrackingFakeDataSet(maxDownloadingSegmentCount);
+
+    downloadWithDefaultDownloaderFactory(
+        fakeDataSet, /* adaptParallelismToThroughput= */ true, new StreamKey(0, 0, 0));
+
+    // Fewer segments than are needed to measure throughput are downloaded, so the limit of a single
+    // segment at a time is never raised.
+    assertThat(maxDownloadingSegmentCount.get()).isEqualTo(1);
+    assertCachedData(cache, new RequestSet(fakeDataSet).useBoundedDataSpecFor("audio_init_data"));
+  }
+
   @Test
   public void downloadRepresentation() throws Exception {
     FakeDataSet fakeDataSet =
@@ -345,6 +378,66 @@ public class DashDownloaderTest {
         cacheDataSourceFactory);
   }
 
+  private void downloadWithDefaultDownloaderFactory(
+      FakeDataSet fakeDataSet, boolean adaptParallelismToThroughput, StreamKey... keys)
+      throws Exception {
+    CacheDataSource.Factory cacheDataSourceFactory =
+        new CacheDataSource.Factory()
+            .setCache(cache)
+            .setUpstreamDataSourceFactory(new FakeDataSource.Factory().setFakeDataSet(fakeDataSet));
+    ExecutorService executorService = Executors.newFixedThreadPool(/* nThreads= */ 4);
+    try {
+      DownloaderFactory factory =
+          new DefaultDownloaderFactory(
+              cacheDataSourceFactory, executorService, adaptParallelismToThroughput);
+      Downloader downloader =
+          factory.createDownloader(
+              new DownloadRequest.Builder(/* id= */ "id", TEST_MPD_URI)
+                  .setMimeType(MimeTypes.APPLICATION_MPD)
+                  .setStreamKeys(keysList(keys))
+                  .build());
+      downloader.download(progressListener);
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  /**
+   * Returns a {@link FakeDataSet} for {@link DashDownloadTestData#TEST_MPD} that records the
+   * maximum number of segments downloaded at the same time. Each segment waits briefly at the start
+   * of its download for another segment to start downloading, so that parallel downloads overlap.
+   */
+  private static FakeDataSet createConcurrencyTrackingFakeDataSet(
+      AtomicInteger maxDownloadingSegmentCount) {
+    AtomicInteger downloadingSegmentCount = new AtomicInteger();
+    CountDownLatch overlapLatch = new CountDownLatch(2);
+    Runnable onSegmentStarted =
+        () -> {
+          maxDownloadingSegmentCount.accumulateAndGet(
+              downloadingSegmentCount.incrementAndGet(), Math::max);
+          overlapLatch.countDown();
+          try {
+            overlapLatch.await(/* timeout= */ 100, TimeUnit.MILLISECONDS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          downloadingSegmentCount.decrementAndGet();
+        };
+    FakeDataSet fakeDataSet = new FakeDataSet().setData(TEST_MPD_URI, TEST_MPD);
+    String[] segmentUris = {
+      "audio_init_data", "audio_segment_1", "audio_segment_2", "audio_segment_3"
+    };
+    int[] segmentLengths = {10, 4, 5, 6};
+    for (int i = 0; i < segmentUris.length; i++) {
+      fakeDataSet
+          .newData(segmentUris[i])
+          .appendReadAction(onSegmentStarted)
+          .appendReadData(TestUtil.buildTestData(segmentLengths[i]))
+          .endData();
+    }
+    return fakeDataSet;
+  }
+
   private static ArrayList<StreamKey> keysList(StreamKey... keys) {
     ArrayList<StreamKey> keysList = new ArrayList<>();
     Collections.addAll(keysList, keys);
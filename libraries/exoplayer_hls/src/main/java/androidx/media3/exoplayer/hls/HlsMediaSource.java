@@ -214,7 +214,9 @@ public final class HlsMediaSource extends BaseMediaSource
     }
 
     /**
-     * Sets the {@link HlsPlaylistTracker} factory.
+     * Sets the {@link HlsPlaylistTracker} factory. The default value is {@link
+     * DefaultHlsPlaylistTracker#FACTORY}. Use {@link DefaultHlsPlaylistTracker#createFactory(int)}
+     * to preload media playlists that are likely to be needed next.
      *
      * @param playlistTrackerFactory A factory for {@link HlsPlaylistTracker} instances.
      * @return This factory, for convenience.
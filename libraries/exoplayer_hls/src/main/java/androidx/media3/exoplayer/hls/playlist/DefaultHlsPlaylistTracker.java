@@ -15,8 +15,10 @@
  */
 package androidx.media3.exoplayer.hls.playlist;
 
+import static androidx.media3.common.util.Assertions.checkArgument;
 import static androidx.media3.common.util.Assertions.checkNotNull;
 import static androidx.media3.common.util.Util.castNonNull;
+import static java.lang.Math.abs;
 import static java.lang.Math.max;
 
 import android.net.Uri;
@@ -34,6 +36,7 @@ import androidx.media3.exoplayer.hls.HlsDataSourceFactory;
 import androidx.media3.exoplayer.hls.playlist.HlsMediaPlaylist.Part;
 import androidx.media3.exoplayer.hls.playlist.HlsMediaPlaylist.RenditionReport;
 import androidx.media3.exoplayer.hls.playlist.HlsMediaPlaylist.Segment;
+import androidx.media3.exoplayer.hls.playlist.HlsMultivariantPlaylist.Rendition;
 import androidx.media3.exoplayer.hls.playlist.HlsMultivariantPlaylist.Variant;
 import androidx.media3.exoplayer.source.LoadEventInfo;
 import androidx.media3.exoplayer.source.MediaLoadData;
@@ -45,6 +48,8 @@ import androidx.media3.exoplayer.upstream.Loader.LoadErrorAction;
 import androidx.media3.exoplayer.upstream.ParsingLoadable;
 import com.google.common.collect.Iterables;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -63,12 +68,40 @@ public final class DefaultHlsPlaylistTracker
    */
   public static final double DEFAULT_PLAYLIST_STUCK_TARGET_DURATION_COEFFICIENT = 3.5;
 
+  /**
+   * Default maximum number of media playlists other than the primary one that are preloaded. The
+   * default value disables preloading.
+   */
+  public static final int DEFAULT_MAX_PRELOADED_PLAYLIST_COUNT = 0;
+
+  /**
+   * Returns a factory for {@link DefaultHlsPlaylistTracker} instances that preload media playlists.
+   *
+   * <p>See {@link #DefaultHlsPlaylistTracker(HlsDataSourceFactory, LoadErrorHandlingPolicy,
+   * HlsPlaylistParserFactory, double, int)} for which playlists are preloaded.
+   *
+   * @param maxPreloadedPlaylistCount The maximum number of media playlists other than the primary
+   *     one that are preloaded and kept fresh, or 0 to disable preloading.
+   * @return The factory.
+   */
+  public static Factory createFactory(int maxPreloadedPlaylistCount) {
+    checkArgument(maxPreloadedPlaylistCount >= 0);
+    return (dataSourceFactory, loadErrorHandlingPolicy, playlistParserFactory) ->
+        new DefaultHlsPlaylistTracker(
+            dataSourceFactory,
+            loadErrorHandlingPolicy,
+            playlistParserFactory,
+            DEFAULT_PLAYLIST_STUCK_TARGET_DURATION_COEFFICIENT,
+            maxPreloadedPlaylistCount);
+  }
+
   private final HlsDataSourceFactory dataSourceFactory;
   private final HlsPlaylistParserFactory playlistParserFactory;
   private final LoadErrorHandlingPolicy loadErrorHandlingPolicy;
   private final HashMap<Uri, MediaPlaylistBundle> playlistBundles;
   private final CopyOnWriteArrayList<PlaylistEventListener> listeners;
   private final double playlistStuckTargetDurationCoefficient;
+  private final int maxPreloadedPlaylistCount;
 
   @Nullable private EventDispatcher eventDispatcher;
   @Nullable private Loader initialPlaylistLoader;
@@ -95,7 +128,8 @@ public final class DefaultHlsPlaylistTracker
         dataSourceFactory,
         loadErrorHandlingPolicy,
         playlistParserFactory,
-        DEFAULT_PLAYLIST_STUCK_TARGET_DURATION_COEFFICIENT);
+        DEFAULT_PLAYLIST_STUCK_TARGET_DURATION_COEFFICIENT,
+        DEFAULT_MAX_PRELOADED_PLAYLIST_COUNT);
   }
 
   /**
@@ -114,10 +148,55 @@ public final class DefaultHlsPlaylistTracker
       LoadErrorHandlingPolicy loadErrorHandlingPolicy,
       HlsPlaylistParserFactory playlistParserFactory,
       double playlistStuckTargetDurationCoefficient) {
+    this(
+        dataSourceFactory,
+        loadErrorHandlingPolicy,
+        playlistParserFactory,
+        playlistStuckTargetDurationCoefficient,
+        DEFAULT_MAX_PRELOADED_PLAYLIST_COUNT);
+  }
+
+  /**
+   * Creates an instance.
+   *
+   * <p>If {@code maxPreloadedPlaylistCount} is greater than zero, media playlists that are likely
+   * to be needed next are loaded in parallel with the primary playlist once its first snapshot has
+   * been loaded, so that switching to them doesn't have to wait for a playlist load. Playlists are
+   * ranked in the following order, skipping playlists that are currently excluded:
+   *
+   * <ol>
+   *   <li>The variants with the next higher and the next lower bitrate than the primary playlist.
+   *   <li>The audio and subtitle renditions of the primary variant's groups.
+   *   <li>The remaining variants, in order of how close their bitrate is to the primary playlist.
+   * </ol>
+   *
+   * <p>Preloaded live playlists are kept fresh in the same way as the primary playlist, so each of
+   * them adds a playlist request per target duration. The bandwidth used by these requests can be
+   * limited further by returning a {@link androidx.media3.datasource.BandwidthLimitedDataSource}
+   * from {@code dataSourceFactory}.
+   *
+   * @param dataSourceFactory A factory for {@link DataSource} instances.
+   * @param loadErrorHandlingPolicy The {@link LoadErrorHandlingPolicy}.
+   * @param playlistParserFactory An {@link HlsPlaylistParserFactory}.
+   * @param playlistStuckTargetDurationCoefficient A coefficient to apply to the target duration of
+   *     media playlists in order to determine that a non-changing playlist is stuck. Once a
+   *     playlist is deemed stuck, a {@link PlaylistStuckException} is thrown via {@link
+   *     #maybeThrowPlaylistRefreshError(Uri)}.
+   * @param maxPreloadedPlaylistCount The maximum number of media playlists other than the primary
+   *     one that are preloaded and kept fresh, or 0 to disable preloading.
+   */
+  public DefaultHlsPlaylistTracker(
+      HlsDataSourceFactory dataSourceFactory,
+      LoadErrorHandlingPolicy loadErrorHandlingPolicy,
+      HlsPlaylistParserFactory playlistParserFactory,
+      double playlistStuckTargetDurationCoefficient,
+      int maxPreloadedPlaylistCount) {
+    checkArgument(maxPreloadedPlaylistCount >= 0);
     this.dataSourceFactory = dataSourceFactory;
     this.playlistParserFactory = playlistParserFactory;
     this.loadErrorHandlingPolicy = loadErrorHandlingPolicy;
     this.playlistStuckTargetDurationCoefficient = playlistStuckTargetDurationCoefficient;
+    this.maxPreloadedPlaylistCount = maxPreloadedPlaylistCount;
     listeners = new CopyOnWriteArrayList<>();
     playlistBundles = new HashMap<>();
     initialStartTimeUs = C.TIME_UNSET;
@@ -341,6 +420,7 @@ public final class DefaultHlsPlaylistTracker
       if (currentTimeMs > bundle.excludeUntilMs) {
         primaryMediaPlaylistUrl = bundle.playlistUrl;
         bundle.loadPlaylistInternal(getRequestUriForPrimaryChange(primaryMediaPlaylistUrl));
+        updatePreloadedPlaylists();
         return true;
       }
     }
@@ -366,6 +446,7 @@ public final class DefaultHlsPlaylistTracker
       // primary snapshot until after we've refreshed it.
       newPrimaryBundle.loadPlaylistInternal(getRequestUriForPrimaryChange(url));
     }
+    updatePreloadedPlaylists();
   }
 
   private Uri getRequestUriForPrimaryChange(Uri newPrimaryPlaylistUri) {
@@ -402,6 +483,93 @@ public final class DefaultHlsPlaylistTracker
     return false;
   }
 
+  /**
+   * Updates which media playlists are preloaded, and starts loading those that haven't been loaded
+   * yet.
+   */
+  private void updatePreloadedPlaylists() {
+    if (maxPreloadedPlaylistCount == 0 || multivariantPlaylist == null) {
+      return;
+    }
+    List<Uri> preloadedPlaylistUrls = getPreloadedPlaylistUrls();
+    for (MediaPlaylistBundle bundle : playlistBundles.values()) {
+      bundle.isPreloaded = preloadedPlaylistUrls.contains(bundle.playlistUrl);
+    }
+    for (int i = 0; i < preloadedPlaylistUrls.size(); i++) {
+      checkNotNull(playlistBundles.get(preloadedPlaylistUrls.get(i))).preloadPlaylist();
+    }
+  }
+
+  /**
+   * Returns the URLs of the media playlists that should be preloaded, ranked by how likely they
+   * are to be needed next.
+   */
+  private List<Uri> getPreloadedPlaylistUrls() {
+    HlsMultivariantPlaylist multivariantPlaylist = checkNotNull(this.multivariantPlaylist);
+    List<Variant> variantsByBitrate = new ArrayList<>(multivariantPlaylist.variants);
+    Collections.sort(
+        variantsByBitrate, (v1, v2) -> Integer.compare(v1.format.bitrate, v2.format.bitrate));
+    int primaryIndex = 0;
+    @Nullable Variant primaryVariant = null;
+    for (int i = 0; i < variantsByBitrate.size(); i++) {
+      if (variantsByBitrate.get(i).url.equals(primaryMediaPlaylistUrl)) {
+        primaryIndex = i;
+        primaryVariant = variantsByBitrate.get(i);
+        break;
+      }
+    }
+    List<Uri> candidateUrls = new ArrayList<>();
+    if (primaryIndex + 1 < variantsByBitrate.size()) {
+      candidateUrls.add(variantsByBitrate.get(primaryIndex + 1).url);
+    }
+    if (primaryIndex > 0) {
+      candidateUrls.add(variantsByBitrate.get(primaryIndex - 1).url);
+    }
+    if (primaryVariant != null) {
+      addRenditionUrls(multivariantPlaylist.audios, primaryVariant.audioGroupId, candidateUrls);
+      addRenditionUrls(
+          multivariantPlaylist.subtitles, primaryVariant.subtitleGroupId, candidateUrls);
+    }
+    long primaryBitrate = primaryVariant != null ? primaryVariant.format.bitrate : 0;
+    Collections.sort(
+        variantsByBitrate,
+        (v1, v2) ->
+            Long.compare(
+                abs(v1.format.bitrate - primaryBitrate), abs(v2.format.bitrate - primaryBitrate)));
+    for (int i = 0; i < variantsByBitrate.size(); i++) {
+      candidateUrls.add(variantsByBitrate.get(i).url);
+    }
+
+    List<Uri> preloadedPlaylistUrls = new ArrayList<>();
+    long nowMs = SystemClock.elapsedRealtime();
+    for (int i = 0;
+        i < candidateUrls.size() && preloadedPlaylistUrls.size() < maxPreloadedPlaylistCount;
+        i++) {
+      Uri url = candidateUrls.get(i);
+      @Nullable MediaPlaylistBundle bundle = playlistBundles.get(url);
+      if (bundle != null
+          && !url.equals(primaryMediaPlaylistUrl)
+          && nowMs >= bundle.excludeUntilMs
+          && !preloadedPlaylistUrls.contains(url)) {
+        preloadedPlaylistUrls.add(url);
+      }
+    }
+    return preloadedPlaylistUrls;
+  }
+
+  private static void addRenditionUrls(
+      List<Rendition> renditions, @Nullable String groupId, List<Uri> urls) {
+    if (groupId == null) {
+      return;
+    }
+    for (int i = 0; i < renditions.size(); i++) {
+      Rendition rendition = renditions.get(i);
+      if (rendition.url != null && groupId.equals(rendition.groupId)) {
+        urls.add(rendition.url);
+      }
+    }
+  }
+
   private void createBundles(List<Uri> urls) {
     int listSize = urls.size();
     for (int i = 0; i < listSize; i++) {
@@ -419,13 +587,18 @@ public final class DefaultHlsPlaylistTracker
    */
   private void onPlaylistUpdated(Uri url, HlsMediaPlaylist newSnapshot) {
     if (url.equals(primaryMediaPlaylistUrl)) {
-      if (primaryMediaPlaylistSnapshot == null) {
+      boolean isFirstPrimarySnapshot = primaryMediaPlaylistSnapshot == null;
+      if (isFirstPrimarySnapshot) {
         // This is the first primary url snapshot.
         isLive = !newSnapshot.hasEndTag;
         initialStartTimeUs = newSnapshot.startTimeUs;
       }
       primaryMediaPlaylistSnapshot = newSnapshot;
       primaryPlaylistListener.onPrimaryPlaylistRefreshed(newSnapshot);
+      if (isFirstPrimarySnapshot) {
+        // Preload other playlists only now, so that they don't delay loading the first snapshot.
+        updatePreloadedPlaylists();
+      }
     }
     for (PlaylistEventListener listener : listeners) {
       listener.onPlaylistChanged();
@@ -527,6 +700,8 @@ public final class DefaultHlsPlaylistTracker
     private long earliestNextLoadTimeMs;
     private long excludeUntilMs;
     private boolean loadPending;
+    private boolean isPreloaded;
+    private boolean isRequested;
     @Nullable private IOException playlistError;
 
     public MediaPlaylistBundle(Uri playlistUrl) {
@@ -553,9 +728,21 @@ public final class DefaultHlsPlaylistTracker
     }
 
     public void loadPlaylist() {
+      isRequested = true;
       loadPlaylistInternal(playlistUrl);
     }
 
+    /**
+     * Loads the playlist unless it's already being loaded, or it has a snapshot that doesn't need
+     * to be refreshed.
+     */
+    public void preloadPlaylist() {
+      if (playlistSnapshot != null && playlistSnapshot.hasEndTag) {
+        return;
+      }
+      loadPlaylistInternal(getMediaPlaylistUriForReload());
+    }
+
     public void maybeThrowPlaylistRefreshError() throws IOException {
       mediaPlaylistLoader.maybeThrowError();
       if (playlistError != null) {
@@ -642,12 +829,20 @@ public final class DefaultHlsPlaylistTracker
           // Service Unavailable (503). In such cases, force a full, non-blocking request (see RFC
           // 8216, section 6.2.5.2 and 6.3.7).
           earliestNextLoadTimeMs = SystemClock.elapsedRealtime();
-          loadPlaylist();
+          loadPlaylistInternal(playlistUrl);
           castNonNull(eventDispatcher)
               .loadError(loadEventInfo, loadable.type, error, /* wasCanceled= */ true);
           return Loader.DONT_RETRY;
         }
       }
+      if (isOnlyPreloaded()) {
+        // Preloading is speculative, so errors are neither retried nor reported to the listeners,
+        // which could exclude the playlist. It's loaded again when it's next preloaded or needed.
+        castNonNull(eventDispatcher)
+            .loadError(loadEventInfo, loadable.type, error, /* wasCanceled= */ true);
+        loadErrorHandlingPolicy.onLoadTaskConcluded(loadable.loadTaskId);
+        return Loader.DONT_RETRY;
+      }
       MediaLoadData mediaLoadData = new MediaLoadData(loadable.type);
       LoadErrorInfo loadErrorInfo =
           new LoadErrorInfo(loadEventInfo, mediaLoadData, error, errorCount);
@@ -686,7 +881,12 @@ public final class DefaultHlsPlaylistTracker
         playlistRefreshHandler.postDelayed(
             () -> {
               loadPending = false;
-              loadPlaylistImmediately(playlistRequestUri);
+              // Skip the load if the playlist has been excluded since it was scheduled, unless it's
+              // still the primary playlist. Requesting the playlist again lifts the exclusion.
+              if (playlistUrl.equals(primaryMediaPlaylistUrl)
+                  || SystemClock.elapsedRealtime() >= excludeUntilMs) {
+                loadPlaylistImmediately(playlistRequestUri);
+              }
             },
             earliestNextLoadTimeMs - currentTimeMs);
       } else {
@@ -740,7 +940,7 @@ public final class DefaultHlsPlaylistTracker
           // TODO: Allow customization of stuck playlists handling.
           playlistError = new PlaylistStuckException(playlistUrl);
         }
-        if (playlistError != null) {
+        if (playlistError != null && !isOnlyPreloaded()) {
           this.playlistError = playlistError;
           notifyPlaylistError(
               playlistUrl,
@@ -762,17 +962,26 @@ public final class DefaultHlsPlaylistTracker
                 : (playlistSnapshot.targetDurationUs / 2);
       }
       earliestNextLoadTimeMs = currentTimeMs + Util.usToMs(durationUntilNextLoadUs);
-      // Schedule a load if this is the primary playlist or a playlist of a low-latency stream and
-      // it doesn't have an end tag. Else the next load will be scheduled when refreshPlaylist is
-      // called, or when this playlist becomes the primary.
+      // Schedule a load if this is the primary playlist, a preloaded playlist or a playlist of a
+      // low-latency stream and it doesn't have an end tag. Else the next load will be scheduled
+      // when refreshPlaylist is called, or when this playlist becomes the primary.
       boolean scheduleLoad =
           playlistSnapshot.partTargetDurationUs != C.TIME_UNSET
-              || playlistUrl.equals(primaryMediaPlaylistUrl);
+              || playlistUrl.equals(primaryMediaPlaylistUrl)
+              || isPreloaded;
       if (scheduleLoad && !playlistSnapshot.hasEndTag) {
         loadPlaylistInternal(getMediaPlaylistUriForReload());
       }
     }
 
+    /**
+     * Returns whether the playlist is only loaded because it's preloaded, rather than because it's
+     * the primary playlist or it has been requested for playback.
+     */
+    private boolean isOnlyPreloaded() {
+      return isPreloaded && !isRequested && !playlistUrl.equals(primaryMediaPlaylistUrl);
+    }
+
     private Uri getMediaPlaylistUriForReload() {
       if (playlistSnapshot == null
           || (playlistSnapshot.serverControl.skipUntilUs == C.TIME_UNSET
@@ -810,7 +1019,14 @@ public final class DefaultHlsPlaylistTracker
      */
     private boolean excludePlaylist(long exclusionDurationMs) {
       excludeUntilMs = SystemClock.elapsedRealtime() + exclusionDurationMs;
-      return playlistUrl.equals(primaryMediaPlaylistUrl) && !maybeSelectNewPrimaryUrl();
+      if (playlistUrl.equals(primaryMediaPlaylistUrl)) {
+        return !maybeSelectNewPrimaryUrl();
+      }
+      if (isPreloaded) {
+        // Stop keeping the excluded playlist fresh, and preload another playlist in its place.
+        updatePreloadedPlaylists();
+      }
+      return false;
     }
   }
 
@@ -18,6 +18,7 @@ package androidx.media3.exoplayer.hls.playlist;
 import static androidx.media3.common.util.Assertions.checkNotNull;
 import static androidx.media3.common.util.Assertions.checkState;
 import static androidx.media3.common.util.Util.castNonNull;
+import static java.lang.Math.max;
 
 import android.net.Uri;
 import android.text.TextUtils;
@@ -130,6 +131,12 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
 
   private static final String ATTR_CLOSED_CAPTIONS_NONE = "CLOSED-CAPTIONS=NONE";
 
+  /**
+   * The maximum number of integer digits of a time in seconds that's parsed without {@link
+   * BigDecimal}, chosen so that the time in microseconds can't overflow.
+   */
+  private static final int MAX_FAST_PATH_INTEGER_DIGIT_COUNT = 12;
+
   private static final Pattern REGEX_AVERAGE_BANDWIDTH =
       Pattern.compile("AVERAGE-BANDWIDTH=(\\d+)\\b");
   private static final Pattern REGEX_VIDEO = Pattern.compile("VIDEO=\"(.+?)\"");
@@ -731,13 +738,25 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
                   + " encrypted with METHOD=AES-128.",
               /* cause= */ null);
         }
+        @Nullable
+        Segment previousInitializationSegment =
+            getPreviousInitializationSegment(previousMediaPlaylist, segmentMediaSequence);
         initializationSegment =
-            new Segment(
-                uri,
-                segmentByteRangeOffset,
-                segmentByteRangeLength,
-                fullSegmentEncryptionKeyUri,
-                fullSegmentEncryptionIV);
+            previousInitializationSegment != null
+                    && isSameInitializationSegment(
+                        previousInitializationSegment,
+                        uri,
+                        segmentByteRangeOffset,
+                        segmentByteRangeLength,
+                        fullSegmentEncryptionKeyUri,
+                        fullSegmentEncryptionIV)
+                ? previousInitializationSegment
+                : new Segment(
+                    uri,
+                    segmentByteRangeOffset,
+                    segmentByteRangeLength,
+                    fullSegmentEncryptionKeyUri,
+                    fullSegmentEncryptionIV);
         if (segmentByteRangeLength != C.LENGTH_UNSET) {
           segmentByteRangeOffset += segmentByteRangeLength;
         }
@@ -764,8 +783,23 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
               parseStringAttr(line, REGEX_VALUE, variableDefinitions));
         }
       } else if (line.startsWith(TAG_MEDIA_DURATION)) {
-        segmentDurationUs = parseTimeSecondsToUs(line, REGEX_MEDIA_DURATION);
-        segmentTitle = parseOptionalStringAttr(line, REGEX_MEDIA_TITLE, "", variableDefinitions);
+        int durationEndIndex = getMediaDurationEndIndex(line);
+        if (durationEndIndex != C.INDEX_UNSET) {
+          // Fast path for the usual format, which avoids matching regular expressions for each
+          // segment.
+          segmentDurationUs =
+              parseTimeSecondsToUs(
+                  line, /* startIndex= */ TAG_MEDIA_DURATION.length() + 1, durationEndIndex);
+          segmentTitle =
+              durationEndIndex + 1 < line.length()
+                  ? replaceVariableReferences(
+                      line.substring(durationEndIndex + 1), variableDefinitions)
+                  : "";
+        } else {
+          segmentDurationUs = parseTimeSecondsToUs(line, REGEX_MEDIA_DURATION);
+          segmentTitle =
+              parseOptionalStringAttr(line, REGEX_MEDIA_TITLE, "", variableDefinitions);
+        }
       } else if (line.startsWith(TAG_SKIP)) {
         int skippedSegmentCount = parseIntAttr(line, REGEX_SKIPPED_SEGMENTS);
         checkState(previousMediaPlaylist != null && segments.isEmpty());
@@ -974,13 +1008,26 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
           // bytes preceding the first segment in this segment's URL.
           // We assume the implicit initialization segment is unencrypted, since there's no way for
           // the playlist to provide an initialization vector for it.
+          @Nullable
+          Segment previousInitializationSegment =
+              getPreviousInitializationSegment(
+                  previousMediaPlaylist, /* mediaSequence= */ segmentMediaSequence - 1);
           inferredInitSegment =
-              new Segment(
-                  segmentUri,
-                  /* byteRangeOffset= */ 0,
-                  segmentByteRangeOffset,
-                  /* fullSegmentEncryptionKeyUri= */ null,
-                  /* encryptionIV= */ null);
+              previousInitializationSegment != null
+                      && isSameInitializationSegment(
+                          previousInitializationSegment,
+                          segmentUri,
+                          /* byteRangeOffset= */ 0,
+                          /* byteRangeLength= */ segmentByteRangeOffset,
+                          /* fullSegmentEncryptionKeyUri= */ null,
+                          /* encryptionIV= */ null)
+                  ? previousInitializationSegment
+                  : new Segment(
+                      segmentUri,
+                      /* byteRangeOffset= */ 0,
+                      segmentByteRangeOffset,
+                      /* fullSegmentEncryptionKeyUri= */ null,
+                      /* encryptionIV= */ null);
           urlToInferredInitSegment.put(segmentUri, inferredInitSegment);
         }
 
@@ -992,10 +1039,21 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
           }
         }
 
-        segments.add(
-            new Segment(
+        @Nullable
+        Segment segmentInitializationSegment =
+            initializationSegment != null ? initializationSegment : inferredInitSegment;
+        // Live playlists are mostly unchanged between refreshes, so reuse the segments of the
+        // previous playlist where possible.
+        @Nullable
+        Segment previousSegment =
+            getPreviousSegment(
+                previousMediaPlaylist, /* mediaSequence= */ segmentMediaSequence - 1);
+        if (previousSegment != null
+            && trailingParts.isEmpty()
+            && isSameSegment(
+                previousSegment,
                 segmentUri,
-                initializationSegment != null ? initializationSegment : inferredInitSegment,
+                segmentInitializationSegment,
                 segmentTitle,
                 segmentDurationUs,
                 relativeDiscontinuitySequence,
@@ -1005,13 +1063,32 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
                 segmentEncryptionIV,
                 segmentByteRangeOffset,
                 segmentByteRangeLength,
-                hasGapTag,
-                trailingParts));
+                hasGapTag)) {
+          segments.add(previousSegment);
+        } else {
+          segments.add(
+              new Segment(
+                  segmentUri,
+                  segmentInitializationSegment,
+                  segmentTitle,
+                  segmentDurationUs,
+                  relativeDiscontinuitySequence,
+                  segmentStartTimeUs,
+                  cachedDrmInitData,
+                  fullSegmentEncryptionKeyUri,
+                  segmentEncryptionIV,
+                  segmentByteRangeOffset,
+                  segmentByteRangeLength,
+                  hasGapTag,
+                  trailingParts));
+        }
         segmentStartTimeUs += segmentDurationUs;
         partStartTimeUs = segmentStartTimeUs;
         segmentDurationUs = 0;
         segmentTitle = "";
-        trailingParts = new ArrayList<>();
+        if (!trailingParts.isEmpty()) {
+          trailingParts = new ArrayList<>();
+        }
         if (segmentByteRangeLength != C.LENGTH_UNSET) {
           segmentByteRangeOffset += segmentByteRangeLength;
         }
@@ -1087,6 +1164,93 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
     return Long.toHexString(segmentMediaSequence);
   }
 
+  /**
+   * Returns the segment of {@code previousMediaPlaylist} with the given media sequence number, or
+   * null if there's no previous playlist or it doesn't contain the segment.
+   */
+  @Nullable
+  private static Segment getPreviousSegment(
+      @Nullable HlsMediaPlaylist previousMediaPlaylist, long mediaSequence) {
+    if (previousMediaPlaylist == null) {
+      return null;
+    }
+    long index = mediaSequence - previousMediaPlaylist.mediaSequence;
+    return index >= 0 && index < previousMediaPlaylist.segments.size()
+        ? previousMediaPlaylist.segments.get((int) index)
+        : null;
+  }
+
+  /**
+   * Returns the initialization segment of the segment of {@code previousMediaPlaylist} with the
+   * given media sequence number, or null if there's no such segment or it has no initialization
+   * segment.
+   */
+  @Nullable
+  private static Segment getPreviousInitializationSegment(
+      @Nullable HlsMediaPlaylist previousMediaPlaylist, long mediaSequence) {
+    @Nullable Segment previousSegment = getPreviousSegment(previousMediaPlaylist, mediaSequence);
+    return previousSegment != null ? previousSegment.initializationSegment : null;
+  }
+
+  /**
+   * Returns whether {@code segment} is equal to the initialization segment that would be created
+   * from the given values.
+   */
+  private static boolean isSameInitializationSegment(
+      Segment segment,
+      String uri,
+      long byteRangeOffset,
+      long byteRangeLength,
+      @Nullable String fullSegmentEncryptionKeyUri,
+      @Nullable String encryptionIV) {
+    return segment.url.equals(uri)
+        && segment.byteRangeOffset == byteRangeOffset
+        && segment.byteRangeLength == byteRangeLength
+        && Util.areEqual(segment.fullSegmentEncryptionKeyUri, fullSegmentEncryptionKeyUri)
+        && Util.areEqual(segment.encryptionIV, encryptionIV)
+        && segment.initializationSegment == null
+        && segment.title.isEmpty()
+        && segment.durationUs == 0
+        && segment.relativeDiscontinuitySequence == -1
+        && segment.relativeStartTimeUs == C.TIME_UNSET
+        && segment.drmInitData == null
+        && !segment.hasGapTag
+        && segment.parts.isEmpty();
+  }
+
+  /**
+   * Returns whether {@code segment} is equal to the segment that would be created from the given
+   * values and an empty list of parts, and has the same initialization segment instance.
+   */
+  private static boolean isSameSegment(
+      Segment segment,
+      String url,
+      @Nullable Segment initializationSegment,
+      String title,
+      long durationUs,
+      int relativeDiscontinuitySequence,
+      long relativeStartTimeUs,
+      @Nullable DrmInitData drmInitData,
+      @Nullable String fullSegmentEncryptionKeyUri,
+      @Nullable String encryptionIV,
+      long byteRangeOffset,
+      long byteRangeLength,
+      boolean hasGapTag) {
+    return segment.initializationSegment == initializationSegment
+        && segment.parts.isEmpty()
+        && segment.url.equals(url)
+        && segment.title.equals(title)
+        && segment.durationUs == durationUs
+        && segment.relativeDiscontinuitySequence == relativeDiscontinuitySequence
+        && segment.relativeStartTimeUs == relativeStartTimeUs
+        && Util.areEqual(segment.drmInitData, drmInitData)
+        && Util.areEqual(segment.fullSegmentEncryptionKeyUri, fullSegmentEncryptionKeyUri)
+        && Util.areEqual(segment.encryptionIV, encryptionIV)
+        && segment.byteRangeOffset == byteRangeOffset
+        && segment.byteRangeLength == byteRangeLength
+        && segment.hasGapTag == hasGapTag;
+  }
+
   private static @C.SelectionFlags int parseSelectionFlags(String line) {
     int flags = 0;
     if (parseOptionalBooleanAttribute(line, REGEX_DEFAULT, false)) {
@@ -1206,11 +1370,75 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
   }
 
   private static long parseTimeSecondsToUs(String line, Pattern pattern) throws ParserException {
-    String timeValueSeconds = parseStringAttr(line, pattern, Collections.emptyMap());
+    return parseTimeSecondsToUs(parseStringAttr(line, pattern, Collections.emptyMap()));
+  }
+
+  private static long parseTimeSecondsToUs(String timeValueSeconds) {
     BigDecimal timeValue = new BigDecimal(timeValueSeconds);
     return timeValue.multiply(new BigDecimal(C.MICROS_PER_SECOND)).longValue();
   }
 
+  /**
+   * Returns the end index of the duration in an {@link #TAG_MEDIA_DURATION} line of the form {@code
+   * #EXTINF:<duration>[,<title>]}, where the duration consists of digits and dots and ends with a
+   * digit. Returns {@link C#INDEX_UNSET} if the line has a different form.
+   *
+   * <p>For such lines, the duration and title are the same as those matched by {@link
+   * #REGEX_MEDIA_DURATION} and {@link #REGEX_MEDIA_TITLE}.
+   */
+  private static int getMediaDurationEndIndex(String line) {
+    int startIndex = TAG_MEDIA_DURATION.length() + 1;
+    if (line.length() <= startIndex || line.charAt(startIndex - 1) != ':') {
+      return C.INDEX_UNSET;
+    }
+    int endIndex = startIndex;
+    while (endIndex < line.length() && isDigitOrDot(line.charAt(endIndex))) {
+      endIndex++;
+    }
+    if (endIndex == startIndex
+        || line.charAt(endIndex - 1) == '.'
+        || (endIndex < line.length() && line.charAt(endIndex) != ',')) {
+      return C.INDEX_UNSET;
+    }
+    return endIndex;
+  }
+
+  private static boolean isDigitOrDot(char c) {
+    return (c >= '0' && c <= '9') || c == '.';
+  }
+
+  /**
+   * Parses a number of seconds consisting of digits and dots, and returns it in microseconds,
+   * truncating any digits beyond microsecond precision.
+   */
+  private static long parseTimeSecondsToUs(String line, int startIndex, int endIndex) {
+    long timeUs = 0;
+    int integerDigitCount = 0;
+    int fractionDigitCount = C.INDEX_UNSET;
+    for (int i = startIndex; i < endIndex; i++) {
+      char c = line.charAt(i);
+      if (c == '.') {
+        if (fractionDigitCount != C.INDEX_UNSET) {
+          // Not a decimal number. Let BigDecimal report the error.
+          return parseTimeSecondsToUs(line.substring(startIndex, endIndex));
+        }
+        fractionDigitCount = 0;
+      } else if (fractionDigitCount == C.INDEX_UNSET) {
+        if (++integerDigitCount > MAX_FAST_PATH_INTEGER_DIGIT_COUNT) {
+          return parseTimeSecondsToUs(line.substring(startIndex, endIndex));
+        }
+        timeUs = timeUs * 10 + (c - '0');
+      } else if (fractionDigitCount < 6) {
+        timeUs = timeUs * 10 + (c - '0');
+        fractionDigitCount++;
+      }
+    }
+    for (int i = max(fractionDigitCount, 0); i < 6; i++) {
+      timeUs *= 10;
+    }
+    return timeUs;
+  }
+
   private static double parseDoubleAttr(String line, Pattern pattern) throws ParserException {
     return Double.parseDouble(parseStringAttr(line, pattern, Collections.emptyMap()));
   }
@@ -1255,6 +1483,10 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
 
   private static String replaceVariableReferences(
       String string, Map<String, String> variableDefinitions) {
+    if (variableDefinitions.isEmpty() || !string.contains("{$")) {
+      // There's nothing to replace.
+      return string;
+    }
     Matcher matcher = REGEX_VARIABLE_REFERENCE.matcher(string);
     // TODO: Replace StringBuffer with StringBuilder once Java 9 is available.
     StringBuffer stringWithReplacements = new StringBuffer();
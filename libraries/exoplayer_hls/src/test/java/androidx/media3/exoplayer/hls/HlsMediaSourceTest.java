@@ -26,7 +26,11 @@ import androidx.media3.common.ParserException;
 import androidx.media3.common.StreamKey;
 import androidx.media3.common.Timeline;
 import androidx.media3.common.util.Util;
+import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.DataSpec;
+import androidx.media3.datasource.TransferListener;
 import androidx.media3.exoplayer.analytics.PlayerId;
+import androidx.media3.exoplayer.hls.playlist.DefaultHlsPlaylistTracker;
 import androidx.media3.exoplayer.hls.playlist.HlsMediaPlaylist;
 import androidx.media3.exoplayer.hls.playlist.HlsPlaylistParser;
 import androidx.media3.exoplayer.source.MediaSource;
@@ -38,6 +42,7 @@ import com.google.common.collect.ImmutableList;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicReference;
@@ -958,6 +963,73 @@ public class HlsMediaSourceTest {
         .isEqualTo(updatedMediaItem);
   }
 
+  @Test
+  public void setPlaylistTrackerFactory_withPreloadingDefaultTracker_preloadsOtherVariant()
+      throws TimeoutException {
+    String multivariantPlaylistUri = "fake://foo.bar/multivariant.m3u8";
+    String multivariantPlaylist =
+        "#EXTM3U\n"
+            + "#EXT-X-STREAM-INF:BANDWIDTH=1000000\n"
+            + "media0/playlist.m3u8\n"
+            + "#EXT-X-STREAM-INF:BANDWIDTH=2000000\n"
+            + "media1/playlist.m3u8\n";
+    String mediaPlaylist =
+        "#EXTM3U\n"
+            + "#EXT-X-PLAYLIST-TYPE:VOD\n"
+            + "#EXT-X-TARGETDURATION:4\n"
+            + "#EXTINF:4.00000,\n"
+            + "fileSequence0.ts\n"
+            + "#EXT-X-ENDLIST";
+    FakeDataSet fakeDataSet =
+        new FakeDataSet()
+            .setData(multivariantPlaylistUri, Util.getUtf8Bytes(multivariantPlaylist))
+            .setData("fake://foo.bar/media0/playlist.m3u8", Util.getUtf8Bytes(mediaPlaylist))
+            .setData("fake://foo.bar/media1/playlist.m3u8", Util.getUtf8Bytes(mediaPlaylist));
+    List<Uri> openedUris = Collections.synchronizedList(new ArrayList<>());
+    TransferListener transferListener =
+        new TransferListener() {
+          @Override
+          public void onTransferInitializing(
+              DataSource source, DataSpec dataSpec, boolean isNetwork) {}
+
+          @Override
+          public void onTransferStart(DataSource source, DataSpec dataSpec, boolean isNetwork) {
+            openedUris.add(dataSpec.uri);
+          }
+
+          @Override
+          public void onBytesTransferred(
+              DataSource source, DataSpec dataSpec, boolean isNetwork, int bytesTransferred) {}
+
+          @Override
+          public void onTransferEnd(DataSource source, DataSpec dataSpec, boolean isNetwork) {}
+        };
+    HlsMediaSource.Factory factory =
+        new HlsMediaSource.Factory(
+                dataType -> {
+                  FakeDataSource dataSource = new FakeDataSource(fakeDataSet);
+                  dataSource.addTransferListener(transferListener);
+                  return dataSource;
+                })
+            .setElapsedRealTimeOffsetMs(0)
+            .setPlaylistTrackerFactory(
+                DefaultHlsPlaylistTracker.createFactory(/* maxPreloadedPlaylistCount= */ 1));
+    HlsMediaSource mediaSource =
+        factory.createMediaSource(MediaItem.fromUri(multivariantPlaylistUri));
+
+    prepareAndWaitForTimeline(mediaSource);
+    runMainLooperUntil(
+        () -> openedUris.contains(Uri.parse("fake://foo.bar/media1/playlist.m3u8")));
+    mediaSource.releaseSource(/* caller= */ (source, timeline) -> {});
+
+    assertThat(openedUris)
+        .containsExactly(
+            Uri.parse(multivariantPlaylistUri),
+            Uri.parse("fake://foo.bar/media0/playlist.m3u8"),
+            Uri.parse("fake://foo.bar/media1/playlist.m3u8"))
+        .inOrder();
+  }
+
   private static HlsMediaSource.Factory createHlsMediaSourceFactory(
       String playlistUri, String playlist) {
     FakeDataSet fakeDataSet = new FakeDataSet().setData(playlistUri, Util.getUtf8Bytes(playlist));
@@ -18,22 +18,33 @@ package androidx.media3.exoplayer.hls.playlist;
 import static com.google.common.truth.Truth.assertThat;
 
 import android.net.Uri;
+import androidx.annotation.Nullable;
+import androidx.media3.common.util.Util;
 import androidx.media3.datasource.DataSource;
 import androidx.media3.datasource.DefaultHttpDataSource;
+import androidx.media3.exoplayer.source.LoadEventInfo;
+import androidx.media3.exoplayer.source.MediaLoadData;
+import androidx.media3.exoplayer.source.MediaSource.MediaPeriodId;
 import androidx.media3.exoplayer.source.MediaSourceEventListener;
 import androidx.media3.exoplayer.upstream.DefaultLoadErrorHandlingPolicy;
+import androidx.media3.exoplayer.upstream.LoadErrorHandlingPolicy;
 import androidx.media3.test.utils.TestUtil;
 import androidx.media3.test.utils.robolectric.RobolectricUtil;
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
 import okio.Buffer;
 import org.junit.After;
 import org.junit.Before;
@@ -395,6 +406,223 @@ public class DefaultHlsPlaylistTrackerTest {
     assertThat(mediaPlaylists.get(2).mediaSequence).isEqualTo(12);
   }
 
+  @Test
+  public void start_withMaxPreloadedPlaylistCount_preloadsClosestPlaylists()
+      throws TimeoutException {
+    String multivariantPlaylist =
+        "#EXTM3U\n"
+            + "#EXT-X-MEDIA:TYPE=AUDIO,GROUP-ID=\"aud\",NAME=\"English\",URI=\"audio_en.m3u8\"\n"
+            + "#EXT-X-MEDIA:TYPE=AUDIO,GROUP-ID=\"aud\",NAME=\"French\",URI=\"audio_fr.m3u8\"\n"
+            + "#EXT-X-STREAM-INF:BANDWIDTH=1000000,AUDIO=\"aud\"\n"
+            + "video_1000.m3u8\n"
+            + "#EXT-X-STREAM-INF:BANDWIDTH=4000000,AUDIO=\"aud\"\n"
+            + "video_4000.m3u8\n"
+            + "#EXT-X-STREAM-INF:BANDWIDTH=2000000,AUDIO=\"aud\"\n"
+            + "video_2000.m3u8\n"
+            + "#EXT-X-STREAM-INF:BANDWIDTH=500000,AUDIO=\"aud\"\n"
+            + "video_500.m3u8\n";
+    String mediaPlaylist =
+        "#EXTM3U\n"
+            + "#EXT-X-TARGETDURATION:4\n"
+            + "#EXT-X-PLAYLIST-TYPE:VOD\n"
+            + "#EXTINF:4.0,\n"
+            + "segment0.ts\n"
+            + "#EXT-X-ENDLIST\n";
+    List<String> requestPaths = Collections.synchronizedList(new ArrayList<>());
+    mockWebServer.setDispatcher(
+        new Dispatcher() {
+          @Override
+          public MockResponse dispatch(RecordedRequest request) {
+            requestPaths.add(request.getPath());
+            String body =
+                request.getPath().equals("/multivariant.m3u8")
+                    ? multivariantPlaylist
+                    : mediaPlaylist;
+            return new MockResponse().setResponseCode(200).setBody(body);
+          }
+        });
+    DataSource.Factory dataSourceFactory = new DefaultHttpDataSource.Factory();
+    DefaultHlsPlaylistTracker defaultHlsPlaylistTracker =
+        new DefaultHlsPlaylistTracker(
+            dataType -> dataSourceFactory.createDataSource(),
+            new DefaultLoadErrorHandlingPolicy(),
+            new DefaultHlsPlaylistParserFactory(),
+            DefaultHlsPlaylistTracker.DEFAULT_PLAYLIST_STUCK_TARGET_DURATION_COEFFICIENT,
+            /* maxPreloadedPlaylistCount= */ 3);
+    Uri video2000Url = Uri.parse(mockWebServer.url("/video_2000.m3u8").toString());
+    Uri video500Url = Uri.parse(mockWebServer.url("/video_500.m3u8").toString());
+    Uri audioEnUrl = Uri.parse(mockWebServer.url("/audio_en.m3u8").toString());
+
+    defaultHlsPlaylistTracker.start(
+        Uri.parse(mockWebServer.url("/multivariant.m3u8").toString()),
+        new MediaSourceEventListener.EventDispatcher(),
+        playlist -> {});
+    RobolectricUtil.runMainLooperUntil(
+        () ->
+            defaultHlsPlaylistTracker.getMultivariantPlaylist() != null
+                && defaultHlsPlaylistTracker.isSnapshotValid(video2000Url)
+                && defaultHlsPlaylistTracker.isSnapshotValid(video500Url)
+                && defaultHlsPlaylistTracker.isSnapshotValid(audioEnUrl));
+    defaultHlsPlaylistTracker.stop();
+
+    assertThat(requestPaths)
+        .containsExactly(
+            "/multivariant.m3u8",
+            "/video_1000.m3u8",
+            "/video_2000.m3u8",
+            "/video_500.m3u8",
+            "/audio_en.m3u8");
+    assertThat(requestPaths.subList(0, 2))
+        .containsExactly("/multivariant.m3u8", "/video_1000.m3u8")
+        .inOrder();
+  }
+
+  @Test
+  public void start_withPreloadError_doesNotReportPlaylistError() throws TimeoutException {
+    String multivariantPlaylist =
+        "#EXTM3U\n"
+            + "#EXT-X-STREAM-INF:BANDWIDTH=1000000\n"
+            + "video_1000.m3u8\n"
+            + "#EXT-X-STREAM-INF:BANDWIDTH=2000000\n"
+            + "video_2000.m3u8\n";
+    String mediaPlaylist =
+        "#EXTM3U\n"
+            + "#EXT-X-TARGETDURATION:4\n"
+            + "#EXT-X-PLAYLIST-TYPE:VOD\n"
+            + "#EXTINF:4.0,\n"
+            + "segment0.ts\n"
+            + "#EXT-X-ENDLIST\n";
+    mockWebServer.setDispatcher(
+        new Dispatcher() {
+          @Override
+          public MockResponse dispatch(RecordedRequest request) {
+            switch (request.getPath()) {
+              case "/multivariant.m3u8":
+                return new MockResponse().setResponseCode(200).setBody(multivariantPlaylist);
+              case "/video_1000.m3u8":
+                return new MockResponse().setResponseCode(200).setBody(mediaPlaylist);
+              default:
+                return new MockResponse().setResponseCode(404);
+            }
+          }
+        });
+    DataSource.Factory dataSourceFactory = new DefaultHttpDataSource.Factory();
+    DefaultHlsPlaylistTracker defaultHlsPlaylistTracker =
+        new DefaultHlsPlaylistTracker(
+            dataType -> dataSourceFactory.createDataSource(),
+            new DefaultLoadErrorHandlingPolicy(),
+            new DefaultHlsPlaylistParserFactory(),
+            DefaultHlsPlaylistTracker.DEFAULT_PLAYLIST_STUCK_TARGET_DURATION_COEFFICIENT,
+            /* maxPreloadedPlaylistCount= */ 1);
+    Uri video1000Url = Uri.parse(mockWebServer.url("/video_1000.m3u8").toString());
+    List<Uri> playlistErrorUrls = new ArrayList<>();
+    defaultHlsPlaylistTracker.addListener(
+        new HlsPlaylistTracker.PlaylistEventListener() {
+          @Override
+          public void onPlaylistChanged() {}
+
+          @Override
+          public boolean onPlaylistError(
+              Uri url, LoadErrorHandlingPolicy.LoadErrorInfo loadErrorInfo, boolean forceRetry) {
+            playlistErrorUrls.add(url);
+            return false;
+          }
+        });
+    AtomicInteger loadErrorCount = new AtomicInteger();
+    MediaSourceEventListener.EventDispatcher eventDispatcher =
+        new MediaSourceEventListener.EventDispatcher();
+    eventDispatcher.addEventListener(
+        Util.createHandlerForCurrentLooper(),
+        new MediaSourceEventListener() {
+          @Override
+          public void onLoadError(
+              int windowIndex,
+              @Nullable MediaPeriodId mediaPeriodId,
+              LoadEventInfo loadEventInfo,
+              MediaLoadData mediaLoadData,
+              IOException error,
+              boolean wasCanceled) {
+            loadErrorCount.incrementAndGet();
+          }
+        });
+
+    defaultHlsPlaylistTracker.start(
+        Uri.parse(mockWebServer.url("/multivariant.m3u8").toString()),
+        eventDispatcher,
+        playlist -> {});
+    RobolectricUtil.runMainLooperUntil(
+        () ->
+            defaultHlsPlaylistTracker.getMultivariantPlaylist() != null
+                && defaultHlsPlaylistTracker.isSnapshotValid(video1000Url)
+                && loadErrorCount.get() > 0);
+    defaultHlsPlaylistTracker.stop();
+
+    assertThat(loadErrorCount.get()).isEqualTo(1);
+    assertThat(playlistErrorUrls).isEmpty();
+  }
+
+  @Test
+  public void excludeMediaPlaylist_preloadedPlaylist_stopsRefreshingPlaylist()
+      throws TimeoutException {
+    String multivariantPlaylist =
+        "#EXTM3U\n"
+            + "#EXT-X-STREAM-INF:BANDWIDTH=1000000\n"
+            + "video_1000.m3u8\n"
+            + "#EXT-X-STREAM-INF:BANDWIDTH=2000000\n"
+            + "video_2000.m3u8\n";
+    Map<String, Integer> requestCounts = new ConcurrentHashMap<>();
+    mockWebServer.setDispatcher(
+        new Dispatcher() {
+          @Override
+          public MockResponse dispatch(RecordedRequest request) {
+            int requestCount = requestCounts.merge(request.getPath(), 1, Integer::sum);
+            if (request.getPath().equals("/multivariant.m3u8")) {
+              return new MockResponse().setResponseCode(200).setBody(multivariantPlaylist);
+            }
+            // A live playlist that gains a segment on every request.
+            String mediaPlaylist =
+                "#EXTM3U\n"
+                    + "#EXT-X-TARGETDURATION:4\n"
+                    + "#EXT-X-MEDIA-SEQUENCE:"
+                    + requestCount
+                    + "\n"
+                    + "#EXTINF:4.0,\n"
+                    + "segment"
+                    + requestCount
+                    + ".ts\n";
+            return new MockResponse().setResponseCode(200).setBody(mediaPlaylist);
+          }
+        });
+    DataSource.Factory dataSourceFactory = new DefaultHttpDataSource.Factory();
+    DefaultHlsPlaylistTracker defaultHlsPlaylistTracker =
+        new DefaultHlsPlaylistTracker(
+            dataType -> dataSourceFactory.createDataSource(),
+            new DefaultLoadErrorHandlingPolicy(),
+            new DefaultHlsPlaylistParserFactory(),
+            DefaultHlsPlaylistTracker.DEFAULT_PLAYLIST_STUCK_TARGET_DURATION_COEFFICIENT,
+            /* maxPreloadedPlaylistCount= */ 1);
+    Uri video2000Url = Uri.parse(mockWebServer.url("/video_2000.m3u8").toString());
+    AtomicInteger primaryPlaylistCount = new AtomicInteger();
+    defaultHlsPlaylistTracker.start(
+        Uri.parse(mockWebServer.url("/multivariant.m3u8").toString()),
+        new MediaSourceEventListener.EventDispatcher(),
+        playlist -> primaryPlaylistCount.incrementAndGet());
+    RobolectricUtil.runMainLooperUntil(
+        () ->
+            defaultHlsPlaylistTracker.getMultivariantPlaylist() != null
+                && defaultHlsPlaylistTracker.isSnapshotValid(video2000Url));
+
+    defaultHlsPlaylistTracker.excludeMediaPlaylist(video2000Url, /* exclusionDurationMs= */ 60_000);
+    int preloadedPlaylistRequestCount = requestCounts.get("/video_2000.m3u8");
+    // Wait for several refreshes of the primary playlist, within the exclusion duration.
+    int primaryPlaylistCountAtExclusion = primaryPlaylistCount.get();
+    RobolectricUtil.runMainLooperUntil(
+        () -> primaryPlaylistCount.get() >= primaryPlaylistCountAtExclusion + 4);
+    defaultHlsPlaylistTracker.stop();
+
+    assertThat(requestCounts.get("/video_2000.m3u8")).isEqualTo(preloadedPlaylistRequestCount);
+  }
+
   private List<HttpUrl> enqueueWebServerResponses(String[] paths, MockResponse... mockResponses) {
     assertThat(paths).hasLength(mockResponses.length);
     for (MockResponse mockResponse : mockResponses) {
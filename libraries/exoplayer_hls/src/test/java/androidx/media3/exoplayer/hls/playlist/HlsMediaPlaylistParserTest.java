@@ -464,6 +464,128 @@ public class HlsMediaPlaylistParserTest {
     assertThat(playlist.trailingParts.get(0).relativeDiscontinuitySequence).isEqualTo(1);
   }
 
+  @Test
+  public void parseMediaPlaylist_withPreviousPlaylist_reusesUnchangedSegments() throws IOException {
+    Uri playlistUri = Uri.parse("https://example.com/test.m3u8");
+    String previousPlaylistString =
+        "#EXTM3U\n"
+            + "#EXT-X-TARGETDURATION:4\n"
+            + "#EXT-X-MEDIA-SEQUENCE:10\n"
+            + "#EXT-X-MAP:URI=\"init.mp4\"\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence10.mp4\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence11.mp4\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence12.mp4\n";
+    String playlistString =
+        "#EXTM3U\n"
+            + "#EXT-X-TARGETDURATION:4\n"
+            + "#EXT-X-MEDIA-SEQUENCE:10\n"
+            + "#EXT-X-MAP:URI=\"init.mp4\"\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence10.mp4\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence11.mp4\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence12b.mp4\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence13.mp4\n";
+    InputStream previousInputStream =
+        new ByteArrayInputStream(Util.getUtf8Bytes(previousPlaylistString));
+    HlsMediaPlaylist previousPlaylist =
+        (HlsMediaPlaylist) new HlsPlaylistParser().parse(playlistUri, previousInputStream);
+    InputStream inputStream = new ByteArrayInputStream(Util.getUtf8Bytes(playlistString));
+
+    HlsMediaPlaylist playlist =
+        (HlsMediaPlaylist)
+            new HlsPlaylistParser(HlsMultivariantPlaylist.EMPTY, previousPlaylist)
+                .parse(playlistUri, inputStream);
+
+    assertThat(playlist.segments).hasSize(4);
+    assertThat(playlist.segments.get(0)).isSameInstanceAs(previousPlaylist.segments.get(0));
+    assertThat(playlist.segments.get(1)).isSameInstanceAs(previousPlaylist.segments.get(1));
+    assertThat(playlist.segments.get(2)).isNotSameInstanceAs(previousPlaylist.segments.get(2));
+    assertThat(playlist.segments.get(2).url).isEqualTo("fileSequence12b.mp4");
+    assertThat(playlist.segments.get(3).url).isEqualTo("fileSequence13.mp4");
+    assertThat(playlist.segments.get(3).relativeStartTimeUs).isEqualTo(12000240);
+    assertThat(playlist.segments.get(3).initializationSegment)
+        .isSameInstanceAs(previousPlaylist.segments.get(0).initializationSegment);
+  }
+
+  @Test
+  public void parseMediaPlaylist_withSlidingWindow_updatesSegmentStartTimes() throws IOException {
+    Uri playlistUri = Uri.parse("https://example.com/test.m3u8");
+    String previousPlaylistString =
+        "#EXTM3U\n"
+            + "#EXT-X-TARGETDURATION:4\n"
+            + "#EXT-X-MEDIA-SEQUENCE:10\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence10.mp4\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence11.mp4\n";
+    String playlistString =
+        "#EXTM3U\n"
+            + "#EXT-X-TARGETDURATION:4\n"
+            + "#EXT-X-MEDIA-SEQUENCE:11\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence11.mp4\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence12.mp4\n";
+    InputStream previousInputStream =
+        new ByteArrayInputStream(Util.getUtf8Bytes(previousPlaylistString));
+    HlsMediaPlaylist previousPlaylist =
+        (HlsMediaPlaylist) new HlsPlaylistParser().parse(playlistUri, previousInputStream);
+    InputStream inputStream = new ByteArrayInputStream(Util.getUtf8Bytes(playlistString));
+
+    HlsMediaPlaylist playlist =
+        (HlsMediaPlaylist)
+            new HlsPlaylistParser(HlsMultivariantPlaylist.EMPTY, previousPlaylist)
+                .parse(playlistUri, inputStream);
+
+    assertThat(playlist.segments).hasSize(2);
+    assertThat(playlist.segments.get(0).url).isEqualTo("fileSequence11.mp4");
+    assertThat(playlist.segments.get(0).relativeStartTimeUs).isEqualTo(0);
+    assertThat(playlist.segments.get(1).relativeStartTimeUs).isEqualTo(4000080);
+  }
+
+  @Test
+  public void parseMediaPlaylist_withVariousMediaDurationFormats() throws IOException {
+    Uri playlistUri = Uri.parse("https://example.com/test.m3u8");
+    String playlistString =
+        "#EXTM3U\n"
+            + "#EXT-X-TARGETDURATION:10\n"
+            + "#EXTINF:5.0000019,title\n"
+            + "segment1.ts\n"
+            + "#EXTINF:10.,\n"
+            + "segment2.ts\n"
+            + "#EXTINF:7\n"
+            + "segment3.ts\n"
+            + "#EXTINF:1.5,title,with,commas\n"
+            + "segment4.ts\n"
+            + "#EXTINF:2.5 ,ignored title\n"
+            + "segment5.ts\n"
+            + "#EXTINF:1234567890123.5,\n"
+            + "segment6.ts\n";
+    InputStream inputStream = new ByteArrayInputStream(Util.getUtf8Bytes(playlistString));
+
+    HlsMediaPlaylist playlist =
+        (HlsMediaPlaylist) new HlsPlaylistParser().parse(playlistUri, inputStream);
+
+    List<Segment> segments = playlist.segments;
+    assertThat(segments.get(0).durationUs).isEqualTo(5000001);
+    assertThat(segments.get(0).title).isEqualTo("title");
+    assertThat(segments.get(1).durationUs).isEqualTo(10000000);
+    assertThat(segments.get(1).title).isEmpty();
+    assertThat(segments.get(2).durationUs).isEqualTo(7000000);
+    assertThat(segments.get(2).title).isEmpty();
+    assertThat(segments.get(3).durationUs).isEqualTo(1500000);
+    assertThat(segments.get(3).title).isEqualTo("title,with,commas");
+    assertThat(segments.get(4).durationUs).isEqualTo(2500000);
+    assertThat(segments.get(4).title).isEmpty();
+    assertThat(segments.get(5).durationUs).isEqualTo(1234567890123500000L);
+  }
+
   @Test
   public void parseMediaPlaylist_withParts_parsesPartWithAllAttributes() throws IOException {
     Uri playlistUri = Uri.parse("https://example.com/test.m3u8");
@@ -99,6 +99,8 @@ public abstract class BinarySearchSeeker {
 
   private final int minimumSearchRange;
 
+  private boolean isFirstSearchOfSeekOperation;
+
   /**
    * Constructs an instance.
    *
@@ -157,6 +159,7 @@ public abstract class BinarySearchSeeker {
       return;
     }
     seekOperationParams = createSeekParamsForTargetTimeUs(timeUs);
+    isFirstSearchOfSeekOperation = true;
   }
 
   /** Returns whether the last operation set by {@link #setSeekTargetUs(long)} is still pending. */
@@ -168,6 +171,10 @@ public abstract class BinarySearchSeeker {
    * Continues to handle the pending seek operation. Returns one of the {@code RESULT_} values from
    * {@link Extractor}.
    *
+   * <p>The search starts at the position returned for the target time by {@link #getSeekMap()}. If
+   * the input is instead positioned elsewhere inside the search range when the seek operation
+   * starts, the search starts at the position of the input.
+   *
    * @param input The {@link ExtractorInput} from which data should be read.
    * @param seekPositionHolder If {@link Extractor#RESULT_SEEK} is returned, this holder is updated
    *     to hold the position of the required seek.
@@ -182,6 +189,19 @@ public abstract class BinarySearchSeeker {
       long floorPosition = seekOperationParams.getFloorBytePosition();
       long ceilingPosition = seekOperationParams.getCeilingBytePosition();
       long searchPosition = seekOperationParams.getNextSearchBytePosition();
+      if (isFirstSearchOfSeekOperation) {
+        isFirstSearchOfSeekOperation = false;
+        long inputPosition = input.getPosition();
+        if (inputPosition != searchPosition
+            && inputPosition > floorPosition
+            && inputPosition < ceilingPosition) {
+          // The seek position wasn't taken from getSeekMap(), which returns the estimated
+          // position. It may instead have been taken from an index of previously resolved seeks,
+          // and be closer to the target. Search there first, to avoid reloading the input at the
+          // estimated position.
+          searchPosition = inputPosition;
+        }
+      }
 
       if (ceilingPosition - floorPosition <= minimumSearchRange) {
         // The seeking range is too small, so we can just continue from the floor position.
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.extractor.mkv;
+
+import static java.lang.Math.min;
+
+import androidx.media3.common.C;
+import androidx.media3.common.util.Util;
+import androidx.media3.extractor.BinarySearchSeeker;
+import androidx.media3.extractor.ExtractorInput;
+import androidx.media3.extractor.ExtractorUtil;
+import java.io.IOException;
+
+/**
+ * A seeker that supports seeking within a Matroska segment without a Cues element, using binary
+ * search over the timecodes of its clusters.
+ *
+ * <p>The seeker interpolates the byte position of the target time from the segment duration, and
+ * then looks for cluster headers near that position to refine the search range, until it finds a
+ * cluster whose timecode is within {@link #SEEK_TOLERANCE_US} before the target time.
+ *
+ * <p>The search may finish at a position that isn't the start of a cluster. The extractor should
+ * call {@link #skipToNextCluster(ExtractorInput)} before resuming parsing after a seek.
+ */
+/* package */ final class MatroskaBinarySearchSeeker extends BinarySearchSeeker {
+
+  private static final long SEEK_TOLERANCE_US = 100_000;
+  private static final int MINIMUM_SEARCH_RANGE_BYTES = 1000;
+  private static final int APPROX_BYTES_PER_FRAME = 1000;
+  private static final int TIMESTAMP_SEARCH_BYTES = 64 * 1024;
+
+  private static final int ID_CLUSTER = 0x1F43B675;
+  private static final int ID_CRC32 = 0xBF;
+  private static final int ID_TIME_CODE = 0xE7;
+  private static final int CRC32_CONTENT_SIZE_VARINT = 0x84;
+  private static final int CRC32_ELEMENT_SIZE = 6;
+
+  /**
+   * The maximum size of a cluster header, including a CRC-32 element and the timecode element:
+   * cluster ID (4) + size (8) + CRC-32 element (6) + timecode ID (1) + size (8) + value (8).
+   */
+  private static final int MAX_CLUSTER_HEADER_SIZE = 35;
+
+  private final byte[] buffer;
+
+  /**
+   * Creates an instance.
+   *
+   * @param timecodeScale The timecode scale of the segment, in nanoseconds.
+   * @param durationUs The duration of the segment, in microseconds.
+   * @param firstClusterPosition The position of the first cluster in the segment, or of any
+   *     element before it in the segment.
+   * @param segmentEndPosition The position of the end of the segment.
+   */
+  public MatroskaBinarySearchSeeker(
+      long timecodeScale, long durationUs, long firstClusterPosition, long segmentEndPosition) {
+    this(
+        new byte[TIMESTAMP_SEARCH_BYTES],
+        timecodeScale,
+        durationUs,
+        firstClusterPosition,
+        segmentEndPosition);
+  }
+
+  private MatroskaBinarySearchSeeker(
+      byte[] buffer,
+      long timecodeScale,
+      long durationUs,
+      long firstClusterPosition,
+      long segmentEndPosition) {
+    super(
+        new DefaultSeekTimestampConverter(),
+        new ClusterTimecodeSeeker(buffer, timecodeScale),
+        durationUs,
+        /* floorTimePosition= */ 0,
+        /* ceilingTimePosition= */ durationUs + 1,
+        /* floorBytePosition= */ firstClusterPosition,
+        /* ceilingBytePosition= */ segmentEndPosition,
+        APPROX_BYTES_PER_FRAME,
+        MINIMUM_SEARCH_RANGE_BYTES);
+    this.buffer = buffer;
+  }
+
+  /**
+   * Skips the input to the start of the next cluster, which is the current position if the input
+   * is already positioned at the start of a cluster. If there are no more clusters, skips to the
+   * end of the input.
+   *
+   * @param input The {@link ExtractorInput} to skip.
+   * @throws IOException If an error occurred reading from the input.
+   */
+  public void skipToNextCluster(ExtractorInput input) throws IOException {
+    while (true) {
+      input.resetPeekPosition();
+      int bytesPeeked = ExtractorUtil.peekToLength(input, buffer, /* offset= */ 0, buffer.length);
+      boolean endOfInput = bytesPeeked < buffer.length;
+      int searchLimit = endOfInput ? bytesPeeked : bytesPeeked - MAX_CLUSTER_HEADER_SIZE;
+      for (int position = 0; position < searchLimit; position++) {
+        if (peekClusterTimecode(buffer, position, bytesPeeked) != C.TIME_UNSET) {
+          input.resetPeekPosition();
+          input.skipFully(position);
+          return;
+        }
+      }
+      input.resetPeekPosition();
+      if (endOfInput) {
+        input.skipFully(bytesPeeked);
+        return;
+      }
+      input.skipFully(searchLimit);
+    }
+  }
+
+  /**
+   * Returns the timecode of the cluster whose header starts at {@code position} in {@code data}, or
+   * {@link C#TIME_UNSET} if there isn't a complete cluster header at that position.
+   */
+  private static long peekClusterTimecode(byte[] data, int position, int limit) {
+    if (position + 4 > limit || readInt(data, position) != ID_CLUSTER) {
+      return C.TIME_UNSET;
+    }
+    position += 4;
+    int sizeLength = peekVarintLength(data, position, limit);
+    if (sizeLength == C.LENGTH_UNSET) {
+      return C.TIME_UNSET;
+    }
+    position += sizeLength;
+    if (position + CRC32_ELEMENT_SIZE <= limit
+        && (data[position] & 0xFF) == ID_CRC32
+        && (data[position + 1] & 0xFF) == CRC32_CONTENT_SIZE_VARINT) {
+      // Skip a CRC-32 element preceding the timecode.
+      position += CRC32_ELEMENT_SIZE;
+    }
+    if (position >= limit || (data[position] & 0xFF) != ID_TIME_CODE) {
+      return C.TIME_UNSET;
+    }
+    position++;
+    int timecodeSizeLength = peekVarintLength(data, position, limit);
+    if (timecodeSizeLength == C.LENGTH_UNSET) {
+      return C.TIME_UNSET;
+    }
+    long timecodeSize = readVarint(data, position, timecodeSizeLength);
+    position += timecodeSizeLength;
+    if (timecodeSize < 1 || timecodeSize > 8 || position + timecodeSize > limit) {
+      return C.TIME_UNSET;
+    }
+    long timecode = 0;
+    for (int i = 0; i < timecodeSize; i++) {
+      timecode = (timecode << 8) | (data[position + i] & 0xFF);
+    }
+    return timecode;
+  }
+
+  private static int peekVarintLength(byte[] data, int position, int limit) {
+    if (position >= limit) {
+      return C.LENGTH_UNSET;
+    }
+    int length = VarintReader.parseUnsignedVarintLength(data[position] & 0xFF);
+    return length != C.LENGTH_UNSET && position + length <= limit ? length : C.LENGTH_UNSET;
+  }
+
+  private static long readVarint(byte[] data, int position, int length) {
+    long value = data[position] & (0xFF >> length);
+    for (int i = 1; i < length; i++) {
+      value = (value << 8) | (data[position + i] & 0xFF);
+    }
+    return value;
+  }
+
+  private static int readInt(byte[] data, int position) {
+    return (data[position] & 0xFF) << 24
+        | (data[position + 1] & 0xFF) << 16
+        | (data[position + 2] & 0xFF) << 8
+        | (data[position + 3] & 0xFF);
+  }
+
+  /**
+   * A seeker that looks for a given timestamp at a given position in a Matroska segment.
+   *
+   * <p>Given a timestamp and a position within a segment, this seeker peeks up to {@link
+   * #TIMESTAMP_SEARCH_BYTES} bytes from that position, looks for cluster headers in that range and
+   * compares their timecodes to the target timestamp.
+   */
+  private static final class ClusterTimecodeSeeker implements TimestampSeeker {
+
+    private final byte[] buffer;
+    private final long timecodeScale;
+
+    private long lastUnderestimatedPosition;
+
+    private ClusterTimecodeSeeker(byte[] buffer, long timecodeScale) {
+      this.buffer = buffer;
+      this.timecodeScale = timecodeScale;
+      lastUnderestimatedPosition = C.INDEX_UNSET;
+    }
+
+    @Override
+    public TimestampSearchResult searchForTimestamp(ExtractorInput input, long targetTimeUs)
+        throws IOException {
+      long inputPosition = input.getPosition();
+      int bytesToSearch = TIMESTAMP_SEARCH_BYTES;
+      if (input.getLength() != C.LENGTH_UNSET) {
+        bytesToSearch = (int) min(bytesToSearch, input.getLength() - inputPosition);
+      }
+      int bytesPeeked = ExtractorUtil.peekToLength(input, buffer, /* offset= */ 0, bytesToSearch);
+
+      int lastClusterPosition = C.INDEX_UNSET;
+      long lastClusterTimeUs = C.TIME_UNSET;
+      for (int position = 0; position < bytesPeeked; position++) {
+        long timecode = peekClusterTimecode(buffer, position, bytesPeeked);
+        if (timecode == C.TIME_UNSET) {
+          continue;
+        }
+        long clusterTimeUs = Util.scaleLargeTimestamp(timecode, timecodeScale, 1000);
+        if (clusterTimeUs > targetTimeUs) {
+          if (lastClusterTimeUs == C.TIME_UNSET) {
+            // The first cluster is already after the target.
+            return TimestampSearchResult.overestimatedResult(clusterTimeUs, inputPosition);
+          } else {
+            // The target is in the previous cluster.
+            return TimestampSearchResult.targetFoundResult(inputPosition + lastClusterPosition);
+          }
+        } else if (clusterTimeUs + SEEK_TOLERANCE_US > targetTimeUs) {
+          return TimestampSearchResult.targetFoundResult(inputPosition + position);
+        }
+        lastClusterTimeUs = clusterTimeUs;
+        lastClusterPosition = position;
+      }
+
+      if (lastClusterTimeUs != C.TIME_UNSET) {
+        long lastClusterPositionInStream = inputPosition + lastClusterPosition;
+        if (lastClusterPositionInStream == lastUnderestimatedPosition) {
+          // The search range can't be narrowed any further, because the cluster is longer than the
+          // bytes searched. The target is most likely in this cluster.
+          return TimestampSearchResult.targetFoundResult(lastClusterPositionInStream);
+        }
+        lastUnderestimatedPosition = lastClusterPositionInStream;
+        return TimestampSearchResult.underestimatedResult(
+            lastClusterTimeUs, lastClusterPositionInStream);
+      } else {
+        return TimestampSearchResult.NO_TIMESTAMP_IN_RANGE_RESULT;
+      }
+    }
+
+    @Override
+    public void onSeekFinished() {
+      lastUnderestimatedPosition = C.INDEX_UNSET;
+    }
+  }
+}
@@ -84,15 +84,15 @@ public class MatroskaExtractor implements Extractor {
   public static final ExtractorsFactory FACTORY = () -> new Extractor[] {new MatroskaExtractor()};
 
   /**
-   * Flags controlling the behavior of the extractor. Possible flag value is {@link
-   * #FLAG_DISABLE_SEEK_FOR_CUES}.
+   * Flags controlling the behavior of the extractor. Possible flag values are {@link
+   * #FLAG_DISABLE_SEEK_FOR_CUES} and {@link #FLAG_ENABLE_BINARY_SEARCH_SEEKING}.
    */
   @Documented
   @Retention(RetentionPolicy.SOURCE)
   @Target(TYPE_USE)
   @IntDef(
       flag = true,
-      value = {FLAG_DISABLE_SEEK_FOR_CUES})
+      value = {FLAG_DISABLE_SEEK_FOR_CUES, FLAG_ENABLE_BINARY_SEARCH_SEEKING})
   public @interface Flags {}
 
   /**
@@ -105,6 +105,19 @@ public class MatroskaExtractor implements Extractor {
    */
   public static final int FLAG_DISABLE_SEEK_FOR_CUES = 1;
 
+  /**
+   * Flag to enable seeking in media without cues, using binary search over cluster timecodes.
+   *
+   * <p>Normally (i.e. when this flag is not set) media whose cues element can't be located before
+   * the first cluster is treated as being unseekable. Setting this flag allows seeking in such
+   * media if its duration is known, by repeatedly reading cluster timecodes near an estimated
+   * position until a cluster close to the seek target is found. The end of the segment must also be
+   * known, either from the size of the segment or from the length of the input. Seeking is less
+   * accurate than with cues, since the found cluster is not guaranteed to start with a keyframe,
+   * and may require several seeks in the underlying input.
+   */
+  public static final int FLAG_ENABLE_BINARY_SEARCH_SEEKING = 1 << 1;
+
   private static final String TAG = "MatroskaExtractor";
 
   private static final int UNSET_ENTRY_ID = -1;
@@ -396,6 +409,7 @@ public class MatroskaExtractor implements Extractor {
   private final VarintReader varintReader;
   private final SparseArray<Track> tracks;
   private final boolean seekForCuesEnabled;
+  private final boolean binarySearchSeekingEnabled;
 
   // Temporary arrays.
   private final ParsableByteArray nalStartCode;
@@ -435,6 +449,11 @@ public class MatroskaExtractor implements Extractor {
   @Nullable private LongArray cueClusterPositions;
   private boolean seenClusterPositionForCurrentCuePoint;
 
+  // Binary search seeking, used if cues are not available.
+  @Nullable private MatroskaBinarySearchSeeker binarySearchSeeker;
+  private boolean pendingSkipToNextCluster;
+  private long inputLength = C.LENGTH_UNSET;
+
   // Reading state.
   private boolean haveOutputSample;
 
@@ -478,6 +497,7 @@ public class MatroskaExtractor implements Extractor {
     this.reader = reader;
     this.reader.init(new InnerEbmlProcessor());
     seekForCuesEnabled = (flags & FLAG_DISABLE_SEEK_FOR_CUES) == 0;
+    binarySearchSeekingEnabled = (flags & FLAG_ENABLE_BINARY_SEARCH_SEEKING) != 0;
     varintReader = new VarintReader();
     tracks = new SparseArray<>();
     scratch = new ParsableByteArray(4);
@@ -514,6 +534,13 @@ public class MatroskaExtractor implements Extractor {
     for (int i = 0; i < tracks.size(); i++) {
       tracks.valueAt(i).reset();
     }
+    if (position == 0) {
+      // The extractor is reset to the start of the input, so there's nothing to search for.
+      pendingSkipToNextCluster = false;
+    } else if (binarySearchSeeker != null) {
+      binarySearchSeeker.setSeekTargetUs(timeUs);
+      pendingSkipToNextCluster = true;
+    }
   }
 
   @Override
@@ -523,6 +550,17 @@ public class MatroskaExtractor implements Extractor {
 
   @Override
   public final int read(ExtractorInput input, PositionHolder seekPosition) throws IOException {
+    inputLength = input.getLength();
+    if (binarySearchSeeker != null) {
+      if (binarySearchSeeker.isSeeking()) {
+        return binarySearchSeeker.handlePendingSeek(input, seekPosition);
+      }
+      if (pendingSkipToNextCluster) {
+        // The binary search may have finished at a position that isn't the start of a cluster.
+        binarySearchSeeker.skipToNextCluster(input);
+        pendingSkipToNextCluster = false;
+      }
+    }
     haveOutputSample = false;
     boolean continueReading = true;
     while (continueReading && !haveOutputSample) {
@@ -694,9 +732,23 @@ public class MatroskaExtractor implements Extractor {
       case ID_CLUSTER:
         if (!sentSeekMap) {
           // We need to build cues before parsing the cluster.
+          long segmentEndPosition = getSegmentEndPosition();
           if (seekForCuesEnabled && cuesContentPosition != C.INDEX_UNSET) {
             // We know where the Cues element is located. Seek to request it.
             seekForCues = true;
+          } else if (binarySearchSeekingEnabled
+              && segmentEndPosition != C.INDEX_UNSET
+              && durationUs != C.TIME_UNSET) {
+            // We don't know where the Cues element is located. Allow seeking by binary search over
+            // the timecodes of the clusters instead.
+            binarySearchSeeker =
+                new MatroskaBinarySearchSeeker(
+                    timecodeScale,
+                    durationUs,
+                    /* firstClusterPosition= */ segmentContentPosition,
+                    segmentEndPosition);
+            extractorOutput.seekMap(binarySearchSeeker.getSeekMap());
+            sentSeekMap = true;
           } else {
             // We don't know where the Cues element is located. It's most likely omitted. Allow
             // playback, but disable seeking.
@@ -726,6 +778,25 @@ public class MatroskaExtractor implements Extractor {
     }
   }
 
+  /**
+   * Returns the position of the end of the segment, or {@link C#INDEX_UNSET} if neither the size of
+   * the segment nor the length of the input is known.
+   */
+  private long getSegmentEndPosition() {
+    if (segmentContentPosition == C.INDEX_UNSET) {
+      return C.INDEX_UNSET;
+    }
+    long segmentEndPosition =
+        isUnknownElementSize(segmentContentSize)
+            ? C.INDEX_UNSET
+            : segmentContentPosition + segmentContentSize;
+    if (inputLength != C.LENGTH_UNSET) {
+      segmentEndPosition =
+          segmentEndPosition == C.INDEX_UNSET ? inputLength : min(segmentEndPosition, inputLength);
+    }
+    return segmentEndPosition;
+  }
+
   /**
    * Called when the end of a master element is encountered.
    *
@@ -1934,6 +2005,19 @@ public class MatroskaExtractor implements Extractor {
     }
   }
 
+  /**
+   * Returns whether an element size is the reserved value for an unknown size, which has all of its
+   * value bits set.
+   */
+  private static boolean isUnknownElementSize(long elementSize) {
+    for (int length = 1; length <= 8; length++) {
+      if (elementSize == (1L << (7 * length)) - 1) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   @EnsuresNonNull("extractorOutput")
   private void assertInitialized() {
     checkStateNotNull(extractorOutput);
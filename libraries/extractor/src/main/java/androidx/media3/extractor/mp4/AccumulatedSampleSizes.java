@@ -0,0 +1,184 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.extractor.mp4;
+
+import static androidx.media3.common.util.Assertions.checkArgument;
+import static androidx.media3.common.util.Util.castNonNull;
+
+import androidx.annotation.Nullable;
+import androidx.media3.common.C;
+import androidx.media3.common.util.NullableType;
+import java.util.ArrayList;
+
+/**
+ * For each sample of each track, the accumulated size of all samples which need to be read before
+ * the sample can be used, if the samples of all tracks are read in timestamp order.
+ *
+ * <p>Sizes are calculated on demand by merging the sample tables of the tracks. The state of the
+ * merge is stored every {@link #CHECKPOINT_INTERVAL} samples, so that the size for any sample
+ * that's been merged once can be recalculated by merging at most {@link #CHECKPOINT_INTERVAL}
+ * samples. The sizes for the most recently recalculated range of samples are kept for each track.
+ */
+/* package */ final class AccumulatedSampleSizes {
+
+  /** The number of merged samples between stored merge states. */
+  private static final int CHECKPOINT_INTERVAL = 1024;
+
+  private final TrackSampleTable[] sampleTables;
+  private final int totalSampleCount;
+  private final ArrayList<MergeState> checkpoints;
+  private final MergeState mergedState;
+  private final long[] @NullableType [] cachedSizes;
+  private final int[] cachedFirstSampleIndices;
+  private final int[] cachedSampleCounts;
+
+  /**
+   * Creates an instance.
+   *
+   * @param sampleTables The sample tables of the tracks.
+   */
+  public AccumulatedSampleSizes(TrackSampleTable[] sampleTables) {
+    this.sampleTables = sampleTables;
+    int totalSampleCount = 0;
+    for (TrackSampleTable sampleTable : sampleTables) {
+      totalSampleCount += sampleTable.sampleCount;
+    }
+    this.totalSampleCount = totalSampleCount;
+    checkpoints = new ArrayList<>();
+    mergedState = new MergeState(sampleTables);
+    checkpoints.add(mergedState.copy());
+    cachedSizes = new long[sampleTables.length][];
+    cachedFirstSampleIndices = new int[sampleTables.length];
+    cachedSampleCounts = new int[sampleTables.length];
+  }
+
+  /**
+   * Returns the accumulated size of all samples which need to be read before a sample can be used.
+   *
+   * @param trackIndex The index of the track.
+   * @param sampleIndex The index of the sample in the track.
+   * @return The accumulated size in bytes.
+   */
+  public long get(int trackIndex, int sampleIndex) {
+    checkArgument(sampleIndex < sampleTables[trackIndex].sampleCount);
+    int cachedIndex = sampleIndex - cachedFirstSampleIndices[trackIndex];
+    if (cachedIndex >= 0 && cachedIndex < cachedSampleCounts[trackIndex]) {
+      return castNonNull(cachedSizes[trackIndex])[cachedIndex];
+    }
+
+    while (mergedState.nextSampleIndices[trackIndex] <= sampleIndex) {
+      mergedState.mergeNextSample();
+      if (mergedState.mergedSampleCount % CHECKPOINT_INTERVAL == 0) {
+        checkpoints.add(mergedState.copy());
+      }
+    }
+
+    // The sample is merged within CHECKPOINT_INTERVAL samples of the last checkpoint before it.
+    MergeState state = checkpoints.get(getCheckpointIndex(trackIndex, sampleIndex)).copy();
+    @Nullable long[] sizes = cachedSizes[trackIndex];
+    if (sizes == null) {
+      sizes = new long[CHECKPOINT_INTERVAL];
+      cachedSizes[trackIndex] = sizes;
+    }
+    int sampleCount = 0;
+    cachedFirstSampleIndices[trackIndex] = state.nextSampleIndices[trackIndex];
+    for (int i = 0; i < CHECKPOINT_INTERVAL && state.mergedSampleCount < totalSampleCount; i++) {
+      long accumulatedSize = state.accumulatedSize;
+      if (state.mergeNextSample() == trackIndex) {
+        sizes[sampleCount++] = accumulatedSize;
+      }
+    }
+    cachedSampleCounts[trackIndex] = sampleCount;
+    return sizes[sampleIndex - cachedFirstSampleIndices[trackIndex]];
+  }
+
+  /** Returns the index of the last checkpoint at which a sample hasn't been merged yet. */
+  private int getCheckpointIndex(int trackIndex, int sampleIndex) {
+    int low = 0;
+    int high = checkpoints.size() - 1;
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (checkpoints.get(mid).nextSampleIndices[trackIndex] <= sampleIndex) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low;
+  }
+
+  /** The state of a merge of the samples of all tracks in timestamp order. */
+  private static final class MergeState {
+
+    private final TrackSampleTable[] sampleTables;
+
+    /** The index of the next sample to be merged for each track. */
+    public final int[] nextSampleIndices;
+    /** The timestamp of the next sample to be merged for each track. */
+    public final long[] nextSampleTimesUs;
+    /** The accumulated size of the merged samples, in bytes. */
+    public long accumulatedSize;
+    /** The number of merged samples. */
+    public int mergedSampleCount;
+
+    public MergeState(TrackSampleTable[] sampleTables) {
+      this.sampleTables = sampleTables;
+      nextSampleIndices = new int[sampleTables.length];
+      nextSampleTimesUs = new long[sampleTables.length];
+      for (int i = 0; i < sampleTables.length; i++) {
+        if (sampleTables[i].sampleCount > 0) {
+          nextSampleTimesUs[i] = sampleTables[i].getTimestampUs(0);
+        }
+      }
+    }
+
+    private MergeState(MergeState other) {
+      sampleTables = other.sampleTables;
+      nextSampleIndices = other.nextSampleIndices.clone();
+      nextSampleTimesUs = other.nextSampleTimesUs.clone();
+      accumulatedSize = other.accumulatedSize;
+      mergedSampleCount = other.mergedSampleCount;
+    }
+
+    public MergeState copy() {
+      return new MergeState(this);
+    }
+
+    /**
+     * Merges the next sample in timestamp order, and returns the index of its track. Must only be
+     * called if samples remain.
+     */
+    public int mergeNextSample() {
+      long minTimeUs = Long.MAX_VALUE;
+      int minTimeTrackIndex = C.INDEX_UNSET;
+      for (int i = 0; i < sampleTables.length; i++) {
+        if (nextSampleIndices[i] < sampleTables[i].sampleCount
+            && nextSampleTimesUs[i] <= minTimeUs) {
+          minTimeTrackIndex = i;
+          minTimeUs = nextSampleTimesUs[i];
+        }
+      }
+      TrackSampleTable sampleTable = sampleTables[minTimeTrackIndex];
+      int sampleIndex = nextSampleIndices[minTimeTrackIndex]++;
+      accumulatedSize += sampleTable.getSize(sampleIndex);
+      mergedSampleCount++;
+      if (sampleIndex + 1 < sampleTable.sampleCount) {
+        nextSampleTimesUs[minTimeTrackIndex] = sampleTable.getTimestampUs(sampleIndex + 1);
+      }
+      return minTimeTrackIndex;
+    }
+  }
+}
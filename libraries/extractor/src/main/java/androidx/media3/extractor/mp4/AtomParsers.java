@@ -477,6 +477,30 @@ import java.util.List;
             && remainingTimestampOffsetChanges == 0
             && remainingSynchronizationSamples == 0;
 
+    if (!rechunkFixedSizeSamples && stszAtom != null) {
+      // Avoid materializing the sample table if possible, since it's large for long files.
+      @Nullable
+      LazySampleTable lazySampleTable =
+          LazySampleTable.create(
+              sampleCount,
+              fixedSampleSize,
+              stszAtom.data,
+              chunkOffsets,
+              chunkOffsetsAreLongs,
+              stsc,
+              stts,
+              ctts,
+              stss);
+      @Nullable
+      TrackSampleTable trackSampleTable =
+          lazySampleTable != null
+              ? createLazyTrackSampleTable(track, lazySampleTable, gaplessInfoHolder)
+              : null;
+      if (trackSampleTable != null) {
+        return trackSampleTable;
+      }
+    }
+
     long[] offsets;
     int[] sizes;
     int maximumSize = 0;
@@ -641,25 +665,15 @@ import java.util.List;
           editStartTime
               + Util.scaleLargeTimestamp(
                   track.editListDurations[0], track.timescale, track.movieTimescale);
-      if (canApplyEditWithGaplessInfo(timestamps, duration, editStartTime, editEndTime)) {
-        long paddingTimeUnits = duration - editEndTime;
-        long encoderDelay =
+      if (canApplyEditWithGaplessInfo(timestamps, duration, editStartTime, editEndTime)
+          && setGaplessInfo(
+              track, timestamps[0], duration, editStartTime, editEndTime, gaplessInfoHolder)) {
+        Util.scaleLargeTimestampsInPlace(timestamps, C.MICROS_PER_SECOND, track.timescale);
+        long editedDurationUs =
             Util.scaleLargeTimestamp(
-                editStartTime - timestamps[0], track.format.sampleRate, track.timescale);
-        long encoderPadding =
-            Util.scaleLargeTimestamp(paddingTimeUnits, track.format.sampleRate, track.timescale);
-        if ((encoderDelay != 0 || encoderPadding != 0)
-            && encoderDelay <= Integer.MAX_VALUE
-            && encoderPadding <= Integer.MAX_VALUE) {
-          gaplessInfoHolder.encoderDelay = (int) encoderDelay;
-          gaplessInfoHolder.encoderPadding = (int) encoderPadding;
-          Util.scaleLargeTimestampsInPlace(timestamps, C.MICROS_PER_SECOND, track.timescale);
-          long editedDurationUs =
-              Util.scaleLargeTimestamp(
-                  track.editListDurations[0], C.MICROS_PER_SECOND, track.movieTimescale);
-          return new TrackSampleTable(
-              track, offsets, sizes, maximumSize, timestamps, flags, editedDurationUs);
-        }
+                track.editListDurations[0], C.MICROS_PER_SECOND, track.movieTimescale);
+        return new TrackSampleTable(
+            track, offsets, sizes, maximumSize, timestamps, flags, editedDurationUs);
       }
     }
 
@@ -772,6 +786,92 @@ import java.util.List;
         editedDurationUs);
   }
 
+  /**
+   * Returns a {@link TrackSampleTable} that decodes samples on demand from {@code lazySampleTable},
+   * or {@code null} if applying the track's edit list requires the sample table to be materialized.
+   *
+   * <p>Edit lists are applied in the same way as in {@link #parseStbl}, but only edit lists that
+   * don't discard samples are supported.
+   */
+  @Nullable
+  private static TrackSampleTable createLazyTrackSampleTable(
+      Track track, LazySampleTable lazySampleTable, GaplessInfoHolder gaplessInfoHolder) {
+    long duration = lazySampleTable.duration;
+    if (track.editListDurations == null) {
+      return new TrackSampleTable(
+          track,
+          lazySampleTable.withTimestampsUs(
+              track.timescale, /* timestampOffset= */ 0, /* clampNegativeTimestamps= */ false),
+          Util.scaleLargeTimestamp(duration, C.MICROS_PER_SECOND, track.timescale));
+    }
+    if (track.editListDurations.length != 1) {
+      return null;
+    }
+
+    long editStartTime = checkNotNull(track.editListMediaTimes)[0];
+    long editedDurationUs =
+        Util.scaleLargeTimestamp(
+            track.editListDurations[0], C.MICROS_PER_SECOND, track.movieTimescale);
+    if (track.type == C.TRACK_TYPE_AUDIO && lazySampleTable.sampleCount >= 2) {
+      long editEndTime =
+          editStartTime
+              + Util.scaleLargeTimestamp(
+                  track.editListDurations[0], track.timescale, track.movieTimescale);
+      if (canApplyEditWithGaplessInfo(lazySampleTable, duration, editStartTime, editEndTime)
+          && setGaplessInfo(
+              track,
+              lazySampleTable.getTimestamp(0),
+              duration,
+              editStartTime,
+              editEndTime,
+              gaplessInfoHolder)) {
+        return new TrackSampleTable(
+            track,
+            lazySampleTable.withTimestampsUs(
+                track.timescale, /* timestampOffset= */ 0, /* clampNegativeTimestamps= */ false),
+            editedDurationUs);
+      }
+    }
+
+    if (track.editListDurations[0] == 0) {
+      return new TrackSampleTable(
+          track,
+          lazySampleTable.withTimestampsUs(
+              track.timescale,
+              /* timestampOffset= */ editStartTime,
+              /* clampNegativeTimestamps= */ false),
+          Util.scaleLargeTimestamp(
+              duration - editStartTime, C.MICROS_PER_SECOND, track.timescale));
+    }
+
+    if (editStartTime == -1) {
+      return null;
+    }
+    long editDuration =
+        Util.scaleLargeTimestamp(track.editListDurations[0], track.timescale, track.movieTimescale);
+    int startIndex =
+        lazySampleTable.binarySearchFloor(
+            editStartTime, /* inclusive= */ true, /* stayInBounds= */ true);
+    int endIndex =
+        lazySampleTable.binarySearchCeil(
+            editStartTime + editDuration,
+            /* inclusive= */ track.type == C.TRACK_TYPE_AUDIO,
+            /* stayInBounds= */ false);
+    if (startIndex != 0
+        || endIndex != lazySampleTable.sampleCount
+        || !lazySampleTable.isSyncSample(0)) {
+      // The edit discards samples.
+      return null;
+    }
+    return new TrackSampleTable(
+        track,
+        lazySampleTable.withTimestampsUs(
+            track.timescale,
+            /* timestampOffset= */ editStartTime,
+            /* clampNegativeTimestamps= */ canTrimSamplesWithTimestampChange(track.type)),
+        editedDurationUs);
+  }
+
   private static boolean canTrimSamplesWithTimestampChange(@C.TrackType int trackType) {
     // Audio samples have an inherent duration and we can't trim data by changing the sample
     // timestamp alone.
@@ -1973,6 +2073,52 @@ import java.util.List;
         && editEndTime <= duration;
   }
 
+  /**
+   * Returns whether it's possible to apply the specified edit using gapless playback info, for a
+   * sample table that's decoded on demand.
+   */
+  private static boolean canApplyEditWithGaplessInfo(
+      LazySampleTable lazySampleTable, long duration, long editStartTime, long editEndTime) {
+    int lastIndex = lazySampleTable.sampleCount - 1;
+    int latestDelayIndex = Util.constrainValue(MAX_GAPLESS_TRIM_SIZE_SAMPLES, 0, lastIndex);
+    int earliestPaddingIndex =
+        Util.constrainValue(
+            lazySampleTable.sampleCount - MAX_GAPLESS_TRIM_SIZE_SAMPLES, 0, lastIndex);
+    return lazySampleTable.getTimestamp(0) <= editStartTime
+        && editStartTime < lazySampleTable.getTimestamp(latestDelayIndex)
+        && lazySampleTable.getTimestamp(earliestPaddingIndex) < editEndTime
+        && editEndTime <= duration;
+  }
+
+  /**
+   * Sets the encoder delay and padding needed to apply the specified edit, if they're non-zero and
+   * valid.
+   *
+   * @return Whether {@code gaplessInfoHolder} was populated.
+   */
+  private static boolean setGaplessInfo(
+      Track track,
+      long firstTimestamp,
+      long duration,
+      long editStartTime,
+      long editEndTime,
+      GaplessInfoHolder gaplessInfoHolder) {
+    long paddingTimeUnits = duration - editEndTime;
+    long encoderDelay =
+        Util.scaleLargeTimestamp(
+            editStartTime - firstTimestamp, track.format.sampleRate, track.timescale);
+    long encoderPadding =
+        Util.scaleLargeTimestamp(paddingTimeUnits, track.format.sampleRate, track.timescale);
+    if ((encoderDelay != 0 || encoderPadding != 0)
+        && encoderDelay <= Integer.MAX_VALUE
+        && encoderPadding <= Integer.MAX_VALUE) {
+      gaplessInfoHolder.encoderDelay = (int) encoderDelay;
+      gaplessInfoHolder.encoderPadding = (int) encoderPadding;
+      return true;
+    }
+    return false;
+  }
+
   private AtomParsers() {
     // Prevent instantiation.
   }
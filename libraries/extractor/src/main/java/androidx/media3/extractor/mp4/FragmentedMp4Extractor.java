@@ -162,6 +162,14 @@ public class FragmentedMp4Extractor implements Extractor {
   private final ArrayDeque<MetadataSampleInfo> pendingMetadataSampleInfos;
   @Nullable private final TrackOutput additionalEmsgTrackOutput;
 
+  /**
+   * Buffers for the data of leaf atoms within moof atoms. The buffers are reused for each moof,
+   * since the data of these atoms is no longer referenced once the moof has been parsed.
+   */
+  private final List<ParsableByteArray> reusableMoofLeafAtomData;
+
+  private int reusableMoofLeafAtomDataCount;
+
   private int parserState;
   private int atomType;
   private long atomSize;
@@ -271,6 +279,7 @@ public class FragmentedMp4Extractor implements Extractor {
     scratch = new ParsableByteArray(scratchBytes);
     containerAtoms = new ArrayDeque<>();
     pendingMetadataSampleInfos = new ArrayDeque<>();
+    reusableMoofLeafAtomData = new ArrayList<>();
     trackBundles = new SparseArray<>();
     durationUs = C.TIME_UNSET;
     pendingSeekTimeUs = C.TIME_UNSET;
@@ -322,6 +331,7 @@ public class FragmentedMp4Extractor implements Extractor {
     pendingMetadataSampleBytes = 0;
     pendingSeekTimeUs = timeUs;
     containerAtoms.clear();
+    reusableMoofLeafAtomDataCount = 0;
     enterReadingAtomHeaderState();
   }
 
@@ -438,7 +448,7 @@ public class FragmentedMp4Extractor implements Extractor {
         throw ParserException.createForUnsupportedContainerFeature(
             "Leaf atom with length > 2147483647 (unsupported).");
       }
-      ParsableByteArray atomData = new ParsableByteArray((int) atomSize);
+      ParsableByteArray atomData = createLeafAtomData((int) atomSize);
       System.arraycopy(atomHeader.getData(), 0, atomData.getData(), 0, Atom.HEADER_SIZE);
       this.atomData = atomData;
       parserState = STATE_READING_ATOM_PAYLOAD;
@@ -454,6 +464,25 @@ public class FragmentedMp4Extractor implements Extractor {
     return true;
   }
 
+  private ParsableByteArray createLeafAtomData(int atomSize) {
+    // The data of pssh atoms is retained in the DrmInitData of the output formats.
+    if (atomType == Atom.TYPE_pssh
+        || containerAtoms.isEmpty()
+        || containerAtoms.getLast().type != Atom.TYPE_moof) {
+      return new ParsableByteArray(atomSize);
+    }
+    ParsableByteArray atomData;
+    if (reusableMoofLeafAtomDataCount < reusableMoofLeafAtomData.size()) {
+      atomData = reusableMoofLeafAtomData.get(reusableMoofLeafAtomDataCount);
+      atomData.reset(atomSize);
+    } else {
+      atomData = new ParsableByteArray(atomSize);
+      reusableMoofLeafAtomData.add(atomData);
+    }
+    reusableMoofLeafAtomDataCount++;
+    return atomData;
+  }
+
   private void readAtomPayload(ExtractorInput input) throws IOException {
     int atomPayloadSize = (int) atomSize - atomHeaderBytesRead;
     @Nullable ParsableByteArray atomData = this.atomData;
@@ -573,6 +602,7 @@ public class FragmentedMp4Extractor implements Extractor {
     parseMoof(moof, trackBundles, sideloadedTrack != null, flags, scratchBytes);
 
     @Nullable DrmInitData drmInitData = getDrmInitDataFromAtoms(moof.leafChildren);
+    reusableMoofLeafAtomDataCount = 0;
     if (drmInitData != null) {
       int trackCount = trackBundles.size();
       for (int i = 0; i < trackCount; i++) {
@@ -942,6 +972,10 @@ public class FragmentedMp4Extractor implements Extractor {
     }
 
     DefaultSampleValues defaultSampleValues = trackBundle.defaultSampleValues;
+    if ((atomFlags & 0x3A /* Any of the default_sample_*_present flags */) == 0) {
+      trackBundle.fragment.header = defaultSampleValues;
+      return trackBundle;
+    }
     int defaultSampleDescriptionIndex =
         ((atomFlags & 0x02 /* default_sample_description_index_present */) != 0)
             ? tfhd.readInt() - 1
@@ -1063,6 +1097,8 @@ public class FragmentedMp4Extractor implements Extractor {
     int trackRunEnd = trackRunStart + fragment.trunLength[index];
     long timescale = track.timescale;
     long cumulativeTime = fragment.nextFragmentDecodeTime;
+    long moovSampleTableDurationUs =
+        fragment.nextFragmentDecodeTimeIncludesMoov ? 0 : trackBundle.moovSampleTable.durationUs;
     for (int i = trackRunStart; i < trackRunEnd; i++) {
       // Use trun values if present, otherwise tfhd, otherwise trex.
       int sampleDuration =
@@ -1084,10 +1120,8 @@ public class FragmentedMp4Extractor implements Extractor {
       }
       long samplePresentationTime = cumulativeTime + sampleCompositionTimeOffset - edtsOffset;
       samplePresentationTimesUs[i] =
-          Util.scaleLargeTimestamp(samplePresentationTime, C.MICROS_PER_SECOND, timescale);
-      if (!fragment.nextFragmentDecodeTimeIncludesMoov) {
-        samplePresentationTimesUs[i] += trackBundle.moovSampleTable.durationUs;
-      }
+          Util.scaleLargeTimestamp(samplePresentationTime, C.MICROS_PER_SECOND, timescale)
+              + moovSampleTableDurationUs;
       sampleSizeTable[i] = sampleSize;
       sampleIsSyncFrameTable[i] =
           ((sampleFlags >> 16) & 0x1) == 0 && (!workaroundEveryVideoFrameIsSyncFrame || i == 0);
@@ -1721,21 +1755,21 @@ public class FragmentedMp4Extractor implements Extractor {
     /** Returns the presentation time of the current sample in microseconds. */
     public long getCurrentSamplePresentationTimeUs() {
       return !currentlyInFragment
-          ? moovSampleTable.timestampsUs[currentSampleIndex]
+          ? moovSampleTable.getTimestampUs(currentSampleIndex)
           : fragment.getSamplePresentationTimeUs(currentSampleIndex);
     }
 
     /** Returns the byte offset of the current sample. */
     public long getCurrentSampleOffset() {
       return !currentlyInFragment
-          ? moovSampleTable.offsets[currentSampleIndex]
+          ? moovSampleTable.getOffset(currentSampleIndex)
           : fragment.trunDataPosition[currentTrackRunIndex];
     }
 
     /** Returns the size of the current sample in bytes. */
     public int getCurrentSampleSize() {
       return !currentlyInFragment
-          ? moovSampleTable.sizes[currentSampleIndex]
+          ? moovSampleTable.getSize(currentSampleIndex)
           : fragment.sampleSizeTable[currentSampleIndex];
     }
 
@@ -1743,7 +1777,7 @@ public class FragmentedMp4Extractor implements Extractor {
     public @C.BufferFlags int getCurrentSampleFlags() {
       int flags =
           !currentlyInFragment
-              ? moovSampleTable.flags[currentSampleIndex]
+              ? moovSampleTable.getFlags(currentSampleIndex)
               : (fragment.sampleIsSyncFrameTable[currentSampleIndex] ? C.BUFFER_FLAG_KEY_FRAME : 0);
       if (getEncryptionBoxIfEncrypted() != null) {
         flags |= C.BUFFER_FLAG_ENCRYPTED;
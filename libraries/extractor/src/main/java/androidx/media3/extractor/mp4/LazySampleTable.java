@@ -0,0 +1,622 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.extractor.mp4;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import androidx.annotation.Nullable;
+import androidx.media3.common.C;
+import androidx.media3.common.util.ParsableByteArray;
+import androidx.media3.common.util.Util;
+import java.nio.ByteBuffer;
+
+/**
+ * Sample table data that's decoded on demand from the child boxes of an stbl box (defined in
+ * ISO/IEC 14496-12), rather than being materialized into per-sample arrays.
+ *
+ * <p>The boxes are retained as they are, and a checkpoint holding the decoder state is stored
+ * every {@link #CHECKPOINT_INTERVAL} samples, so that accessing any sample requires decoding at
+ * most {@link #CHECKPOINT_INTERVAL} entries from each box. The heap used by a table is therefore
+ * roughly the size of the boxes it was created from, compared to 24 bytes per sample for a
+ * materialized table.
+ *
+ * <p>Only well-formed sample tables can be decoded on demand. {@link #create} returns {@code null}
+ * for sample tables whose boxes are inconsistent with each other, in which case the table should
+ * be materialized so that inconsistencies are handled in the same way as before.
+ *
+ * <p>Instances are immutable, and can be accessed from any thread.
+ */
+/* package */ final class LazySampleTable {
+
+  /** The number of samples between checkpoints. */
+  private static final int CHECKPOINT_INTERVAL = 32;
+
+  private static final int CHECKPOINT_INTERVAL_SHIFT = 5;
+  private static final int COUNT_POSITION = Atom.FULL_HEADER_SIZE;
+  private static final int ENTRIES_POSITION = Atom.FULL_HEADER_SIZE + 4;
+  private static final int STSZ_ENTRIES_POSITION = Atom.FULL_HEADER_SIZE + 8;
+
+  /**
+   * Returns a sample table that decodes samples on demand, or {@code null} if the boxes are
+   * inconsistent with each other or with {@code sampleCount}.
+   *
+   * <p>The timestamps of the returned table are in the track's timescale, and include the
+   * composition offsets from the ctts box.
+   *
+   * @param sampleCount The number of samples, as declared in the stsz box.
+   * @param fixedSampleSize The size of each sample, or {@link C#LENGTH_UNSET} if sample sizes are
+   *     read from the stsz box.
+   * @param stsz The stsz box.
+   * @param chunkOffsets The stco or co64 box.
+   * @param chunkOffsetsAreLongs Whether {@code chunkOffsets} is a co64 box.
+   * @param stsc The stsc box.
+   * @param stts The stts box.
+   * @param ctts The ctts box, or {@code null} if not present.
+   * @param stss The stss box, or {@code null} if not present.
+   */
+  @Nullable
+  public static LazySampleTable create(
+      int sampleCount,
+      int fixedSampleSize,
+      ParsableByteArray stsz,
+      ParsableByteArray chunkOffsets,
+      boolean chunkOffsetsAreLongs,
+      ParsableByteArray stsc,
+      ParsableByteArray stts,
+      @Nullable ParsableByteArray ctts,
+      @Nullable ParsableByteArray stss) {
+    ByteBuffer stszData = wrap(stsz);
+    ByteBuffer chunkOffsetsData = wrap(chunkOffsets);
+    ByteBuffer stscData = wrap(stsc);
+    ByteBuffer sttsData = wrap(stts);
+    @Nullable ByteBuffer cttsData = ctts != null ? wrap(ctts) : null;
+    @Nullable ByteBuffer stssData = stss != null ? wrap(stss) : null;
+    if (fixedSampleSize == C.LENGTH_UNSET
+        && !hasEntries(stszData, STSZ_ENTRIES_POSITION, sampleCount, /* entrySize= */ 4)) {
+      return null;
+    }
+    int chunkCount = readEntryCount(chunkOffsetsData, chunkOffsetsAreLongs ? 8 : 4);
+    int stscEntryCount = readEntryCount(stscData, /* entrySize= */ 12);
+    int sttsEntryCount = readEntryCount(sttsData, /* entrySize= */ 8);
+    int cttsEntryCount = cttsData != null ? readEntryCount(cttsData, /* entrySize= */ 8) : 0;
+    int syncSampleCount = stssData != null ? readEntryCount(stssData, /* entrySize= */ 4) : 0;
+    if (chunkCount < 0
+        || stscEntryCount <= 0
+        || sttsEntryCount <= 0
+        || cttsEntryCount < 0
+        || syncSampleCount < 0) {
+      return null;
+    }
+    int checkpointCount = (sampleCount + CHECKPOINT_INTERVAL - 1) >> CHECKPOINT_INTERVAL_SHIFT;
+
+    // Read the runs of chunks with the same number of samples per chunk.
+    int[] runFirstChunks = new int[stscEntryCount];
+    int[] runSamplesPerChunk = new int[stscEntryCount];
+    int[] runFirstSamples = new int[stscEntryCount];
+    for (int i = 0; i < stscEntryCount; i++) {
+      int position = ENTRIES_POSITION + i * 12;
+      runFirstChunks[i] = stscData.getInt(position) - 1;
+      runSamplesPerChunk[i] = stscData.getInt(position + 4);
+      if (runSamplesPerChunk[i] < 0
+          || runFirstChunks[i] >= chunkCount
+          || (i == 0 ? runFirstChunks[i] != 0 : runFirstChunks[i] <= runFirstChunks[i - 1])) {
+        return null;
+      }
+    }
+    long chunkSampleCount = 0;
+    for (int i = 0; i < stscEntryCount; i++) {
+      runFirstSamples[i] = (int) chunkSampleCount;
+      int nextRunFirstChunk = i + 1 < stscEntryCount ? runFirstChunks[i + 1] : chunkCount;
+      chunkSampleCount += (long) (nextRunFirstChunk - runFirstChunks[i]) * runSamplesPerChunk[i];
+      if (chunkSampleCount > sampleCount) {
+        return null;
+      }
+    }
+    if (chunkSampleCount != sampleCount) {
+      return null;
+    }
+
+    // Check the sync samples are in order.
+    if (stssData != null) {
+      int previousSyncSample = 0;
+      for (int i = 0; i < syncSampleCount; i++) {
+        int syncSample = stssData.getInt(ENTRIES_POSITION + i * 4);
+        if (syncSample <= previousSyncSample || syncSample > sampleCount) {
+          return null;
+        }
+        previousSyncSample = syncSample;
+      }
+      if (syncSampleCount == 0) {
+        // Empty stss boxes are ignored, which causes all samples to be treated as sync samples.
+        stssData = null;
+      }
+    }
+
+    // Store a checkpoint of the stts decoding state every CHECKPOINT_INTERVAL samples.
+    long[] decodingTimestampCheckpoints = new long[checkpointCount];
+    int[] sttsEntryCheckpoints = new int[checkpointCount];
+    int[] sttsEntrySampleCheckpoints = new int[checkpointCount];
+    long decodingTimestamp = 0;
+    int entryFirstSample = 0;
+    for (int i = 0; i < sttsEntryCount; i++) {
+      int position = ENTRIES_POSITION + i * 8;
+      int entrySampleCount = sttsData.getInt(position);
+      int timestampDelta = sttsData.getInt(position + 4);
+      if (entrySampleCount <= 0
+          || entrySampleCount > sampleCount - entryFirstSample
+          || (i == 0 && timestampDelta < 0)) {
+        return null;
+      }
+      int entryEndSample = entryFirstSample + entrySampleCount;
+      for (int checkpointSample = getNextCheckpointSample(entryFirstSample);
+          checkpointSample < entryEndSample;
+          checkpointSample += CHECKPOINT_INTERVAL) {
+        int checkpointIndex = checkpointSample >> CHECKPOINT_INTERVAL_SHIFT;
+        int entrySample = checkpointSample - entryFirstSample;
+        decodingTimestampCheckpoints[checkpointIndex] =
+            decodingTimestamp + (long) entrySample * timestampDelta;
+        sttsEntryCheckpoints[checkpointIndex] = i;
+        sttsEntrySampleCheckpoints[checkpointIndex] = entrySample;
+      }
+      decodingTimestamp += (long) entrySampleCount * timestampDelta;
+      entryFirstSample = entryEndSample;
+    }
+    if (entryFirstSample != sampleCount) {
+      return null;
+    }
+
+    // Store a checkpoint of the ctts decoding state every CHECKPOINT_INTERVAL samples.
+    int[] cttsEntryCheckpoints = new int[0];
+    int[] cttsEntrySampleCheckpoints = new int[0];
+    int lastTimestampOffset = 0;
+    if (cttsData != null) {
+      cttsEntryCheckpoints = new int[checkpointCount];
+      cttsEntrySampleCheckpoints = new int[checkpointCount];
+      entryFirstSample = 0;
+      for (int i = 0; i < cttsEntryCount; i++) {
+        int position = ENTRIES_POSITION + i * 8;
+        int entrySampleCount = cttsData.getInt(position);
+        if (entrySampleCount < 0 || entrySampleCount > sampleCount - entryFirstSample) {
+          return null;
+        }
+        int entryEndSample = entryFirstSample + entrySampleCount;
+        for (int checkpointSample = getNextCheckpointSample(entryFirstSample);
+            checkpointSample < entryEndSample;
+            checkpointSample += CHECKPOINT_INTERVAL) {
+          int checkpointIndex = checkpointSample >> CHECKPOINT_INTERVAL_SHIFT;
+          cttsEntryCheckpoints[checkpointIndex] = i;
+          cttsEntrySampleCheckpoints[checkpointIndex] = checkpointSample - entryFirstSample;
+        }
+        if (entrySampleCount > 0) {
+          lastTimestampOffset = cttsData.getInt(position + 4);
+        }
+        entryFirstSample = entryEndSample;
+      }
+      if (entryFirstSample != sampleCount) {
+        return null;
+      }
+    }
+
+    // Store the offset of every CHECKPOINT_INTERVAL-th sample, and find the maximum sample size.
+    long[] offsetCheckpoints = new long[checkpointCount];
+    int maximumSize = 0;
+    int sampleIndex = 0;
+    for (int i = 0; i < stscEntryCount; i++) {
+      int nextRunFirstChunk = i + 1 < stscEntryCount ? runFirstChunks[i + 1] : chunkCount;
+      for (int chunk = runFirstChunks[i]; chunk < nextRunFirstChunk; chunk++) {
+        long offset = readChunkOffset(chunkOffsetsData, chunkOffsetsAreLongs, chunk);
+        if (offset < 0) {
+          return null;
+        }
+        for (int j = 0; j < runSamplesPerChunk[i]; j++) {
+          if ((sampleIndex & (CHECKPOINT_INTERVAL - 1)) == 0) {
+            offsetCheckpoints[sampleIndex >> CHECKPOINT_INTERVAL_SHIFT] = offset;
+          }
+          int size = readSampleSize(stszData, fixedSampleSize, sampleIndex);
+          if (size < 0) {
+            return null;
+          }
+          maximumSize = max(maximumSize, size);
+          offset += size;
+          sampleIndex++;
+        }
+      }
+    }
+
+    return new LazySampleTable(
+        sampleCount,
+        maximumSize,
+        /* duration= */ decodingTimestamp + lastTimestampOffset,
+        fixedSampleSize,
+        stszData,
+        chunkOffsetsData,
+        chunkOffsetsAreLongs,
+        runFirstChunks,
+        runSamplesPerChunk,
+        runFirstSamples,
+        sttsData,
+        cttsData,
+        stssData,
+        syncSampleCount,
+        offsetCheckpoints,
+        decodingTimestampCheckpoints,
+        sttsEntryCheckpoints,
+        sttsEntrySampleCheckpoints,
+        cttsEntryCheckpoints,
+        cttsEntrySampleCheckpoints,
+        /* timescale= */ C.TIME_UNSET,
+        /* timestampOffset= */ 0,
+        /* clampNegativeTimestamps= */ false);
+  }
+
+  /** The number of samples. */
+  public final int sampleCount;
+
+  /** The maximum sample size in bytes. */
+  public final int maximumSize;
+
+  /**
+   * The duration of the samples in the track's timescale, including the composition offset of the
+   * last sample.
+   */
+  public final long duration;
+
+  private final int fixedSampleSize;
+  private final ByteBuffer stszData;
+  private final ByteBuffer chunkOffsetsData;
+  private final boolean chunkOffsetsAreLongs;
+  private final int[] runFirstChunks;
+  private final int[] runSamplesPerChunk;
+  private final int[] runFirstSamples;
+  private final ByteBuffer sttsData;
+  @Nullable private final ByteBuffer cttsData;
+  @Nullable private final ByteBuffer stssData;
+  private final int syncSampleCount;
+  private final long[] offsetCheckpoints;
+  private final long[] decodingTimestampCheckpoints;
+  private final int[] sttsEntryCheckpoints;
+  private final int[] sttsEntrySampleCheckpoints;
+  private final int[] cttsEntryCheckpoints;
+  private final int[] cttsEntrySampleCheckpoints;
+  private final long timescale;
+  private final long timestampOffset;
+  private final boolean clampNegativeTimestamps;
+
+  private LazySampleTable(
+      int sampleCount,
+      int maximumSize,
+      long duration,
+      int fixedSampleSize,
+      ByteBuffer stszData,
+      ByteBuffer chunkOffsetsData,
+      boolean chunkOffsetsAreLongs,
+      int[] runFirstChunks,
+      int[] runSamplesPerChunk,
+      int[] runFirstSamples,
+      ByteBuffer sttsData,
+      @Nullable ByteBuffer cttsData,
+      @Nullable ByteBuffer stssData,
+      int syncSampleCount,
+      long[] offsetCheckpoints,
+      long[] decodingTimestampCheckpoints,
+      int[] sttsEntryCheckpoints,
+      int[] sttsEntrySampleCheckpoints,
+      int[] cttsEntryCheckpoints,
+      int[] cttsEntrySampleCheckpoints,
+      long timescale,
+      long timestampOffset,
+      boolean clampNegativeTimestamps) {
+    this.sampleCount = sampleCount;
+    this.maximumSize = maximumSize;
+    this.duration = duration;
+    this.fixedSampleSize = fixedSampleSize;
+    this.stszData = stszData;
+    this.chunkOffsetsData = chunkOffsetsData;
+    this.chunkOffsetsAreLongs = chunkOffsetsAreLongs;
+    this.runFirstChunks = runFirstChunks;
+    this.runSamplesPerChunk = runSamplesPerChunk;
+    this.runFirstSamples = runFirstSamples;
+    this.sttsData = sttsData;
+    this.cttsData = cttsData;
+    this.stssData = stssData;
+    this.syncSampleCount = syncSampleCount;
+    this.offsetCheckpoints = offsetCheckpoints;
+    this.decodingTimestampCheckpoints = decodingTimestampCheckpoints;
+    this.sttsEntryCheckpoints = sttsEntryCheckpoints;
+    this.sttsEntrySampleCheckpoints = sttsEntrySampleCheckpoints;
+    this.cttsEntryCheckpoints = cttsEntryCheckpoints;
+    this.cttsEntrySampleCheckpoints = cttsEntrySampleCheckpoints;
+    this.timescale = timescale;
+    this.timestampOffset = timestampOffset;
+    this.clampNegativeTimestamps = clampNegativeTimestamps;
+  }
+
+  /**
+   * Returns a copy of this table whose timestamps are in microseconds.
+   *
+   * @param timescale The timescale of the track.
+   * @param timestampOffset An offset to subtract from each timestamp before scaling it, in the
+   *     track's timescale.
+   * @param clampNegativeTimestamps Whether negative scaled timestamps should be clamped to zero.
+   */
+  public LazySampleTable withTimestampsUs(
+      long timescale, long timestampOffset, boolean clampNegativeTimestamps) {
+    return new LazySampleTable(
+        sampleCount,
+        maximumSize,
+        duration,
+        fixedSampleSize,
+        stszData,
+        chunkOffsetsData,
+        chunkOffsetsAreLongs,
+        runFirstChunks,
+        runSamplesPerChunk,
+        runFirstSamples,
+        sttsData,
+        cttsData,
+        stssData,
+        syncSampleCount,
+        offsetCheckpoints,
+        decodingTimestampCheckpoints,
+        sttsEntryCheckpoints,
+        sttsEntrySampleCheckpoints,
+        cttsEntryCheckpoints,
+        cttsEntrySampleCheckpoints,
+        timescale,
+        timestampOffset,
+        clampNegativeTimestamps);
+  }
+
+  /** Returns the offset of a sample in bytes. */
+  public long getOffset(int sampleIndex) {
+    int run = getRunIndex(sampleIndex);
+    int chunkInRun = (sampleIndex - runFirstSamples[run]) / runSamplesPerChunk[run];
+    int chunkFirstSample = runFirstSamples[run] + chunkInRun * runSamplesPerChunk[run];
+    int checkpointSample = sampleIndex & ~(CHECKPOINT_INTERVAL - 1);
+    long offset;
+    int firstSample;
+    if (checkpointSample >= chunkFirstSample) {
+      offset = offsetCheckpoints[sampleIndex >> CHECKPOINT_INTERVAL_SHIFT];
+      firstSample = checkpointSample;
+    } else {
+      offset =
+          readChunkOffset(chunkOffsetsData, chunkOffsetsAreLongs, runFirstChunks[run] + chunkInRun);
+      firstSample = chunkFirstSample;
+    }
+    if (fixedSampleSize != C.LENGTH_UNSET) {
+      return offset + (long) (sampleIndex - firstSample) * fixedSampleSize;
+    }
+    for (int i = firstSample; i < sampleIndex; i++) {
+      offset += readSampleSize(stszData, fixedSampleSize, i);
+    }
+    return offset;
+  }
+
+  /** Returns the size of a sample in bytes. */
+  public int getSize(int sampleIndex) {
+    return readSampleSize(stszData, fixedSampleSize, sampleIndex);
+  }
+
+  /**
+   * Returns the timestamp of a sample, in the track's timescale or in microseconds if this table
+   * was returned by {@link #withTimestampsUs}.
+   */
+  public long getTimestamp(int sampleIndex) {
+    long timestamp = getDecodingTimestamp(sampleIndex) + getTimestampOffset(sampleIndex);
+    if (timescale == C.TIME_UNSET) {
+      return timestamp;
+    }
+    long timestampUs =
+        Util.scaleLargeTimestamp(timestamp - timestampOffset, C.MICROS_PER_SECOND, timescale);
+    return clampNegativeTimestamps ? max(0, timestampUs) : timestampUs;
+  }
+
+  /** Returns whether a sample is a synchronization sample. */
+  public boolean isSyncSample(int sampleIndex) {
+    return stssData == null || getPreviousSyncSampleIndex(sampleIndex) == sampleIndex;
+  }
+
+  /**
+   * Returns the index of the last synchronization sample at or before a sample, or {@link
+   * C#INDEX_UNSET} if there is none.
+   */
+  public int getPreviousSyncSampleIndex(int sampleIndex) {
+    if (stssData == null) {
+      return sampleIndex;
+    }
+    int low = 0;
+    int high = syncSampleCount - 1;
+    int index = C.INDEX_UNSET;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int syncSampleIndex = stssData.getInt(ENTRIES_POSITION + mid * 4) - 1;
+      if (syncSampleIndex <= sampleIndex) {
+        index = syncSampleIndex;
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Returns the index of the first synchronization sample at or after a sample, or {@link
+   * C#INDEX_UNSET} if there is none.
+   */
+  public int getNextSyncSampleIndex(int sampleIndex) {
+    if (stssData == null) {
+      return sampleIndex < sampleCount ? sampleIndex : C.INDEX_UNSET;
+    }
+    int low = 0;
+    int high = syncSampleCount - 1;
+    int index = C.INDEX_UNSET;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int syncSampleIndex = stssData.getInt(ENTRIES_POSITION + mid * 4) - 1;
+      if (syncSampleIndex >= sampleIndex) {
+        index = syncSampleIndex;
+        high = mid - 1;
+      } else {
+        low = mid + 1;
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Equivalent to {@link Util#binarySearchFloor(long[], long, boolean, boolean)} applied to the
+   * sample timestamps returned by {@link #getTimestamp(int)}.
+   */
+  public int binarySearchFloor(long timestamp, boolean inclusive, boolean stayInBounds) {
+    int index = binarySearch(timestamp);
+    if (index < 0) {
+      index = -(index + 2);
+    } else {
+      while (--index >= 0 && getTimestamp(index) == timestamp) {}
+      if (inclusive) {
+        index++;
+      }
+    }
+    return stayInBounds ? max(0, index) : index;
+  }
+
+  /**
+   * Equivalent to {@link Util#binarySearchCeil(long[], long, boolean, boolean)} applied to the
+   * sample timestamps returned by {@link #getTimestamp(int)}.
+   */
+  public int binarySearchCeil(long timestamp, boolean inclusive, boolean stayInBounds) {
+    int index = binarySearch(timestamp);
+    if (index < 0) {
+      index = ~index;
+    } else {
+      while (++index < sampleCount && getTimestamp(index) == timestamp) {}
+      if (inclusive) {
+        index--;
+      }
+    }
+    return stayInBounds ? min(sampleCount - 1, index) : index;
+  }
+
+  // Probes the same samples as Arrays.binarySearch, so that results match for unsorted timestamps.
+  private int binarySearch(long timestamp) {
+    int low = 0;
+    int high = sampleCount - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      long midTimestamp = getTimestamp(mid);
+      if (midTimestamp < timestamp) {
+        low = mid + 1;
+      } else if (midTimestamp > timestamp) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -(low + 1);
+  }
+
+  private long getDecodingTimestamp(int sampleIndex) {
+    int checkpointIndex = sampleIndex >> CHECKPOINT_INTERVAL_SHIFT;
+    long decodingTimestamp = decodingTimestampCheckpoints[checkpointIndex];
+    int entry = sttsEntryCheckpoints[checkpointIndex];
+    int entrySample = sttsEntrySampleCheckpoints[checkpointIndex];
+    int remainingSamples = sampleIndex & (CHECKPOINT_INTERVAL - 1);
+    while (remainingSamples > 0) {
+      int position = ENTRIES_POSITION + entry * 8;
+      int entryRemainingSamples = sttsData.getInt(position) - entrySample;
+      int samples = min(remainingSamples, entryRemainingSamples);
+      decodingTimestamp += (long) samples * sttsData.getInt(position + 4);
+      remainingSamples -= samples;
+      entry++;
+      entrySample = 0;
+    }
+    return decodingTimestamp;
+  }
+
+  private int getTimestampOffset(int sampleIndex) {
+    if (cttsData == null) {
+      return 0;
+    }
+    int checkpointIndex = sampleIndex >> CHECKPOINT_INTERVAL_SHIFT;
+    int entry = cttsEntryCheckpoints[checkpointIndex];
+    int remainingSamples =
+        (sampleIndex & (CHECKPOINT_INTERVAL - 1)) + cttsEntrySampleCheckpoints[checkpointIndex];
+    while (true) {
+      int position = ENTRIES_POSITION + entry * 8;
+      int entrySampleCount = cttsData.getInt(position);
+      if (remainingSamples < entrySampleCount) {
+        return cttsData.getInt(position + 4);
+      }
+      remainingSamples -= entrySampleCount;
+      entry++;
+    }
+  }
+
+  /** Returns the index of the last chunk run whose first sample is at or before a sample. */
+  private int getRunIndex(int sampleIndex) {
+    int low = 0;
+    int high = runFirstSamples.length - 1;
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (runFirstSamples[mid] <= sampleIndex) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low;
+  }
+
+  private static int getNextCheckpointSample(int sampleIndex) {
+    return (sampleIndex + CHECKPOINT_INTERVAL - 1) & ~(CHECKPOINT_INTERVAL - 1);
+  }
+
+  private static int readSampleSize(ByteBuffer stszData, int fixedSampleSize, int sampleIndex) {
+    return fixedSampleSize != C.LENGTH_UNSET
+        ? fixedSampleSize
+        : stszData.getInt(STSZ_ENTRIES_POSITION + sampleIndex * 4);
+  }
+
+  private static long readChunkOffset(
+      ByteBuffer chunkOffsetsData, boolean chunkOffsetsAreLongs, int chunk) {
+    return chunkOffsetsAreLongs
+        ? chunkOffsetsData.getLong(ENTRIES_POSITION + chunk * 8)
+        : chunkOffsetsData.getInt(ENTRIES_POSITION + chunk * 4) & 0xFFFFFFFFL;
+  }
+
+  /**
+   * Returns the number of entries in a box whose entry count follows its full header, or -1 if the
+   * box is too short to hold them.
+   */
+  private static int readEntryCount(ByteBuffer data, int entrySize) {
+    if (data.limit() < ENTRIES_POSITION) {
+      return -1;
+    }
+    int entryCount = data.getInt(COUNT_POSITION);
+    return hasEntries(data, ENTRIES_POSITION, entryCount, entrySize) ? entryCount : -1;
+  }
+
+  private static boolean hasEntries(
+      ByteBuffer data, int entriesPosition, int entryCount, int entrySize) {
+    return entryCount >= 0 && entriesPosition + (long) entryCount * entrySize <= data.limit();
+  }
+
+  private static ByteBuffer wrap(ParsableByteArray data) {
+    return ByteBuffer.wrap(data.getData(), /* offset= */ 0, data.limit()).slice();
+  }
+}
@@ -15,11 +15,17 @@
  */
 package androidx.media3.extractor.mp4;
 
+import androidx.annotation.Nullable;
 import androidx.media3.common.C;
 import androidx.media3.common.util.Assertions;
 import androidx.media3.common.util.Util;
 
-/** Sample table for a track in an MP4 file. */
+/**
+ * Sample table for a track in an MP4 file.
+ *
+ * <p>The table is either materialized into per-sample arrays, or decoded on demand from a {@link
+ * LazySampleTable}.
+ */
 /* package */ final class TrackSampleTable {
 
   /** The track corresponding to this sample table. */
@@ -28,24 +34,18 @@ import androidx.media3.common.util.Util;
   /** Number of samples. */
   public final int sampleCount;
 
-  /** Sample offsets in bytes. */
-  public final long[] offsets;
-
-  /** Sample sizes in bytes. */
-  public final int[] sizes;
-
-  /** Maximum sample size in {@link #sizes}. */
+  /** Maximum sample size. */
   public final int maximumSize;
 
-  /** Sample timestamps in microseconds. */
-  public final long[] timestampsUs;
-
-  /** Sample flags. */
-  public final int[] flags;
-
   /** The duration of the track sample table in microseconds. */
   public final long durationUs;
 
+  private final long[] offsets;
+  private final int[] sizes;
+  private final long[] timestampsUs;
+  private final int[] flags;
+  @Nullable private final LazySampleTable lazySampleTable;
+
   public TrackSampleTable(
       Track track,
       long[] offsets,
@@ -66,11 +66,61 @@ import androidx.media3.common.util.Util;
     this.flags = flags;
     this.durationUs = durationUs;
     sampleCount = offsets.length;
+    lazySampleTable = null;
     if (flags.length > 0) {
       flags[flags.length - 1] |= C.BUFFER_FLAG_LAST_SAMPLE;
     }
   }
 
+  /**
+   * Creates a table that decodes samples on demand.
+   *
+   * @param track The track corresponding to this sample table.
+   * @param lazySampleTable The samples, with timestamps in microseconds.
+   * @param durationUs The duration of the track sample table in microseconds.
+   */
+  public TrackSampleTable(Track track, LazySampleTable lazySampleTable, long durationUs) {
+    this.track = track;
+    this.lazySampleTable = lazySampleTable;
+    this.durationUs = durationUs;
+    sampleCount = lazySampleTable.sampleCount;
+    maximumSize = lazySampleTable.maximumSize;
+    offsets = new long[0];
+    sizes = new int[0];
+    timestampsUs = new long[0];
+    flags = new int[0];
+  }
+
+  /** Returns the offset of a sample in bytes. */
+  public long getOffset(int sampleIndex) {
+    return lazySampleTable != null ? lazySampleTable.getOffset(sampleIndex) : offsets[sampleIndex];
+  }
+
+  /** Returns the size of a sample in bytes. */
+  public int getSize(int sampleIndex) {
+    return lazySampleTable != null ? lazySampleTable.getSize(sampleIndex) : sizes[sampleIndex];
+  }
+
+  /** Returns the timestamp of a sample in microseconds. */
+  public long getTimestampUs(int sampleIndex) {
+    return lazySampleTable != null
+        ? lazySampleTable.getTimestamp(sampleIndex)
+        : timestampsUs[sampleIndex];
+  }
+
+  /** Returns the flags of a sample. */
+  public @C.BufferFlags int getFlags(int sampleIndex) {
+    if (lazySampleTable == null) {
+      return flags[sampleIndex];
+    }
+    @C.BufferFlags
+    int flags = lazySampleTable.isSyncSample(sampleIndex) ? C.BUFFER_FLAG_KEY_FRAME : 0;
+    if (sampleIndex == sampleCount - 1) {
+      flags |= C.BUFFER_FLAG_LAST_SAMPLE;
+    }
+    return flags;
+  }
+
   /**
    * Returns the sample index of the closest synchronization sample at or before the given
    * timestamp, if one is available.
@@ -81,6 +131,12 @@ import androidx.media3.common.util.Util;
   public int getIndexOfEarlierOrEqualSynchronizationSample(long timeUs) {
     // Video frame timestamps may not be sorted, so the behavior of this call can be undefined.
     // Frames are not reordered past synchronization samples so this works in practice.
+    if (lazySampleTable != null) {
+      int startIndex = lazySampleTable.binarySearchFloor(timeUs, true, false);
+      return startIndex >= 0
+          ? lazySampleTable.getPreviousSyncSampleIndex(startIndex)
+          : C.INDEX_UNSET;
+    }
     int startIndex = Util.binarySearchFloor(timestampsUs, timeUs, true, false);
     for (int i = startIndex; i >= 0; i--) {
       if ((flags[i] & C.BUFFER_FLAG_KEY_FRAME) != 0) {
@@ -98,6 +154,10 @@ import androidx.media3.common.util.Util;
    * @return index Index of the synchronization sample, or {@link C#INDEX_UNSET} if none.
    */
   public int getIndexOfLaterOrEqualSynchronizationSample(long timeUs) {
+    if (lazySampleTable != null) {
+      int startIndex = lazySampleTable.binarySearchCeil(timeUs, true, false);
+      return lazySampleTable.getNextSyncSampleIndex(startIndex);
+    }
     int startIndex = Util.binarySearchCeil(timestampsUs, timeUs, true, false);
     for (int i = startIndex; i < timestampsUs.length; i++) {
       if ((flags[i] & C.BUFFER_FLAG_KEY_FRAME) != 0) {
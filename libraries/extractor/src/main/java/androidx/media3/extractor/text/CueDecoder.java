@@ -15,44 +15,220 @@
  */
 package androidx.media3.extractor.text;
 
-import android.os.Bundle;
-import android.os.Parcel;
+import static androidx.media3.common.util.Assertions.checkArgument;
+
+import android.graphics.Bitmap;
+import android.text.Layout;
+import android.text.SpannableString;
+import android.text.style.AbsoluteSizeSpan;
+import android.text.style.BackgroundColorSpan;
+import android.text.style.ForegroundColorSpan;
+import android.text.style.RelativeSizeSpan;
+import android.text.style.StrikethroughSpan;
+import android.text.style.StyleSpan;
+import android.text.style.TypefaceSpan;
+import android.text.style.UnderlineSpan;
+import androidx.annotation.Nullable;
 import androidx.media3.common.text.Cue;
-import androidx.media3.common.util.Assertions;
-import androidx.media3.common.util.BundleableUtil;
+import androidx.media3.common.text.HorizontalTextInVerticalContextSpan;
+import androidx.media3.common.text.RubySpan;
+import androidx.media3.common.text.TextEmphasisSpan;
+import androidx.media3.common.util.ParsableByteArray;
 import androidx.media3.common.util.UnstableApi;
-import java.util.ArrayList;
+import com.google.common.collect.ImmutableList;
 import java.util.List;
 
 /** Decodes data encoded by {@link CueEncoder}. */
 @UnstableApi
 public final class CueDecoder {
 
-  /** Key under which the list of cues is saved in the {@link Bundle}. */
-  /* package */ static final String BUNDLE_FIELD_CUES = "c";
+  /** The version of the encoded format. */
+  /* package */ static final int VERSION = 1;
+
+  /** Flag set on cues that have text. */
+  /* package */ static final int CUE_FLAG_HAS_TEXT = 1;
+
+  /** Flag set on cues whose text is a {@link android.text.Spanned}. */
+  /* package */ static final int CUE_FLAG_TEXT_IS_SPANNED = 1 << 1;
+
+  /** Flag set on cues that have a bitmap. */
+  /* package */ static final int CUE_FLAG_HAS_BITMAP = 1 << 2;
+
+  /** Flag set on cues for which {@link Cue#windowColorSet} is true. */
+  /* package */ static final int CUE_FLAG_WINDOW_COLOR_SET = 1 << 3;
+
+  /** The length written in place of a null string. */
+  /* package */ static final int STRING_LENGTH_NULL = -1;
+
+  /** Bitmap pixels stored as one ARGB int per pixel. */
+  /* package */ static final int BITMAP_ENCODING_RAW = 0;
 
-  /** Key under which the duration is saved in the {@link Bundle}. */
-  /* package */ static final String BUNDLE_FIELD_DURATION_US = "d";
+  /** Bitmap pixels stored as (run length, ARGB int) pairs. */
+  /* package */ static final int BITMAP_ENCODING_RUN_LENGTH = 1;
+
+  /* package */ static final int SPAN_TYPE_STYLE = 0;
+  /* package */ static final int SPAN_TYPE_UNDERLINE = 1;
+  /* package */ static final int SPAN_TYPE_STRIKETHROUGH = 2;
+  /* package */ static final int SPAN_TYPE_FOREGROUND_COLOR = 3;
+  /* package */ static final int SPAN_TYPE_BACKGROUND_COLOR = 4;
+  /* package */ static final int SPAN_TYPE_ABSOLUTE_SIZE = 5;
+  /* package */ static final int SPAN_TYPE_RELATIVE_SIZE = 6;
+  /* package */ static final int SPAN_TYPE_TYPEFACE = 7;
+  /* package */ static final int SPAN_TYPE_RUBY = 8;
+  /* package */ static final int SPAN_TYPE_TEXT_EMPHASIS = 9;
+  /* package */ static final int SPAN_TYPE_HORIZONTAL_TEXT_IN_VERTICAL_CONTEXT = 10;
+
+  private static final Layout.Alignment[] ALIGNMENT_VALUES = Layout.Alignment.values();
+
+  private final ParsableByteArray data;
+
+  private int[] pixels;
+
+  public CueDecoder() {
+    data = new ParsableByteArray();
+    pixels = new int[0];
+  }
 
   /**
    * Decodes a byte array into a {@link CuesWithTiming} instance.
    *
    * @param startTimeUs The value for {@link CuesWithTiming#startTimeUs} (this is not encoded in
    *     {@code bytes}).
-   * @param bytes Byte array produced by {@link CueEncoder#encode(List, long)}
+   * @param bytes Byte array produced by {@link CueEncoder#encode(List, long)}. The array may
+   *     contain additional data after the encoded cues, which is ignored.
    * @return Decoded {@link CuesWithTiming} instance.
+   * @throws IllegalArgumentException If {@code bytes} was encoded with an unsupported version of
+   *     the format.
    */
   public CuesWithTiming decode(long startTimeUs, byte[] bytes) {
-    Parcel parcel = Parcel.obtain();
-    parcel.unmarshall(bytes, 0, bytes.length);
-    parcel.setDataPosition(0);
-    Bundle bundle = parcel.readBundle(Bundle.class.getClassLoader());
-    parcel.recycle();
-    ArrayList<Bundle> bundledCues =
-        Assertions.checkNotNull(bundle.getParcelableArrayList(BUNDLE_FIELD_CUES));
-    return new CuesWithTiming(
-        BundleableUtil.fromBundleList(Cue.CREATOR, bundledCues),
-        startTimeUs,
-        bundle.getLong(BUNDLE_FIELD_DURATION_US));
+    data.reset(bytes);
+    int version = data.readUnsignedByte();
+    checkArgument(version == VERSION, "Unsupported cue encoding version: " + version);
+    long durationUs = data.readLong();
+    int cueCount = data.readInt();
+    ImmutableList.Builder<Cue> cues = ImmutableList.builderWithExpectedSize(cueCount);
+    for (int i = 0; i < cueCount; i++) {
+      cues.add(readCue());
+    }
+    return new CuesWithTiming(cues.build(), startTimeUs, durationUs);
+  }
+
+  // Internal methods.
+
+  private Cue readCue() {
+    int flags = data.readUnsignedByte();
+    Cue.Builder builder =
+        new Cue.Builder()
+            .setTextAlignment(readAlignment())
+            .setMultiRowAlignment(readAlignment())
+            .setLine(data.readFloat(), data.readInt())
+            .setLineAnchor(data.readInt())
+            .setPosition(data.readFloat())
+            .setPositionAnchor(data.readInt())
+            .setTextSize(data.readFloat(), data.readInt())
+            .setSize(data.readFloat())
+            .setBitmapHeight(data.readFloat())
+            .setWindowColor(data.readInt())
+            .setVerticalType(data.readInt())
+            .setShearDegrees(data.readFloat());
+    if ((flags & CUE_FLAG_WINDOW_COLOR_SET) == 0) {
+      builder.clearWindowColor();
+    }
+    if ((flags & CUE_FLAG_HAS_TEXT) != 0) {
+      builder.setText(readText((flags & CUE_FLAG_TEXT_IS_SPANNED) != 0));
+    }
+    if ((flags & CUE_FLAG_HAS_BITMAP) != 0) {
+      builder.setBitmap(readBitmap());
+    }
+    return builder.build();
+  }
+
+  @Nullable
+  private Layout.Alignment readAlignment() {
+    int ordinal = data.readUnsignedByte();
+    return ordinal == 0 ? null : ALIGNMENT_VALUES[ordinal - 1];
+  }
+
+  private CharSequence readText(boolean isSpanned) {
+    String text = data.readString(data.readInt());
+    if (!isSpanned) {
+      return text;
+    }
+    SpannableString spannable = new SpannableString(text);
+    int spanCount = data.readInt();
+    for (int i = 0; i < spanCount; i++) {
+      int spanType = data.readUnsignedByte();
+      int start = data.readInt();
+      int end = data.readInt();
+      int spanFlags = data.readInt();
+      spannable.setSpan(readSpan(spanType), start, end, spanFlags);
+    }
+    return spannable;
+  }
+
+  private Object readSpan(int spanType) {
+    switch (spanType) {
+      case SPAN_TYPE_STYLE:
+        return new StyleSpan(data.readInt());
+      case SPAN_TYPE_UNDERLINE:
+        return new UnderlineSpan();
+      case SPAN_TYPE_STRIKETHROUGH:
+        return new StrikethroughSpan();
+      case SPAN_TYPE_FOREGROUND_COLOR:
+        return new ForegroundColorSpan(data.readInt());
+      case SPAN_TYPE_BACKGROUND_COLOR:
+        return new BackgroundColorSpan(data.readInt());
+      case SPAN_TYPE_ABSOLUTE_SIZE:
+        int size = data.readInt();
+        return new AbsoluteSizeSpan(size, /* dip= */ data.readUnsignedByte() != 0);
+      case SPAN_TYPE_RELATIVE_SIZE:
+        return new RelativeSizeSpan(data.readFloat());
+      case SPAN_TYPE_TYPEFACE:
+        @Nullable String family = readNullableString();
+        return new TypefaceSpan(family);
+      case SPAN_TYPE_RUBY:
+        String rubyText = data.readString(data.readInt());
+        return new RubySpan(rubyText, /* position= */ data.readInt());
+      case SPAN_TYPE_TEXT_EMPHASIS:
+        int markShape = data.readInt();
+        int markFill = data.readInt();
+        return new TextEmphasisSpan(markShape, markFill, /* position= */ data.readInt());
+      case SPAN_TYPE_HORIZONTAL_TEXT_IN_VERTICAL_CONTEXT:
+        return new HorizontalTextInVerticalContextSpan();
+      default:
+        throw new IllegalArgumentException("Unsupported span type: " + spanType);
+    }
+  }
+
+  @Nullable
+  private String readNullableString() {
+    int length = data.readInt();
+    return length == STRING_LENGTH_NULL ? null : data.readString(length);
+  }
+
+  private Bitmap readBitmap() {
+    int width = data.readInt();
+    int height = data.readInt();
+    int encoding = data.readUnsignedByte();
+    int pixelCount = width * height;
+    if (pixels.length < pixelCount) {
+      pixels = new int[pixelCount];
+    }
+    if (encoding == BITMAP_ENCODING_RUN_LENGTH) {
+      int pixelIndex = 0;
+      while (pixelIndex < pixelCount) {
+        int runLength = data.readInt();
+        int color = data.readInt();
+        for (int i = 0; i < runLength; i++) {
+          pixels[pixelIndex++] = color;
+        }
+      }
+    } else {
+      for (int i = 0; i < pixelCount; i++) {
+        pixels[i] = data.readInt();
+      }
+    }
+    return Bitmap.createBitmap(
+        pixels, /* offset= */ 0, /* stride= */ width, width, height, Bitmap.Config.ARGB_8888);
   }
 }
@@ -15,18 +15,52 @@
  */
 package androidx.media3.extractor.text;
 
-import android.os.Bundle;
-import android.os.Parcel;
+import static java.lang.Math.max;
+
+import android.graphics.Bitmap;
+import android.text.Layout;
+import android.text.Spanned;
+import android.text.style.AbsoluteSizeSpan;
+import android.text.style.BackgroundColorSpan;
+import android.text.style.ForegroundColorSpan;
+import android.text.style.RelativeSizeSpan;
+import android.text.style.StrikethroughSpan;
+import android.text.style.StyleSpan;
+import android.text.style.TypefaceSpan;
+import android.text.style.UnderlineSpan;
+import androidx.annotation.Nullable;
+import androidx.media3.common.C;
 import androidx.media3.common.text.Cue;
-import androidx.media3.common.util.BundleableUtil;
+import androidx.media3.common.text.HorizontalTextInVerticalContextSpan;
+import androidx.media3.common.text.RubySpan;
+import androidx.media3.common.text.TextEmphasisSpan;
+import androidx.media3.common.util.ParsableByteArray;
 import androidx.media3.common.util.UnstableApi;
-import java.util.ArrayList;
+import androidx.media3.common.util.Util;
+import java.util.Arrays;
 import java.util.List;
 
-/** Encodes data that can be decoded by {@link CueDecoder}. */
+/**
+ * Encodes data that can be decoded by {@link CueDecoder}.
+ *
+ * <p>Cues are written in a compact binary format. The following spans are preserved: {@link
+ * StyleSpan}, {@link UnderlineSpan}, {@link StrikethroughSpan}, {@link ForegroundColorSpan}, {@link
+ * BackgroundColorSpan}, {@link AbsoluteSizeSpan}, {@link RelativeSizeSpan}, {@link TypefaceSpan},
+ * {@link RubySpan}, {@link TextEmphasisSpan} and {@link HorizontalTextInVerticalContextSpan}. Other
+ * spans are dropped. Bitmaps are decoded with {@link Bitmap.Config#ARGB_8888}.
+ */
 @UnstableApi
 public final class CueEncoder {
 
+  private byte[] buffer;
+  private int position;
+  private int[] pixels;
+
+  public CueEncoder() {
+    buffer = Util.EMPTY_BYTE_ARRAY;
+    pixels = new int[0];
+  }
+
   /**
    * Encodes a {@link Cue} list and duration to a byte array that can be decoded by {@link
    * CueDecoder#decode(long, byte[])}.
@@ -36,15 +70,255 @@ public final class CueEncoder {
    * @return The serialized byte array.
    */
   public byte[] encode(List<Cue> cues, long durationUs) {
-    ArrayList<Bundle> bundledCues = BundleableUtil.toBundleArrayList(cues);
-    Bundle allCuesBundle = new Bundle();
-    allCuesBundle.putParcelableArrayList(CueDecoder.BUNDLE_FIELD_CUES, bundledCues);
-    allCuesBundle.putLong(CueDecoder.BUNDLE_FIELD_DURATION_US, durationUs);
-    Parcel parcel = Parcel.obtain();
-    parcel.writeBundle(allCuesBundle);
-    byte[] bytes = parcel.marshall();
-    parcel.recycle();
-
-    return bytes;
+    writeCues(cues, durationUs);
+    return Arrays.copyOf(buffer, position);
+  }
+
+  /**
+   * Encodes a {@link Cue} list and duration into a buffer owned by this encoder, and resets {@code
+   * output} to wrap it. The encoded data can be decoded by {@link CueDecoder#decode(long,
+   * byte[])}.
+   *
+   * <p>This avoids allocating a new array for each call to {@link #encode(List, long)}. The data
+   * wrapped by {@code output} is only valid until the next call to either method.
+   *
+   * @param cues Cues to be encoded.
+   * @param durationUs Duration to be encoded, in microseconds.
+   * @param output The {@link ParsableByteArray} to reset. Its {@link ParsableByteArray#limit()} is
+   *     set to the length of the encoded data.
+   */
+  public void encode(List<Cue> cues, long durationUs, ParsableByteArray output) {
+    writeCues(cues, durationUs);
+    output.reset(buffer, position);
+  }
+
+  // Internal methods.
+
+  private void writeCues(List<Cue> cues, long durationUs) {
+    position = 0;
+    writeByte(CueDecoder.VERSION);
+    writeLong(durationUs);
+    writeInt(cues.size());
+    for (int i = 0; i < cues.size(); i++) {
+      writeCue(cues.get(i));
+    }
+  }
+
+  private void writeCue(Cue cue) {
+    int flags = 0;
+    if (cue.text != null) {
+      flags |= CueDecoder.CUE_FLAG_HAS_TEXT;
+      if (cue.text instanceof Spanned) {
+        flags |= CueDecoder.CUE_FLAG_TEXT_IS_SPANNED;
+      }
+    }
+    if (cue.bitmap != null) {
+      flags |= CueDecoder.CUE_FLAG_HAS_BITMAP;
+    }
+    if (cue.windowColorSet) {
+      flags |= CueDecoder.CUE_FLAG_WINDOW_COLOR_SET;
+    }
+    writeByte(flags);
+    writeAlignment(cue.textAlignment);
+    writeAlignment(cue.multiRowAlignment);
+    writeFloat(cue.line);
+    writeInt(cue.lineType);
+    writeInt(cue.lineAnchor);
+    writeFloat(cue.position);
+    writeInt(cue.positionAnchor);
+    writeFloat(cue.textSize);
+    writeInt(cue.textSizeType);
+    writeFloat(cue.size);
+    writeFloat(cue.bitmapHeight);
+    writeInt(cue.windowColor);
+    writeInt(cue.verticalType);
+    writeFloat(cue.shearDegrees);
+    if (cue.text != null) {
+      writeText(cue.text);
+    }
+    if (cue.bitmap != null) {
+      writeBitmap(cue.bitmap);
+    }
+  }
+
+  private void writeAlignment(@Nullable Layout.Alignment alignment) {
+    writeByte(alignment == null ? 0 : alignment.ordinal() + 1);
+  }
+
+  private void writeText(CharSequence text) {
+    writeString(text.toString());
+    if (!(text instanceof Spanned)) {
+      return;
+    }
+    Spanned spanned = (Spanned) text;
+    Object[] spans = spanned.getSpans(0, spanned.length(), Object.class);
+    int spanCountPosition = position;
+    writeInt(0);
+    int spanCount = 0;
+    for (Object span : spans) {
+      int spanType = getSpanType(span);
+      if (spanType == C.INDEX_UNSET) {
+        continue;
+      }
+      writeByte(spanType);
+      writeInt(spanned.getSpanStart(span));
+      writeInt(spanned.getSpanEnd(span));
+      writeInt(spanned.getSpanFlags(span));
+      writeSpanParameters(spanType, span);
+      spanCount++;
+    }
+    int endPosition = position;
+    position = spanCountPosition;
+    writeInt(spanCount);
+    position = endPosition;
+  }
+
+  private static int getSpanType(Object span) {
+    if (span instanceof StyleSpan) {
+      return CueDecoder.SPAN_TYPE_STYLE;
+    } else if (span instanceof UnderlineSpan) {
+      return CueDecoder.SPAN_TYPE_UNDERLINE;
+    } else if (span instanceof StrikethroughSpan) {
+      return CueDecoder.SPAN_TYPE_STRIKETHROUGH;
+    } else if (span instanceof ForegroundColorSpan) {
+      return CueDecoder.SPAN_TYPE_FOREGROUND_COLOR;
+    } else if (span instanceof BackgroundColorSpan) {
+      return CueDecoder.SPAN_TYPE_BACKGROUND_COLOR;
+    } else if (span instanceof AbsoluteSizeSpan) {
+      return CueDecoder.SPAN_TYPE_ABSOLUTE_SIZE;
+    } else if (span instanceof RelativeSizeSpan) {
+      return CueDecoder.SPAN_TYPE_RELATIVE_SIZE;
+    } else if (span instanceof TypefaceSpan) {
+      return CueDecoder.SPAN_TYPE_TYPEFACE;
+    } else if (span instanceof RubySpan) {
+      return CueDecoder.SPAN_TYPE_RUBY;
+    } else if (span instanceof TextEmphasisSpan) {
+      return CueDecoder.SPAN_TYPE_TEXT_EMPHASIS;
+    } else if (span instanceof HorizontalTextInVerticalContextSpan) {
+      return CueDecoder.SPAN_TYPE_HORIZONTAL_TEXT_IN_VERTICAL_CONTEXT;
+    } else {
+      return C.INDEX_UNSET;
+    }
+  }
+
+  private void writeSpanParameters(int spanType, Object span) {
+    switch (spanType) {
+      case CueDecoder.SPAN_TYPE_STYLE:
+        writeInt(((StyleSpan) span).getStyle());
+        break;
+      case CueDecoder.SPAN_TYPE_FOREGROUND_COLOR:
+        writeInt(((ForegroundColorSpan) span).getForegroundColor());
+        break;
+      case CueDecoder.SPAN_TYPE_BACKGROUND_COLOR:
+        writeInt(((BackgroundColorSpan) span).getBackgroundColor());
+        break;
+      case CueDecoder.SPAN_TYPE_ABSOLUTE_SIZE:
+        AbsoluteSizeSpan absoluteSizeSpan = (AbsoluteSizeSpan) span;
+        writeInt(absoluteSizeSpan.getSize());
+        writeByte(absoluteSizeSpan.getDip() ? 1 : 0);
+        break;
+      case CueDecoder.SPAN_TYPE_RELATIVE_SIZE:
+        writeFloat(((RelativeSizeSpan) span).getSizeChange());
+        break;
+      case CueDecoder.SPAN_TYPE_TYPEFACE:
+        writeNullableString(((TypefaceSpan) span).getFamily());
+        break;
+      case CueDecoder.SPAN_TYPE_RUBY:
+        RubySpan rubySpan = (RubySpan) span;
+        writeString(rubySpan.rubyText);
+        writeInt(rubySpan.position);
+        break;
+      case CueDecoder.SPAN_TYPE_TEXT_EMPHASIS:
+        TextEmphasisSpan textEmphasisSpan = (TextEmphasisSpan) span;
+        writeInt(textEmphasisSpan.markShape);
+        writeInt(textEmphasisSpan.markFill);
+        writeInt(textEmphasisSpan.position);
+        break;
+      default:
+        // The span has no parameters.
+        break;
+    }
+  }
+
+  private void writeBitmap(Bitmap bitmap) {
+    int width = bitmap.getWidth();
+    int height = bitmap.getHeight();
+    int pixelCount = width * height;
+    if (pixels.length < pixelCount) {
+      pixels = new int[pixelCount];
+    }
+    bitmap.getPixels(pixels, /* offset= */ 0, /* stride= */ width, 0, 0, width, height);
+    writeInt(width);
+    writeInt(height);
+    // Subtitle bitmaps usually consist of large areas of a single color, so they're run-length
+    // encoded unless that would make them larger.
+    int runCount = 0;
+    for (int i = 0; i < pixelCount; i++) {
+      if (i == 0 || pixels[i] != pixels[i - 1]) {
+        runCount++;
+      }
+    }
+    if (runCount * 2 < pixelCount) {
+      writeByte(CueDecoder.BITMAP_ENCODING_RUN_LENGTH);
+      ensureCapacity(runCount * 8);
+      int runStart = 0;
+      for (int i = 1; i <= pixelCount; i++) {
+        if (i == pixelCount || pixels[i] != pixels[runStart]) {
+          writeInt(i - runStart);
+          writeInt(pixels[runStart]);
+          runStart = i;
+        }
+      }
+    } else {
+      writeByte(CueDecoder.BITMAP_ENCODING_RAW);
+      ensureCapacity(pixelCount * 4);
+      for (int i = 0; i < pixelCount; i++) {
+        writeInt(pixels[i]);
+      }
+    }
+  }
+
+  private void writeNullableString(@Nullable String value) {
+    if (value == null) {
+      writeInt(CueDecoder.STRING_LENGTH_NULL);
+    } else {
+      writeString(value);
+    }
+  }
+
+  private void writeString(String value) {
+    byte[] bytes = Util.getUtf8Bytes(value);
+    writeInt(bytes.length);
+    ensureCapacity(bytes.length);
+    System.arraycopy(bytes, 0, buffer, position, bytes.length);
+    position += bytes.length;
+  }
+
+  private void writeFloat(float value) {
+    writeInt(Float.floatToIntBits(value));
+  }
+
+  private void writeLong(long value) {
+    writeInt((int) (value >>> 32));
+    writeInt((int) value);
+  }
+
+  private void writeInt(int value) {
+    ensureCapacity(4);
+    buffer[position++] = (byte) (value >>> 24);
+    buffer[position++] = (byte) (value >>> 16);
+    buffer[position++] = (byte) (value >>> 8);
+    buffer[position++] = (byte) value;
+  }
+
+  private void writeByte(int value) {
+    ensureCapacity(1);
+    buffer[position++] = (byte) value;
+  }
+
+  private void ensureCapacity(int length) {
+    if (buffer.length - position < length) {
+      buffer = Arrays.copyOf(buffer, max(buffer.length * 2, position + length));
+    }
   }
 }
@@ -15,12 +15,13 @@
  */
 package androidx.media3.extractor.text;
 
-import static androidx.media3.common.util.Assertions.checkNotNull;
 import static androidx.media3.common.util.Assertions.checkState;
 import static androidx.media3.common.util.Assertions.checkStateNotNull;
+import static java.lang.Math.min;
 import static java.lang.annotation.ElementType.TYPE_USE;
 
 import androidx.annotation.IntDef;
+import androidx.annotation.Nullable;
 import androidx.media3.common.C;
 import androidx.media3.common.Format;
 import androidx.media3.common.MimeTypes;
@@ -81,6 +82,9 @@ public class SubtitleExtractor implements Extractor {
 
   private static final int DEFAULT_BUFFER_SIZE = 1024;
 
+  /** The maximum number of bytes read at a time, so that cues can be output as they're parsed. */
+  private static final int MAX_READ_LENGTH = 4096;
+
   private final SubtitleParser subtitleParser;
   private final CueEncoder cueEncoder;
   private final Format format;
@@ -97,6 +101,10 @@ public class SubtitleExtractor implements Extractor {
   /**
    * Creates an instance.
    *
+   * <p>The subtitle data is {@linkplain SubtitleParser#parseIncrementally(byte[], int, int,
+   * boolean) parsed incrementally} as it's read, so samples are output as soon as the parser has
+   * completed them.
+   *
    * @param subtitleParser The parser used for parsing the subtitle data. The extractor will reset
    *     the parser in {@link SubtitleExtractor#release()}.
    * @param format {@link Format} that describes subtitle data.
@@ -152,13 +160,16 @@ public class SubtitleExtractor implements Extractor {
         subtitleData = new byte[length];
       }
       bytesRead = 0;
+      // The input is read from the start again after a seek during extraction.
+      subtitleParser.reset();
+      timestamps.clear();
+      samples.clear();
       state = STATE_EXTRACTING;
     }
     if (state == STATE_EXTRACTING) {
       boolean inputFinished = readFromInput(input);
+      parse(inputFinished);
       if (inputFinished) {
-        parse();
-        writeToOutput();
         state = STATE_FINISHED;
       }
     }
@@ -214,7 +225,9 @@ public class SubtitleExtractor implements Extractor {
     }
     int readResult =
         input.read(
-            subtitleData, /* offset= */ bytesRead, /* length= */ subtitleData.length - bytesRead);
+            subtitleData,
+            /* offset= */ bytesRead,
+            /* length= */ min(subtitleData.length - bytesRead, MAX_READ_LENGTH));
     if (readResult != C.RESULT_END_OF_INPUT) {
       bytesRead += readResult;
     }
@@ -223,16 +236,31 @@ public class SubtitleExtractor implements Extractor {
         || readResult == C.RESULT_END_OF_INPUT;
   }
 
-  /** Parses the subtitle data and stores the samples in the memory of the extractor. */
-  private void parse() throws IOException {
+  /**
+   * Parses the subtitle data read so far, stores any completed samples in the memory of the
+   * extractor, and writes them to the output.
+   */
+  private void parse(boolean inputFinished) throws IOException {
     try {
-      List<CuesWithTiming> cuesWithTimingList = checkNotNull(subtitleParser.parse(subtitleData));
+      @Nullable
+      List<CuesWithTiming> cuesWithTimingList =
+          subtitleParser.parseIncrementally(
+              subtitleData, /* offset= */ 0, /* length= */ bytesRead, inputFinished);
+      if (cuesWithTimingList == null) {
+        return;
+      }
       for (int i = 0; i < cuesWithTimingList.size(); i++) {
         CuesWithTiming cuesWithTiming = cuesWithTimingList.get(i);
         long eventTimeUs = cuesWithTiming.startTimeUs;
         byte[] cuesSample = cueEncoder.encode(cuesWithTiming.cues, cuesWithTiming.durationUs);
         timestamps.add(eventTimeUs);
         samples.add(cuesSample);
+        // After a seek during extraction, skip samples that end before the seek time.
+        if (seekTimeUs == C.TIME_UNSET
+            || cuesWithTiming.durationUs == C.TIME_UNSET
+            || eventTimeUs + cuesWithTiming.durationUs > seekTimeUs) {
+          writeSample(samples.size() - 1);
+        }
       }
     } catch (RuntimeException e) {
       throw ParserException.createForMalformedContainer("SubtitleParser failed.", e);
@@ -240,7 +268,6 @@ public class SubtitleExtractor implements Extractor {
   }
 
   private void writeToOutput() {
-    checkStateNotNull(this.trackOutput);
     checkState(timestamps.size() == samples.size());
     int index =
         seekTimeUs == C.TIME_UNSET
@@ -248,16 +275,21 @@ public class SubtitleExtractor implements Extractor {
             : Util.binarySearchFloor(
                 timestamps, seekTimeUs, /* inclusive= */ true, /* stayInBounds= */ true);
     for (int i = index; i < samples.size(); i++) {
-      byte[] sample = samples.get(i);
-      int size = sample.length;
-      scratchSampleArray.reset(sample);
-      trackOutput.sampleData(scratchSampleArray, size);
-      trackOutput.sampleMetadata(
-          /* timeUs= */ timestamps.get(i),
-          /* flags= */ C.BUFFER_FLAG_KEY_FRAME,
-          /* size= */ size,
-          /* offset= */ 0,
-          /* cryptoData= */ null);
+      writeSample(i);
     }
   }
+
+  private void writeSample(int index) {
+    checkStateNotNull(this.trackOutput);
+    byte[] sample = samples.get(index);
+    int size = sample.length;
+    scratchSampleArray.reset(sample);
+    trackOutput.sampleData(scratchSampleArray, size);
+    trackOutput.sampleMetadata(
+        /* timeUs= */ timestamps.get(index),
+        /* flags= */ C.BUFFER_FLAG_KEY_FRAME,
+        /* size= */ size,
+        /* offset= */ 0,
+        /* cryptoData= */ null);
+  }
 }
@@ -88,7 +88,38 @@ public interface SubtitleParser {
   List<CuesWithTiming> parse(byte[] data, int offset, int length);
 
   /**
-   * Clears any data stored inside this parser from previous {@link #parse(byte[])} calls.
+   * Parses the part of a subtitle file that has been loaded so far, and returns any {@link
+   * CuesWithTiming} instances that can't be changed by the remainder of the file.
+   *
+   * <p>This allows the first cues of a long subtitle file to be output before the whole file has
+   * been loaded. Each call must pass all of the file that has been loaded so far, starting with the
+   * data passed to the previous call, and the last call must pass the whole file with {@code
+   * endOfInput} set to true. {@link #reset()} must be called before parsing another file.
+   *
+   * <p>The instances returned for all the calls, taken in order, are the same as those returned by
+   * passing the whole file to {@link #parse(byte[], int, int)}, unless the implementation documents
+   * otherwise for malformed files.
+   *
+   * <p>The default implementation returns null until the end of the input, and then returns the
+   * result of passing the whole file to {@link #parse(byte[], int, int)}.
+   *
+   * @param data The array containing the part of the subtitle file loaded so far.
+   * @param offset The index in {@code data} at which the file starts.
+   * @param length The number of bytes of the file that have been loaded.
+   * @param endOfInput Whether the whole file has been loaded.
+   * @return The {@linkplain CuesWithTiming} instances that have been completed since the previous
+   *     call, sorted in ascending order by {@link CuesWithTiming#startTimeUs}. Otherwise null if no
+   *     instance has been completed.
+   */
+  @Nullable
+  default List<CuesWithTiming> parseIncrementally(
+      byte[] data, int offset, int length, boolean endOfInput) {
+    return endOfInput ? parse(data, offset, length) : null;
+  }
+
+  /**
+   * Clears any data stored inside this parser from previous {@link #parse(byte[])} and {@link
+   * #parseIncrementally(byte[], int, int, boolean)} calls.
    *
    * <p>This must be called after a seek or other similar discontinuity in the source data.
    *
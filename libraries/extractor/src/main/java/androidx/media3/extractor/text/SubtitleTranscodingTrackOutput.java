@@ -152,11 +152,9 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
     if (cuesWithTimingList != null) {
       for (int i = 0; i < cuesWithTimingList.size(); i++) {
         CuesWithTiming cuesWithTiming = cuesWithTimingList.get(i);
-        byte[] cuesWithDurationBytes =
-            cueEncoder.encode(cuesWithTiming.cues, cuesWithTiming.durationUs);
-
-        parsableScratch.reset(cuesWithDurationBytes);
-        delegate.sampleData(parsableScratch, cuesWithDurationBytes.length);
+        cueEncoder.encode(cuesWithTiming.cues, cuesWithTiming.durationUs, parsableScratch);
+        int encodedCuesLength = parsableScratch.limit();
+        delegate.sampleData(parsableScratch, encodedCuesLength);
         // Clear FLAG_DECODE_ONLY if it is set.
         flags &= ~C.BUFFER_FLAG_DECODE_ONLY;
         long outputSampleTimeUs;
@@ -171,7 +169,7 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
         delegate.sampleMetadata(
             outputSampleTimeUs,
             flags,
-            cuesWithDurationBytes.length,
+            encodedCuesLength,
             /* offset= */ 0,
             /* cryptoData= */ null);
       }
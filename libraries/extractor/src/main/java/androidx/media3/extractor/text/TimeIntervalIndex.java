@@ -0,0 +1,244 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.extractor.text;
+
+import static androidx.media3.common.util.Assertions.checkArgument;
+import static java.lang.Math.max;
+
+import androidx.media3.common.C;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.common.util.Util;
+import java.util.Arrays;
+
+/**
+ * An immutable index of time intervals, which finds the intervals that contain a given time.
+ *
+ * <p>The intervals are stored in a centered interval tree. Each node of the tree has a center time
+ * and holds the intervals that contain it, sorted by start time and by end time. Intervals that
+ * end before the center time are stored in the left subtree, and intervals that start after it in
+ * the right subtree. Finding the intervals that contain a time visits one node per level of the
+ * tree, and at each node only the intervals that contain the time and one more, so it takes {@code
+ * O(log n + m)} time for {@code m} active intervals. The index takes {@code O(n)} memory.
+ *
+ * <p>Each interval includes its start time and excludes its end time. A start time of {@link
+ * C#TIME_UNSET} means the interval is unbounded at the start, and an end time of {@link
+ * C#TIME_UNSET} means it's unbounded at the end.
+ */
+@UnstableApi
+public final class TimeIntervalIndex {
+
+  private static final int[] NO_INTERVALS = new int[0];
+  private static final int MIN_ACTIVE_INTERVALS_LENGTH = 4;
+
+  /** The start time of each interval, or {@link Long#MIN_VALUE} if it's unbounded. */
+  private final long[] startTimesUs;
+
+  /** The end time of each interval, or {@link Long#MAX_VALUE} if it's unbounded. */
+  private final long[] endTimesUs;
+
+  /** The distinct, sorted start and end times of the intervals, excluding {@link C#TIME_UNSET}. */
+  private final long[] boundaryTimesUs;
+
+  private final int rootNode;
+  private final long[] nodeCenterTimesUs;
+  private final int[] nodeLeftChildren;
+  private final int[] nodeRightChildren;
+
+  /** The position of the first interval of each node in {@link #intervalsByStartTime}. */
+  private final int[] nodeIntervalPositions;
+
+  private final int[] nodeIntervalCounts;
+
+  /** The intervals of all nodes, in order of node and then ascending start time. */
+  private final int[] intervalsByStartTime;
+
+  /** The intervals of all nodes, in order of node and then descending end time. */
+  private final int[] intervalsByEndTime;
+
+  // Only used while building the tree.
+  private int nodeCount;
+  private int nodeIntervalCount;
+
+  /**
+   * Creates an instance.
+   *
+   * @param startTimesUs The start times of the intervals, in microseconds, or {@link C#TIME_UNSET}.
+   * @param endTimesUs The end times of the intervals, in microseconds, or {@link C#TIME_UNSET}.
+   *     Must have the same length as {@code startTimesUs}.
+   */
+  public TimeIntervalIndex(long[] startTimesUs, long[] endTimesUs) {
+    checkArgument(startTimesUs.length == endTimesUs.length);
+    int intervalCount = startTimesUs.length;
+    this.startTimesUs = new long[intervalCount];
+    this.endTimesUs = new long[intervalCount];
+    long[] boundaryTimesUs = new long[intervalCount * 2];
+    int boundaryCount = 0;
+    for (int i = 0; i < intervalCount; i++) {
+      if (startTimesUs[i] != C.TIME_UNSET) {
+        boundaryTimesUs[boundaryCount++] = startTimesUs[i];
+      }
+      if (endTimesUs[i] != C.TIME_UNSET) {
+        boundaryTimesUs[boundaryCount++] = endTimesUs[i];
+      }
+      this.startTimesUs[i] = startTimesUs[i] == C.TIME_UNSET ? Long.MIN_VALUE : startTimesUs[i];
+      this.endTimesUs[i] = endTimesUs[i] == C.TIME_UNSET ? Long.MAX_VALUE : endTimesUs[i];
+    }
+    Arrays.sort(boundaryTimesUs, /* fromIndex= */ 0, /* toIndex= */ boundaryCount);
+    int distinctBoundaryCount = 0;
+    for (int i = 0; i < boundaryCount; i++) {
+      if (i == 0 || boundaryTimesUs[i] != boundaryTimesUs[i - 1]) {
+        boundaryTimesUs[distinctBoundaryCount++] = boundaryTimesUs[i];
+      }
+    }
+    this.boundaryTimesUs = Arrays.copyOf(boundaryTimesUs, distinctBoundaryCount);
+
+    // Empty intervals are never active, so they're left out of the tree.
+    Integer[] sortedIntervals = new Integer[intervalCount];
+    int nonEmptyIntervalCount = 0;
+    for (int i = 0; i < intervalCount; i++) {
+      if (this.startTimesUs[i] < this.endTimesUs[i]) {
+        sortedIntervals[nonEmptyIntervalCount++] = i;
+      }
+    }
+    Arrays.sort(
+        sortedIntervals,
+        /* fromIndex= */ 0,
+        /* toIndex= */ nonEmptyIntervalCount,
+        (i1, i2) -> Long.compare(this.startTimesUs[i1], this.startTimesUs[i2]));
+    int[] intervals = new int[nonEmptyIntervalCount];
+    for (int i = 0; i < nonEmptyIntervalCount; i++) {
+      intervals[i] = sortedIntervals[i];
+    }
+    // Each node holds at least one interval, so there are at most as many nodes as intervals.
+    nodeCenterTimesUs = new long[nonEmptyIntervalCount];
+    nodeLeftChildren = new int[nonEmptyIntervalCount];
+    nodeRightChildren = new int[nonEmptyIntervalCount];
+    nodeIntervalPositions = new int[nonEmptyIntervalCount];
+    nodeIntervalCounts = new int[nonEmptyIntervalCount];
+    intervalsByStartTime = new int[nonEmptyIntervalCount];
+    intervalsByEndTime = new int[nonEmptyIntervalCount];
+    rootNode = buildNode(intervals, nonEmptyIntervalCount);
+  }
+
+  /**
+   * Returns the index of the segment that contains {@code timeUs}. The start and end times of all
+   * intervals divide the timeline into segments, and two times that have the same segment index
+   * have the same active intervals.
+   */
+  public int getSegmentIndex(long timeUs) {
+    return Util.binarySearchFloor(
+            boundaryTimesUs, timeUs, /* inclusive= */ true, /* stayInBounds= */ false)
+        + 1;
+  }
+
+  /**
+   * Returns the intervals that contain {@code timeUs}.
+   *
+   * @param timeUs The time, in microseconds.
+   * @return The indices of the intervals in the arrays passed to the constructor, in ascending
+   *     order.
+   */
+  public int[] getActiveIntervals(long timeUs) {
+    int[] activeIntervals = NO_INTERVALS;
+    int activeIntervalCount = 0;
+    int node = rootNode;
+    while (node != C.INDEX_UNSET) {
+      int position = nodeIntervalPositions[node];
+      int endPosition = position + nodeIntervalCounts[node];
+      // All the intervals of the node contain the center time, so if the time is before the center
+      // time the intervals that start before it are active, and otherwise the intervals that end
+      // after it are active.
+      boolean beforeCenterTime = timeUs < nodeCenterTimesUs[node];
+      for (int i = position; i < endPosition; i++) {
+        int interval = beforeCenterTime ? intervalsByStartTime[i] : intervalsByEndTime[i];
+        if (beforeCenterTime ? startTimesUs[interval] > timeUs : !isBeforeEnd(timeUs, interval)) {
+          break;
+        }
+        if (activeIntervalCount == activeIntervals.length) {
+          activeIntervals =
+              Arrays.copyOf(
+                  activeIntervals, max(activeIntervalCount * 2, MIN_ACTIVE_INTERVALS_LENGTH));
+        }
+        activeIntervals[activeIntervalCount++] = interval;
+      }
+      node = beforeCenterTime ? nodeLeftChildren[node] : nodeRightChildren[node];
+    }
+    if (activeIntervalCount == 0) {
+      return NO_INTERVALS;
+    }
+    activeIntervals = Arrays.copyOf(activeIntervals, activeIntervalCount);
+    Arrays.sort(activeIntervals);
+    return activeIntervals;
+  }
+
+  // Internal methods.
+
+  /**
+   * Builds the subtree for some intervals, and returns its root node, or {@link C#INDEX_UNSET} if
+   * there are no intervals.
+   *
+   * @param intervals The intervals, sorted by start time.
+   * @param intervalCount The number of intervals.
+   */
+  private int buildNode(int[] intervals, int intervalCount) {
+    if (intervalCount == 0) {
+      return C.INDEX_UNSET;
+    }
+    // The interval with the median start time contains the center time, as it isn't empty.
+    long centerTimeUs = startTimesUs[intervals[intervalCount / 2]];
+    int[] leftIntervals = new int[intervalCount];
+    int leftIntervalCount = 0;
+    int[] rightIntervals = new int[intervalCount];
+    int rightIntervalCount = 0;
+    int node = nodeCount++;
+    nodeCenterTimesUs[node] = centerTimeUs;
+    nodeIntervalPositions[node] = nodeIntervalCount;
+    for (int i = 0; i < intervalCount; i++) {
+      int interval = intervals[i];
+      if (!isBeforeEnd(centerTimeUs, interval)) {
+        leftIntervals[leftIntervalCount++] = interval;
+      } else if (startTimesUs[interval] > centerTimeUs) {
+        rightIntervals[rightIntervalCount++] = interval;
+      } else {
+        intervalsByStartTime[nodeIntervalCount] = interval;
+        intervalsByEndTime[nodeIntervalCount] = interval;
+        nodeIntervalCount++;
+      }
+    }
+    int position = nodeIntervalPositions[node];
+    nodeIntervalCounts[node] = nodeIntervalCount - position;
+    sortByDescendingEndTime(intervalsByEndTime, position, nodeIntervalCount);
+    nodeLeftChildren[node] = buildNode(leftIntervals, leftIntervalCount);
+    nodeRightChildren[node] = buildNode(rightIntervals, rightIntervalCount);
+    return node;
+  }
+
+  private void sortByDescendingEndTime(int[] intervals, int fromIndex, int toIndex) {
+    Integer[] sortedIntervals = new Integer[toIndex - fromIndex];
+    for (int i = 0; i < sortedIntervals.length; i++) {
+      sortedIntervals[i] = intervals[fromIndex + i];
+    }
+    Arrays.sort(sortedIntervals, (i1, i2) -> Long.compare(endTimesUs[i2], endTimesUs[i1]));
+    for (int i = 0; i < sortedIntervals.length; i++) {
+      intervals[fromIndex + i] = sortedIntervals[i];
+    }
+  }
+
+  /** Returns whether {@code timeUs} is before the end of an interval. */
+  private boolean isBeforeEnd(long timeUs, int interval) {
+    return timeUs < endTimesUs[interval] || endTimesUs[interval] == Long.MAX_VALUE;
+  }
+}
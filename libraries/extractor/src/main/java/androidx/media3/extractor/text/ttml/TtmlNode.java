@@ -24,7 +24,10 @@ import androidx.annotation.Nullable;
 import androidx.media3.common.C;
 import androidx.media3.common.text.Cue;
 import androidx.media3.common.util.Assertions;
+import androidx.media3.common.util.LongArray;
+import androidx.media3.extractor.text.TimeIntervalIndex;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -118,6 +121,11 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
   public static final String TEXT_EMPHASIS_MARK_FILLED = "filled";
   public static final String TEXT_EMPHASIS_MARK_OPEN = "open";
 
+  /** The minimum number of children for which a {@link TimeIntervalIndex} is used to find them. */
+  private static final int MIN_CHILD_COUNT_FOR_INDEX = 8;
+
+  private static final int[] NO_INDEXED_CHILDREN = new int[0];
+
   @Nullable public final String tag;
   @Nullable public final String text;
   public final boolean isTextNode;
@@ -133,6 +141,9 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
   private final HashMap<String, Integer> nodeEndsByRegion;
 
   private @MonotonicNonNull List<TtmlNode> children;
+  @Nullable private TimeIntervalIndex childIndex;
+  private int[] indexedChildren;
+  @Nullable private Boolean containsImage;
 
   public static TtmlNode buildTextNode(String text) {
     return new TtmlNode(
@@ -182,6 +193,7 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
     this.parent = parent;
     nodeStartsByRegion = new HashMap<>();
     nodeEndsByRegion = new HashMap<>();
+    indexedChildren = NO_INDEXED_CHILDREN;
   }
 
   public boolean isActive(long timeUs) {
@@ -196,6 +208,7 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
       children = new ArrayList<>();
     }
     children.add(child);
+    childIndex = null;
   }
 
   public TtmlNode getChild(int index) {
@@ -239,6 +252,30 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
     }
   }
 
+  /**
+   * Returns the start and end times of this node and all of its descendants, in ascending order.
+   * Whether each of these nodes is active can only change at one of the returned times.
+   */
+  public long[] getNodeTimesUs() {
+    LongArray nodeTimesUs = new LongArray();
+    getNodeTimes(nodeTimesUs);
+    long[] sortedNodeTimesUs = nodeTimesUs.toArray();
+    Arrays.sort(sortedNodeTimesUs);
+    return sortedNodeTimesUs;
+  }
+
+  private void getNodeTimes(LongArray out) {
+    if (startTimeUs != C.TIME_UNSET) {
+      out.add(startTimeUs);
+    }
+    if (endTimeUs != C.TIME_UNSET) {
+      out.add(endTimeUs);
+    }
+    for (int i = 0; i < getChildCount(); i++) {
+      getChild(i).getNodeTimes(out);
+    }
+  }
+
   @Nullable
   public String[] getStyleIds() {
     return styleIds;
@@ -303,6 +340,9 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
 
   private void traverseForImage(
       long timeUs, String inheritedRegion, List<Pair<String, String>> regionImageList) {
+    if (!containsImage()) {
+      return;
+    }
     String resolvedRegionId = ANONYMOUS_REGION_ID.equals(regionId) ? inheritedRegion : regionId;
     if (isActive(timeUs) && TAG_DIV.equals(tag) && imageId != null) {
       regionImageList.add(new Pair<>(resolvedRegionId, imageId));
@@ -313,6 +353,63 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
     }
   }
 
+  /** Returns whether this node or any of its descendants is a div that references an image. */
+  private boolean containsImage() {
+    if (containsImage != null) {
+      return containsImage;
+    }
+    boolean containsImage = TAG_DIV.equals(tag) && imageId != null;
+    for (int i = 0; !containsImage && i < getChildCount(); i++) {
+      containsImage = getChild(i).containsImage();
+    }
+    this.containsImage = containsImage;
+    return containsImage;
+  }
+
+  /**
+   * Returns an index of the children that may add text to the output at a given time, or null if
+   * this node has too few children for an index to be worthwhile. The interval indices of the
+   * returned index are positions in {@link #indexedChildren}, which holds the child indices.
+   *
+   * <p>{@link #traverseForText} and {@link #traverseForStyle} do nothing for container nodes that
+   * aren't active, so these are only included when active. Text and line break nodes inside a
+   * paragraph are output whenever their parent is traversed, so they're always included. Text nodes
+   * outside a paragraph (usually whitespace between paragraphs) and metadata nodes never add text,
+   * so they're left out.
+   *
+   * @param childrenDescendPNode Whether the children of this node descend a paragraph node.
+   */
+  @Nullable
+  private TimeIntervalIndex getChildIndex(boolean childrenDescendPNode) {
+    if (children == null || children.size() < MIN_CHILD_COUNT_FOR_INDEX) {
+      return null;
+    }
+    if (childIndex == null) {
+      int[] indexedChildren = new int[children.size()];
+      long[] startTimesUs = new long[children.size()];
+      long[] endTimesUs = new long[children.size()];
+      int indexedChildCount = 0;
+      for (int i = 0; i < children.size(); i++) {
+        TtmlNode child = children.get(i);
+        if (TAG_METADATA.equals(child.tag) || (child.isTextNode && !childrenDescendPNode)) {
+          continue;
+        }
+        boolean alwaysTraversed =
+            childrenDescendPNode && (child.isTextNode || TAG_BR.equals(child.tag));
+        indexedChildren[indexedChildCount] = i;
+        startTimesUs[indexedChildCount] = alwaysTraversed ? C.TIME_UNSET : child.startTimeUs;
+        endTimesUs[indexedChildCount] = alwaysTraversed ? C.TIME_UNSET : child.endTimeUs;
+        indexedChildCount++;
+      }
+      this.indexedChildren = Arrays.copyOf(indexedChildren, indexedChildCount);
+      childIndex =
+          new TimeIntervalIndex(
+              Arrays.copyOf(startTimesUs, indexedChildCount),
+              Arrays.copyOf(endTimesUs, indexedChildCount));
+    }
+    return childIndex;
+  }
+
   private void traverseForText(
       long timeUs,
       boolean descendsPNode,
@@ -339,9 +436,17 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
       }
 
       boolean isPNode = TAG_P.equals(tag);
-      for (int i = 0; i < getChildCount(); i++) {
-        getChild(i)
-            .traverseForText(timeUs, descendsPNode || isPNode, resolvedRegionId, regionOutputs);
+      @Nullable TimeIntervalIndex childIndex = getChildIndex(descendsPNode || isPNode);
+      if (childIndex != null) {
+        for (int activeChild : childIndex.getActiveIntervals(timeUs)) {
+          getChild(indexedChildren[activeChild])
+              .traverseForText(timeUs, descendsPNode || isPNode, resolvedRegionId, regionOutputs);
+        }
+      } else {
+        for (int i = 0; i < getChildCount(); i++) {
+          getChild(i)
+              .traverseForText(timeUs, descendsPNode || isPNode, resolvedRegionId, regionOutputs);
+        }
       }
       if (isPNode) {
         TtmlRenderUtil.endParagraph(getRegionOutputText(resolvedRegionId, regionOutputs));
@@ -386,9 +491,18 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
         applyStyleToOutput(globalStyles, regionOutput, start, end, verticalType);
       }
     }
-    for (int i = 0; i < getChildCount(); ++i) {
-      getChild(i)
-          .traverseForStyle(timeUs, globalStyles, regionMaps, resolvedRegionId, regionOutputs);
+    // The child index is created by traverseForText, which is always called first.
+    @Nullable TimeIntervalIndex childIndex = this.childIndex;
+    if (childIndex != null) {
+      for (int activeChild : childIndex.getActiveIntervals(timeUs)) {
+        getChild(indexedChildren[activeChild])
+            .traverseForStyle(timeUs, globalStyles, regionMaps, resolvedRegionId, regionOutputs);
+      }
+    } else {
+      for (int i = 0; i < getChildCount(); ++i) {
+        getChild(i)
+            .traverseForStyle(timeUs, globalStyles, regionMaps, resolvedRegionId, regionOutputs);
+      }
     }
   }
 
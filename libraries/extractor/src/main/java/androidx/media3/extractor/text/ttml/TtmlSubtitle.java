@@ -15,11 +15,13 @@
  */
 package androidx.media3.extractor.text.ttml;
 
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 import androidx.media3.common.C;
 import androidx.media3.common.text.Cue;
 import androidx.media3.common.util.Util;
 import androidx.media3.extractor.text.Subtitle;
+import com.google.common.collect.ImmutableList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -32,6 +34,10 @@ import java.util.Map;
   private final Map<String, TtmlStyle> globalStyles;
   private final Map<String, TtmlRegion> regionMap;
   private final Map<String, String> imageMap;
+  private final long[] nodeTimesUs;
+
+  private int lastNodeTimeIndex;
+  @Nullable private List<Cue> lastCues;
 
   public TtmlSubtitle(
       TtmlNode root,
@@ -44,6 +50,8 @@ import java.util.Map;
     this.globalStyles =
         globalStyles != null ? Collections.unmodifiableMap(globalStyles) : Collections.emptyMap();
     this.eventTimesUs = root.getEventTimesUs();
+    this.nodeTimesUs = root.getNodeTimesUs();
+    lastNodeTimeIndex = C.INDEX_UNSET;
   }
 
   @Override
@@ -69,7 +77,16 @@ import java.util.Map;
 
   @Override
   public List<Cue> getCues(long timeUs) {
-    return root.getCues(timeUs, globalStyles, regionMap, imageMap);
+    // The cues can only change when a node becomes active or inactive.
+    int nodeTimeIndex =
+        Util.binarySearchFloor(
+            nodeTimesUs, timeUs, /* inclusive= */ true, /* stayInBounds= */ false);
+    if (nodeTimeIndex == lastNodeTimeIndex && lastCues != null) {
+      return lastCues;
+    }
+    lastNodeTimeIndex = nodeTimeIndex;
+    lastCues = ImmutableList.copyOf(root.getCues(timeUs, globalStyles, regionMap, imageMap));
+    return lastCues;
   }
 
   @VisibleForTesting
@@ -17,7 +17,9 @@ package androidx.media3.extractor.text.webvtt;
 
 import android.text.TextUtils;
 import androidx.annotation.Nullable;
+import androidx.media3.common.C;
 import androidx.media3.common.ParserException;
+import androidx.media3.common.text.Cue;
 import androidx.media3.common.util.ParsableByteArray;
 import androidx.media3.common.util.UnstableApi;
 import androidx.media3.extractor.text.CuesWithTiming;
@@ -30,6 +32,14 @@ import java.util.List;
  * A {@link SubtitleParser} for WebVTT.
  *
  * <p>See the <a href="http://dev.w3.org/html5/webvtt">WebVTT specification</a>.
+ *
+ * <p>When {@linkplain #parseIncrementally(byte[], int, int, boolean) parsing incrementally}, cues
+ * are output once a cue with a later start time has been parsed, which relies on the cues of the
+ * file being ordered by start time, as required by the specification. If a cue starts earlier than
+ * the cue before it, the rest of the file is only parsed once it has been loaded completely, in the
+ * same way as by {@link #parse(byte[], int, int)}. Times for which cues have already been output
+ * aren't output again, so a cue that starts earlier than these times is only shown from the end of
+ * them.
  */
 @UnstableApi
 public final class WebvttParser implements SubtitleParser {
@@ -46,9 +56,23 @@ public final class WebvttParser implements SubtitleParser {
   private final ParsableByteArray parsableWebvttData;
   private final WebvttCssParser cssParser;
 
+  // Incremental parsing state.
+  private final List<WebvttCssStyle> incrementalDefinedStyles;
+  private final List<WebvttCueInfo> pendingCueInfos;
+  private int parsedLength;
+  private boolean headerParsed;
+  private boolean cuesParsed;
+  private boolean cuesOutOfOrder;
+  private long lastCueStartTimeUs;
+  private long outputEndTimeUs;
+  private boolean eventTimeOutput;
+
   public WebvttParser() {
     parsableWebvttData = new ParsableByteArray();
     cssParser = new WebvttCssParser();
+    incrementalDefinedStyles = new ArrayList<>();
+    pendingCueInfos = new ArrayList<>();
+    resetIncrementalParsingState();
   }
 
   @Override
@@ -65,27 +89,200 @@ public final class WebvttParser implements SubtitleParser {
     }
     while (!TextUtils.isEmpty(parsableWebvttData.readLine())) {}
 
-    int event;
     List<WebvttCueInfo> cueInfos = new ArrayList<>();
-    while ((event = getNextEvent(parsableWebvttData)) != EVENT_END_OF_FILE) {
+    parseBlocks(parsableWebvttData, definedStyles, cueInfos, /* cuesParsed= */ false);
+    WebvttSubtitle subtitle = new WebvttSubtitle(cueInfos);
+    return subtitle.toCuesWithTimingList();
+  }
+
+  @Override
+  @Nullable
+  public ImmutableList<CuesWithTiming> parseIncrementally(
+      byte[] data, int offset, int length, boolean endOfInput) {
+    if (!cuesOutOfOrder) {
+      // Only parse complete blocks, which are terminated by an empty line.
+      int parseLimit =
+          endOfInput
+              ? offset + length
+              : findEndOfLastCompleteBlock(data, offset + parsedLength, offset + length);
+      if (parseLimit == offset + parsedLength && !endOfInput) {
+        return null;
+      }
+      parsableWebvttData.reset(data, parseLimit);
+      parsableWebvttData.setPosition(offset + parsedLength);
+      if (!headerParsed) {
+        try {
+          WebvttParserUtil.validateWebvttHeaderLine(parsableWebvttData);
+        } catch (ParserException e) {
+          throw new IllegalArgumentException(e);
+        }
+        while (!TextUtils.isEmpty(parsableWebvttData.readLine())) {}
+        headerParsed = true;
+      }
+      int cueCountBefore = pendingCueInfos.size();
+      cuesParsed =
+          parseBlocks(parsableWebvttData, incrementalDefinedStyles, pendingCueInfos, cuesParsed);
+      parsedLength = parseLimit - offset;
+      for (int i = cueCountBefore; i < pendingCueInfos.size(); i++) {
+        long cueStartTimeUs = pendingCueInfos.get(i).startTimeUs;
+        if (lastCueStartTimeUs != C.TIME_UNSET && cueStartTimeUs < lastCueStartTimeUs) {
+          // Later cues might start before cues that would be output, so fall back to parsing the
+          // whole file once it's been loaded.
+          cuesOutOfOrder = true;
+          pendingCueInfos.clear();
+          break;
+        }
+        lastCueStartTimeUs = cueStartTimeUs;
+      }
+    }
+    if (cuesOutOfOrder) {
+      return endOfInput ? getCuesFromOutputEndTime(parse(data, offset, length)) : null;
+    }
+
+    // Cues that start later than the last cue parsed can't change the cues shown before its start
+    // time, so everything before that time can be output.
+    long outputUntilTimeUs = endOfInput ? Long.MAX_VALUE : lastCueStartTimeUs;
+    if (outputUntilTimeUs == C.TIME_UNSET || outputUntilTimeUs <= outputEndTimeUs) {
+      return null;
+    }
+    ImmutableList<CuesWithTiming> cuesWithTimingList = outputPendingCues(outputUntilTimeUs);
+    return cuesWithTimingList.isEmpty() ? null : cuesWithTimingList;
+  }
+
+  @Override
+  public void reset() {
+    resetIncrementalParsingState();
+  }
+
+  // Internal methods.
+
+  private void resetIncrementalParsingState() {
+    incrementalDefinedStyles.clear();
+    pendingCueInfos.clear();
+    parsedLength = 0;
+    headerParsed = false;
+    cuesParsed = false;
+    cuesOutOfOrder = false;
+    lastCueStartTimeUs = C.TIME_UNSET;
+    outputEndTimeUs = C.TIME_UNSET;
+    eventTimeOutput = false;
+  }
+
+  /**
+   * Returns the position in {@code data} after the last empty line between {@code position} and
+   * {@code limit}, or {@code position} if there's no such line.
+   */
+  private static int findEndOfLastCompleteBlock(byte[] data, int position, int limit) {
+    for (int i = limit - 1; i > position; i--) {
+      if (data[i] == '\n'
+          && (data[i - 1] == '\n'
+              || (i - 2 >= position && data[i - 1] == '\r' && data[i - 2] == '\n'))) {
+        return i + 1;
+      }
+    }
+    return position;
+  }
+
+  /**
+   * Returns the {@link CuesWithTiming} instances for the event times of the pending cues between
+   * {@link #outputEndTimeUs} (inclusive) and {@code untilTimeUs} (exclusive), and removes the cues
+   * that end before {@code untilTimeUs}.
+   *
+   * <p>The instances are the same as the corresponding ones returned by {@link
+   * WebvttSubtitle#toCuesWithTimingList()} for all the cues of the file.
+   */
+  private ImmutableList<CuesWithTiming> outputPendingCues(long untilTimeUs) {
+    ImmutableList.Builder<CuesWithTiming> cuesWithTimingList = ImmutableList.builder();
+    WebvttSubtitle subtitle = new WebvttSubtitle(pendingCueInfos);
+    int eventTimeCount = subtitle.getEventTimeCount();
+    for (int i = 0; i < eventTimeCount; i++) {
+      long eventTimeUs = subtitle.getEventTime(i);
+      if (eventTimeUs < outputEndTimeUs) {
+        continue;
+      } else if (eventTimeUs >= untilTimeUs) {
+        break;
+      }
+      List<Cue> cues = subtitle.getCues(eventTimeUs);
+      if (!cues.isEmpty() || !eventTimeOutput) {
+        long durationUs =
+            i < eventTimeCount - 1 ? subtitle.getEventTime(i + 1) - eventTimeUs : C.TIME_UNSET;
+        cuesWithTimingList.add(new CuesWithTiming(cues, eventTimeUs, durationUs));
+      }
+      eventTimeOutput = true;
+    }
+    outputEndTimeUs = untilTimeUs;
+    for (int i = pendingCueInfos.size() - 1; i >= 0; i--) {
+      if (pendingCueInfos.get(i).endTimeUs < untilTimeUs) {
+        pendingCueInfos.remove(i);
+      }
+    }
+    return cuesWithTimingList.build();
+  }
+
+  /**
+   * Returns the parts of {@code cuesWithTimingList}, the instances for the whole file, that are
+   * from {@link #outputEndTimeUs} onwards, or all of them if no instance has been output yet.
+   */
+  private ImmutableList<CuesWithTiming> getCuesFromOutputEndTime(
+      List<CuesWithTiming> cuesWithTimingList) {
+    if (!eventTimeOutput) {
+      return ImmutableList.copyOf(cuesWithTimingList);
+    }
+    ImmutableList.Builder<CuesWithTiming> cuesFromOutputEndTime = ImmutableList.builder();
+    for (int i = 0; i < cuesWithTimingList.size(); i++) {
+      CuesWithTiming cuesWithTiming = cuesWithTimingList.get(i);
+      long endTimeUs =
+          cuesWithTiming.durationUs == C.TIME_UNSET
+              ? Long.MAX_VALUE
+              : cuesWithTiming.startTimeUs + cuesWithTiming.durationUs;
+      if (cuesWithTiming.startTimeUs >= outputEndTimeUs) {
+        cuesFromOutputEndTime.add(cuesWithTiming);
+      } else if (endTimeUs > outputEndTimeUs) {
+        cuesFromOutputEndTime.add(
+            new CuesWithTiming(
+                cuesWithTiming.cues,
+                outputEndTimeUs,
+                cuesWithTiming.durationUs == C.TIME_UNSET
+                    ? C.TIME_UNSET
+                    : endTimeUs - outputEndTimeUs));
+      }
+    }
+    return cuesFromOutputEndTime.build();
+  }
+
+  /**
+   * Parses the blocks that follow the header of a file, up to the limit of {@code data}.
+   *
+   * @param data The data to parse.
+   * @param definedStyles The styles defined by the file, to which any parsed styles are added.
+   * @param cueInfos The list to which parsed cues are added.
+   * @param cuesParsed Whether cues were parsed from earlier parts of the file.
+   * @return Whether any cues have been parsed from the file.
+   */
+  private boolean parseBlocks(
+      ParsableByteArray data,
+      List<WebvttCssStyle> definedStyles,
+      List<WebvttCueInfo> cueInfos,
+      boolean cuesParsed) {
+    int event;
+    while ((event = getNextEvent(data)) != EVENT_END_OF_FILE) {
       if (event == EVENT_COMMENT) {
-        skipComment(parsableWebvttData);
+        skipComment(data);
       } else if (event == EVENT_STYLE_BLOCK) {
-        if (!cueInfos.isEmpty()) {
+        if (cuesParsed) {
           throw new IllegalArgumentException("A style block was found after the first cue.");
         }
-        parsableWebvttData.readLine(); // Consume the "STYLE" header.
-        definedStyles.addAll(cssParser.parseBlock(parsableWebvttData));
+        data.readLine(); // Consume the "STYLE" header.
+        definedStyles.addAll(cssParser.parseBlock(data));
       } else if (event == EVENT_CUE) {
-        @Nullable
-        WebvttCueInfo cueInfo = WebvttCueParser.parseCue(parsableWebvttData, definedStyles);
+        @Nullable WebvttCueInfo cueInfo = WebvttCueParser.parseCue(data, definedStyles);
         if (cueInfo != null) {
           cueInfos.add(cueInfo);
+          cuesParsed = true;
         }
       }
     }
-    WebvttSubtitle subtitle = new WebvttSubtitle(cueInfos);
-    return subtitle.toCuesWithTimingList();
+    return cuesParsed;
   }
 
   /**
@@ -15,11 +15,14 @@
  */
 package androidx.media3.extractor.text.webvtt;
 
+import androidx.annotation.Nullable;
 import androidx.media3.common.C;
 import androidx.media3.common.text.Cue;
 import androidx.media3.common.util.Assertions;
 import androidx.media3.common.util.Util;
 import androidx.media3.extractor.text.Subtitle;
+import androidx.media3.extractor.text.TimeIntervalIndex;
+import com.google.common.collect.ImmutableList;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -29,21 +32,29 @@ import java.util.List;
 /* package */ final class WebvttSubtitle implements Subtitle {
 
   private final List<WebvttCueInfo> cueInfos;
-  private final long[] cueTimesUs;
   private final long[] sortedCueTimesUs;
+  private final TimeIntervalIndex cueIntervalIndex;
+
+  private int lastSegmentIndex;
+  @Nullable private List<Cue> lastCues;
 
   /** Constructs a new WebvttSubtitle from a list of {@link WebvttCueInfo}s. */
   public WebvttSubtitle(List<WebvttCueInfo> cueInfos) {
     this.cueInfos = Collections.unmodifiableList(new ArrayList<>(cueInfos));
-    cueTimesUs = new long[2 * cueInfos.size()];
+    long[] cueStartTimesUs = new long[cueInfos.size()];
+    long[] cueEndTimesUs = new long[cueInfos.size()];
+    sortedCueTimesUs = new long[2 * cueInfos.size()];
     for (int cueIndex = 0; cueIndex < cueInfos.size(); cueIndex++) {
       WebvttCueInfo cueInfo = cueInfos.get(cueIndex);
+      cueStartTimesUs[cueIndex] = cueInfo.startTimeUs;
+      cueEndTimesUs[cueIndex] = cueInfo.endTimeUs;
       int arrayIndex = cueIndex * 2;
-      cueTimesUs[arrayIndex] = cueInfo.startTimeUs;
-      cueTimesUs[arrayIndex + 1] = cueInfo.endTimeUs;
+      sortedCueTimesUs[arrayIndex] = cueInfo.startTimeUs;
+      sortedCueTimesUs[arrayIndex + 1] = cueInfo.endTimeUs;
     }
-    sortedCueTimesUs = Arrays.copyOf(cueTimesUs, cueTimesUs.length);
     Arrays.sort(sortedCueTimesUs);
+    cueIntervalIndex = new TimeIntervalIndex(cueStartTimesUs, cueEndTimesUs);
+    lastSegmentIndex = C.INDEX_UNSET;
   }
 
   @Override
@@ -66,16 +77,19 @@ import java.util.List;
 
   @Override
   public List<Cue> getCues(long timeUs) {
+    int segmentIndex = cueIntervalIndex.getSegmentIndex(timeUs);
+    if (segmentIndex == lastSegmentIndex && lastCues != null) {
+      // The active cues haven't changed since the last call.
+      return lastCues;
+    }
     List<Cue> currentCues = new ArrayList<>();
     List<WebvttCueInfo> cuesWithUnsetLine = new ArrayList<>();
-    for (int i = 0; i < cueInfos.size(); i++) {
-      if ((cueTimesUs[i * 2] <= timeUs) && (timeUs < cueTimesUs[i * 2 + 1])) {
-        WebvttCueInfo cueInfo = cueInfos.get(i);
-        if (cueInfo.cue.line == Cue.DIMEN_UNSET) {
-          cuesWithUnsetLine.add(cueInfo);
-        } else {
-          currentCues.add(cueInfo.cue);
-        }
+    for (int cueIndex : cueIntervalIndex.getActiveIntervals(timeUs)) {
+      WebvttCueInfo cueInfo = cueInfos.get(cueIndex);
+      if (cueInfo.cue.line == Cue.DIMEN_UNSET) {
+        cuesWithUnsetLine.add(cueInfo);
+      } else {
+        currentCues.add(cueInfo.cue);
       }
     }
     // Steps 4 - 10 of https://www.w3.org/TR/webvtt1/#cue-computed-line
@@ -85,6 +99,8 @@ import java.util.List;
       Cue cue = cuesWithUnsetLine.get(i).cue;
       currentCues.add(cue.buildUpon().setLine((float) (-1 - i), Cue.LINE_TYPE_NUMBER).build());
     }
-    return currentCues;
+    lastSegmentIndex = segmentIndex;
+    lastCues = ImmutableList.copyOf(currentCues);
+    return lastCues;
   }
 }
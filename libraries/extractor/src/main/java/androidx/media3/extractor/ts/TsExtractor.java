@@ -124,9 +124,9 @@ public final class TsExtractor implements Extractor {
   private final int timestampSearchBytes;
   private final List<TimestampAdjuster> timestampAdjusters;
   private final ParsableByteArray tsPacketBuffer;
-  private final SparseIntArray continuityCounters;
+  private final byte[] continuityCounters; // Indexed by pid, or C.INDEX_UNSET if not yet known
   private final TsPayloadReader.Factory payloadReaderFactory;
-  private final SparseArray<TsPayloadReader> tsPayloadReaders; // Indexed by pid
+  private final @NullableType TsPayloadReader[] tsPayloadReaders; // Indexed by pid
   private final SparseBooleanArray trackIds;
   private final SparseBooleanArray trackPids;
   private final TsDurationReader durationReader;
@@ -221,8 +221,9 @@ public final class TsExtractor implements Extractor {
     tsPacketBuffer = new ParsableByteArray(new byte[BUFFER_SIZE], 0);
     trackIds = new SparseBooleanArray();
     trackPids = new SparseBooleanArray();
-    tsPayloadReaders = new SparseArray<>();
-    continuityCounters = new SparseIntArray();
+    tsPayloadReaders = new TsPayloadReader[MAX_PID_PLUS_ONE];
+    continuityCounters = new byte[MAX_PID_PLUS_ONE];
+    Arrays.fill(continuityCounters, (byte) C.INDEX_UNSET);
     durationReader = new TsDurationReader(timestampSearchBytes);
     output = ExtractorOutput.PLACEHOLDER;
     pcrPid = -1;
@@ -287,9 +288,11 @@ public final class TsExtractor implements Extractor {
       tsBinarySearchSeeker.setSeekTargetUs(timeUs);
     }
     tsPacketBuffer.reset(/* limit= */ 0);
-    continuityCounters.clear();
-    for (int i = 0; i < tsPayloadReaders.size(); i++) {
-      tsPayloadReaders.valueAt(i).seek();
+    Arrays.fill(continuityCounters, (byte) C.INDEX_UNSET);
+    for (@Nullable TsPayloadReader payloadReader : tsPayloadReaders) {
+      if (payloadReader != null) {
+        payloadReader.seek();
+      }
     }
     bytesSinceLastSync = 0;
   }
@@ -326,8 +329,7 @@ public final class TsExtractor implements Extractor {
 
     if (!fillBufferWithAtLeastOnePacket(input)) {
       // Send a synthesised empty pusi to allow for packetFinished to be triggered on the last unit.
-      for (int i = 0; i < tsPayloadReaders.size(); i++) {
-        TsPayloadReader payloadReader = tsPayloadReaders.valueAt(i);
+      for (@Nullable TsPayloadReader payloadReader : tsPayloadReaders) {
         if (payloadReader instanceof PesReader) {
           payloadReader.consume(new ParsableByteArray(), FLAG_PAYLOAD_UNIT_START_INDICATOR);
         }
@@ -335,20 +337,44 @@ public final class TsExtractor implements Extractor {
       return RESULT_END_OF_INPUT;
     }
 
-    int endOfPacket = findEndOfFirstTsPacketInBuffer();
-    int limit = tsPacketBuffer.limit();
-    if (endOfPacket > limit) {
-      return RESULT_CONTINUE;
+    // Demultiplex all complete packets in the buffer, unless the tracks end while doing so. In that
+    // case we return early, so that the duration can be read and any pending seek to the start of
+    // the stream is performed before reading more packets.
+    boolean wereTracksEnded = tracksEnded;
+    do {
+      int endOfPacket = findEndOfFirstTsPacketInBuffer();
+      if (endOfPacket > tsPacketBuffer.limit()) {
+        break;
+      }
+      readPacket(endOfPacket);
+      tsPacketBuffer.setPosition(endOfPacket);
+    } while (tracksEnded == wereTracksEnded && tsPacketBuffer.bytesLeft() >= TS_PACKET_SIZE);
+
+    if (mode != MODE_HLS && !wereTracksEnded && tracksEnded && inputLength != C.LENGTH_UNSET) {
+      // We have read all tracks from all PMTs in this non-live stream. Now seek to the beginning
+      // and read again to make sure we output all media, including any contained in packets prior
+      // to those containing the track information.
+      pendingSeekToStart = true;
     }
+    return RESULT_CONTINUE;
+  }
+
+  // Internals.
 
+  /**
+   * Reads the TS packet at the current position of the packet buffer, passing its payload to the
+   * corresponding payload reader.
+   *
+   * @param endOfPacket The position of the end of the packet (exclusive) in the packet buffer.
+   */
+  private void readPacket(int endOfPacket) throws ParserException {
     @TsPayloadReader.Flags int packetHeaderFlags = 0;
 
     // Note: See ISO/IEC 13818-1, section 2.4.3.2 for details of the header format.
     int tsPacketHeader = tsPacketBuffer.readInt();
     if ((tsPacketHeader & 0x800000) != 0) { // transport_error_indicator
       // There are uncorrectable errors in this packet.
-      tsPacketBuffer.setPosition(endOfPacket);
-      return RESULT_CONTINUE;
+      return;
     }
     packetHeaderFlags |= (tsPacketHeader & 0x400000) != 0 ? FLAG_PAYLOAD_UNIT_START_INDICATOR : 0;
     // Ignoring transport_priority (tsPacketHeader & 0x200000)
@@ -357,21 +383,22 @@ public final class TsExtractor implements Extractor {
     boolean adaptationFieldExists = (tsPacketHeader & 0x20) != 0;
     boolean payloadExists = (tsPacketHeader & 0x10) != 0;
 
-    TsPayloadReader payloadReader = payloadExists ? tsPayloadReaders.get(pid) : null;
+    @Nullable TsPayloadReader payloadReader = payloadExists ? tsPayloadReaders[pid] : null;
     if (payloadReader == null) {
-      tsPacketBuffer.setPosition(endOfPacket);
-      return RESULT_CONTINUE;
+      return;
     }
 
     // Discontinuity check.
     if (mode != MODE_HLS) {
       int continuityCounter = tsPacketHeader & 0xF;
-      int previousCounter = continuityCounters.get(pid, continuityCounter - 1);
-      continuityCounters.put(pid, continuityCounter);
+      int previousCounter = continuityCounters[pid];
+      if (previousCounter == C.INDEX_UNSET) {
+        previousCounter = continuityCounter - 1;
+      }
+      continuityCounters[pid] = (byte) continuityCounter;
       if (previousCounter == continuityCounter) {
         // Duplicate packet found.
-        tsPacketBuffer.setPosition(endOfPacket);
-        return RESULT_CONTINUE;
+        return;
       } else if (continuityCounter != ((previousCounter + 1) & 0xF)) {
         // Discontinuity found.
         payloadReader.seek();
@@ -391,25 +418,14 @@ public final class TsExtractor implements Extractor {
     }
 
     // Read the payload.
-    boolean wereTracksEnded = tracksEnded;
     if (shouldConsumePacketPayload(pid)) {
+      int limit = tsPacketBuffer.limit();
       tsPacketBuffer.setLimit(endOfPacket);
       payloadReader.consume(tsPacketBuffer, packetHeaderFlags);
       tsPacketBuffer.setLimit(limit);
     }
-    if (mode != MODE_HLS && !wereTracksEnded && tracksEnded && inputLength != C.LENGTH_UNSET) {
-      // We have read all tracks from all PMTs in this non-live stream. Now seek to the beginning
-      // and read again to make sure we output all media, including any contained in packets prior
-      // to those containing the track information.
-      pendingSeekToStart = true;
-    }
-
-    tsPacketBuffer.setPosition(endOfPacket);
-    return RESULT_CONTINUE;
   }
 
-  // Internals.
-
   private void maybeOutputSeekMap(long inputLength) {
     if (!hasOutputSeekMap) {
       hasOutputSeekMap = true;
@@ -486,14 +502,14 @@ public final class TsExtractor implements Extractor {
 
   private void resetPayloadReaders() {
     trackIds.clear();
-    tsPayloadReaders.clear();
+    Arrays.fill(tsPayloadReaders, null);
     SparseArray<TsPayloadReader> initialPayloadReaders =
         payloadReaderFactory.createInitialPayloadReaders();
     int initialPayloadReadersSize = initialPayloadReaders.size();
     for (int i = 0; i < initialPayloadReadersSize; i++) {
-      tsPayloadReaders.put(initialPayloadReaders.keyAt(i), initialPayloadReaders.valueAt(i));
+      tsPayloadReaders[initialPayloadReaders.keyAt(i)] = initialPayloadReaders.valueAt(i);
     }
-    tsPayloadReaders.put(TS_PAT_PID, new SectionReader(new PatReader()));
+    tsPayloadReaders[TS_PAT_PID] = new SectionReader(new PatReader());
     id3Reader = null;
   }
 
@@ -540,14 +556,14 @@ public final class TsExtractor implements Extractor {
           patScratch.skipBits(13); // network_PID (13)
         } else {
           int pid = patScratch.readBits(13);
-          if (tsPayloadReaders.get(pid) == null) {
-            tsPayloadReaders.put(pid, new SectionReader(new PmtReader(pid)));
+          if (tsPayloadReaders[pid] == null) {
+            tsPayloadReaders[pid] = new SectionReader(new PmtReader(pid));
             remainingPmts++;
           }
         }
       }
       if (mode != MODE_HLS) {
-        tsPayloadReaders.remove(TS_PAT_PID);
+        tsPayloadReaders[TS_PAT_PID] = null;
       }
     }
   }
@@ -691,7 +707,7 @@ public final class TsExtractor implements Extractor {
                 output,
                 new TrackIdGenerator(programNumber, trackId, MAX_PID_PLUS_ONE));
           }
-          tsPayloadReaders.put(trackPid, reader);
+          tsPayloadReaders[trackPid] = reader;
         }
       }
 
@@ -702,7 +718,7 @@ public final class TsExtractor implements Extractor {
           tracksEnded = true;
         }
       } else {
-        tsPayloadReaders.remove(pid);
+        tsPayloadReaders[pid] = null;
         remainingPmts = mode == MODE_SINGLE_PMT ? 0 : remainingPmts - 1;
         if (remainingPmts == 0) {
           output.endTracks();
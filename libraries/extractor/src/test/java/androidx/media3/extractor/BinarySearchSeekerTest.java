@@ -0,0 +1,143 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.extractor;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.media3.test.utils.FakeExtractorInput;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit tests for {@link BinarySearchSeeker}. */
+@RunWith(AndroidJUnit4.class)
+public final class BinarySearchSeekerTest {
+
+  // The first half of the stream has 50 byte frames and the second half 150 byte frames, so that
+  // positions estimated by interpolation are inaccurate.
+  private static final int FRAME_COUNT = 10_000;
+  private static final int SMALL_FRAME_SIZE = 50;
+  private static final int LARGE_FRAME_SIZE = 150;
+  private static final long FRAME_DURATION_US = 1000;
+  private static final long DURATION_US = FRAME_COUNT * FRAME_DURATION_US;
+  private static final int LENGTH = getFramePosition(FRAME_COUNT);
+
+  @Test
+  public void handlePendingSeek_fromSeekMapPosition_searchesFromEstimatedPosition()
+      throws IOException {
+    long targetTimeUs = 2_345_000;
+    TestBinarySearchSeeker seeker = new TestBinarySearchSeeker();
+    long seekMapPosition = seeker.getSeekMap().getSeekPoints(targetTimeUs).first.position;
+    TestBinarySearchSeeker seekerFromFloor = new TestBinarySearchSeeker();
+
+    long resultPosition = seek(seeker, targetTimeUs, seekMapPosition);
+    // The search starts at the estimated position if the input is outside the search range.
+    long resultPositionFromFloor = seek(seekerFromFloor, targetTimeUs, /* startPosition= */ 0);
+
+    assertThat(resultPosition).isEqualTo(getFramePosition(2345));
+    assertThat(resultPositionFromFloor).isEqualTo(resultPosition);
+    assertThat(seeker.searchPositions.get(0)).isEqualTo(seekMapPosition);
+    assertThat(seeker.searchPositions).isEqualTo(seekerFromFloor.searchPositions);
+  }
+
+  @Test
+  public void handlePendingSeek_fromOtherPositionInSearchRange_searchesFromInputPosition()
+      throws IOException {
+    long targetTimeUs = 2_345_000;
+    long startPosition = getFramePosition(2340);
+    TestBinarySearchSeeker seeker = new TestBinarySearchSeeker();
+
+    long resultPosition = seek(seeker, targetTimeUs, startPosition);
+
+    assertThat(resultPosition).isEqualTo(getFramePosition(2345));
+    assertThat(seeker.searchPositions.get(0)).isEqualTo(startPosition);
+    assertThat(seeker.searchPositions.get(0))
+        .isNotEqualTo(seeker.getSeekMap().getSeekPoints(targetTimeUs).first.position);
+  }
+
+  /** Seeks to {@code timeUs} from {@code startPosition}, and returns the resulting position. */
+  private static long seek(BinarySearchSeeker seeker, long timeUs, long startPosition)
+      throws IOException {
+    FakeExtractorInput input = new FakeExtractorInput.Builder().setData(new byte[LENGTH]).build();
+    input.setPosition((int) startPosition);
+    PositionHolder positionHolder = new PositionHolder();
+    seeker.setSeekTargetUs(timeUs);
+    while (seeker.isSeeking()) {
+      if (seeker.handlePendingSeek(input, positionHolder) == Extractor.RESULT_SEEK) {
+        input.setPosition((int) positionHolder.position);
+      }
+    }
+    return input.getPosition();
+  }
+
+  private static int getFramePosition(int frameIndex) {
+    int smallFrameCount = FRAME_COUNT / 2;
+    return frameIndex <= smallFrameCount
+        ? frameIndex * SMALL_FRAME_SIZE
+        : smallFrameCount * SMALL_FRAME_SIZE + (frameIndex - smallFrameCount) * LARGE_FRAME_SIZE;
+  }
+
+  /** Returns the index of the first frame that starts at or after {@code position}. */
+  private static int getNextFrameIndex(long position) {
+    int frameIndex = 0;
+    while (frameIndex < FRAME_COUNT && getFramePosition(frameIndex) < position) {
+      frameIndex++;
+    }
+    return frameIndex;
+  }
+
+  private static final class TestBinarySearchSeeker extends BinarySearchSeeker {
+
+    public final List<Long> searchPositions;
+
+    public TestBinarySearchSeeker() {
+      this(new ArrayList<>());
+    }
+
+    private TestBinarySearchSeeker(List<Long> searchPositions) {
+      super(
+          new DefaultSeekTimestampConverter(),
+          (input, targetTimestamp) -> {
+            searchPositions.add(input.getPosition());
+            int frameIndex = getNextFrameIndex(input.getPosition());
+            if (frameIndex == FRAME_COUNT) {
+              return TimestampSearchResult.NO_TIMESTAMP_IN_RANGE_RESULT;
+            }
+            long frameTimeUs = frameIndex * FRAME_DURATION_US;
+            long framePosition = getFramePosition(frameIndex);
+            if (targetTimestamp < frameTimeUs) {
+              return TimestampSearchResult.overestimatedResult(frameTimeUs, framePosition);
+            } else if (targetTimestamp >= frameTimeUs + FRAME_DURATION_US) {
+              // The target is after the end of the frame.
+              return TimestampSearchResult.underestimatedResult(
+                  frameTimeUs + FRAME_DURATION_US, getFramePosition(frameIndex + 1));
+            }
+            return TimestampSearchResult.targetFoundResult(framePosition);
+          },
+          DURATION_US,
+          /* floorTimePosition= */ 0,
+          /* ceilingTimePosition= */ DURATION_US,
+          /* floorBytePosition= */ 0,
+          /* ceilingBytePosition= */ LENGTH,
+          /* approxBytesPerFrame= */ LENGTH / FRAME_COUNT,
+          /* minimumSearchRange= */ SMALL_FRAME_SIZE);
+      this.searchPositions = searchPositions;
+    }
+  }
+}
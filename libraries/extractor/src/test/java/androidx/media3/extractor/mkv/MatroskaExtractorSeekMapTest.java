@@ -0,0 +1,127 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.extractor.mkv;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.media3.extractor.Extractor;
+import androidx.media3.extractor.PositionHolder;
+import androidx.media3.test.utils.FakeExtractorInput;
+import androidx.media3.test.utils.FakeExtractorOutput;
+import androidx.media3.test.utils.TestUtil;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.io.IOException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Tests for the {@link androidx.media3.extractor.SeekMap} output by {@link MatroskaExtractor}. */
+@RunWith(AndroidJUnit4.class)
+public final class MatroskaExtractorSeekMapTest {
+
+  private static final String FILE_WITHOUT_CUES = "media/mkv/sample_without_cues.mkv";
+
+  /** The position of the 8 byte size of the Segment element in {@link #FILE_WITHOUT_CUES}. */
+  private static final int SEGMENT_SIZE_POSITION = 0x2C;
+
+  @Test
+  public void binarySearchSeeking_withUnknownSegmentSizeAndInputLength_isUnseekable()
+      throws Exception {
+    byte[] data = getDataWithUnknownSegmentSize();
+    FakeExtractorInput input =
+        new FakeExtractorInput.Builder().setData(data).setSimulateUnknownLength(true).build();
+    FakeExtractorOutput output = new FakeExtractorOutput();
+
+    readUntilSeekMap(createExtractor(), input, output);
+
+    assertThat(output.seekMap.isSeekable()).isFalse();
+  }
+
+  @Test
+  public void binarySearchSeeking_withUnknownSegmentSizeAndKnownInputLength_isSeekable()
+      throws Exception {
+    byte[] data = getDataWithUnknownSegmentSize();
+    FakeExtractorInput input = new FakeExtractorInput.Builder().setData(data).build();
+    FakeExtractorOutput output = new FakeExtractorOutput();
+
+    readUntilSeekMap(createExtractor(), input, output);
+
+    assertThat(output.seekMap.isSeekable()).isTrue();
+  }
+
+  @Test
+  public void binarySearchSeeking_seekToStartOfInput_readsFromStartWithoutSearching()
+      throws Exception {
+    byte[] data =
+        TestUtil.getByteArray(ApplicationProvider.getApplicationContext(), FILE_WITHOUT_CUES);
+    MatroskaExtractor extractor = createExtractor();
+    FakeExtractorOutput output = new FakeExtractorOutput();
+    extractor.init(output);
+    readToEnd(extractor, new FakeExtractorInput.Builder().setData(data).build());
+    int sampleCount = getSampleCount(output);
+    output.clearTrackOutputs();
+
+    // Position 0 resets the extractor, whatever the time, so no binary search should start.
+    extractor.seek(/* position= */ 0, /* timeUs= */ 1_000_000);
+    readToEnd(extractor, new FakeExtractorInput.Builder().setData(data).build());
+
+    assertThat(getSampleCount(output)).isEqualTo(sampleCount);
+  }
+
+  private static MatroskaExtractor createExtractor() {
+    return new MatroskaExtractor(MatroskaExtractor.FLAG_ENABLE_BINARY_SEARCH_SEEKING);
+  }
+
+  private static byte[] getDataWithUnknownSegmentSize() throws IOException {
+    byte[] data =
+        TestUtil.getByteArray(ApplicationProvider.getApplicationContext(), FILE_WITHOUT_CUES);
+    // Replace the size with the reserved 8 byte value for an unknown size.
+    assertThat(data[SEGMENT_SIZE_POSITION]).isEqualTo(0x01);
+    for (int i = 1; i < 8; i++) {
+      data[SEGMENT_SIZE_POSITION + i] = (byte) 0xFF;
+    }
+    return data;
+  }
+
+  private static void readUntilSeekMap(
+      Extractor extractor, FakeExtractorInput input, FakeExtractorOutput output)
+      throws IOException {
+    extractor.init(output);
+    PositionHolder positionHolder = new PositionHolder();
+    while (output.seekMap == null) {
+      assertThat(extractor.read(input, positionHolder)).isEqualTo(Extractor.RESULT_CONTINUE);
+    }
+  }
+
+  private static void readToEnd(Extractor extractor, FakeExtractorInput input) throws IOException {
+    PositionHolder positionHolder = new PositionHolder();
+    int readResult = Extractor.RESULT_CONTINUE;
+    while (readResult != Extractor.RESULT_END_OF_INPUT) {
+      readResult = extractor.read(input, positionHolder);
+      if (readResult == Extractor.RESULT_SEEK) {
+        input.setPosition((int) positionHolder.position);
+      }
+    }
+  }
+
+  private static int getSampleCount(FakeExtractorOutput output) {
+    int sampleCount = 0;
+    for (int i = 0; i < output.numberOfTracks; i++) {
+      sampleCount += output.trackOutputs.valueAt(i).getSampleCount();
+    }
+    return sampleCount;
+  }
+}
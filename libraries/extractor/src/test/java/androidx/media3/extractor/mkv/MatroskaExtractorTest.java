@@ -40,6 +40,23 @@ public final class MatroskaExtractorTest {
         MatroskaExtractor::new, "media/mkv/sample.mkv", simulationConfig);
   }
 
+  @Test
+  public void mkvSample_withoutCues() throws Exception {
+    ExtractorAsserts.assertBehavior(
+        MatroskaExtractor::new, "media/mkv/sample_without_cues.mkv", simulationConfig);
+  }
+
+  @Test
+  public void mkvSample_withoutCuesAndBinarySearchSeekingEnabled() throws Exception {
+    ExtractorAsserts.assertBehavior(
+        () -> new MatroskaExtractor(MatroskaExtractor.FLAG_ENABLE_BINARY_SEARCH_SEEKING),
+        "media/mkv/sample_without_cues.mkv",
+        new ExtractorAsserts.AssertionConfig.Builder()
+            .setDumpFilesPrefix("extractordumps/mkv/sample_without_cues_seeking-enabled")
+            .build(),
+        simulationConfig);
+  }
+
   @Test
   public void mkvSample_withSubripSubtitles() throws Exception {
     ExtractorAsserts.assertBehavior(
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.extractor.mp4;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.media3.common.C;
+import androidx.media3.common.Format;
+import androidx.media3.common.MimeTypes;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Tests for {@link AccumulatedSampleSizes}. */
+@RunWith(AndroidJUnit4.class)
+public final class AccumulatedSampleSizesTest {
+
+  @Test
+  public void get_inSampleOrder_returnsSizesOfSamplesReadInTimestampOrder() {
+    TrackSampleTable[] sampleTables = createSampleTables(new Random(/* seed= */ 0));
+    long[][] expectedSizes = mergeSampleTables(sampleTables);
+    AccumulatedSampleSizes accumulatedSampleSizes = new AccumulatedSampleSizes(sampleTables);
+
+    for (int trackIndex = 0; trackIndex < sampleTables.length; trackIndex++) {
+      for (int sampleIndex = 0; sampleIndex < sampleTables[trackIndex].sampleCount; sampleIndex++) {
+        assertThat(accumulatedSampleSizes.get(trackIndex, sampleIndex))
+            .isEqualTo(expectedSizes[trackIndex][sampleIndex]);
+      }
+    }
+  }
+
+  @Test
+  public void get_inRandomOrder_returnsSizesOfSamplesReadInTimestampOrder() {
+    Random random = new Random(/* seed= */ 0);
+    TrackSampleTable[] sampleTables = createSampleTables(random);
+    long[][] expectedSizes = mergeSampleTables(sampleTables);
+    AccumulatedSampleSizes accumulatedSampleSizes = new AccumulatedSampleSizes(sampleTables);
+
+    for (int i = 0; i < 5000; i++) {
+      int trackIndex = random.nextInt(sampleTables.length);
+      int sampleIndex = random.nextInt(sampleTables[trackIndex].sampleCount);
+      assertThat(accumulatedSampleSizes.get(trackIndex, sampleIndex))
+          .isEqualTo(expectedSizes[trackIndex][sampleIndex]);
+    }
+  }
+
+  /** Creates video, audio and sparse text tracks, with unsorted video timestamps. */
+  private static TrackSampleTable[] createSampleTables(Random random) {
+    return new TrackSampleTable[] {
+      createSampleTable(
+          random,
+          /* sampleCount= */ 3000,
+          /* sampleDurationUs= */ 33_333,
+          /* maxReorderedSamples= */ 3),
+      createSampleTable(
+          random,
+          /* sampleCount= */ 4700,
+          /* sampleDurationUs= */ 21_333,
+          /* maxReorderedSamples= */ 0),
+      createSampleTable(
+          random,
+          /* sampleCount= */ 10,
+          /* sampleDurationUs= */ 10_000_000,
+          /* maxReorderedSamples= */ 0)
+    };
+  }
+
+  private static TrackSampleTable createSampleTable(
+      Random random, int sampleCount, long sampleDurationUs, int maxReorderedSamples) {
+    long[] offsets = new long[sampleCount];
+    int[] sizes = new int[sampleCount];
+    long[] timestampsUs = new long[sampleCount];
+    int[] flags = new int[sampleCount];
+    int maximumSize = 0;
+    for (int i = 0; i < sampleCount; i++) {
+      sizes[i] = 1 + random.nextInt(10_000);
+      maximumSize = Math.max(maximumSize, sizes[i]);
+      timestampsUs[i] = (i + random.nextInt(maxReorderedSamples + 1)) * sampleDurationUs;
+      flags[i] = C.BUFFER_FLAG_KEY_FRAME;
+    }
+    Track track =
+        new Track(
+            /* id= */ 1,
+            /* type= */ C.TRACK_TYPE_VIDEO,
+            /* timescale= */ 1_000_000,
+            /* movieTimescale= */ 1000,
+            /* durationUs= */ C.TIME_UNSET,
+            new Format.Builder().setSampleMimeType(MimeTypes.VIDEO_H264).build(),
+            /* sampleTransformation= */ Track.TRANSFORMATION_NONE,
+            /* sampleDescriptionEncryptionBoxes= */ null,
+            /* nalUnitLengthFieldLength= */ 4,
+            /* editListDurations= */ null,
+            /* editListMediaTimes= */ null);
+    return new TrackSampleTable(
+        track,
+        offsets,
+        sizes,
+        maximumSize,
+        timestampsUs,
+        flags,
+        /* durationUs= */ sampleCount * sampleDurationUs);
+  }
+
+  /** Merges the sample tables in one pass, like {@link Mp4Extractor} used to when preparing. */
+  private static long[][] mergeSampleTables(TrackSampleTable[] sampleTables) {
+    long[][] accumulatedSampleSizes = new long[sampleTables.length][];
+    int[] nextSampleIndices = new int[sampleTables.length];
+    int totalSampleCount = 0;
+    for (int i = 0; i < sampleTables.length; i++) {
+      accumulatedSampleSizes[i] = new long[sampleTables[i].sampleCount];
+      totalSampleCount += sampleTables[i].sampleCount;
+    }
+    long accumulatedSampleSize = 0;
+    for (int sample = 0; sample < totalSampleCount; sample++) {
+      long minTimeUs = Long.MAX_VALUE;
+      int minTimeTrackIndex = C.INDEX_UNSET;
+      for (int i = 0; i < sampleTables.length; i++) {
+        int sampleIndex = nextSampleIndices[i];
+        if (sampleIndex < sampleTables[i].sampleCount
+            && sampleTables[i].getTimestampUs(sampleIndex) <= minTimeUs) {
+          minTimeTrackIndex = i;
+          minTimeUs = sampleTables[i].getTimestampUs(sampleIndex);
+        }
+      }
+      int sampleIndex = nextSampleIndices[minTimeTrackIndex]++;
+      accumulatedSampleSizes[minTimeTrackIndex][sampleIndex] = accumulatedSampleSize;
+      accumulatedSampleSize += sampleTables[minTimeTrackIndex].getSize(sampleIndex);
+    }
+    return accumulatedSampleSizes;
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.extractor.mp4;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.media3.common.C;
+import androidx.media3.common.util.ParsableByteArray;
+import androidx.media3.common.util.Util;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.nio.ByteBuffer;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Tests for {@link LazySampleTable}. */
+@RunWith(AndroidJUnit4.class)
+public final class LazySampleTableTest {
+
+  private static final int SAMPLE_COUNT = 100;
+  private static final int TIMESCALE = 1000;
+
+  @Test
+  public void create_withConsistentBoxes_decodesSamples() {
+    LazySampleTable lazySampleTable = createLazySampleTable(/* sttsSampleCount= */ SAMPLE_COUNT);
+
+    assertThat(lazySampleTable.sampleCount).isEqualTo(SAMPLE_COUNT);
+    assertThat(lazySampleTable.maximumSize).isEqualTo(SAMPLE_COUNT);
+    assertThat(lazySampleTable.duration).isEqualTo(50 * 10 + 50 * 20 + 20);
+    long offset = 0;
+    for (int i = 0; i < SAMPLE_COUNT; i++) {
+      if (i < 70 ? i % 7 == 0 : (i - 70) % 10 == 0) {
+        // First sample in a chunk.
+        offset = getChunkOffset(i < 70 ? i / 7 : 10 + (i - 70) / 10);
+      }
+      assertThat(lazySampleTable.getOffset(i)).isEqualTo(offset);
+      assertThat(lazySampleTable.getSize(i)).isEqualTo(getSampleSize(i));
+      assertThat(lazySampleTable.getTimestamp(i)).isEqualTo(getTimestamp(i));
+      assertThat(lazySampleTable.isSyncSample(i)).isEqualTo(i % 10 == 0);
+      offset += getSampleSize(i);
+    }
+  }
+
+  @Test
+  public void create_withInconsistentSampleCounts_returnsNull() {
+    assertThat(createLazySampleTable(/* sttsSampleCount= */ SAMPLE_COUNT - 1)).isNull();
+  }
+
+  @Test
+  public void withTimestampsUs_scalesAndOffsetsTimestamps() {
+    LazySampleTable lazySampleTable =
+        createLazySampleTable(/* sttsSampleCount= */ SAMPLE_COUNT)
+            .withTimestampsUs(
+                TIMESCALE, /* timestampOffset= */ 20, /* clampNegativeTimestamps= */ true);
+
+    assertThat(lazySampleTable.getTimestamp(0)).isEqualTo(0);
+    assertThat(lazySampleTable.getTimestamp(1)).isEqualTo(10_000);
+    assertThat(lazySampleTable.getTimestamp(99)).isEqualTo(1_480_000);
+  }
+
+  @Test
+  public void syncSampleSearches_returnSameResultsAsMaterializedTable() {
+    LazySampleTable lazySampleTable = createLazySampleTable(/* sttsSampleCount= */ SAMPLE_COUNT);
+    long[] timestamps = new long[SAMPLE_COUNT];
+    for (int i = 0; i < SAMPLE_COUNT; i++) {
+      timestamps[i] = getTimestamp(i);
+    }
+
+    for (long timestamp = -10; timestamp < 1600; timestamp += 5) {
+      assertThat(
+              lazySampleTable.binarySearchFloor(
+                  timestamp, /* inclusive= */ true, /* stayInBounds= */ false))
+          .isEqualTo(
+              Util.binarySearchFloor(
+                  timestamps, timestamp, /* inclusive= */ true, /* stayInBounds= */ false));
+      assertThat(
+              lazySampleTable.binarySearchCeil(
+                  timestamp, /* inclusive= */ false, /* stayInBounds= */ true))
+          .isEqualTo(
+              Util.binarySearchCeil(
+                  timestamps, timestamp, /* inclusive= */ false, /* stayInBounds= */ true));
+    }
+    assertThat(lazySampleTable.getPreviousSyncSampleIndex(55)).isEqualTo(50);
+    assertThat(lazySampleTable.getNextSyncSampleIndex(55)).isEqualTo(60);
+    assertThat(lazySampleTable.getNextSyncSampleIndex(95)).isEqualTo(C.INDEX_UNSET);
+  }
+
+  /**
+   * Creates a table with {@link #SAMPLE_COUNT} samples whose sizes are {@code i + 1}, in 10 chunks
+   * of 7 samples followed by 3 chunks of 10 samples. The first 50 samples have a duration of 10,
+   * and the rest a duration of 20. Samples at odd indices have a composition offset of 20, and
+   * every 10th sample is a sync sample.
+   */
+  private static LazySampleTable createLazySampleTable(int sttsSampleCount) {
+    ByteBuffer stsz = createFullBox(8 + SAMPLE_COUNT * 4).putInt(0).putInt(SAMPLE_COUNT);
+    for (int i = 0; i < SAMPLE_COUNT; i++) {
+      stsz.putInt(getSampleSize(i));
+    }
+    ByteBuffer stco = createFullBox(4 + 13 * 4).putInt(13);
+    for (int i = 0; i < 13; i++) {
+      stco.putInt((int) getChunkOffset(i));
+    }
+    // Entries are (first chunk, samples per chunk, sample description index).
+    ByteBuffer stsc =
+        createFullBox(4 + 2 * 12)
+            .putInt(2)
+            .putInt(1)
+            .putInt(7)
+            .putInt(1)
+            .putInt(11)
+            .putInt(10)
+            .putInt(1);
+    ByteBuffer stts =
+        createFullBox(4 + 2 * 8)
+            .putInt(2)
+            .putInt(50)
+            .putInt(10)
+            .putInt(sttsSampleCount - 50)
+            .putInt(20);
+    ByteBuffer ctts = createFullBox(4 + SAMPLE_COUNT * 8).putInt(SAMPLE_COUNT);
+    for (int i = 0; i < SAMPLE_COUNT; i++) {
+      ctts.putInt(1).putInt(i % 2 == 1 ? 20 : 0);
+    }
+    ByteBuffer stss = createFullBox(4 + 10 * 4).putInt(10);
+    for (int i = 0; i < 10; i++) {
+      stss.putInt(i * 10 + 1);
+    }
+    return LazySampleTable.create(
+        SAMPLE_COUNT,
+        /* fixedSampleSize= */ C.LENGTH_UNSET,
+        new ParsableByteArray(stsz.array()),
+        new ParsableByteArray(stco.array()),
+        /* chunkOffsetsAreLongs= */ false,
+        new ParsableByteArray(stsc.array()),
+        new ParsableByteArray(stts.array()),
+        new ParsableByteArray(ctts.array()),
+        new ParsableByteArray(stss.array()));
+  }
+
+  private static ByteBuffer createFullBox(int payloadSize) {
+    ByteBuffer box = ByteBuffer.allocate(Atom.FULL_HEADER_SIZE + payloadSize);
+    box.position(Atom.FULL_HEADER_SIZE);
+    return box;
+  }
+
+  private static int getSampleSize(int sampleIndex) {
+    return sampleIndex + 1;
+  }
+
+  private static long getChunkOffset(int chunkIndex) {
+    return 10_000L * (chunkIndex + 1);
+  }
+
+  private static long getTimestamp(int sampleIndex) {
+    long decodingTimestamp =
+        sampleIndex < 50 ? sampleIndex * 10L : 500 + (sampleIndex - 50) * 20L;
+    return decodingTimestamp + (sampleIndex % 2 == 1 ? 20 : 0);
+  }
+}
@@ -25,10 +25,20 @@ import android.text.Spannable;
 import android.text.SpannableString;
 import android.text.Spanned;
 import android.text.SpannedString;
+import android.text.style.AbsoluteSizeSpan;
+import android.text.style.BackgroundColorSpan;
+import android.text.style.ForegroundColorSpan;
+import android.text.style.RelativeSizeSpan;
 import android.text.style.StrikethroughSpan;
 import android.text.style.StyleSpan;
+import android.text.style.TypefaceSpan;
 import android.text.style.UnderlineSpan;
 import androidx.media3.common.text.Cue;
+import androidx.media3.common.text.HorizontalTextInVerticalContextSpan;
+import androidx.media3.common.text.RubySpan;
+import androidx.media3.common.text.TextAnnotation;
+import androidx.media3.common.text.TextEmphasisSpan;
+import androidx.media3.common.util.ParsableByteArray;
 import androidx.media3.test.utils.truth.SpannedSubject;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import com.google.common.collect.ImmutableList;
@@ -129,4 +139,121 @@ public class CueSerializationTest {
 
     assertThat(bitmapCueAfterDecoding.bitmap.sameAs(bitmap)).isTrue();
   }
+
+  @Test
+  public void serializingCueWithMedia3AndSizeSpans() {
+    CueEncoder encoder = new CueEncoder();
+    CueDecoder decoder = new CueDecoder();
+    Spannable spannable = SpannableString.valueOf("text text");
+    spannable.setSpan(
+        new ForegroundColorSpan(Color.RED), 0, "text".length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+    spannable.setSpan(
+        new BackgroundColorSpan(Color.BLUE), 0, "text".length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+    spannable.setSpan(
+        new AbsoluteSizeSpan(/* size= */ 12, /* dip= */ true),
+        0,
+        "text".length(),
+        Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+    spannable.setSpan(
+        new RelativeSizeSpan(/* proportion= */ 1.5f),
+        "text ".length(),
+        "text text".length(),
+        Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+    spannable.setSpan(
+        new TypefaceSpan("serif"),
+        "text ".length(),
+        "text text".length(),
+        Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+    spannable.setSpan(
+        new RubySpan("ruby", TextAnnotation.POSITION_AFTER),
+        0,
+        "text".length(),
+        Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+    spannable.setSpan(
+        new TextEmphasisSpan(
+            TextEmphasisSpan.MARK_SHAPE_SESAME,
+            TextEmphasisSpan.MARK_FILL_OPEN,
+            TextAnnotation.POSITION_BEFORE),
+        "text ".length(),
+        "text text".length(),
+        Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+    spannable.setSpan(
+        new HorizontalTextInVerticalContextSpan(),
+        "text ".length(),
+        "text text".length(),
+        Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+    Cue cue = new Cue.Builder().setText(spannable).build();
+
+    byte[] encodedCues = encoder.encode(ImmutableList.of(cue), /* durationUs= */ 2000);
+    Cue cueAfterDecoding = decoder.decode(/* startTimeUs= */ 1000, encodedCues).cues.get(0);
+
+    Spanned textAfterDecoding = (Spanned) cueAfterDecoding.text;
+    assertThat(textAfterDecoding.toString()).isEqualTo("text text");
+    SpannedSubject.assertThat(textAfterDecoding)
+        .hasForegroundColorSpanBetween(0, "text".length())
+        .withColor(Color.RED);
+    SpannedSubject.assertThat(textAfterDecoding)
+        .hasBackgroundColorSpanBetween(0, "text".length())
+        .withColor(Color.BLUE);
+    SpannedSubject.assertThat(textAfterDecoding)
+        .hasAbsoluteSizeSpanBetween(0, "text".length())
+        .withAbsoluteSize(12);
+    SpannedSubject.assertThat(textAfterDecoding)
+        .hasRelativeSizeSpanBetween("text ".length(), "text text".length())
+        .withSizeChange(1.5f);
+    SpannedSubject.assertThat(textAfterDecoding)
+        .hasTypefaceSpanBetween("text ".length(), "text text".length())
+        .withFamily("serif");
+    SpannedSubject.assertThat(textAfterDecoding)
+        .hasRubySpanBetween(0, "text".length())
+        .withTextAndPosition("ruby", TextAnnotation.POSITION_AFTER);
+    SpannedSubject.assertThat(textAfterDecoding)
+        .hasTextEmphasisSpanBetween("text ".length(), "text text".length())
+        .withMarkAndPosition(
+            TextEmphasisSpan.MARK_SHAPE_SESAME,
+            TextEmphasisSpan.MARK_FILL_OPEN,
+            TextAnnotation.POSITION_BEFORE);
+    SpannedSubject.assertThat(textAfterDecoding)
+        .hasHorizontalTextInVerticalContextSpanBetween("text ".length(), "text text".length());
+  }
+
+  @Test
+  public void serializingMostlyTransparentBitmapCue() {
+    CueEncoder encoder = new CueEncoder();
+    CueDecoder decoder = new CueDecoder();
+    Bitmap bitmap = Bitmap.createBitmap(100, 50, Bitmap.Config.ARGB_8888);
+    bitmap.setPixel(10, 20, Color.WHITE);
+    bitmap.setPixel(11, 20, Color.WHITE);
+    bitmap.setPixel(50, 30, Color.YELLOW);
+    Cue cue = new Cue.Builder().setBitmap(bitmap).setBitmapHeight(0.1f).build();
+
+    byte[] encodedCues = encoder.encode(ImmutableList.of(cue), /* durationUs= */ 2000);
+    Cue cueAfterDecoding = decoder.decode(/* startTimeUs= */ 1000, encodedCues).cues.get(0);
+
+    // Runs of identical pixels are stored only once.
+    assertThat(encodedCues.length).isLessThan(bitmap.getByteCount() / 10);
+    assertThat(cueAfterDecoding.bitmap.sameAs(bitmap)).isTrue();
+    assertThat(cueAfterDecoding.bitmapHeight).isEqualTo(0.1f);
+  }
+
+  @Test
+  public void encodeToParsableByteArray_reusesBufferAndDecodesWithTrailingData() {
+    CueEncoder encoder = new CueEncoder();
+    CueDecoder decoder = new CueDecoder();
+    ParsableByteArray output = new ParsableByteArray();
+    Cue firstCue = new Cue.Builder().setText("first cue text").build();
+    Cue secondCue = new Cue.Builder().setText("second").build();
+
+    encoder.encode(ImmutableList.of(firstCue), /* durationUs= */ 1000, output);
+    byte[] firstBuffer = output.getData();
+    encoder.encode(ImmutableList.of(secondCue), /* durationUs= */ 2000, output);
+
+    // The encoder reuses its buffer, so it still contains the tail of the first (longer) sample.
+    assertThat(output.getData()).isSameInstanceAs(firstBuffer);
+    assertThat(output.limit()).isLessThan(output.getData().length);
+    CuesWithTiming cuesAfterDecoding = decoder.decode(/* startTimeUs= */ 0, output.getData());
+    assertThat(cuesAfterDecoding.durationUs).isEqualTo(2000);
+    assertThat(cuesAfterDecoding.cues).hasSize(1);
+    assertThat(cuesAfterDecoding.cues.get(0).text.toString()).isEqualTo("second");
+  }
 }
@@ -178,6 +178,69 @@ public class SubtitleExtractorTest {
     assertThat(cues2.cues.get(0).text.toString()).isEqualTo("This is the third subtitle.");
   }
 
+  @Test
+  public void extractor_withWebvttParser_outputsSamplesBeforeEndOfInput() throws Exception {
+    StringBuilder longSubtitle = new StringBuilder("WEBVTT\n\n");
+    for (int i = 0; i < 1000; i++) {
+      longSubtitle.append(
+          Util.formatInvariant(
+              "%02d:%02d.000 --> %02d:%02d.500\nSubtitle %d.\n\n",
+              i / 60, i % 60, i / 60, i % 60, i));
+    }
+    FakeExtractorOutput output = new FakeExtractorOutput();
+    FakeExtractorInput input =
+        new FakeExtractorInput.Builder()
+            .setData(Util.getUtf8Bytes(longSubtitle.toString()))
+            .build();
+    SubtitleExtractor extractor =
+        new SubtitleExtractor(
+            new WebvttParser(), new Format.Builder().setSampleMimeType(MimeTypes.TEXT_VTT).build());
+    extractor.init(output);
+    FakeTrackOutput trackOutput = output.trackOutputs.get(0);
+
+    assertThat(extractor.read(input, null)).isEqualTo(Extractor.RESULT_CONTINUE);
+
+    assertThat(trackOutput.getSampleCount()).isGreaterThan(0);
+    CuesWithTiming cues0 = decodeSample(trackOutput, 0);
+    assertThat(cues0.startTimeUs).isEqualTo(0);
+    assertThat(cues0.durationUs).isEqualTo(500_000);
+    assertThat(cues0.cues.get(0).text.toString()).isEqualTo("Subtitle 0.");
+    while (extractor.read(input, null) != Extractor.RESULT_END_OF_INPUT) {}
+    assertThat(trackOutput.getSampleCount()).isEqualTo(1000);
+    CuesWithTiming lastCues = decodeSample(trackOutput, 999);
+    assertThat(lastCues.startTimeUs).isEqualTo(999_000_000);
+    assertThat(lastCues.durationUs).isEqualTo(500_000);
+    assertThat(lastCues.cues.get(0).text.toString()).isEqualTo("Subtitle 999.");
+  }
+
+  @Test
+  public void extractor_withParserNotParsingIncrementally_outputsSamplesAtEndOfInput()
+      throws Exception {
+    FakeExtractorOutput output = new FakeExtractorOutput();
+    FakeExtractorInput input =
+        new FakeExtractorInput.Builder()
+            .setData(Util.getUtf8Bytes(TEST_DATA))
+            .setSimulatePartialReads(true)
+            .build();
+    WebvttParser webvttParser = new WebvttParser();
+    // Only implements parse(byte[], int, int), so the whole file is parsed at the end of input.
+    SubtitleParser subtitleParser = webvttParser::parse;
+    SubtitleExtractor extractor =
+        new SubtitleExtractor(
+            subtitleParser, new Format.Builder().setSampleMimeType(MimeTypes.TEXT_VTT).build());
+    extractor.init(output);
+    FakeTrackOutput trackOutput = output.trackOutputs.get(0);
+
+    while (extractor.read(input, null) != Extractor.RESULT_END_OF_INPUT) {
+      assertThat(trackOutput.getSampleCount()).isEqualTo(0);
+    }
+
+    assertThat(trackOutput.getSampleCount()).isEqualTo(4);
+    CuesWithTiming cues0 = decodeSample(trackOutput, 0);
+    assertThat(cues0.startTimeUs).isEqualTo(0);
+    assertThat(cues0.cues.get(0).text.toString()).isEqualTo("This is the first subtitle.");
+  }
+
   @Test
   public void read_withoutInit_fails() {
     FakeExtractorInput input = new FakeExtractorInput.Builder().setData(new byte[0]).build();
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.extractor.text;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.media3.common.C;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit test for {@link TimeIntervalIndex}. */
+@RunWith(AndroidJUnit4.class)
+public final class TimeIntervalIndexTest {
+
+  @Test
+  public void getActiveIntervals_withNoIntervals_returnsNothing() {
+    TimeIntervalIndex index = new TimeIntervalIndex(new long[0], new long[0]);
+
+    assertThat(getActiveIntervals(index, 0)).isEmpty();
+    assertThat(getActiveIntervals(index, Long.MAX_VALUE)).isEmpty();
+  }
+
+  @Test
+  public void getActiveIntervals_includesStartAndExcludesEnd() {
+    TimeIntervalIndex index =
+        new TimeIntervalIndex(
+            /* startTimesUs= */ new long[] {1_000, 3_000},
+            /* endTimesUs= */ new long[] {2_000, 4_000});
+
+    assertThat(getActiveIntervals(index, 999)).isEmpty();
+    assertThat(getActiveIntervals(index, 1_000)).containsExactly(0);
+    assertThat(getActiveIntervals(index, 1_999)).containsExactly(0);
+    assertThat(getActiveIntervals(index, 2_000)).isEmpty();
+    assertThat(getActiveIntervals(index, 3_000)).containsExactly(1);
+    assertThat(getActiveIntervals(index, 4_000)).isEmpty();
+  }
+
+  @Test
+  public void getActiveIntervals_withOverlappingIntervals_returnsIndicesInAscendingOrder() {
+    TimeIntervalIndex index =
+        new TimeIntervalIndex(
+            /* startTimesUs= */ new long[] {3_000, 1_000, 2_000},
+            /* endTimesUs= */ new long[] {5_000, 4_000, 6_000});
+
+    assertThat(getActiveIntervals(index, 1_500)).containsExactly(1);
+    assertThat(getActiveIntervals(index, 3_500)).containsExactly(0, 1, 2).inOrder();
+    assertThat(getActiveIntervals(index, 4_500)).containsExactly(0, 2).inOrder();
+    assertThat(getActiveIntervals(index, 5_500)).containsExactly(2);
+  }
+
+  @Test
+  public void getActiveIntervals_withUnsetTimes_treatsIntervalsAsUnbounded() {
+    TimeIntervalIndex index =
+        new TimeIntervalIndex(
+            /* startTimesUs= */ new long[] {C.TIME_UNSET, 2_000, C.TIME_UNSET},
+            /* endTimesUs= */ new long[] {1_000, C.TIME_UNSET, C.TIME_UNSET});
+
+    assertThat(getActiveIntervals(index, Long.MIN_VALUE)).containsExactly(0, 2).inOrder();
+    assertThat(getActiveIntervals(index, 1_500)).containsExactly(2);
+    assertThat(getActiveIntervals(index, Long.MAX_VALUE)).containsExactly(1, 2).inOrder();
+  }
+
+  @Test
+  public void getActiveIntervals_withEmptyInterval_neverReturnsIt() {
+    TimeIntervalIndex index =
+        new TimeIntervalIndex(
+            /* startTimesUs= */ new long[] {1_000, 2_000},
+            /* endTimesUs= */ new long[] {1_000, 1_000});
+
+    assertThat(getActiveIntervals(index, 1_000)).isEmpty();
+    assertThat(getActiveIntervals(index, 1_500)).isEmpty();
+    assertThat(getActiveIntervals(index, 2_000)).isEmpty();
+  }
+
+  @Test
+  public void getSegmentIndex_withinSameSegment_returnsSameIndex() {
+    TimeIntervalIndex index =
+        new TimeIntervalIndex(
+            /* startTimesUs= */ new long[] {1_000, 1_000},
+            /* endTimesUs= */ new long[] {3_000, 2_000});
+
+    assertThat(index.getSegmentIndex(1_000)).isEqualTo(index.getSegmentIndex(1_999));
+    assertThat(index.getSegmentIndex(2_000)).isNotEqualTo(index.getSegmentIndex(1_999));
+  }
+
+  @Test
+  public void getActiveIntervals_matchesLinearScan() {
+    Random random = new Random(/* seed= */ 0);
+    int intervalCount = 200;
+    long[] startTimesUs = new long[intervalCount];
+    long[] endTimesUs = new long[intervalCount];
+    for (int i = 0; i < intervalCount; i++) {
+      startTimesUs[i] = random.nextInt(1_000);
+      endTimesUs[i] = startTimesUs[i] + random.nextInt(50);
+    }
+    TimeIntervalIndex index = new TimeIntervalIndex(startTimesUs, endTimesUs);
+
+    for (long timeUs = -1; timeUs <= 1_050; timeUs++) {
+      List<Integer> expectedIntervals = new ArrayList<>();
+      for (int i = 0; i < intervalCount; i++) {
+        if (startTimesUs[i] <= timeUs && timeUs < endTimesUs[i]) {
+          expectedIntervals.add(i);
+        }
+      }
+      assertThat(getActiveIntervals(index, timeUs))
+          .containsExactlyElementsIn(expectedIntervals)
+          .inOrder();
+    }
+  }
+
+  @Test
+  public void getActiveIntervals_withManyNestedIntervals_returnsActiveIntervals() {
+    // Every interval spans the segments of all the intervals nested inside it.
+    int intervalCount = 50_000;
+    long[] startTimesUs = new long[intervalCount];
+    long[] endTimesUs = new long[intervalCount];
+    for (int i = 0; i < intervalCount; i++) {
+      startTimesUs[i] = i;
+      endTimesUs[i] = 2L * intervalCount - i;
+    }
+    TimeIntervalIndex index = new TimeIntervalIndex(startTimesUs, endTimesUs);
+
+    assertThat(getActiveIntervals(index, -1)).isEmpty();
+    assertThat(getActiveIntervals(index, 0)).containsExactly(0);
+    assertThat(getActiveIntervals(index, 2)).containsExactly(0, 1, 2).inOrder();
+    assertThat(getActiveIntervals(index, intervalCount)).hasSize(intervalCount);
+    assertThat(getActiveIntervals(index, 2L * intervalCount - 2)).containsExactly(0, 1).inOrder();
+    assertThat(getActiveIntervals(index, 2L * intervalCount)).isEmpty();
+  }
+
+  private static List<Integer> getActiveIntervals(TimeIntervalIndex index, long timeUs) {
+    List<Integer> activeIntervals = new ArrayList<>();
+    for (int interval : index.getActiveIntervals(timeUs)) {
+      activeIntervals.add(interval);
+    }
+    return activeIntervals;
+  }
+}
@@ -71,6 +71,7 @@ public final class TtmlDecoderTest {
   private static final String RUBIES_FILE = "media/ttml/rubies.xml";
   private static final String TEXT_EMPHASIS_FILE = "media/ttml/text_emphasis.xml";
   private static final String SHEAR_FILE = "media/ttml/shear.xml";
+  private static final String MANY_PARAGRAPHS_FILE = "media/ttml/many_paragraphs.xml";
 
   @Test
   public void inlineAttributes() throws IOException, SubtitleDecoderException {
@@ -910,6 +911,37 @@ public final class TtmlDecoderTest {
     assertThat(cuesWithTimingsList).hasSize(6);
   }
 
+  @Test
+  public void manyParagraphs() throws Exception {
+    TtmlSubtitle subtitle = getSubtitle(MANY_PARAGRAPHS_FILE);
+
+    assertThat(subtitle.getCues(999_999)).isEmpty();
+    assertThat(getOnlyCueTextAtTimeUs(subtitle, 1_000_000).toString()).isEqualTo("text 1");
+    assertThat(getOnlyCueTextAtTimeUs(subtitle, 2_000_000).toString()).isEqualTo("text 2");
+    assertThat(getOnlyCueTextAtTimeUs(subtitle, 3_500_000).toString())
+        .isEqualTo("text 2\ntext 3");
+    assertThat(getOnlyCueTextAtTimeUs(subtitle, 5_000_000).toString()).isEqualTo("text 4");
+    assertThat(getOnlyCueTextAtTimeUs(subtitle, 5_500_000).toString())
+        .isEqualTo("text 4 and more");
+    assertThat(getOnlyCueTextAtTimeUs(subtitle, 6_000_000).toString())
+        .isEqualTo("text 5\nline 2");
+    assertThat(getOnlyCueTextAtTimeUs(subtitle, 10_999_999).toString()).isEqualTo("text 9");
+    assertThat(getOnlyCueTextAtTimeUs(subtitle, 11_000_000).toString()).isEqualTo("abc\ndfgh");
+    assertThat(getOnlyCueTextAtTimeUs(subtitle, 11_500_000).toString()).isEqualTo("abc\ndefgh");
+    assertThat(getOnlyCueTextAtTimeUs(subtitle, 12_000_000).toString()).isEqualTo("text 10");
+    assertThat(getOnlyCueTextAtTimeUs(subtitle, Long.MAX_VALUE).toString()).isEqualTo("text 10");
+  }
+
+  @Test
+  public void getCues_withUnchangedActiveNodes_returnsSameList() throws Exception {
+    TtmlSubtitle subtitle = getSubtitle(MANY_PARAGRAPHS_FILE);
+
+    List<Cue> cues = subtitle.getCues(3_000_000);
+
+    assertThat(subtitle.getCues(3_999_999)).isSameInstanceAs(cues);
+    assertThat(subtitle.getCues(4_000_000)).isNotSameInstanceAs(cues);
+  }
+
   private static Spanned getOnlyCueTextAtTimeUs(Subtitle subtitle, long timeUs) {
     Cue cue = getOnlyCueAtTimeUs(subtitle, timeUs);
     assertThat(cue.text).isInstanceOf(Spanned.class);
@@ -17,14 +17,17 @@ package androidx.media3.extractor.text.webvtt;
 
 import static androidx.media3.test.utils.truth.SpannedSubject.assertThat;
 import static com.google.common.truth.Truth.assertThat;
+import static java.lang.Math.min;
 import static org.junit.Assert.assertThrows;
 
 import android.text.Layout.Alignment;
 import android.text.Spanned;
+import androidx.annotation.Nullable;
 import androidx.media3.common.text.Cue;
 import androidx.media3.common.text.TextAnnotation;
 import androidx.media3.common.util.Assertions;
 import androidx.media3.common.util.ColorParser;
+import androidx.media3.common.util.Util;
 import androidx.media3.extractor.text.CuesWithTiming;
 import androidx.media3.test.utils.TestUtil;
 import androidx.test.core.app.ApplicationProvider;
@@ -33,6 +36,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.truth.Expect;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import org.junit.Rule;
 import org.junit.Test;
@@ -551,6 +555,151 @@ public class WebvttParserTest {
             "Combine ".length(), "Combine 0004".length());
   }
 
+  @Test
+  public void parseIncrementally_inSmallParts_returnsSameCuesAsParse() throws Exception {
+    ImmutableList<String> assets =
+        ImmutableList.of(
+            TYPICAL_FILE,
+            TYPICAL_WITH_COMMENTS_FILE,
+            WITH_POSITIONING_FILE,
+            WITH_OVERLAPPING_TIMESTAMPS_FILE,
+            WITH_RUBIES_FILE,
+            WITH_CSS_STYLES,
+            WITH_BOM);
+    for (String asset : assets) {
+      byte[] bytes = TestUtil.getByteArray(ApplicationProvider.getApplicationContext(), asset);
+      List<CuesWithTiming> expectedCues = new WebvttParser().parse(bytes);
+
+      for (int partLength : new int[] {1, 7, 64}) {
+        List<CuesWithTiming> cues = parseIncrementally(new WebvttParser(), bytes, partLength);
+
+        expect
+            .withMessage(asset + ", partLength=" + partLength)
+            .that(cues)
+            .hasSize(expectedCues.size());
+        for (int i = 0; i < cues.size() && i < expectedCues.size(); i++) {
+          expect.that(cues.get(i).startTimeUs).isEqualTo(expectedCues.get(i).startTimeUs);
+          expect.that(cues.get(i).durationUs).isEqualTo(expectedCues.get(i).durationUs);
+          expect.that(cues.get(i).cues).isEqualTo(expectedCues.get(i).cues);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void parseIncrementally_returnsCuesBeforeEndOfInput() throws Exception {
+    WebvttParser parser = new WebvttParser();
+    String header = "WEBVTT\n\n";
+    String firstCue = "00:00.000 --> 00:01.000\nFirst\n\n";
+    String secondCue = "00:02.000 --> 00:03.000\nSecond\n\n";
+    String thirdCue = "00:04.000 --> 00:05.000\nThird";
+    byte[] bytes = Util.getUtf8Bytes(header + firstCue + secondCue + thirdCue);
+    int headerEnd = header.length();
+    int firstCueEnd = headerEnd + firstCue.length();
+    int secondCueEnd = firstCueEnd + secondCue.length();
+
+    assertThat(parser.parseIncrementally(bytes, 0, headerEnd, /* endOfInput= */ false)).isNull();
+    // The first cue can't be output yet, because a later cue might start before it ends.
+    assertThat(parser.parseIncrementally(bytes, 0, firstCueEnd, /* endOfInput= */ false)).isNull();
+    List<CuesWithTiming> cues =
+        parser.parseIncrementally(bytes, 0, secondCueEnd, /* endOfInput= */ false);
+    assertThat(cues).hasSize(1);
+    assertThat(cues.get(0).startTimeUs).isEqualTo(0);
+    assertThat(cues.get(0).durationUs).isEqualTo(1_000_000);
+    assertThat(Iterables.getOnlyElement(cues.get(0).cues).text.toString()).isEqualTo("First");
+    // The third cue isn't terminated by an empty line, so it's only parsed at the end of input.
+    assertThat(parser.parseIncrementally(bytes, 0, bytes.length, /* endOfInput= */ false))
+        .isNull();
+    cues = parser.parseIncrementally(bytes, 0, bytes.length, /* endOfInput= */ true);
+    assertThat(cues).hasSize(2);
+    assertThat(cues.get(0).startTimeUs).isEqualTo(2_000_000);
+    assertThat(cues.get(0).durationUs).isEqualTo(1_000_000);
+    assertThat(cues.get(1).startTimeUs).isEqualTo(4_000_000);
+    assertThat(cues.get(1).durationUs).isEqualTo(1_000_000);
+    assertThat(Iterables.getOnlyElement(cues.get(1).cues).text.toString()).isEqualTo("Third");
+  }
+
+  @Test
+  public void parseIncrementally_withCuesOutOfOrderBeforeOutput_returnsSameCuesAsParse() {
+    byte[] bytes =
+        Util.getUtf8Bytes(
+            "WEBVTT\n\n"
+                + "00:02.000 --> 00:03.000\nSecond\n\n"
+                + "00:00.000 --> 00:01.000\nFirst\n\n"
+                + "00:04.000 --> 00:05.000\nThird\n\n"
+                + "00:06.000 --> 00:07.000\nFourth\n");
+    List<CuesWithTiming> expectedCues = new WebvttParser().parse(bytes);
+
+    List<CuesWithTiming> cues = parseIncrementally(new WebvttParser(), bytes, /* partLength= */ 1);
+
+    assertThat(cues).hasSize(expectedCues.size());
+    for (int i = 0; i < cues.size(); i++) {
+      assertThat(cues.get(i).startTimeUs).isEqualTo(expectedCues.get(i).startTimeUs);
+      assertThat(cues.get(i).durationUs).isEqualTo(expectedCues.get(i).durationUs);
+      assertThat(cues.get(i).cues).isEqualTo(expectedCues.get(i).cues);
+    }
+  }
+
+  @Test
+  public void parseIncrementally_withCuesOutOfOrderAfterOutput_returnsCuesOfParseFromOutputTime() {
+    WebvttParser parser = new WebvttParser();
+    String beforeOutOfOrderCue =
+        "WEBVTT\n\n"
+            + "00:00.000 --> 00:01.000\nFirst\n\n"
+            + "00:02.000 --> 00:04.000\nSecond\n\n";
+    byte[] bytes =
+        Util.getUtf8Bytes(
+            beforeOutOfOrderCue
+                + "00:01.500 --> 00:03.000\nEarly\n\n"
+                + "00:03.500 --> 00:05.000\nThird\n\n"
+                + "00:02.500 --> 00:03.200\nAlso early\n");
+
+    List<CuesWithTiming> cues =
+        parser.parseIncrementally(
+            bytes, 0, beforeOutOfOrderCue.length(), /* endOfInput= */ false);
+    assertThat(cues).hasSize(1);
+    assertThat(cues.get(0).startTimeUs).isEqualTo(0);
+    assertThat(parser.parseIncrementally(bytes, 0, bytes.length - 1, /* endOfInput= */ false))
+        .isNull();
+    cues = parser.parseIncrementally(bytes, 0, bytes.length, /* endOfInput= */ true);
+
+    // Everything from the time up to which cues were output is the same as for parse().
+    List<CuesWithTiming> expectedCues = new WebvttParser().parse(bytes);
+    expectedCues = expectedCues.subList(expectedCues.size() - cues.size(), expectedCues.size());
+    assertThat(cues.get(0).startTimeUs).isEqualTo(2_000_000);
+    assertThat(cues.get(0).durationUs).isEqualTo(500_000);
+    assertThat(cues.get(0).cues).isEqualTo(expectedCues.get(0).cues);
+    for (int i = 1; i < cues.size(); i++) {
+      assertThat(cues.get(i).startTimeUs).isEqualTo(expectedCues.get(i).startTimeUs);
+      assertThat(cues.get(i).durationUs).isEqualTo(expectedCues.get(i).durationUs);
+      assertThat(cues.get(i).cues).isEqualTo(expectedCues.get(i).cues);
+    }
+  }
+
+  @Test
+  public void parseIncrementally_afterReset_parsesNewFile() throws Exception {
+    WebvttParser parser = new WebvttParser();
+    byte[] bytes = TestUtil.getByteArray(ApplicationProvider.getApplicationContext(), TYPICAL_FILE);
+    parser.parseIncrementally(bytes, 0, bytes.length / 2, /* endOfInput= */ false);
+
+    parser.reset();
+    List<CuesWithTiming> cues = parseIncrementally(parser, bytes, bytes.length);
+
+    assertThat(cues).hasSize(2);
+    assertThat(cues.get(0).startTimeUs).isEqualTo(0);
+    assertThat(cues.get(1).startTimeUs).isEqualTo(2_345_000);
+  }
+
+  @Test
+  public void parseIncrementally_empty_throws() throws Exception {
+    WebvttParser parser = new WebvttParser();
+    byte[] bytes = TestUtil.getByteArray(ApplicationProvider.getApplicationContext(), EMPTY_FILE);
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> parser.parseIncrementally(bytes, 0, bytes.length, /* endOfInput= */ true));
+  }
+
   private List<CuesWithTiming> getCuesForTestAsset(String asset) throws IOException {
     WebvttParser parser = new WebvttParser();
     byte[] bytes = TestUtil.getByteArray(ApplicationProvider.getApplicationContext(), asset);
@@ -560,4 +709,20 @@ public class WebvttParserTest {
   private Spanned getUniqueSpanTextAt(CuesWithTiming cuesWithTiming) {
     return (Spanned) Assertions.checkNotNull(cuesWithTiming.cues.get(0).text);
   }
+
+  private static List<CuesWithTiming> parseIncrementally(
+      WebvttParser parser, byte[] bytes, int partLength) {
+    List<CuesWithTiming> cues = new ArrayList<>();
+    for (int length = 0; length < bytes.length; ) {
+      length = min(length + partLength, bytes.length);
+      @Nullable
+      List<CuesWithTiming> parsedCues =
+          parser.parseIncrementally(
+              bytes, /* offset= */ 0, length, /* endOfInput= */ length == bytes.length);
+      if (parsedCues != null) {
+        cues.addAll(parsedCues);
+      }
+    }
+    return cues;
+  }
 }
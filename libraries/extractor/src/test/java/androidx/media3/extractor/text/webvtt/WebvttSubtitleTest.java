@@ -299,6 +299,18 @@ public class WebvttSubtitleTest {
     assertThat(nestedSubtitle.getCues(Long.MAX_VALUE)).isEmpty();
   }
 
+  @Test
+  public void getCues_withUnchangedActiveCues_returnsSameList() {
+    List<Cue> cues = overlappingSubtitle.getCues(2_000_000);
+
+    assertThat(overlappingSubtitle.getCues(2_999_999)).isSameInstanceAs(cues);
+    assertThat(getCueTexts(overlappingSubtitle.getCues(3_000_000)))
+        .containsExactly(SECOND_SUBTITLE_STRING);
+    assertThat(getCueTexts(overlappingSubtitle.getCues(2_500_000)))
+        .containsExactly(FIRST_SUBTITLE_STRING, SECOND_SUBTITLE_STRING)
+        .inOrder();
+  }
+
   @Test
   public void toCuesWithTimingConversion() {
     ImmutableList<CuesWithTiming> cuesWithTimingsList = simpleSubtitle.toCuesWithTimingList();
@@ -22,8 +22,10 @@ import androidx.media3.datasource.DataSourceUtil;
 import androidx.media3.datasource.DefaultDataSource;
 import androidx.media3.extractor.Extractor;
 import androidx.media3.extractor.ExtractorInput;
+import androidx.media3.extractor.ForwardingSeekMap;
 import androidx.media3.extractor.PositionHolder;
 import androidx.media3.extractor.SeekMap;
+import androidx.media3.extractor.SeekPoint;
 import androidx.media3.test.utils.FakeExtractorOutput;
 import androidx.media3.test.utils.FakeTrackOutput;
 import androidx.media3.test.utils.TestUtil;
@@ -98,6 +100,41 @@ public final class TsExtractorSeekTest {
         trackOutput, targetSeekTimeUs, extractedFrameIndex);
   }
 
+  @Test
+  public void handlePendingSeek_fromPositionOtherThanEstimate_extractsCorrectFrame()
+      throws IOException {
+    TsExtractor extractor = new TsExtractor();
+    Uri fileUri = TestUtil.buildAssetUri(TEST_FILE);
+
+    FakeExtractorOutput extractorOutput = new FakeExtractorOutput();
+    SeekMap seekMap = TestUtil.extractSeekMap(extractor, extractorOutput, dataSource, fileUri);
+    FakeTrackOutput trackOutput = extractorOutput.trackOutputs.get(AUDIO_TRACK_ID);
+    // Start the seek from a position before the estimated one, as if it had been taken from a
+    // previously resolved seek.
+    SeekMap seekMapWithOtherPositions =
+        new ForwardingSeekMap(seekMap) {
+          @Override
+          public SeekPoints getSeekPoints(long timeUs) {
+            SeekPoint seekPoint = super.getSeekPoints(timeUs).first;
+            return new SeekPoints(new SeekPoint(seekPoint.timeUs, seekPoint.position / 2));
+          }
+        };
+
+    long targetSeekTimeUs = 987_000;
+    int extractedFrameIndex =
+        TestUtil.seekToTimeUs(
+            extractor,
+            seekMapWithOtherPositions,
+            targetSeekTimeUs,
+            dataSource,
+            trackOutput,
+            fileUri);
+
+    assertThat(extractedFrameIndex).isNotEqualTo(-1);
+    assertFirstFrameAfterSeekContainTargetSeekTime(
+        trackOutput, targetSeekTimeUs, extractedFrameIndex);
+  }
+
   @Test
   public void handlePendingSeek_handlesSeekToEoF_extractsLastFrame() throws IOException {
     TsExtractor extractor = new TsExtractor();
@@ -784,10 +784,130 @@ import java.util.Locale;
 
   /** Creates the ftyp box. */
   public static ByteBuffer ftyp() {
+    return ftyp(/* majorBrand= */ "isom", /* compatibleBrands= */ "isom", "iso2", "mp41");
+  }
+
+  /** Creates the ftyp box for a fragmented MP4 file. */
+  public static ByteBuffer fragmentedFtyp() {
+    return ftyp(/* majorBrand= */ "iso6", /* compatibleBrands= */ "isom", "iso6", "mp41");
+  }
+
+  /**
+   * Returns the mvex (movie extends) box.
+   *
+   * <p>This box signals that the file is fragmented, and contains defaults for the samples in the
+   * fragments.
+   */
+  public static ByteBuffer mvex(List<ByteBuffer> trexBoxes) {
+    return BoxUtils.wrapBoxesIntoBox("mvex", trexBoxes);
+  }
+
+  /** Returns the trex (track extends) box. */
+  public static ByteBuffer trex(int trackId) {
+    ByteBuffer contents = ByteBuffer.allocate(Mp4Utils.MAX_FIXED_LEAF_BOX_SIZE);
+
+    contents.putInt(0x0); // version and flags.
+    contents.putInt(trackId);
+    contents.putInt(1); // default_sample_description_index.
+    contents.putInt(0); // default_sample_duration.
+    contents.putInt(0); // default_sample_size.
+    contents.putInt(0); // default_sample_flags.
+
+    contents.flip();
+    return BoxUtils.wrapIntoBox("trex", contents);
+  }
+
+  /** Returns the moof (movie fragment) box. */
+  public static ByteBuffer moof(ByteBuffer mfhdBox, List<ByteBuffer> trafBoxes) {
+    List<ByteBuffer> subBoxes = new ArrayList<>();
+    subBoxes.add(mfhdBox);
+    subBoxes.addAll(trafBoxes);
+    return BoxUtils.wrapBoxesIntoBox("moof", subBoxes);
+  }
+
+  /** Returns the mfhd (movie fragment header) box. */
+  public static ByteBuffer mfhd(int sequenceNumber) {
+    ByteBuffer contents = ByteBuffer.allocate(Mp4Utils.MAX_FIXED_LEAF_BOX_SIZE);
+
+    contents.putInt(0x0); // version and flags.
+    contents.putInt(sequenceNumber);
+
+    contents.flip();
+    return BoxUtils.wrapIntoBox("mfhd", contents);
+  }
+
+  /** Returns the traf (track fragment) box. */
+  public static ByteBuffer traf(ByteBuffer tfhdBox, ByteBuffer tfdtBox, ByteBuffer trunBox) {
+    return BoxUtils.wrapBoxesIntoBox("traf", ImmutableList.of(tfhdBox, tfdtBox, trunBox));
+  }
+
+  /** Returns the tfhd (track fragment header) box. */
+  public static ByteBuffer tfhd(int trackId) {
+    ByteBuffer contents = ByteBuffer.allocate(Mp4Utils.MAX_FIXED_LEAF_BOX_SIZE);
+
+    // Version 0 and flags; default-base-is-moof, so that data offsets are relative to the moof box.
+    contents.putInt(0x020000);
+    contents.putInt(trackId);
+
+    contents.flip();
+    return BoxUtils.wrapIntoBox("tfhd", contents);
+  }
+
+  /** Returns the tfdt (track fragment decode time) box. */
+  public static ByteBuffer tfdt(long baseMediaDecodeTimeVu) {
+    ByteBuffer contents = ByteBuffer.allocate(Mp4Utils.MAX_FIXED_LEAF_BOX_SIZE);
+
+    contents.putInt(0x01000000); // version 1 (64-bit decode time) and flags.
+    contents.putLong(baseMediaDecodeTimeVu);
+
+    contents.flip();
+    return BoxUtils.wrapIntoBox("tfdt", contents);
+  }
+
+  /**
+   * Returns the trun (track fragment run) box.
+   *
+   * @param samples The samples in the run.
+   * @param durationsVu The durations of the samples, in track timebase units.
+   * @param allSamplesAreSyncSamples Whether all samples are sync samples, irrespective of their
+   *     flags.
+   * @param dataOffset The offset of the first sample in the run from the start of the moof box.
+   */
+  public static ByteBuffer trun(
+      List<MediaCodec.BufferInfo> samples,
+      List<Long> durationsVu,
+      boolean allSamplesAreSyncSamples,
+      int dataOffset) {
+    checkArgument(samples.size() == durationsVu.size());
+    ByteBuffer contents =
+        ByteBuffer.allocate(samples.size() * 12 + Mp4Utils.MAX_FIXED_LEAF_BOX_SIZE);
+
+    // Version 0 and flags; data-offset-present, sample-duration-present, sample-size-present and
+    // sample-flags-present.
+    contents.putInt(0x000701);
+    contents.putInt(samples.size()); // sample_count.
+    contents.putInt(dataOffset);
+
+    for (int i = 0; i < samples.size(); i++) {
+      MediaCodec.BufferInfo info = samples.get(i);
+      contents.putInt(durationsVu.get(i).intValue()); // sample_duration.
+      contents.putInt(info.size); // sample_size.
+      boolean isSyncSample =
+          allSamplesAreSyncSamples || (info.flags & MediaCodec.BUFFER_FLAG_KEY_FRAME) > 0;
+      // sample_flags; sample_depends_on is 2 for sync samples and 1 with sample_is_non_sync_sample
+      // set otherwise.
+      contents.putInt(isSyncSample ? 0x02000000 : 0x01010000);
+    }
+
+    contents.flip();
+    return BoxUtils.wrapIntoBox("trun", contents);
+  }
+
+  /** Creates an ftyp box with the given brands. */
+  private static ByteBuffer ftyp(String majorBrand, String... compatibleBrands) {
     List<ByteBuffer> boxBytes = new ArrayList<>();
 
-    String majorVersion = "isom";
-    boxBytes.add(ByteBuffer.wrap(Util.getUtf8Bytes(majorVersion)));
+    boxBytes.add(ByteBuffer.wrap(Util.getUtf8Bytes(majorBrand)));
 
     int minorVersion = 0x020000;
     ByteBuffer minorBytes = ByteBuffer.allocate(4);
@@ -795,7 +915,6 @@ import java.util.Locale;
     minorBytes.flip();
     boxBytes.add(minorBytes);
 
-    String[] compatibleBrands = {"isom", "iso2", "mp41"};
     for (String compatibleBrand : compatibleBrands) {
       boxBytes.add(ByteBuffer.wrap(Util.getUtf8Bytes(compatibleBrand)));
     }
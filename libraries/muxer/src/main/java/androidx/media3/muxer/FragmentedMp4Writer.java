@@ -0,0 +1,387 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.muxer;
+
+import static androidx.media3.common.util.Assertions.checkNotNull;
+import static androidx.media3.common.util.Assertions.checkState;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import android.media.MediaCodec;
+import android.media.MediaCodec.BufferInfo;
+import android.util.Pair;
+import androidx.annotation.Nullable;
+import androidx.media3.common.C;
+import androidx.media3.common.Format;
+import androidx.media3.common.MimeTypes;
+import androidx.media3.common.util.Util;
+import androidx.media3.muxer.Mp4Muxer.TrackToken;
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Writes fragmented MP4 data to a {@link WritableByteChannel}.
+ *
+ * <p>The output starts with an ftyp box and a moov box describing all the tracks, followed by
+ * fragments consisting of a moof box and an mdat box. Data is only ever appended to the output, so
+ * it doesn't need to be seekable, and only the samples of the current fragment are kept in memory.
+ *
+ * <p>All tracks must be added before the first fragment is written. If there's a video track, a new
+ * fragment is started at the first video key frame after the fragment duration has elapsed.
+ * Otherwise a new fragment is started at the first sample after the fragment duration has elapsed.
+ */
+/* package */ final class FragmentedMp4Writer implements MuxerWriter {
+
+  private final WritableByteChannel output;
+  private final Mp4MoovStructure moovGenerator;
+  private final AnnexBToAvccConverter annexBToAvccConverter;
+  private final @Mp4Muxer.LastFrameDurationBehavior int lastFrameDurationBehavior;
+  private final long fragmentDurationUs;
+  private final List<Track> tracks;
+
+  private boolean headerWritten;
+  private boolean hasVideoTrack;
+  private long minInputPtsUs;
+  private long currentFragmentStartUs;
+  private int nextFragmentSequenceNumber;
+
+  /**
+   * Creates an instance.
+   *
+   * @param output The {@link WritableByteChannel} to write the data to.
+   * @param moovGenerator An {@link Mp4MoovStructure} instance to generate the moov box.
+   * @param annexBToAvccConverter The {@link AnnexBToAvccConverter} to be used to convert H.264 and
+   *     H.265 NAL units from the Annex-B format (using start codes to delineate NAL units) to the
+   *     AVCC format (which uses length prefixes).
+   * @param lastFrameDurationBehavior The {@link Mp4Muxer.LastFrameDurationBehavior} for the last
+   *     sample of each track.
+   * @param fragmentDurationUs The minimum duration of each fragment, in microseconds.
+   */
+  public FragmentedMp4Writer(
+      WritableByteChannel output,
+      Mp4MoovStructure moovGenerator,
+      AnnexBToAvccConverter annexBToAvccConverter,
+      @Mp4Muxer.LastFrameDurationBehavior int lastFrameDurationBehavior,
+      long fragmentDurationUs) {
+    this.output = output;
+    this.moovGenerator = moovGenerator;
+    this.annexBToAvccConverter = annexBToAvccConverter;
+    this.lastFrameDurationBehavior = lastFrameDurationBehavior;
+    this.fragmentDurationUs = fragmentDurationUs;
+    tracks = new ArrayList<>();
+    currentFragmentStartUs = C.TIME_UNSET;
+    nextFragmentSequenceNumber = 1;
+  }
+
+  @Override
+  public TrackToken addTrack(int sortKey, Format format) {
+    checkState(!headerWritten, "Tracks must be added before the first fragment is written.");
+    Track track = new Track(format, sortKey);
+    tracks.add(track);
+    Collections.sort(tracks, (a, b) -> Integer.compare(a.sortKey, b.sortKey));
+    hasVideoTrack |= MimeTypes.isVideo(format.sampleMimeType);
+    return track;
+  }
+
+  @Override
+  public void writeSampleData(TrackToken token, ByteBuffer byteBuf, BufferInfo bufferInfo)
+      throws IOException {
+    checkState(token instanceof Track);
+    ((Track) token).writeSampleData(byteBuf, bufferInfo);
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      // Leave the output empty if no samples are written.
+      writeFragment(/* nextFragmentTrack= */ null, /* nextFragmentStartUs= */ C.TIME_UNSET);
+    } finally {
+      output.close();
+    }
+  }
+
+  private void onSampleAdded(Track track, BufferInfo bufferInfo) throws IOException {
+    if (currentFragmentStartUs != C.TIME_UNSET
+        && bufferInfo.presentationTimeUs - currentFragmentStartUs >= fragmentDurationUs
+        && (!hasVideoTrack
+            || (MimeTypes.isVideo(track.format.sampleMimeType)
+                && (bufferInfo.flags & MediaCodec.BUFFER_FLAG_KEY_FRAME) > 0))) {
+      writeFragment(/* nextFragmentTrack= */ track, bufferInfo.presentationTimeUs);
+    }
+    if (currentFragmentStartUs == C.TIME_UNSET) {
+      currentFragmentStartUs = bufferInfo.presentationTimeUs;
+    }
+  }
+
+  /**
+   * Writes the pending samples of all the tracks as a fragment.
+   *
+   * @param nextFragmentTrack The track of the sample that starts the next fragment, or null if this
+   *     is the last fragment.
+   * @param nextFragmentStartUs The presentation time of the sample that starts the next fragment,
+   *     in microseconds, or {@link C#TIME_UNSET} if this is the last fragment.
+   */
+  private void writeFragment(@Nullable Track nextFragmentTrack, long nextFragmentStartUs)
+      throws IOException {
+    List<Track> fragmentTracks = new ArrayList<>();
+    for (int i = 0; i < tracks.size(); i++) {
+      if (!tracks.get(i).pendingSamples.isEmpty()) {
+        fragmentTracks.add(tracks.get(i));
+      }
+    }
+    if (fragmentTracks.isEmpty()) {
+      return;
+    }
+
+    if (!headerWritten) {
+      writeHeader();
+    }
+
+    List<List<BufferInfo>> fragmentSamples = new ArrayList<>();
+    List<List<Long>> fragmentSampleDurationsVu = new ArrayList<>();
+    List<Long> baseMediaDecodeTimesVu = new ArrayList<>();
+    long mdatDataBytes = 0;
+    for (int i = 0; i < fragmentTracks.size(); i++) {
+      Track track = fragmentTracks.get(i);
+      List<BufferInfo> samples = new ArrayList<>();
+      for (Pair<BufferInfo, ByteBuffer> pendingSample : track.pendingSamples) {
+        samples.add(pendingSample.first);
+        // Convert the H.264/H.265 samples from Annex-B format (output by MediaCodec) to
+        // Avcc format (required by MP4 container).
+        if (MimeTypes.isVideo(track.format.sampleMimeType)) {
+          annexBToAvccConverter.process(pendingSample.second);
+        }
+        pendingSample.second.rewind();
+        mdatDataBytes += pendingSample.second.remaining();
+      }
+      fragmentSamples.add(samples);
+      fragmentSampleDurationsVu.add(
+          getSampleDurationsVu(track, samples, nextFragmentTrack, nextFragmentStartUs));
+      baseMediaDecodeTimesVu.add(
+          Mp4Utils.vuFromUs(
+              max(0, samples.get(0).presentationTimeUs - minInputPtsUs),
+              track.videoUnitTimebase()));
+    }
+
+    // The size of the moof box doesn't depend on the data offsets, so first create it with
+    // placeholder offsets to determine its size.
+    int moofSize =
+        createMoof(
+                fragmentTracks,
+                fragmentSamples,
+                fragmentSampleDurationsVu,
+                baseMediaDecodeTimesVu,
+                /* firstDataOffset= */ 0)
+            .remaining();
+    // Moof boxes and mdat headers are 32-bit, and the samples of a fragment are in memory anyway.
+    checkState(moofSize + 8 + mdatDataBytes <= Integer.MAX_VALUE);
+    ByteBuffer moof =
+        createMoof(
+            fragmentTracks,
+            fragmentSamples,
+            fragmentSampleDurationsVu,
+            baseMediaDecodeTimesVu,
+            /* firstDataOffset= */ moofSize + 8);
+    writeFully(moof);
+
+    ByteBuffer mdatHeader = ByteBuffer.allocate(8);
+    mdatHeader.putInt((int) (mdatDataBytes + 8));
+    mdatHeader.put(Util.getUtf8Bytes("mdat"));
+    mdatHeader.flip();
+    writeFully(mdatHeader);
+
+    for (int i = 0; i < fragmentTracks.size(); i++) {
+      Deque<Pair<BufferInfo, ByteBuffer>> pendingSamples = fragmentTracks.get(i).pendingSamples;
+      while (!pendingSamples.isEmpty()) {
+        writeFully(pendingSamples.removeFirst().second);
+      }
+    }
+
+    nextFragmentSequenceNumber++;
+    currentFragmentStartUs = C.TIME_UNSET;
+  }
+
+  private void writeHeader() throws IOException {
+    minInputPtsUs = Long.MAX_VALUE;
+    for (int i = 0; i < tracks.size(); i++) {
+      Track track = tracks.get(i);
+      if (!track.pendingSamples.isEmpty()) {
+        minInputPtsUs =
+            min(
+                minInputPtsUs,
+                checkNotNull(track.pendingSamples.peekFirst()).first.presentationTimeUs);
+      }
+    }
+    writeFully(Boxes.fragmentedFtyp());
+    writeFully(
+        moovGenerator.moovMetadataHeader(tracks, minInputPtsUs, /* isFragmentedMp4= */ true));
+    headerWritten = true;
+  }
+
+  private ByteBuffer createMoof(
+      List<Track> fragmentTracks,
+      List<List<BufferInfo>> fragmentSamples,
+      List<List<Long>> fragmentSampleDurationsVu,
+      List<Long> baseMediaDecodeTimesVu,
+      int firstDataOffset) {
+    List<ByteBuffer> trafBoxes = new ArrayList<>();
+    int dataOffset = firstDataOffset;
+    for (int i = 0; i < fragmentTracks.size(); i++) {
+      Track track = fragmentTracks.get(i);
+      // The track IDs in the moov box are assigned in the order of the tracks.
+      int trackId = tracks.indexOf(track) + 1;
+      trafBoxes.add(
+          Boxes.traf(
+              Boxes.tfhd(trackId),
+              Boxes.tfdt(baseMediaDecodeTimesVu.get(i)),
+              Boxes.trun(
+                  fragmentSamples.get(i),
+                  fragmentSampleDurationsVu.get(i),
+                  /* allSamplesAreSyncSamples= */ !MimeTypes.isVideo(track.format.sampleMimeType),
+                  dataOffset)));
+      for (Pair<BufferInfo, ByteBuffer> pendingSample : track.pendingSamples) {
+        dataOffset += pendingSample.second.remaining();
+      }
+    }
+    return Boxes.moof(Boxes.mfhd(nextFragmentSequenceNumber), trafBoxes);
+  }
+
+  /**
+   * Returns the durations of the samples of a fragment, in track timebase units.
+   *
+   * <p>The last sample of the track whose sample starts the next fragment lasts until that sample.
+   * The next sample of the other tracks isn't known yet, so their last sample gets the duration of
+   * the sample before it. For the last fragment, the duration of the last sample is determined by
+   * the {@link Mp4Muxer.LastFrameDurationBehavior}.
+   */
+  private List<Long> getSampleDurationsVu(
+      Track track,
+      List<BufferInfo> samples,
+      @Nullable Track nextFragmentTrack,
+      long nextFragmentStartUs) {
+    List<Long> durationsVu = new ArrayList<>(samples.size());
+    for (int i = 0; i < samples.size(); i++) {
+      long samplePtsUs = samples.get(i).presentationTimeUs;
+      long previousSampleDurationUs =
+          i > 0
+              ? samplePtsUs - samples.get(i - 1).presentationTimeUs
+              : track.lastSampleDurationUs;
+      long sampleEndUs;
+      if (i < samples.size() - 1) {
+        sampleEndUs = samples.get(i + 1).presentationTimeUs;
+      } else if (nextFragmentStartUs != C.TIME_UNSET) {
+        if (track == nextFragmentTrack || previousSampleDurationUs == C.TIME_UNSET) {
+          // The next sample starts the next fragment, or there's no previous sample duration to
+          // reuse, in which case the start of the next fragment is the best available estimate.
+          sampleEndUs = max(samplePtsUs, nextFragmentStartUs);
+        } else {
+          sampleEndUs = samplePtsUs + previousSampleDurationUs;
+        }
+      } else if (lastFrameDurationBehavior
+              == Mp4Muxer.LAST_FRAME_DURATION_BEHAVIOR_DUPLICATE_PREV_DURATION
+          && previousSampleDurationUs != C.TIME_UNSET) {
+        sampleEndUs = samplePtsUs + previousSampleDurationUs;
+      } else {
+        sampleEndUs = samplePtsUs;
+      }
+      track.lastSampleDurationUs = sampleEndUs - samplePtsUs;
+      long durationVu =
+          Mp4Utils.vuFromUs(sampleEndUs - minInputPtsUs, track.videoUnitTimebase())
+              - Mp4Utils.vuFromUs(samplePtsUs - minInputPtsUs, track.videoUnitTimebase());
+      checkState(durationVu < Integer.MAX_VALUE, "Timestamp delta doesn't fit into an int");
+      durationsVu.add(durationVu);
+    }
+    return durationsVu;
+  }
+
+  private void writeFully(ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      output.write(buffer);
+    }
+  }
+
+  private class Track implements TrackToken, Mp4MoovStructure.TrackMetadataProvider {
+    private final Format format;
+    private final int sortKey;
+    private final Deque<Pair<BufferInfo, ByteBuffer>> pendingSamples;
+
+    private boolean hadKeyframe = false;
+    private long lastSampleDurationUs;
+
+    private Track(Format format, int sortKey) {
+      this.format = format;
+      this.sortKey = sortKey;
+      pendingSamples = new ArrayDeque<>();
+      lastSampleDurationUs = C.TIME_UNSET;
+    }
+
+    public void writeSampleData(ByteBuffer byteBuffer, BufferInfo bufferInfo) throws IOException {
+      // Skip empty samples.
+      if (bufferInfo.size == 0 || byteBuffer.remaining() == 0) {
+        return;
+      }
+
+      if ((bufferInfo.flags & MediaCodec.BUFFER_FLAG_KEY_FRAME) > 0) {
+        hadKeyframe = true;
+      }
+
+      if (!hadKeyframe && MimeTypes.isVideo(format.sampleMimeType)) {
+        return;
+      }
+
+      onSampleAdded(this, bufferInfo);
+      pendingSamples.addLast(Pair.create(bufferInfo, byteBuffer));
+    }
+
+    @Override
+    public int videoUnitTimebase() {
+      return MimeTypes.isAudio(format.sampleMimeType) ? 48_000 : 90_000;
+    }
+
+    @Override
+    public int sortKey() {
+      return sortKey;
+    }
+
+    @Override
+    public ImmutableList<BufferInfo> writtenSamples() {
+      // Samples are written in fragments rather than in the moov box.
+      return ImmutableList.of();
+    }
+
+    @Override
+    public ImmutableList<Long> writtenChunkOffsets() {
+      return ImmutableList.of();
+    }
+
+    @Override
+    public ImmutableList<Integer> writtenChunkSampleCounts() {
+      return ImmutableList.of();
+    }
+
+    @Override
+    public Format format() {
+      return format;
+    }
+  }
+}
@@ -58,17 +58,23 @@ import org.checkerframework.checker.nullness.qual.PolyNull;
     this.lastFrameDurationBehavior = lastFrameDurationBehavior;
   }
 
-  /** Generates a mdat header. */
+  /**
+   * Generates a mdat header.
+   *
+   * <p>For fragmented MP4 files, the moov box includes all the tracks (which don't contain any
+   * samples, since samples are written in fragments) and an mvex box.
+   */
   @SuppressWarnings("InlinedApi")
   public ByteBuffer moovMetadataHeader(
-      List<? extends TrackMetadataProvider> tracks, long minInputPtsUs) {
+      List<? extends TrackMetadataProvider> tracks, long minInputPtsUs, boolean isFragmentedMp4) {
     List<ByteBuffer> trakBoxes = new ArrayList<>();
+    List<ByteBuffer> trexBoxes = new ArrayList<>();
 
     int nextTrackId = 1;
     long videoDurationUs = 0L;
     for (int i = 0; i < tracks.size(); i++) {
       TrackMetadataProvider track = tracks.get(i);
-      if (!track.writtenSamples().isEmpty()) {
+      if (isFragmentedMp4 || !track.writtenSamples().isEmpty()) {
         Format format = track.format();
         String languageCode = bcp47LanguageTagToIso3(format.language);
 
@@ -157,6 +163,7 @@ import org.checkerframework.checker.nullness.qual.PolyNull;
                     Boxes.minf(mhdBox, Boxes.dinf(Boxes.dref(Boxes.localUrl())), stblBox)));
 
         trakBoxes.add(trakBox);
+        trexBoxes.add(Boxes.trex(nextTrackId));
         videoDurationUs = max(videoDurationUs, trackDurationUs);
         nextTrackId++;
       }
@@ -175,7 +182,12 @@ import org.checkerframework.checker.nullness.qual.PolyNull;
 
     ByteBuffer moovBox;
     moovBox =
-        Boxes.moov(mvhdBox, udtaBox, metaBox, trakBoxes, /* mvexBox= */ ByteBuffer.allocate(0));
+        Boxes.moov(
+            mvhdBox,
+            udtaBox,
+            metaBox,
+            trakBoxes,
+            isFragmentedMp4 ? Boxes.mvex(trexBoxes) : /* mvexBox= */ ByteBuffer.allocate(0));
 
     // Also add XMP if needed
     if (metadataCollector.xmpData != null) {
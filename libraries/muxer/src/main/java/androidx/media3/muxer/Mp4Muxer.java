@@ -15,7 +15,9 @@
  */
 package androidx.media3.muxer;
 
+import static androidx.media3.common.util.Assertions.checkArgument;
 import static androidx.media3.common.util.Assertions.checkNotNull;
+import static androidx.media3.common.util.Assertions.checkState;
 import static java.lang.annotation.ElementType.TYPE_USE;
 
 import android.media.MediaCodec.BufferInfo;
@@ -34,6 +36,7 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 
 /**
  * A muxer for creating an MP4 container file.
@@ -61,6 +64,14 @@ import java.nio.ByteBuffer;
  *   <li>When writing a file, if an error occurs and the muxer is not closed, then the output MP4
  *       file may still have some partial data.
  * </ul>
+ *
+ * <p>By default the muxer writes a regular MP4 file, in which the sample tables of all the tracks
+ * are kept in memory and written to the moov box when the muxer is closed. For long recordings,
+ * {@linkplain Builder#setFragmentedMp4Enabled(boolean) fragmented MP4} output can be used instead.
+ * The samples are then written in fragments (moof and mdat boxes) of {@linkplain
+ * Builder#setFragmentDurationUs(long) configurable duration}, so the memory used by the muxer
+ * doesn't grow with the duration of the output, and the output doesn't need to be seekable. In
+ * this mode, all tracks must be added before the first fragment is written.
  */
 @UnstableApi
 public final class Mp4Muxer {
@@ -86,11 +97,17 @@ public final class Mp4Muxer {
    */
   public static final int LAST_FRAME_DURATION_BEHAVIOR_DUPLICATE_PREV_DURATION = 1;
 
+  /** The default fragment duration for fragmented MP4 output, in microseconds. */
+  public static final long DEFAULT_FRAGMENT_DURATION_US = 2_000_000L;
+
   /** A builder for {@link Mp4Muxer} instances. */
   public static final class Builder {
-    private final FileOutputStream fileOutputStream;
+    @Nullable private final FileOutputStream fileOutputStream;
+    @Nullable private final WritableByteChannel outputChannel;
     private @LastFrameDurationBehavior int lastFrameDurationBehavior;
     @Nullable private AnnexBToAvccConverter annexBToAvccConverter;
+    private boolean fragmentedMp4Enabled;
+    private long fragmentDurationUs;
 
     /**
      * Creates a {@link Builder} instance with default values.
@@ -99,7 +116,26 @@ public final class Mp4Muxer {
      */
     public Builder(FileOutputStream fileOutputStream) {
       this.fileOutputStream = checkNotNull(fileOutputStream);
+      outputChannel = null;
+      lastFrameDurationBehavior = LAST_FRAME_DURATION_BEHAVIOR_INSERT_SHORT_FRAME;
+      fragmentDurationUs = DEFAULT_FRAGMENT_DURATION_US;
+    }
+
+    /**
+     * Creates a {@link Builder} instance with default values, for writing fragmented MP4 output to
+     * a {@link WritableByteChannel}.
+     *
+     * <p>The channel doesn't need to be seekable, so it can for example be used to upload the
+     * output whilst it's being written. {@linkplain #setFragmentedMp4Enabled(boolean) Fragmented
+     * MP4} output must be enabled.
+     *
+     * @param outputChannel The {@link WritableByteChannel} to write the media data to.
+     */
+    public Builder(WritableByteChannel outputChannel) {
+      fileOutputStream = null;
+      this.outputChannel = checkNotNull(outputChannel);
       lastFrameDurationBehavior = LAST_FRAME_DURATION_BEHAVIOR_INSERT_SHORT_FRAME;
+      fragmentDurationUs = DEFAULT_FRAGMENT_DURATION_US;
     }
 
     /**
@@ -127,20 +163,56 @@ public final class Mp4Muxer {
       return this;
     }
 
+    /**
+     * Sets whether to write fragmented MP4 output.
+     *
+     * <p>The default value is {@code false}.
+     */
+    @CanIgnoreReturnValue
+    public Mp4Muxer.Builder setFragmentedMp4Enabled(boolean fragmentedMp4Enabled) {
+      this.fragmentedMp4Enabled = fragmentedMp4Enabled;
+      return this;
+    }
+
+    /**
+     * Sets the minimum duration of each fragment of fragmented MP4 output, in microseconds. If
+     * there's a video track, each fragment starts with a video key frame, so fragments may be
+     * longer than this duration.
+     *
+     * <p>The default value is {@link #DEFAULT_FRAGMENT_DURATION_US}.
+     */
+    @CanIgnoreReturnValue
+    public Mp4Muxer.Builder setFragmentDurationUs(long fragmentDurationUs) {
+      checkArgument(fragmentDurationUs > 0);
+      this.fragmentDurationUs = fragmentDurationUs;
+      return this;
+    }
+
     /** Builds an {@link Mp4Muxer} instance. */
     public Mp4Muxer build() {
       MetadataCollector metadataCollector = new MetadataCollector();
       Mp4MoovStructure moovStructure =
           new Mp4MoovStructure(metadataCollector, lastFrameDurationBehavior);
-      Mp4Writer mp4Writer =
-          new Mp4Writer(
-              fileOutputStream,
-              moovStructure,
-              annexBToAvccConverter == null
-                  ? AnnexBToAvccConverter.DEFAULT
-                  : annexBToAvccConverter);
+      AnnexBToAvccConverter annexBToAvccConverter =
+          this.annexBToAvccConverter == null
+              ? AnnexBToAvccConverter.DEFAULT
+              : this.annexBToAvccConverter;
+      MuxerWriter muxerWriter;
+      if (fragmentedMp4Enabled) {
+        muxerWriter =
+            new FragmentedMp4Writer(
+                outputChannel != null ? outputChannel : checkNotNull(fileOutputStream).getChannel(),
+                moovStructure,
+                annexBToAvccConverter,
+                lastFrameDurationBehavior,
+                fragmentDurationUs);
+      } else {
+        checkState(
+            fileOutputStream != null, "Output to a WritableByteChannel requires fragmented MP4.");
+        muxerWriter = new Mp4Writer(fileOutputStream, moovStructure, annexBToAvccConverter);
+      }
 
-      return new Mp4Muxer(mp4Writer, metadataCollector);
+      return new Mp4Muxer(muxerWriter, metadataCollector);
     }
   }
 
@@ -152,11 +224,11 @@ public final class Mp4Muxer {
   public static final ImmutableList<String> SUPPORTED_AUDIO_SAMPLE_MIME_TYPES =
       ImmutableList.of(MimeTypes.AUDIO_AAC);
 
-  private final Mp4Writer mp4Writer;
+  private final MuxerWriter muxerWriter;
   private final MetadataCollector metadataCollector;
 
-  private Mp4Muxer(Mp4Writer mp4Writer, MetadataCollector metadataCollector) {
-    this.mp4Writer = mp4Writer;
+  private Mp4Muxer(MuxerWriter muxerWriter, MetadataCollector metadataCollector) {
+    this.muxerWriter = muxerWriter;
     this.metadataCollector = metadataCollector;
   }
 
@@ -222,7 +294,8 @@ public final class Mp4Muxer {
    * Adds a track of the given media format.
    *
    * <p>Tracks can be added at any point before the muxer is closed, even after writing samples to
-   * other tracks.
+   * other tracks. For fragmented MP4 output, tracks must be added before the first fragment is
+   * written.
    *
    * <p>The final order of tracks is determined by the provided sort key. Tracks with a lower sort
    * key will always have a lower track id than tracks with a higher sort key. Ordering between
@@ -233,7 +306,7 @@ public final class Mp4Muxer {
    * @return A unique {@link TrackToken}. It should be used in {@link #writeSampleData}.
    */
   public TrackToken addTrack(int sortKey, Format format) {
-    return mp4Writer.addTrack(sortKey, format);
+    return muxerWriter.addTrack(sortKey, format);
   }
 
   /**
@@ -249,11 +322,11 @@ public final class Mp4Muxer {
    */
   public void writeSampleData(TrackToken trackToken, ByteBuffer byteBuffer, BufferInfo bufferInfo)
       throws IOException {
-    mp4Writer.writeSampleData(trackToken, byteBuffer, bufferInfo);
+    muxerWriter.writeSampleData(trackToken, byteBuffer, bufferInfo);
   }
 
   /** Closes the MP4 file. */
   public void close() throws IOException {
-    mp4Writer.close();
+    muxerWriter.close();
   }
 }
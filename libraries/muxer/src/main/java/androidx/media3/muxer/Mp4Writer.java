@@ -41,7 +41,7 @@ import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /** Writes MP4 data to the disk. */
-/* package */ final class Mp4Writer {
+/* package */ final class Mp4Writer implements MuxerWriter {
   private static final long INTERLEAVE_DURATION_US = 1_000_000L;
 
   private final AtomicBoolean hasWrittenSamples;
@@ -79,6 +79,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
     lastMoovWritten = Range.closed(0L, 0L);
   }
 
+  @Override
   public TrackToken addTrack(int sortKey, Format format) {
     Track track = new Track(format, sortKey);
     tracks.add(track);
@@ -86,12 +87,14 @@ import java.util.concurrent.atomic.AtomicBoolean;
     return track;
   }
 
+  @Override
   public void writeSampleData(TrackToken token, ByteBuffer byteBuf, BufferInfo bufferInfo)
       throws IOException {
     checkState(token instanceof Track);
     ((Track) token).writeSampleData(byteBuf, bufferInfo);
   }
 
+  @Override
   public void close() throws IOException {
     try {
       for (int i = 0; i < tracks.size(); i++) {
@@ -140,7 +143,8 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
     ByteBuffer moovHeader;
     if (minInputPtsUs != Long.MAX_VALUE) {
-      moovHeader = moovGenerator.moovMetadataHeader(tracks, minInputPtsUs);
+      moovHeader =
+          moovGenerator.moovMetadataHeader(tracks, minInputPtsUs, /* isFragmentedMp4= */ false);
     } else {
       // Skip moov box, if there are no samples.
       moovHeader = ByteBuffer.allocate(0);
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.muxer;
+
+import android.media.MediaCodec.BufferInfo;
+import androidx.media3.common.Format;
+import androidx.media3.muxer.Mp4Muxer.TrackToken;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/** Writes the tracks and samples passed to an {@link Mp4Muxer} to its output. */
+/* package */ interface MuxerWriter {
+
+  /** See {@link Mp4Muxer#addTrack(int, Format)}. */
+  TrackToken addTrack(int sortKey, Format format);
+
+  /** See {@link Mp4Muxer#writeSampleData(TrackToken, ByteBuffer, BufferInfo)}. */
+  void writeSampleData(TrackToken token, ByteBuffer byteBuf, BufferInfo bufferInfo)
+      throws IOException;
+
+  /** See {@link Mp4Muxer#close()}. */
+  void close() throws IOException;
+}
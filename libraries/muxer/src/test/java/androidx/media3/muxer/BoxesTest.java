@@ -563,6 +563,35 @@ public class BoxesTest {
         context, dumpableBox, MuxerTestUtil.getExpectedDumpFilePath("ftyp_box"));
   }
 
+  @Test
+  public void createFragmentedFtypBox_matchesExpected() throws IOException {
+    ByteBuffer ftypBox = Boxes.fragmentedFtyp();
+
+    DumpableMp4Box dumpableBox = new DumpableMp4Box(ftypBox);
+    DumpFileAsserts.assertOutput(
+        context, dumpableBox, MuxerTestUtil.getExpectedDumpFilePath("fragmented_ftyp_box"));
+  }
+
+  @Test
+  public void createTrunBox_matchesExpected() throws IOException {
+    List<MediaCodec.BufferInfo> samplesInfo =
+        ImmutableList.of(
+            MuxerTestUtil.getFakeSampleAndSampleInfo(/* presentationTimeUs= */ 0L).second,
+            MuxerTestUtil.getFakeSampleAndSampleInfo(/* presentationTimeUs= */ 1_000L).second);
+    samplesInfo.get(1).flags = 0;
+
+    ByteBuffer trunBox =
+        Boxes.trun(
+            samplesInfo,
+            /* durationsVu= */ ImmutableList.of(90L, 0L),
+            /* allSamplesAreSyncSamples= */ false,
+            /* dataOffset= */ 100);
+
+    DumpableMp4Box dumpableBox = new DumpableMp4Box(trunBox);
+    DumpFileAsserts.assertOutput(
+        context, dumpableBox, MuxerTestUtil.getExpectedDumpFilePath("trun_box"));
+  }
+
   private static List<MediaCodec.BufferInfo> createBufferInfoListWithSamplePresentationTimestamps(
       long... timestampsUs) {
     List<MediaCodec.BufferInfo> bufferInfoList = new ArrayList<>();
@@ -0,0 +1,292 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.muxer;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import android.content.Context;
+import android.media.MediaCodec.BufferInfo;
+import android.util.Pair;
+import androidx.media3.extractor.mp4.FragmentedMp4Extractor;
+import androidx.media3.muxer.Mp4Muxer.TrackToken;
+import androidx.media3.test.utils.DumpFileAsserts;
+import androidx.media3.test.utils.FakeExtractorOutput;
+import androidx.media3.test.utils.TestUtil;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableSet;
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+/** End to end tests for {@link Mp4Muxer} with fragmented MP4 output. */
+@RunWith(AndroidJUnit4.class)
+public class FragmentedMp4MuxerEndToEndTest {
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private String outputFilePath;
+  private FileOutputStream outputFileStream;
+
+  @Before
+  public void setUp() throws IOException {
+    outputFilePath = temporaryFolder.newFile("output.mp4").getPath();
+    outputFileStream = new FileOutputStream(outputFilePath);
+  }
+
+  @Test
+  public void createFragmentedMp4File_addTrackButNoSamples_createsEmptyFile() throws IOException {
+    Mp4Muxer mp4Muxer =
+        new Mp4Muxer.Builder(outputFileStream).setFragmentedMp4Enabled(true).build();
+
+    try {
+      mp4Muxer.addTrack(/* sortKey= */ 0, MuxerTestUtil.getFakeVideoFormat());
+    } finally {
+      mp4Muxer.close();
+    }
+
+    byte[] outputFileBytes = TestUtil.getByteArrayFromFilePath(outputFilePath);
+    assertThat(outputFileBytes).isEmpty();
+  }
+
+  @Test
+  public void createFragmentedMp4File_withAudioAndVideoTracks_matchesExpected()
+      throws IOException {
+    Context context = ApplicationProvider.getApplicationContext();
+    Mp4Muxer mp4Muxer =
+        new Mp4Muxer.Builder(outputFileStream)
+            .setFragmentedMp4Enabled(true)
+            .setFragmentDurationUs(1_000_000L)
+            .build();
+    mp4Muxer.setModificationTime(/* timestampMs= */ 500_000_000L);
+
+    try {
+      writeInterleavedSamples(mp4Muxer);
+    } finally {
+      mp4Muxer.close();
+    }
+
+    FakeExtractorOutput fakeExtractorOutput =
+        TestUtil.extractAllSamplesFromFilePath(new FragmentedMp4Extractor(), outputFilePath);
+    DumpFileAsserts.assertOutput(
+        context,
+        fakeExtractorOutput,
+        MuxerTestUtil.getExpectedDumpFilePath("fragmented_mp4_with_audio_and_video.mp4"));
+  }
+
+  @Test
+  public void createFragmentedMp4File_withVideoTrack_startsFragmentsAtKeyFrames()
+      throws IOException {
+    Mp4Muxer mp4Muxer =
+        new Mp4Muxer.Builder(outputFileStream)
+            .setFragmentedMp4Enabled(true)
+            .setFragmentDurationUs(1_000_000L)
+            .build();
+
+    try {
+      writeInterleavedSamples(mp4Muxer);
+    } finally {
+      mp4Muxer.close();
+    }
+
+    // Key frames are 1.5 seconds apart, so fragments are 1.5 seconds long.
+    List<String> topLevelBoxTypes =
+        getTopLevelBoxTypes(TestUtil.getByteArrayFromFilePath(outputFilePath));
+    assertThat(topLevelBoxTypes)
+        .containsExactly("ftyp", "moov", "moof", "mdat", "moof", "mdat", "moof", "mdat")
+        .inOrder();
+  }
+
+  @Test
+  public void createFragmentedMp4File_withAudioAheadOfVideo_keepsAudioSampleDurations()
+      throws IOException {
+    Mp4Muxer mp4Muxer =
+        new Mp4Muxer.Builder(outputFileStream)
+            .setFragmentedMp4Enabled(true)
+            .setFragmentDurationUs(1_000_000L)
+            .build();
+
+    try {
+      TrackToken videoTrack =
+          mp4Muxer.addTrack(/* sortKey= */ 0, MuxerTestUtil.getFakeVideoFormat());
+      TrackToken audioTrack =
+          mp4Muxer.addTrack(/* sortKey= */ 1, MuxerTestUtil.getFakeAudioFormat());
+      for (int i = 0; i < 30; i++) {
+        // Audio samples are written 50ms ahead of video samples.
+        writeSample(mp4Muxer, audioTrack, i * 100_000L + 50_000L, /* isKeyFrame= */ true);
+        writeSample(mp4Muxer, videoTrack, i * 100_000L, /* isKeyFrame= */ i % 10 == 0);
+      }
+    } finally {
+      mp4Muxer.close();
+    }
+
+    // The fragments end at video key frames, which are earlier than the last audio sample of each
+    // fragment. The last audio sample of each fragment still lasts 100ms (4800 at 48kHz).
+    List<Long> audioSampleDurationsVu =
+        getSampleDurationsVu(
+            TestUtil.getByteArrayFromFilePath(outputFilePath), /* trackId= */ 2);
+    assertThat(audioSampleDurationsVu).hasSize(30);
+    assertThat(ImmutableSet.copyOf(audioSampleDurationsVu.subList(0, 29))).containsExactly(4800L);
+  }
+
+  @Test
+  public void createFragmentedMp4File_toNonSeekableChannel_matchesFileOutput() throws IOException {
+    Mp4Muxer fileMuxer =
+        new Mp4Muxer.Builder(outputFileStream).setFragmentedMp4Enabled(true).build();
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    Mp4Muxer channelMuxer =
+        new Mp4Muxer.Builder(Channels.newChannel(byteArrayOutputStream))
+            .setFragmentedMp4Enabled(true)
+            .build();
+
+    try {
+      writeInterleavedSamples(fileMuxer);
+      writeInterleavedSamples(channelMuxer);
+    } finally {
+      fileMuxer.close();
+      channelMuxer.close();
+    }
+
+    assertThat(byteArrayOutputStream.toByteArray())
+        .isEqualTo(TestUtil.getByteArrayFromFilePath(outputFilePath));
+  }
+
+  @Test
+  public void build_withChannelButWithoutFragmentedMp4_throws() {
+    Mp4Muxer.Builder builder =
+        new Mp4Muxer.Builder(Channels.newChannel(new ByteArrayOutputStream()));
+
+    assertThrows(IllegalStateException.class, builder::build);
+  }
+
+  @Test
+  public void addTrack_afterFirstFragmentWritten_throws() throws IOException {
+    Mp4Muxer mp4Muxer =
+        new Mp4Muxer.Builder(outputFileStream)
+            .setFragmentedMp4Enabled(true)
+            .setFragmentDurationUs(1_000L)
+            .build();
+
+    try {
+      TrackToken track = mp4Muxer.addTrack(/* sortKey= */ 0, MuxerTestUtil.getFakeVideoFormat());
+      writeSample(mp4Muxer, track, /* presentationTimeUs= */ 0L, /* isKeyFrame= */ true);
+      writeSample(mp4Muxer, track, /* presentationTimeUs= */ 2_000L, /* isKeyFrame= */ true);
+
+      assertThrows(
+          IllegalStateException.class,
+          () -> mp4Muxer.addTrack(/* sortKey= */ 1, MuxerTestUtil.getFakeAudioFormat()));
+    } finally {
+      mp4Muxer.close();
+    }
+  }
+
+  /**
+   * Writes 4 seconds of interleaved samples to a video track with a key frame every 1.5 seconds,
+   * and an audio track.
+   */
+  private static void writeInterleavedSamples(Mp4Muxer mp4Muxer) throws IOException {
+    TrackToken videoTrack = mp4Muxer.addTrack(/* sortKey= */ 0, MuxerTestUtil.getFakeVideoFormat());
+    TrackToken audioTrack = mp4Muxer.addTrack(/* sortKey= */ 1, MuxerTestUtil.getFakeAudioFormat());
+    for (int i = 0; i < 40; i++) {
+      long presentationTimeUs = i * 100_000L;
+      writeSample(mp4Muxer, videoTrack, presentationTimeUs, /* isKeyFrame= */ i % 15 == 0);
+      writeSample(mp4Muxer, audioTrack, presentationTimeUs, /* isKeyFrame= */ true);
+    }
+  }
+
+  private static void writeSample(
+      Mp4Muxer mp4Muxer, TrackToken trackToken, long presentationTimeUs, boolean isKeyFrame)
+      throws IOException {
+    Pair<ByteBuffer, BufferInfo> sample =
+        MuxerTestUtil.getFakeSampleAndSampleInfo(presentationTimeUs);
+    if (!isKeyFrame) {
+      sample.second.flags = 0;
+    }
+    mp4Muxer.writeSampleData(trackToken, sample.first, sample.second);
+  }
+
+  /** Returns the sample durations in the trun boxes of a track, in the order they're written. */
+  private static List<Long> getSampleDurationsVu(byte[] data, int trackId) {
+    List<Long> durationsVu = new ArrayList<>();
+    ByteBuffer buffer = ByteBuffer.wrap(data);
+    while (buffer.remaining() >= 8) {
+      int boxStart = buffer.position();
+      int boxSize = buffer.getInt();
+      if (readBoxType(buffer).equals("moof")) {
+        addTrunSampleDurationsVu(buffer, boxStart + boxSize, trackId, durationsVu);
+      }
+      buffer.position(boxStart + boxSize);
+    }
+    return durationsVu;
+  }
+
+  private static void addTrunSampleDurationsVu(
+      ByteBuffer buffer, int end, int trackId, List<Long> durationsVu) {
+    int currentTrackId = 0;
+    while (buffer.position() < end) {
+      int boxStart = buffer.position();
+      int boxSize = buffer.getInt();
+      String boxType = readBoxType(buffer);
+      if (boxType.equals("traf")) {
+        // Parse the children of the traf box.
+        continue;
+      } else if (boxType.equals("tfhd")) {
+        buffer.getInt(); // Version and flags.
+        currentTrackId = buffer.getInt();
+      } else if (boxType.equals("trun") && currentTrackId == trackId) {
+        buffer.getInt(); // Version and flags.
+        int sampleCount = buffer.getInt();
+        buffer.getInt(); // Data offset.
+        for (int i = 0; i < sampleCount; i++) {
+          durationsVu.add((long) buffer.getInt());
+          buffer.getInt(); // Sample size.
+          buffer.getInt(); // Sample flags.
+        }
+      }
+      buffer.position(boxStart + boxSize);
+    }
+  }
+
+  private static String readBoxType(ByteBuffer buffer) {
+    byte[] boxType = new byte[4];
+    buffer.get(boxType);
+    return new String(boxType, Charsets.UTF_8);
+  }
+
+  private static List<String> getTopLevelBoxTypes(byte[] data) {
+    List<String> boxTypes = new ArrayList<>();
+    ByteBuffer buffer = ByteBuffer.wrap(data);
+    while (buffer.remaining() >= 8) {
+      int boxStart = buffer.position();
+      int boxSize = buffer.getInt();
+      byte[] boxType = new byte[4];
+      buffer.get(boxType);
+      boxTypes.add(new String(boxType, Charsets.UTF_8));
+      buffer.position(boxStart + boxSize);
+    }
+    return boxTypes;
+  }
+}
@@ -28,6 +28,7 @@ import java.nio.ByteBuffer;
   private static final byte[] FAKE_CSD_0 =
       BaseEncoding.base16().decode("0000000167F4000A919B2BF3CB3640000003004000000C83C4896580");
   private static final byte[] FAKE_CSD_1 = BaseEncoding.base16().decode("0000000168EBE3C448");
+  private static final byte[] FAKE_AAC_CSD = BaseEncoding.base16().decode("1190");
   private static final byte[] FAKE_H264_SAMPLE =
       BaseEncoding.base16()
           .decode(
@@ -54,6 +55,7 @@ import java.nio.ByteBuffer;
         .setSampleMimeType("audio/mp4a-latm")
         .setSampleRate(40000)
         .setChannelCount(2)
+        .setInitializationData(ImmutableList.of(FAKE_AAC_CSD))
         .build();
   }
 
@@ -178,11 +178,7 @@ import org.checkerframework.checker.nullness.qual.Nullable;
       @Override
       public void sampleData(
           ParsableByteArray data, int length, @SampleDataPart int sampleDataPart) {
-        while (length > 0) {
-          int bytesToRead = min(length, byteArray.length);
-          data.readBytes(byteArray, /* offset= */ 0, bytesToRead);
-          length -= bytesToRead;
-        }
+        data.skipBytes(length);
       }
 
       @Override